@@ -0,0 +1,47 @@
+package com.ciav.staceymeals.db;
+
+import org.flywaydb.core.Flyway;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.postgres.PostgresPlugin;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * A throwaway Postgres for database benchmarks, migrated with the application's Flyway scripts
+ * and wired up the same way as {@code JdbiConfiguration}. Needs a Docker daemon.
+ */
+public final class BenchmarkDatabase implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> postgres;
+    private final Jdbi jdbi;
+
+    private BenchmarkDatabase(PostgreSQLContainer<?> postgres) {
+        this.postgres = postgres;
+        this.jdbi = Jdbi.create(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .installPlugin(new SqlObjectPlugin())
+                .installPlugin(new PostgresPlugin());
+    }
+
+    public static BenchmarkDatabase start() {
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+                .withDatabaseName("staceymeals")
+                .withUsername("test")
+                .withPassword("test");
+        postgres.start();
+
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+        return new BenchmarkDatabase(postgres);
+    }
+
+    public Jdbi jdbi() {
+        return jdbi;
+    }
+
+    @Override
+    public void close() {
+        postgres.stop();
+    }
+}
@@ -0,0 +1,179 @@
+package com.ciav.staceymeals.db;
+
+import com.ciav.staceymeals.db.dao.CategoryDao;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.RecipeSummary;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closure-table subtree and descendant-recipe queries against the recursive-CTE walk over
+ * {@code parent_category_id} they replace. {@code deep} is a single 500-level chain; {@code wide}
+ * is a root with 50 children of 40 children each. Every category holds two recipes, and the
+ * queries start from the root so they cover the whole tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryTreeQueryBenchmark {
+
+    private static final String RECURSIVE_SUBTREE = """
+            WITH RECURSIVE subtree AS (
+                SELECT c.*, 0 AS depth FROM categories c WHERE c.id = :id AND c.user_id = :userId
+                UNION ALL
+                SELECT c.*, s.depth + 1 FROM categories c JOIN subtree s ON c.parent_category_id = s.id
+            )
+            SELECT id, user_id, name, parent_category_id FROM subtree ORDER BY depth, name
+            """;
+
+    private static final String RECURSIVE_RECIPES = """
+            WITH RECURSIVE subtree AS (
+                SELECT c.id FROM categories c WHERE c.id = :categoryId AND c.user_id = :userId
+                UNION ALL
+                SELECT c.id FROM categories c JOIN subtree s ON c.parent_category_id = s.id
+            )
+            SELECT r.id, r.title, r.thumbnail_url, r.prep_time, r.cook_time, r.total_time, r.rating, r.created_at,
+                   ARRAY(SELECT rc.category_id FROM recipes_categories rc WHERE rc.recipe_id = r.id) AS category_ids
+            FROM recipes r
+            WHERE r.user_id = :userId
+              AND r.id IN (SELECT rc.recipe_id FROM subtree s JOIN recipes_categories rc ON rc.category_id = s.id)
+            ORDER BY r.created_at DESC, r.id DESC
+            LIMIT :limit
+            """;
+
+    private static final int PAGE = 50;
+
+    @Param({"deep", "wide"})
+    public String shape;
+
+    private BenchmarkDatabase database;
+    private CategoryDao categoryDao;
+    private RecipeDao recipeDao;
+    private UUID userId;
+    private UUID rootId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        categoryDao = database.jdbi().onDemand(CategoryDao.class);
+        recipeDao = database.jdbi().onDemand(RecipeDao.class);
+        userId = UUID.randomUUID();
+
+        List<UUID[]> edges = "deep".equals(shape) ? chain(500) : fanOut(50, 40);
+        rootId = edges.get(0)[0];
+        database.jdbi().useHandle(handle -> seed(handle, edges));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Category> subtreeClosure() {
+        return categoryDao.findSubtree(rootId, userId);
+    }
+
+    @Benchmark
+    public List<Category> subtreeRecursiveCte() {
+        return database.jdbi().withHandle(handle -> handle.createQuery(RECURSIVE_SUBTREE)
+                .bind("id", rootId)
+                .bind("userId", userId)
+                .mapToBean(Category.class)
+                .list());
+    }
+
+    @Benchmark
+    public List<RecipeSummary> descendantRecipesClosure() {
+        return recipeDao.querySummariesNewest(userId, null, null, rootId, PAGE);
+    }
+
+    @Benchmark
+    public List<RecipeSummary> descendantRecipesRecursiveCte() {
+        return database.jdbi().withHandle(handle -> handle.createQuery(RECURSIVE_RECIPES)
+                .bind("categoryId", rootId)
+                .bind("userId", userId)
+                .bind("limit", PAGE)
+                .mapToBean(RecipeSummary.class)
+                .list());
+    }
+
+    /** {id, parentId} pairs, parents before children so the closure trigger can link each insert. */
+    private static List<UUID[]> chain(int depth) {
+        List<UUID[]> edges = new ArrayList<>();
+        UUID parent = null;
+        for (int i = 0; i < depth; i++) {
+            UUID id = UUID.randomUUID();
+            edges.add(new UUID[]{id, parent});
+            parent = id;
+        }
+        return edges;
+    }
+
+    private static List<UUID[]> fanOut(int children, int grandchildren) {
+        List<UUID[]> edges = new ArrayList<>();
+        UUID root = UUID.randomUUID();
+        edges.add(new UUID[]{root, null});
+        for (int i = 0; i < children; i++) {
+            UUID child = UUID.randomUUID();
+            edges.add(new UUID[]{child, root});
+            for (int j = 0; j < grandchildren; j++) {
+                edges.add(new UUID[]{UUID.randomUUID(), child});
+            }
+        }
+        return edges;
+    }
+
+    private void seed(Handle handle, List<UUID[]> edges) {
+        PreparedBatch categories = handle.prepareBatch(
+                "INSERT INTO categories (id, user_id, name, parent_category_id) VALUES (:id, :userId, :name, :parentId)");
+        PreparedBatch recipes = handle.prepareBatch(
+                """
+                INSERT INTO recipes (id, user_id, title, created_at, content_hash)
+                VALUES (:id, :userId, :title, :createdAt, intern_recipe_content(NULL, NULL, NULL, NULL))
+                """);
+        PreparedBatch links = handle.prepareBatch(
+                "INSERT INTO recipes_categories (recipe_id, category_id) VALUES (:recipeId, :categoryId)");
+
+        LocalDateTime createdAt = LocalDateTime.now();
+        int n = 0;
+        for (UUID[] edge : edges) {
+            categories.bind("id", edge[0]).bind("userId", userId).bind("name", "category " + n)
+                    .bind("parentId", edge[1]).add();
+            for (int i = 0; i < 2; i++) {
+                UUID recipeId = UUID.randomUUID();
+                recipes.bind("id", recipeId).bind("userId", userId).bind("title", "recipe " + n + "-" + i)
+                        .bind("createdAt", createdAt.minusSeconds(n * 2L + i)).add();
+                links.bind("recipeId", recipeId).bind("categoryId", edge[0]).add();
+            }
+            n++;
+        }
+        categories.execute();
+        recipes.execute();
+        links.execute();
+        handle.execute("ANALYZE");
+    }
+}
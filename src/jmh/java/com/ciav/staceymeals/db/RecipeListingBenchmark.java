@@ -0,0 +1,151 @@
+package com.ciav.staceymeals.db;
+
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.db.mapper.RecipeRowMapper;
+import com.ciav.staceymeals.model.Recipe;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full-library listing ({@link RecipeDao#findByUserId}) with the source JSON-LD in the shared
+ * {@code recipe_contents} table, which the listing doesn't read, against the old layout, where {@code raw} sat in the recipes row and came back once per joined
+ * category. The old layout is rebuilt as {@code recipes_inline} for the comparison.
+ * <p>
+ * Setup prints roughly how many bytes each listing returns; run with {@code -prof gc} for the row
+ * reducer's allocation per listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeListingBenchmark {
+
+    private static final String INLINE_LISTING = RecipeDao.SELECT_RECIPE + """
+                   r.ingredients, r.ingredient_terms, r.steps, r.raw,
+                   c.id as category_id, c.name as category_name
+            FROM recipes_inline r
+            LEFT JOIN recipes_categories rc ON r.id = rc.recipe_id
+            LEFT JOIN categories c ON rc.category_id = c.id
+            WHERE r.user_id = :userId
+            ORDER BY r.id, c.id
+            """;
+
+    private static final String SIDE_TABLE_LISTING = RecipeDao.SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps,
+                   c.id as category_id, c.name as category_name
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            LEFT JOIN recipes_categories rc ON r.id = rc.recipe_id
+            LEFT JOIN categories c ON rc.category_id = c.id
+            WHERE r.user_id = :userId
+            ORDER BY r.id, c.id
+            """;
+
+    @Param({"200", "2000"})
+    public int recipes;
+
+    private BenchmarkDatabase database;
+    private RecipeDao recipeDao;
+    private UUID userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        recipeDao = database.jdbi().onDemand(RecipeDao.class);
+        userId = UUID.randomUUID();
+
+        database.jdbi().useHandle(handle -> {
+            seed(handle);
+            System.out.printf("%n%d recipes: inline listing returns %,d bytes, side-table listing %,d bytes%n",
+                    recipes, listingBytes(handle, INLINE_LISTING), listingBytes(handle, SIDE_TABLE_LISTING));
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Recipe> sideTable() {
+        return recipeDao.findByUserId(userId);
+    }
+
+    @Benchmark
+    public List<Recipe> inlineRaw() {
+        return database.jdbi().withHandle(handle -> handle.createQuery(INLINE_LISTING)
+                .bind("userId", userId)
+                .registerRowMapper(BeanMapper.factory(Recipe.class))
+                .reduceRows(new RecipeRowMapper())
+                .toList());
+    }
+
+    /** Each recipe is filed under three categories and has its own content with ~6 KB of JSON-LD. */
+    private void seed(Handle handle) {
+        handle.createUpdate("""
+                        INSERT INTO categories (user_id, name)
+                        SELECT :userId, 'Category ' || n FROM generate_series(1, 6) AS n
+                        """)
+                .bind("userId", userId)
+                .execute();
+        handle.createUpdate("""
+                        INSERT INTO recipes (user_id, title, thumbnail_url, content_hash)
+                        SELECT :userId, 'Recipe ' || n, 'https://example.com/images/' || n || '.jpg',
+                               intern_recipe_content(content.ingredients, NULL, content.steps,
+                                   '{"@context":"https://schema.org","@type":"Recipe","name":"Recipe ' || n || '",'
+                                   || '"description":"' || repeat(md5(n::text), 60) || '",'
+                                   || '"recipeIngredient":' || to_json(content.ingredients) || ','
+                                   || '"recipeInstructions":' || to_json(content.steps) || '}')
+                        FROM generate_series(1, :count) AS n,
+                             LATERAL (SELECT ARRAY['2 cups flour', '1 tsp salt', '3 eggs', '250 ml milk', '1 tbsp butter'] AS ingredients,
+                                             ARRAY['Whisk the dry ingredients.', 'Beat in the eggs and milk.', 'Cook batch ' || n || ' in butter.'] AS steps) content
+                        """)
+                .bind("userId", userId)
+                .bind("count", recipes)
+                .execute();
+        handle.createUpdate("""
+                        INSERT INTO recipes_categories (recipe_id, category_id)
+                        SELECT r.id, c.id
+                        FROM recipes r
+                        JOIN LATERAL (SELECT id FROM categories WHERE user_id = :userId
+                                      ORDER BY md5(r.id::text || categories.id::text) LIMIT 3) c ON true
+                        WHERE r.user_id = :userId
+                        """)
+                .bind("userId", userId)
+                .execute();
+        handle.execute("""
+                CREATE TABLE recipes_inline AS
+                SELECT r.*, content.ingredients, content.ingredient_terms, content.steps, content.raw
+                FROM recipes r
+                JOIN recipe_contents content ON content.content_hash = r.content_hash
+                """);
+        handle.execute("CREATE INDEX ON recipes_inline(user_id)");
+        handle.execute("ANALYZE");
+    }
+
+    private long listingBytes(Handle handle, String listing) {
+        return handle.createQuery("SELECT coalesce(sum(pg_column_size(t.*)), 0) FROM (" + listing + ") t")
+                .bind("userId", userId)
+                .mapTo(Long.class)
+                .one();
+    }
+}
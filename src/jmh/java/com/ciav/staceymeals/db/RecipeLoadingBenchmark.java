@@ -0,0 +1,164 @@
+package com.ciav.staceymeals.db;
+
+import com.ciav.staceymeals.config.RecipeLoadingProperties;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Recipe;
+import org.jdbi.v3.core.Handle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three {@link RecipeLoadingProperties.Strategy} paths for a 1,000-recipe library, with
+ * each recipe filed under 1, 5 or 12 of the user's 20 categories.
+ * <p>
+ * Setup prints the bytes each strategy's queries return, which is roughly what crosses the
+ * wire. The measured time includes mapping; run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeLoadingBenchmark {
+
+    private static final int RECIPES = 1_000;
+
+    @Param({"JOIN", "AGGREGATE", "BATCH"})
+    public RecipeLoadingProperties.Strategy strategy;
+
+    @Param({"1", "5", "12"})
+    public int categoriesPerRecipe;
+
+    private BenchmarkDatabase database;
+    private RecipeDao recipeDao;
+    private UUID userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        recipeDao = database.jdbi().onDemand(RecipeDao.class);
+        userId = UUID.randomUUID();
+        database.jdbi().useHandle(handle -> {
+            seed(handle);
+            System.out.printf("%n%s with %d categories per recipe returns %,d bytes%n",
+                    strategy, categoriesPerRecipe, resultBytes(handle));
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Recipe> load() {
+        return switch (strategy) {
+            case JOIN -> recipeDao.findByUserId(userId);
+            case AGGREGATE -> recipeDao.findByUserIdAggregated(userId);
+            case BATCH -> recipeDao.findByUserIdBatched(userId);
+        };
+    }
+
+    private void seed(Handle handle) {
+        handle.createUpdate("""
+                        INSERT INTO categories (user_id, name)
+                        SELECT :userId, 'Weeknight dinners ' || n FROM generate_series(1, 20) AS n
+                        """)
+                .bind("userId", userId)
+                .execute();
+        handle.createUpdate("""
+                        INSERT INTO recipes (user_id, title, content_hash, thumbnail_url, prep_time, cook_time)
+                        SELECT :userId, 'Recipe ' || n,
+                               intern_recipe_content(
+                                   ARRAY['2 cups flour', '1 tsp salt', '3 eggs', '250 ml milk', '1 tbsp butter',
+                                         '1 onion, finely chopped', '2 cloves garlic', '400 g chopped tomatoes'],
+                                   NULL,
+                                   ARRAY['Whisk the dry ingredients together in a large bowl.',
+                                         'Beat in the eggs and milk until smooth, then rest for ten minutes.',
+                                         'Soften the onion and garlic in butter, add the tomatoes and simmer.',
+                                         'Cook the batter in a hot pan and serve with the sauce.'],
+                                   NULL),
+                               'https://example.com/images/' || n || '.jpg', '10 minutes', '25 minutes'
+                        FROM generate_series(1, :count) AS n
+                        """)
+                .bind("userId", userId)
+                .bind("count", RECIPES)
+                .execute();
+        handle.createUpdate("""
+                        INSERT INTO recipes_categories (recipe_id, category_id)
+                        SELECT r.id, c.id
+                        FROM recipes r
+                        JOIN LATERAL (SELECT id FROM categories WHERE user_id = :userId
+                                      ORDER BY md5(r.id::text || categories.id::text) LIMIT :perRecipe) c ON true
+                        WHERE r.user_id = :userId
+                        """)
+                .bind("userId", userId)
+                .bind("perRecipe", categoriesPerRecipe)
+                .execute();
+        handle.execute("ANALYZE");
+    }
+
+    private long resultBytes(Handle handle) {
+        String query = switch (strategy) {
+            case JOIN -> RecipeDao.SELECT_RECIPE + """
+                           content.ingredients, content.ingredient_terms, content.steps,
+                           c.id as category_id, c.name as category_name
+                    FROM recipes r
+                    JOIN recipe_contents content ON content.content_hash = r.content_hash
+                    LEFT JOIN recipes_categories rc ON r.id = rc.recipe_id
+                    LEFT JOIN categories c ON rc.category_id = c.id
+                    WHERE r.user_id = :userId
+                    """;
+            case AGGREGATE -> RecipeDao.SELECT_RECIPE + """
+                           content.ingredients, content.ingredient_terms, content.steps, cats.ids, cats.names
+                    FROM recipes r
+                    JOIN recipe_contents content ON content.content_hash = r.content_hash
+                    LEFT JOIN LATERAL (
+                        SELECT array_agg(c.id) AS ids, array_agg(c.name) AS names
+                        FROM recipes_categories rc JOIN categories c ON c.id = rc.category_id
+                        WHERE rc.recipe_id = r.id
+                    ) cats ON true
+                    WHERE r.user_id = :userId
+                    """;
+            case BATCH -> RecipeDao.SELECT_RECIPE + """
+                           content.ingredients, content.ingredient_terms, content.steps
+                    FROM recipes r
+                    JOIN recipe_contents content ON content.content_hash = r.content_hash
+                    WHERE r.user_id = :userId
+                    """;
+        };
+        long bytes = handle.createQuery("SELECT coalesce(sum(pg_column_size(t.*)), 0) FROM (" + query + ") t")
+                .bind("userId", userId)
+                .mapTo(Long.class)
+                .one();
+        if (strategy == RecipeLoadingProperties.Strategy.BATCH) {
+            bytes += handle.createQuery("""
+                            SELECT coalesce(sum(pg_column_size(t.*)), 0)
+                            FROM (SELECT rc.recipe_id, c.id, c.name
+                                  FROM recipes_categories rc JOIN categories c ON c.id = rc.category_id
+                                  JOIN recipes r ON r.id = rc.recipe_id
+                                  WHERE r.user_id = :userId) t
+                            """)
+                    .bind("userId", userId)
+                    .mapTo(Long.class)
+                    .one();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ciav.staceymeals.db;
+
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.RecipeSummary;
+import org.jdbi.v3.core.Handle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency for one user's library, with the same number of recipes again spread over
+ * other users so the GIN index has to narrow by user as well as by term. Sample mode reports
+ * p50/p90/p99; four threads approximate concurrent users hitting the endpoint.
+ * <p>
+ * Queries range from a rare title word, through a common ingredient, to an OR over two
+ * common terms that matches most of the library and so has to rank everything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(1)
+public class RecipeSearchBenchmark {
+
+    private static final String[] DISHES = {"soup", "stew", "curry", "salad", "risotto", "tacos", "pie", "bread",
+            "noodles", "casserole", "chili", "frittata", "dumplings", "paella", "gratin", "tagine"};
+    private static final String[] INGREDIENTS = {"onion", "garlic", "carrot", "chicken", "beef", "lentils",
+            "tomato", "potato", "spinach", "mushroom", "rice", "flour", "butter", "lemon", "ginger", "coconut milk"};
+
+    @Param({"10000", "50000"})
+    public int recipes;
+
+    @Param({"tagine", "mushroom", "garlic or onion", "\"coconut milk\" -beef"})
+    public String query;
+
+    private BenchmarkDatabase database;
+    private RecipeDao recipeDao;
+    private UUID userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = BenchmarkDatabase.start();
+        recipeDao = database.jdbi().onDemand(RecipeDao.class);
+        userId = UUID.randomUUID();
+
+        database.jdbi().useHandle(handle -> {
+            seed(handle, userId, recipes);
+            for (int i = 0; i < 10; i++) {
+                seed(handle, UUID.randomUUID(), recipes / 10);
+            }
+            handle.execute("ANALYZE recipes");
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<RecipeSummary> firstPage() {
+        return recipeDao.searchSummaries(userId, query, 51, 0);
+    }
+
+    @Benchmark
+    public List<RecipeSummary> thirdPage() {
+        return recipeDao.searchSummaries(userId, query, 51, 100);
+    }
+
+    /** Titles are "<ingredient> <dish> n"; each recipe gets three ingredients and a few generic steps. */
+    private static void seed(Handle handle, UUID owner, int count) {
+        handle.createUpdate("""
+                        INSERT INTO recipes (user_id, title, content_hash)
+                        SELECT :userId,
+                               (:ingredients)[1 + n % 16] || ' ' || (:dishes)[1 + (n / 16) % 16] || ' ' || n,
+                               intern_recipe_content(
+                                   ARRAY['2 cups ' || (:ingredients)[1 + n % 16],
+                                         '1 ' || (:ingredients)[1 + (n * 7) % 16],
+                                         'a pinch of ' || (:ingredients)[1 + (n * 13) % 16]],
+                                   NULL,
+                                   ARRAY['Prep everything and heat the pan.',
+                                         'Cook the ' || (:ingredients)[1 + n % 16] || ' until soft.',
+                                         'Season, simmer for twenty minutes and serve.'],
+                                   NULL)
+                        FROM generate_series(1, :count) AS n
+                        """)
+                .bind("userId", owner)
+                .bind("ingredients", INGREDIENTS)
+                .bind("dishes", DISHES)
+                .bind("count", count)
+                .execute();
+    }
+}
@@ -0,0 +1,90 @@
+package com.ciav.staceymeals.db.mapper;
+
+import com.ciav.staceymeals.model.Recipe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecipeRowMapper} (collect into a map) and {@link RecipeRowFolder} (stream) over
+ * synthetic join rows, isolating the reduction from the driver and the bean mapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeRowReducerBenchmark {
+
+    @Param({"100", "2000"})
+    public int recipes;
+
+    @Param({"0", "5"})
+    public int categoriesPerRecipe;
+
+    private SyntheticRowView rowView;
+
+    @Setup
+    public void setUp() {
+        UUID userId = UUID.randomUUID();
+        List<UUID> categoryIds = new ArrayList<>();
+        for (int c = 0; c < Math.max(categoriesPerRecipe, 1); c++) {
+            categoryIds.add(UUID.randomUUID());
+        }
+
+        List<SyntheticRowView.Row> rows = new ArrayList<>();
+        for (int i = 0; i < recipes; i++) {
+            Recipe recipe = Recipe.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .title("Recipe " + i)
+                    .ingredients(List.of("2 cups flour", "1 tsp salt", "3 eggs"))
+                    .steps(List.of("Mix.", "Bake."))
+                    .thumbnailUrl("https://example.com/" + i + ".jpg")
+                    .build();
+            if (categoriesPerRecipe == 0) {
+                rows.add(new SyntheticRowView.Row(recipe, null, null));
+            }
+            for (int c = 0; c < categoriesPerRecipe; c++) {
+                rows.add(new SyntheticRowView.Row(recipe, categoryIds.get(c), "Category " + c));
+            }
+        }
+        rowView = new SyntheticRowView(rows);
+    }
+
+    @Benchmark
+    public List<Recipe> linkedHashMapReducer() {
+        RecipeRowMapper reducer = new RecipeRowMapper();
+        Map<UUID, Recipe> container = new LinkedHashMap<>();
+        while (rowView.advance()) {
+            reducer.accumulate(container, rowView);
+        }
+        return new ArrayList<>(container.values());
+    }
+
+    @Benchmark
+    public void streamingFolder(Blackhole bh) {
+        RecipeRowFolder folder = new RecipeRowFolder(bh::consume);
+        while (rowView.advance()) {
+            folder.accumulate(rowView);
+        }
+        folder.finish();
+    }
+}
@@ -0,0 +1,69 @@
+package com.ciav.staceymeals.db.mapper;
+
+import com.ciav.staceymeals.model.Recipe;
+import org.jdbi.v3.core.qualifier.QualifiedType;
+import org.jdbi.v3.core.result.RowView;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A {@link RowView} over in-memory recipe/category join rows, so the reducers can be measured
+ * without a database or JDBC driver in the way. {@link #getRow} builds the recipe directly,
+ * standing in for the bean mapper. Call {@link #advance} to move to the next row.
+ */
+final class SyntheticRowView extends RowView {
+
+    /** One join row: the recipe's columns plus the (nullable) category on this row. */
+    record Row(Recipe recipe, UUID categoryId, String categoryName) {
+    }
+
+    private final List<Row> rows;
+    private Row current;
+    private int next;
+
+    SyntheticRowView(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    boolean advance() {
+        if (next == rows.size()) {
+            next = 0;
+            return false;
+        }
+        current = rows.get(next++);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getRow(QualifiedType<T> type) {
+        Recipe source = current.recipe();
+        return (T) Recipe.builder()
+                .id(source.getId())
+                .userId(source.getUserId())
+                .title(source.getTitle())
+                .ingredients(source.getIngredients())
+                .steps(source.getSteps())
+                .thumbnailUrl(source.getThumbnailUrl())
+                .prepTime(source.getPrepTime())
+                .cookTime(source.getCookTime())
+                .build();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getColumn(String column, QualifiedType<T> type) {
+        return (T) switch (column) {
+            case "id" -> current.recipe().getId();
+            case "category_id" -> current.categoryId();
+            case "category_name" -> current.categoryName();
+            default -> throw new IllegalArgumentException("No column " + column);
+        };
+    }
+
+    @Override
+    public <T> T getColumn(int column, QualifiedType<T> type) {
+        throw new UnsupportedOperationException("Columns are looked up by name");
+    }
+}
@@ -0,0 +1,41 @@
+package com.ciav.staceymeals.function;
+
+import com.ciav.staceymeals.StaceyMealsApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Cold-start probe run once per JVM by the {@code startupBenchmark} Gradle tasks: starts the
+ * application with whatever profile and JVM flags the task gives it, invokes
+ * {@code getRecipeSummaries} once, and prints the time from JVM start to that first result.
+ * <p>
+ * Unlike the JMH benchmarks this measures a whole process, class loading and all, which is
+ * what a Lambda cold start pays. Reads the database from {@code DB_URL}, {@code DB_USER}
+ * and {@code DB_PASSWORD}, like the application.
+ */
+public final class StartupProbe {
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        String mode = System.getProperty("startup.mode", "default");
+
+        try (ConfigurableApplicationContext context = SpringApplication.run(StaceyMealsApplication.class, args)) {
+            long contextReady = System.currentTimeMillis();
+            Function<RecipeFunctions.PageRequest, Object> function =
+                    context.getBean(FunctionCatalog.class).lookup(Function.class, "getRecipeSummaries");
+            function.apply(new RecipeFunctions.PageRequest(UUID.randomUUID(), null, null));
+            long firstResult = System.currentTimeMillis();
+
+            System.out.printf("startup mode=%s context-ready=%d ms time-to-first-invocation=%d ms%n",
+                    mode, contextReady - jvmStart, firstResult - jvmStart);
+        }
+    }
+}
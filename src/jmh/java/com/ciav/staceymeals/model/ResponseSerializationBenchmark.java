@@ -0,0 +1,118 @@
+package com.ciav.staceymeals.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of the two largest response bodies, the full-library map returned by
+ * {@code GET /recipes} (recipes with embedded categories) and the nested category tree, in
+ * each format a client can negotiate. Setup prints each body's size, plain and gzipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    public enum Format { JSON, CBOR, SMILE }
+
+    @Param({"100", "2000"})
+    public int size;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public Format format;
+
+    private ObjectMapper objectMapper;
+    private Map<UUID, Recipe> library;
+    private List<Category> tree;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case JSON -> JsonMapper.builder().build();
+            case CBOR -> CBORMapper.builder().build();
+            case SMILE -> SmileMapper.builder().build();
+        };
+        UUID userId = UUID.randomUUID();
+        List<Category> categories = new ArrayList<>();
+        for (int c = 0; c < 8; c++) {
+            categories.add(Category.builder().id(UUID.randomUUID()).userId(userId).name("Category " + c).build());
+        }
+
+        library = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Recipe recipe = Recipe.builder()
+                    .id(UUID.randomUUID())
+                    .userId(userId)
+                    .sourceUrl("https://example.com/recipes/" + i)
+                    .title("Weeknight recipe " + i)
+                    .ingredients(List.of("2 cups flour", "1 tsp salt", "3 eggs", "250 ml milk", "1 onion, chopped"))
+                    .ingredientTerms(List.of("flour", "salt", "egg", "milk", "onion"))
+                    .steps(List.of("Whisk the dry ingredients.", "Beat in the eggs and milk.", "Cook until golden."))
+                    .thumbnailUrl("https://example.com/images/" + i + ".jpg")
+                    .prepTime("10 minutes")
+                    .cookTime("25 minutes")
+                    .totalTime("35 minutes")
+                    .servings("4")
+                    .categories(new ArrayList<>(categories.subList(0, 1 + i % 4)))
+                    .build();
+            library.put(recipe.getId(), recipe);
+        }
+
+        // Ten children per node under a single root
+        Category[] nodes = new Category[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = Category.builder().id(UUID.randomUUID()).userId(userId).name("Node " + i).build();
+            if (i > 0) {
+                nodes[(i - 1) / 10].getSubCategories().add(nodes[i]);
+            }
+        }
+        tree = List.of(nodes[0]);
+
+        System.out.printf("%n%s, %d: library %,d bytes (%,d gzipped), tree %,d bytes (%,d gzipped)%n", format, size,
+                recipeLibrary().length, gzipped(recipeLibrary()), categoryTree().length, gzipped(categoryTree()));
+    }
+
+    @Benchmark
+    public byte[] recipeLibrary() {
+        return objectMapper.writeValueAsBytes(library);
+    }
+
+    @Benchmark
+    public byte[] categoryTree() {
+        return objectMapper.writeValueAsBytes(tree);
+    }
+
+    private static int gzipped(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        }
+        return compressed.size();
+    }
+}
@@ -0,0 +1,37 @@
+package com.ciav.staceymeals.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The recipe pages under {@code src/jmh/resources/pages}, shared by the parsing benchmarks.
+ */
+public final class FixturePages {
+
+    public static final List<String> NAMES = List.of(
+            "wordpress-yoast-graph", "array-with-type-list", "single-object-sections", "plain-string-instructions");
+
+    private FixturePages() {
+    }
+
+    public static Document load(String name) {
+        return Jsoup.parse(html(name));
+    }
+
+    public static String html(String name) {
+        try (InputStream in = FixturePages.class.getResourceAsStream("/pages/" + name + ".html")) {
+            if (in == null) {
+                throw new IOException("Missing fixture page: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
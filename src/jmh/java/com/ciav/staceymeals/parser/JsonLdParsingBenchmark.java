@@ -0,0 +1,94 @@
+package com.ciav.staceymeals.parser;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming JSON-LD extraction against the old per-field regex path, over the fixture pages in
+ * {@code src/jmh/resources/pages} (modelled on the common publisher layouts: Yoast {@code @graph},
+ * top-level arrays with {@code @type} lists, HowToSection instructions, plain-string steps). {@code large-graph} pads the Yoast page's {@code @graph}
+ * with a few hundred non-recipe nodes ahead of the Recipe, which is what big publisher pages
+ * look like. Run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonLdParsingBenchmark {
+
+    private static final String LARGE_GRAPH = "large-graph";
+
+    @Param({"wordpress-yoast-graph", "array-with-type-list", "single-object-sections",
+            "plain-string-instructions", LARGE_GRAPH})
+    public String page;
+
+    private List<String> scripts;
+
+    @Setup
+    public void setUp() {
+        String name = LARGE_GRAPH.equals(page) ? "wordpress-yoast-graph" : page;
+        scripts = ldJsonScripts(FixturePages.load(name));
+        if (LARGE_GRAPH.equals(page)) {
+            scripts = List.of(padGraph(scripts.get(0), 400));
+        }
+    }
+
+    @Benchmark
+    public void streaming(Blackhole bh) {
+        for (String json : scripts) {
+            Optional<JsonLdRecipe> recipe = JsonLdRecipeParser.parse(json);
+            if (recipe.isPresent()) {
+                bh.consume(recipe.get());
+                return;
+            }
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        for (String json : scripts) {
+            Optional<JsonLdRecipe> recipe = RegexRecipeExtraction.extract(json);
+            if (recipe.isPresent()) {
+                bh.consume(recipe.get());
+                return;
+            }
+        }
+    }
+
+    static List<String> ldJsonScripts(Document doc) {
+        List<String> out = new ArrayList<>();
+        for (Element script : doc.select("script[type=application/ld+json]")) {
+            out.add(script.data());
+        }
+        return out;
+    }
+
+    private static String padGraph(String json, int nodes) {
+        StringBuilder padding = new StringBuilder();
+        for (int i = 0; i < nodes; i++) {
+            padding.append("{\"@type\":\"Comment\",\"@id\":\"#comment-").append(i)
+                    .append("\",\"text\":\"Loved it, made it twice this week \\\"as written\\\".\"")
+                    .append(",\"author\":{\"@type\":\"Person\",\"name\":\"reader ").append(i).append("\"}},");
+        }
+        return json.replace("\"@graph\":[", "\"@graph\":[" + padding);
+    }
+}
@@ -0,0 +1,64 @@
+package com.ciav.staceymeals.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex field extraction RecipeService used before {@link JsonLdRecipeParser}, kept
+ * verbatim as the baseline for {@link JsonLdParsingBenchmark}.
+ */
+final class RegexRecipeExtraction {
+
+    private RegexRecipeExtraction() {
+    }
+
+    static Optional<JsonLdRecipe> extract(String json) {
+        if (!(json.contains("\"@type\"") && json.toLowerCase().contains("recipe"))) {
+            return Optional.empty();
+        }
+        List<String> ingredients = extractJsonArrayField(json, "recipeIngredient");
+        if (ingredients.isEmpty())
+            ingredients = extractJsonArrayField(json, "ingredients");
+
+        return Optional.of(JsonLdRecipe.builder()
+                .ingredients(ingredients)
+                .steps(extractJsonTextFromInstructions(json))
+                .thumbnailUrl(extractJsonField(json, "thumbnailUrl").orElse(""))
+                .prepTime(extractJsonField(json, "prepTime").orElse(""))
+                .cookTime(extractJsonField(json, "cookTime").orElse(""))
+                .totalTime(extractJsonField(json, "totalTime").orElse(""))
+                .recipeYield(extractJsonField(json, "recipeYield").orElse("0"))
+                .build());
+    }
+
+    private static Optional<String> extractJsonField(String json, String field) {
+        Pattern p = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*\"([^\"]+)\"");
+        Matcher m = p.matcher(json);
+        if (m.find()) return Optional.of(m.group(1));
+        return Optional.empty();
+    }
+
+    private static List<String> extractJsonArrayField(String json, String field) {
+        List<String> out = new ArrayList<>();
+        Pattern p = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*\\[(.*?)\\]", Pattern.DOTALL);
+        Matcher m = p.matcher(json);
+        if (m.find()) {
+            String inside = m.group(1);
+            Pattern q = Pattern.compile("\\\"([^\\\"]+)\\\"");
+            Matcher mq = q.matcher(inside);
+            while (mq.find()) out.add(mq.group(1));
+        }
+        return out;
+    }
+
+    private static List<String> extractJsonTextFromInstructions(String json) {
+        List<String> out = new ArrayList<>();
+        Pattern p = Pattern.compile("\\\"text\\\"\\s*:\\s*\\\"([^\\\"]+)\\\"");
+        Matcher m = p.matcher(json);
+        while (m.find()) out.add(m.group(1));
+        return out;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.Category;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory tree assembly behind {@link CategoryService#getFullCategoryTree}, on a random
+ * forest where each category's parent is an earlier category (or none, one time in twenty).
+ * <p>
+ * Assembly fills in {@code subCategories}, so every invocation starts from fresh rows, the
+ * way they come back from the DAO. {@link #rowsOnly} measures building those rows alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CategoryTreeBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int categories;
+
+    private UUID[] ids;
+    private UUID[] parentIds;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new UUID[categories];
+        parentIds = new UUID[categories];
+        names = new String[categories];
+        for (int i = 0; i < categories; i++) {
+            ids[i] = new UUID(random.nextLong(), random.nextLong());
+            parentIds[i] = i == 0 || random.nextInt(20) == 0 ? null : ids[random.nextInt(i)];
+            names[i] = "Category " + i;
+        }
+    }
+
+    @Benchmark
+    public List<Category> buildTree() {
+        return CategoryService.buildCategoryTree(rows());
+    }
+
+    @Benchmark
+    public List<Category> rowsOnly() {
+        return rows();
+    }
+
+    private List<Category> rows() {
+        List<Category> rows = new ArrayList<>(categories);
+        for (int i = 0; i < categories; i++) {
+            rows.add(Category.builder().id(ids[i]).parentCategoryId(parentIds[i]).name(names[i]).build());
+        }
+        return rows;
+    }
+}
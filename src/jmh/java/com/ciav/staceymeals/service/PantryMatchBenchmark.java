@@ -0,0 +1,71 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.PantryMatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pantry scoring against one user's {@link IngredientIndex}. Recipes draw 6–15 terms from a
+ * 2,000-term vocabulary with a skew towards common staples, and the pantry holds 30 terms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PantryMatchBenchmark {
+
+    private static final int VOCABULARY = 2_000;
+
+    @Param({"1000", "10000", "50000"})
+    public int recipes;
+
+    private IngredientIndex index;
+    private List<String> pantry;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new IngredientIndex();
+        for (int i = 0; i < recipes; i++) {
+            int count = 6 + random.nextInt(10);
+            List<String> terms = new ArrayList<>(count);
+            for (int t = 0; t < count; t++) {
+                terms.add(term(random));
+            }
+            index.put(UUID.randomUUID(), "recipe " + i, terms.stream().distinct().toList());
+        }
+
+        pantry = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            pantry.add(term(random));
+        }
+    }
+
+    @Benchmark
+    public List<PantryMatch> score() {
+        return index.score(pantry, 50);
+    }
+
+    /** Squaring a uniform draw makes low-numbered terms (the staples) far more common. */
+    private static String term(Random random) {
+        double u = random.nextDouble();
+        return "term-" + (int) (u * u * VOCABULARY);
+    }
+}
@@ -0,0 +1,124 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.PantryIndexProperties;
+import com.ciav.staceymeals.config.RecipeBulkImportProperties;
+import com.ciav.staceymeals.config.UserLibraryCacheProperties;
+import com.ciav.staceymeals.db.BenchmarkDatabase;
+import com.ciav.staceymeals.db.dao.RecipeBulkImportDao;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.RecipeBulkImportResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Recipes per second through the bulk import, from a gzipped 50,000-recipe archive shaped like
+ * an export: 8 ingredients, 6 steps and ~2 KB of raw JSON per recipe, each filed under two of
+ * 20 categories. Every invocation imports into a fresh user, so all rows are inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RecipeBulkImportBenchmark {
+
+    private static final int RECIPES = 50_000;
+    private static final int CATEGORIES = 20;
+
+    @Param({"1MB", "8MB"})
+    public String copyBufferSize;
+
+    private BenchmarkDatabase database;
+    private RecipeBulkImportService bulkImportService;
+    private byte[] archive;
+
+    @Setup
+    public void setUp() throws IOException {
+        database = BenchmarkDatabase.start();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecipeDao recipeDao = database.jdbi().onDemand(RecipeDao.class);
+        bulkImportService = new RecipeBulkImportService(
+                database.jdbi().onDemand(RecipeBulkImportDao.class),
+                JsonMapper.builder().build(),
+                new UserLibraryCache(new UserLibraryCacheProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5)), registry),
+                new PantryIndex(recipeDao, new PantryIndexProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), registry),
+                new RecipeBulkImportProperties(DataSize.parse(copyBufferSize), 65536));
+        archive = archive();
+        System.out.printf("%nArchive: %,d recipes in %,d gzipped bytes%n", RECIPES, archive.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECIPES)
+    public RecipeBulkImportResult importArchive() {
+        return bulkImportService.importArchive(UUID.randomUUID(), new ByteArrayInputStream(archive));
+    }
+
+    private static byte[] archive() throws IOException {
+        UUID[] categories = new UUID[CATEGORIES];
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories[i] = UUID.randomUUID();
+        }
+        String raw = "\"" + "x".repeat(2048) + "\"";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed, 65536)) {
+            for (int i = 0; i < CATEGORIES; i++) {
+                write(out, "{\"type\":\"category\",\"id\":\"" + categories[i] + "\",\"name\":\"Category " + i + "\"}\n");
+            }
+            for (int n = 0; n < RECIPES; n++) {
+                StringBuilder line = new StringBuilder(3072)
+                        .append("{\"id\":\"").append(UUID.randomUUID())
+                        .append("\",\"sourceUrl\":\"https://example.com/recipes/").append(n)
+                        .append("\",\"title\":\"Recipe ").append(n)
+                        .append("\",\"ingredients\":[");
+                for (int i = 0; i < 8; i++) {
+                    line.append(i > 0 ? "," : "").append("\"").append(i + 1).append(" cups ingredient ").append((n + i) % 500).append("\"");
+                }
+                line.append("],\"steps\":[");
+                for (int i = 0; i < 6; i++) {
+                    line.append(i > 0 ? "," : "").append("\"Step ").append(i + 1).append(" of recipe ").append(n).append(".\"");
+                }
+                line.append("],\"prepTime\":\"PT15M\",\"cookTime\":\"PT30M\",\"totalTime\":\"PT45M\",\"servings\":\"4\"")
+                        .append(",\"raw\":").append(raw)
+                        .append(",\"rating\":").append(n % 6)
+                        .append(",\"categories\":[{\"id\":\"").append(categories[n % CATEGORIES])
+                        .append("\"},{\"id\":\"").append(categories[(n + 7) % CATEGORIES]).append("\"}]}\n");
+                write(out, line.toString());
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void write(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,153 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeFetchProperties;
+import com.ciav.staceymeals.config.RecipeLoadingProperties;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.parser.FixturePages;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One recipe import's fetch and parse, {@code SCAN} against {@code DOM}, from a local server
+ * serving the fixture pages padded out to the size of a real recipe page (about 1.5 MB of
+ * comments and ads). {@code recipe=tail} moves the JSON-LD to the end of the body, the
+ * scanner's worst case. Add {@code -PjmhProfilers=gc} for allocation per fetch; the
+ * {@code bytesRead} counter is the decoded bytes each fetch read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeFetchBenchmark {
+
+    private static final Pattern LD_JSON = Pattern.compile(
+            "<script type=\"application/ld\\+json\"[^>]*>.*?</script>", Pattern.DOTALL);
+    private static final String COMMENT = """
+            <div class="comment"><img src="/avatar.png" alt=""><p>Made this last night and the whole family \
+            loved it. I used a little less salt and added extra garlic.</p><a href="#reply">Reply</a></div>
+            <div class="ad-slot" data-slot="inline"><iframe src="/ads/inline"></iframe></div>
+            """;
+
+    @Param({"wordpress-yoast-graph", "array-with-type-list", "single-object-sections", "plain-string-instructions"})
+    public String page;
+
+    @Param({"SCAN", "DOM"})
+    public RecipeFetchProperties.Mode mode;
+
+    @Param({"head", "tail"})
+    public String recipe;
+
+    private HttpServer server;
+    private RecipeService recipeService;
+    private DistributionSummary bytesRead;
+    private String url;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        // Set rather than summed, so the reported value is per fetch
+        public long bytesRead;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] body = gzip(padded(FixturePages.html(page), recipe.equals("tail")));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // The scanner hangs up once it has the recipe
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/" + page;
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecipePageFetcher fetcher = new RecipePageFetcher(new RecipeFetchProperties(
+                mode, DataSize.ofMegabytes(4), Duration.ofSeconds(5), Duration.ofSeconds(10)));
+        // Fetching touches none of the other collaborators
+        recipeService = new RecipeService(null, null, null, fetcher, null, null,
+                new RecipeLoadingProperties(RecipeLoadingProperties.Strategy.AGGREGATE), registry);
+        bytesRead = DistributionSummary.builder("recipe.fetch.bytes").register(registry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters(Counters counters) {
+        counters.bytesRead = 0;
+    }
+
+    @Benchmark
+    public Recipe fetchRecipe(Counters counters) {
+        double before = bytesRead.totalAmount();
+        Recipe result = recipeService.fetchRecipe(url, null).recipe();
+        counters.bytesRead = (long) (bytesRead.totalAmount() - before);
+        return result;
+    }
+
+    private static String padded(String html, boolean recipeAtEnd) {
+        StringBuilder filler = new StringBuilder();
+        while (filler.length() < 1_500_000) {
+            filler.append(COMMENT);
+        }
+        String scripts = "";
+        if (recipeAtEnd) {
+            StringBuilder moved = new StringBuilder();
+            Matcher matcher = LD_JSON.matcher(html);
+            while (matcher.find()) {
+                moved.append(matcher.group()).append('\n');
+            }
+            html = matcher.replaceAll("");
+            scripts = moved.toString();
+        }
+        int bodyEnd = html.lastIndexOf("</body>");
+        return html.substring(0, bodyEnd) + filler + scripts + html.substring(bodyEnd);
+    }
+
+    private static byte[] gzip(String html) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(html.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+}
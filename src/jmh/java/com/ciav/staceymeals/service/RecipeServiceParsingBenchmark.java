@@ -0,0 +1,63 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeLoadingProperties;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.parser.FixturePages;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RecipeService#parseJsonLdRecipe} end to end over each fixture page (script lookup,
+ * JSON-LD parse, recipe assembly and the three time conversions), plus {@link RecipeService#extractTime}
+ * on its own over the ISO-8601 shapes publishers actually emit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecipeServiceParsingBenchmark {
+
+    private static final String[] DURATIONS = {"PT15M", "PT1H30M", "PT45M", "P0DT2H", "PT0S", "P1DT8H", "PT90M", ""};
+
+    @Param({"wordpress-yoast-graph", "array-with-type-list", "single-object-sections", "plain-string-instructions"})
+    public String page;
+
+    private RecipeService recipeService;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        // Parsing touches none of the collaborators
+        recipeService = new RecipeService(null, null, null, null, null, null,
+                new RecipeLoadingProperties(RecipeLoadingProperties.Strategy.AGGREGATE), new SimpleMeterRegistry());
+        document = FixturePages.load(page);
+    }
+
+    @Benchmark
+    public Recipe parseJsonLdRecipe() {
+        return recipeService.parseJsonLdRecipe(document, "https://example.com/" + page);
+    }
+
+    @Benchmark
+    public void extractTime(Blackhole bh) {
+        for (String duration : DURATIONS) {
+            bh.consume(recipeService.extractTime(duration));
+        }
+    }
+}
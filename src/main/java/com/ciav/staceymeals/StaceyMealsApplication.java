@@ -1,12 +1,11 @@
 package com.ciav.staceymeals;
 
-import com.ciav.staceymeals.controller.RecipeController;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Import;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
-@Import({ RecipeController.class })
+@ConfigurationPropertiesScan
 public class StaceyMealsApplication {
 	public static void main(String[] args) {
 		SpringApplication.run(StaceyMealsApplication.class, args);
@@ -0,0 +1,31 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.util.List;
+
+/**
+ * CBOR and Smile alongside JSON, for clients that ask for them in {@code Accept}. They are
+ * added after the JSON converter, so JSON stays the default for a missing header, a bare
+ * wildcard and anything else that doesn't name a binary format. Both carry the same fields as
+ * the JSON, in the order fixed by each model's {@code @JsonPropertyOrder}.
+ */
+@Configuration
+public class BinaryFormatConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof JacksonCborHttpMessageConverter
+                || converter instanceof JacksonSmileHttpMessageConverter);
+        // Smile writes each field name once per response and refers back to it afterwards,
+        // which is most of its saving over CBOR on lists of recipes
+        converters.add(new JacksonSmileHttpMessageConverter(SmileMapper.builder().build()));
+        converters.add(new JacksonCborHttpMessageConverter(CBORMapper.builder().build()));
+    }
+}
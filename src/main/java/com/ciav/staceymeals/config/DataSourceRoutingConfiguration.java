@@ -0,0 +1,69 @@
+package com.ciav.staceymeals.config;
+
+import com.ciav.staceymeals.db.routing.ReadRoutingFilter;
+import com.ciav.staceymeals.db.routing.RoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with a primary pool plus one read-only pool per replica
+ * when {@code staceymeals.datasource.replicas} is set. Without replicas this does nothing and
+ * every query goes to {@code spring.datasource}.
+ */
+@Configuration
+@ConditionalOnProperty("staceymeals.datasource.replicas[0].url")
+public class DataSourceRoutingConfiguration {
+
+    /**
+     * The primary pool, tuned like the auto-configured one through {@code spring.datasource.hikari}.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(Environment environment) {
+        HikariDataSource primary = new HikariDataSource();
+        primary.setPoolName("primary");
+        primary.setJdbcUrl(environment.getRequiredProperty("spring.datasource.url"));
+        primary.setUsername(environment.getProperty("spring.datasource.username"));
+        primary.setPassword(environment.getProperty("spring.datasource.password"));
+        return primary;
+    }
+
+    @Bean
+    @Primary
+    public RoutingDataSource dataSource(HikariDataSource primaryDataSource, DataSourceRoutingProperties properties,
+                                        MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.replicas().size(); i++) {
+            DataSourceRoutingProperties.Replica replica = properties.replicas().get(i);
+            HikariDataSource pool = new HikariDataSource();
+            pool.setPoolName("replica-" + (i + 1));
+            pool.setJdbcUrl(replica.url());
+            pool.setUsername(replica.username());
+            pool.setPassword(replica.password());
+            pool.setReadOnly(true);
+            pool.setMaximumPoolSize(properties.replicaPoolSize());
+            pool.setConnectionTimeout(properties.replicaConnectionTimeout().toMillis());
+            // Don't fail startup while a replica is down; the health check keeps it out of rotation
+            pool.setInitializationFailTimeout(-1);
+            // Replica pools aren't beans, so Boot's pool metrics don't see them
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(pool);
+        }
+        return new RoutingDataSource(primaryDataSource, replicas, properties.healthCheckInterval(), meterRegistry);
+    }
+
+    @Bean
+    public ReadRoutingFilter readRoutingFilter(DataSourceRoutingProperties properties) {
+        return new ReadRoutingFilter(properties.readYourWritesWindow());
+    }
+}
@@ -0,0 +1,28 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param replicas                 read replicas; with none, everything uses {@code spring.datasource}
+ * @param replicaPoolSize          connections per replica pool
+ * @param replicaConnectionTimeout how long a read waits for a replica connection before failing
+ * @param readYourWritesWindow     how long after a user's write their requests keep reading from the primary;
+ *                                 carried by a cookie so it holds on every node, and also kept by the
+ *                                 node that made the write
+ * @param healthCheckInterval      how often each replica is probed; a failed replica takes no reads until it passes
+ */
+@ConfigurationProperties(prefix = "staceymeals.datasource")
+public record DataSourceRoutingProperties(
+        @DefaultValue List<Replica> replicas,
+        @DefaultValue("10") int replicaPoolSize,
+        @DefaultValue("2s") Duration replicaConnectionTimeout,
+        @DefaultValue("5s") Duration readYourWritesWindow,
+        @DefaultValue("5s") Duration healthCheckInterval) {
+
+    public record Replica(String url, String username, String password) {
+    }
+}
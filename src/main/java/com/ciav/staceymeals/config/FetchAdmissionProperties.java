@@ -0,0 +1,29 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param burst               fetches a user may start back to back before being rate limited
+ * @param refillPeriod        time for one more fetch to become available to a user, up to {@code burst}
+ * @param concurrency         synchronous fetch-and-save calls running at once on this node
+ * @param queueCapacity       admitted calls waiting for a fetch thread; beyond this, requests are shed
+ * @param queueFullRetryAfter {@code Retry-After} sent when the queue, not the user's budget, is full,
+ *                            or when a fetch outlasts {@code requestTimeout}
+ * @param maxQueueWait        how long an admitted call may wait for a thread; one that waited longer
+ *                            is dropped with a 429 instead of starting
+ * @param requestTimeout      how long the request is held for the result; must cover {@code maxQueueWait},
+ *                            a whole page fetch ({@code staceymeals.fetch.timeout}) and the save
+ */
+@ConfigurationProperties(prefix = "staceymeals.fetch-admission")
+public record FetchAdmissionProperties(
+        @DefaultValue("10") int burst,
+        @DefaultValue("6s") Duration refillPeriod,
+        @DefaultValue("8") int concurrency,
+        @DefaultValue("32") int queueCapacity,
+        @DefaultValue("2s") Duration queueFullRetryAfter,
+        @DefaultValue("15s") Duration maxQueueWait,
+        @DefaultValue("40s") Duration requestTimeout) {
+}
@@ -0,0 +1,28 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param workersEnabled whether this node claims and runs jobs, or only enqueues them
+ * @param workers        jobs run concurrently on this node
+ * @param pollInterval   how often idle workers look for runnable jobs, and long-polls re-check status
+ * @param lease          how long a claimed job stays locked before another node may take it over
+ * @param maxAttempts    attempts before a job is marked dead
+ * @param initialBackoff delay before the first retry; doubles with each further attempt
+ * @param maxBackoff     longest delay between retries
+ * @param maxWait        longest a status request may long-poll
+ */
+@ConfigurationProperties(prefix = "staceymeals.fetch-jobs")
+public record FetchJobProperties(
+        @DefaultValue("true") boolean workersEnabled,
+        @DefaultValue("8") int workers,
+        @DefaultValue("1s") Duration pollInterval,
+        @DefaultValue("2m") Duration lease,
+        @DefaultValue("5") int maxAttempts,
+        @DefaultValue("10s") Duration initialBackoff,
+        @DefaultValue("30m") Duration maxBackoff,
+        @DefaultValue("30s") Duration maxWait) {
+}
@@ -1,9 +1,18 @@
 package com.ciav.staceymeals.config;
 
+import com.ciav.staceymeals.db.JdbiMetrics;
 import com.ciav.staceymeals.db.dao.CategoryDao;
+import com.ciav.staceymeals.db.dao.FetchJobDao;
+import com.ciav.staceymeals.db.dao.RecipeBulkImportDao;
 import com.ciav.staceymeals.db.dao.RecipeCategoriesDao;
+import com.ciav.staceymeals.db.dao.RecipeChangeDao;
+import com.ciav.staceymeals.db.dao.RecipeContentDao;
 import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.db.routing.ReadRouting;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.extension.Extensions;
+import org.jdbi.v3.core.statement.SqlStatements;
 import org.jdbi.v3.postgres.PostgresPlugin;
 import org.jdbi.v3.sqlobject.SqlObjectPlugin;
 import org.springframework.context.annotation.Bean;
@@ -15,24 +24,48 @@ import javax.sql.DataSource;
 public class JdbiConfiguration {
 
     @Bean
-    public Jdbi jdbi(DataSource dataSource) {
-        return Jdbi.create(dataSource)
+    public Jdbi jdbi(DataSource dataSource, MeterRegistry meterRegistry) {
+        JdbiMetrics metrics = new JdbiMetrics(meterRegistry);
+        Jdbi jdbi = Jdbi.create(dataSource)
                 .installPlugin(new SqlObjectPlugin())
                 .installPlugin(new PostgresPlugin());
+        jdbi.getConfig(SqlStatements.class).setSqlLogger(metrics);
+        jdbi.getConfig(Extensions.class).registerHandlerCustomizer(metrics);
+        return jdbi;
     }
 
     @Bean
     public RecipeDao recipeDao(Jdbi jdbi) {
-        return jdbi.onDemand(RecipeDao.class);
+        return ReadRouting.routeReads(RecipeDao.class, jdbi.onDemand(RecipeDao.class));
     }
 
     @Bean
     public CategoryDao categoryDao(Jdbi jdbi) {
-        return jdbi.onDemand(CategoryDao.class);
+        return ReadRouting.routeReads(CategoryDao.class, jdbi.onDemand(CategoryDao.class));
     }
 
     @Bean
     public RecipeCategoriesDao recipeCategoriesDao(Jdbi jdbi) {
-        return jdbi.onDemand(RecipeCategoriesDao.class);
+        return ReadRouting.routeReads(RecipeCategoriesDao.class, jdbi.onDemand(RecipeCategoriesDao.class));
     }
-}
\ No newline at end of file
+
+    @Bean
+    public FetchJobDao fetchJobDao(Jdbi jdbi) {
+        return ReadRouting.routeReads(FetchJobDao.class, jdbi.onDemand(FetchJobDao.class));
+    }
+
+    @Bean
+    public RecipeChangeDao recipeChangeDao(Jdbi jdbi) {
+        return ReadRouting.routeReads(RecipeChangeDao.class, jdbi.onDemand(RecipeChangeDao.class));
+    }
+
+    @Bean
+    public RecipeContentDao recipeContentDao(Jdbi jdbi) {
+        return ReadRouting.routeReads(RecipeContentDao.class, jdbi.onDemand(RecipeContentDao.class));
+    }
+
+    @Bean
+    public RecipeBulkImportDao recipeBulkImportDao(Jdbi jdbi) {
+        return ReadRouting.routeReads(RecipeBulkImportDao.class, jdbi.onDemand(RecipeBulkImportDao.class));
+    }
+}
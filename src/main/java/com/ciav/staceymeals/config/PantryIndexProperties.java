@@ -0,0 +1,20 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * @param maxSize           approximate heap all users' pantry indexes may use together
+ * @param expireAfterAccess how long an unused user's index is kept before it must be rebuilt
+ * @param expireAfterWrite  how long any index is kept before it is rebuilt; bounds how long writes
+ *                          made on other nodes, which only update their own node's index, go unseen here
+ */
+@ConfigurationProperties(prefix = "staceymeals.pantry-index")
+public record PantryIndexProperties(
+        @DefaultValue("128MB") DataSize maxSize,
+        @DefaultValue("1h") Duration expireAfterAccess,
+        @DefaultValue("10m") Duration expireAfterWrite) {
+}
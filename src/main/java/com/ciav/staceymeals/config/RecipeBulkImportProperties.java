@@ -0,0 +1,15 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @param copyBufferSize rows buffered per staging table before they are sent as one COPY
+ * @param readBufferSize bytes of the request body read ahead of the JSON parser
+ */
+@ConfigurationProperties(prefix = "staceymeals.bulk-import")
+public record RecipeBulkImportProperties(
+        @DefaultValue("1MB") DataSize copyBufferSize,
+        @DefaultValue("65536") int readBufferSize) {
+}
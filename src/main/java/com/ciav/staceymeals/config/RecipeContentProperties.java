@@ -0,0 +1,20 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param sweepEnabled   whether this node deletes shared content no recipe references any more
+ * @param sweepInterval  how often it looks for such content
+ * @param orphanGrace    how long unreferenced content is kept after it was last saved
+ * @param sweepBatchSize content rows deleted per statement
+ */
+@ConfigurationProperties(prefix = "staceymeals.recipe-contents")
+public record RecipeContentProperties(
+        @DefaultValue("true") boolean sweepEnabled,
+        @DefaultValue("1h") Duration sweepInterval,
+        @DefaultValue("1d") Duration orphanGrace,
+        @DefaultValue("1000") int sweepBatchSize) {
+}
@@ -0,0 +1,14 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param fetchSize rows pulled from the server-side cursor per round trip
+ * @param bufferSize bytes buffered before writing to the response
+ */
+@ConfigurationProperties(prefix = "staceymeals.export")
+public record RecipeExportProperties(
+        @DefaultValue("500") int fetchSize,
+        @DefaultValue("65536") int bufferSize) {
+}
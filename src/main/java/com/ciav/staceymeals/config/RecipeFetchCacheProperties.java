@@ -0,0 +1,20 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Sizing for the shared cache of parsed recipe pages.
+ *
+ * @param maxEntries     most source URLs kept
+ * @param ttl            how long an entry is served without asking the origin
+ * @param staleRetention how long an expired entry is kept around for conditional revalidation
+ */
+@ConfigurationProperties(prefix = "staceymeals.fetch-cache")
+public record RecipeFetchCacheProperties(
+        @DefaultValue("10000") int maxEntries,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("24h") Duration staleRetention) {
+}
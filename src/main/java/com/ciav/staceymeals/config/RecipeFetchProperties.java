@@ -0,0 +1,28 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * @param mode           how recipe pages are downloaded and searched for JSON-LD
+ * @param maxBodySize    most decoded bytes read from one page; the rest is ignored
+ * @param connectTimeout how long to wait for a connection to a recipe site
+ * @param timeout        how long a whole page fetch may take
+ */
+@ConfigurationProperties(prefix = "staceymeals.fetch")
+public record RecipeFetchProperties(
+        @DefaultValue("SCAN") Mode mode,
+        @DefaultValue("2MB") DataSize maxBodySize,
+        @DefaultValue("5s") Duration connectTimeout,
+        @DefaultValue("10s") Duration timeout) {
+
+    public enum Mode {
+        /** Stream the page through {@code HtmlRecipeScanner}, stopping at the Recipe block; full parse only if that finds nothing. */
+        SCAN,
+        /** Download the whole page with Jsoup and parse it into a DOM. */
+        DOM
+    }
+}
@@ -0,0 +1,20 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Limits for the bulk URL import endpoint.
+ *
+ * @param maxUrls           most URLs accepted in one import request
+ * @param globalConcurrency fetches in flight across all imports on this node
+ * @param perHostConcurrency fetches in flight against a single host within one import
+ * @param batchSize         successful recipes written per batched insert
+ */
+@ConfigurationProperties(prefix = "staceymeals.import")
+public record RecipeImportProperties(
+        @DefaultValue("500") int maxUrls,
+        @DefaultValue("16") int globalConcurrency,
+        @DefaultValue("2") int perHostConcurrency,
+        @DefaultValue("25") int batchSize) {
+}
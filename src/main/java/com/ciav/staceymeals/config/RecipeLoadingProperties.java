@@ -0,0 +1,21 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * @param strategy how a user's recipes and their categories are read for the full-library listing
+ */
+@ConfigurationProperties(prefix = "staceymeals.recipe-loading")
+public record RecipeLoadingProperties(
+        @DefaultValue("AGGREGATE") Strategy strategy) {
+
+    public enum Strategy {
+        /** One row per recipe/category pair, folded back together by {@code RecipeRowMapper}. */
+        JOIN,
+        /** One row per recipe with category ids and names aggregated into arrays. */
+        AGGREGATE,
+        /** One row per recipe, then a single {@code recipe_id = ANY(:ids)} query for categories. */
+        BATCH
+    }
+}
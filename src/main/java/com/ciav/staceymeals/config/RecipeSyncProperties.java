@@ -0,0 +1,20 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * @param retention      how long changes stay in the sync log; tokens older than that get a 410
+ * @param pruneEnabled   whether this node deletes changes past the retention
+ * @param pruneInterval  how often it looks for them
+ * @param pruneBatchSize log entries deleted per statement
+ */
+@ConfigurationProperties(prefix = "staceymeals.sync")
+public record RecipeSyncProperties(
+        @DefaultValue("30d") Duration retention,
+        @DefaultValue("true") boolean pruneEnabled,
+        @DefaultValue("1h") Duration pruneInterval,
+        @DefaultValue("10000") int pruneBatchSize) {
+}
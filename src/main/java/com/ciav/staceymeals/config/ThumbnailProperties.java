@@ -0,0 +1,45 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param directory     where resized thumbnails are kept across restarts; defaults to a
+ *                      directory under {@code java.io.tmpdir}
+ * @param maxSize       disk the cached thumbnails may use before the least recently served go
+ * @param widths        the widths every source image is resized to, in pixels
+ * @param defaultWidth  width served when a request names none; must be one of {@code widths},
+ *                      and defaults to the middle one
+ * @param maxSourceSize largest source image that will be downloaded
+ * @param maxSourcePixels largest source image, in pixels, that will be decoded; a small file can
+ *                      declare enormous dimensions
+ * @param fetchTimeout  connect and read timeout for source images
+ * @param maxAge        how long clients may cache a thumbnail without revalidating
+ */
+@ConfigurationProperties(prefix = "staceymeals.thumbnails")
+public record ThumbnailProperties(
+        Path directory,
+        @DefaultValue("1GB") DataSize maxSize,
+        @DefaultValue({"160", "320", "640"}) List<Integer> widths,
+        Integer defaultWidth,
+        @DefaultValue("20MB") DataSize maxSourceSize,
+        @DefaultValue("50000000") long maxSourcePixels,
+        @DefaultValue("10s") Duration fetchTimeout,
+        @DefaultValue("30d") Duration maxAge) {
+
+    public ThumbnailProperties {
+        if (directory == null) {
+            directory = Path.of(System.getProperty("java.io.tmpdir"), "staceymeals-thumbnails");
+        }
+        if (defaultWidth == null) {
+            defaultWidth = widths.get(widths.size() / 2);
+        } else if (!widths.contains(defaultWidth)) {
+            throw new IllegalArgumentException("Default thumbnail width " + defaultWidth + " is not one of " + widths);
+        }
+    }
+}
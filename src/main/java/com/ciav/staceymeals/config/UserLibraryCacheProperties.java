@@ -0,0 +1,23 @@
+package com.ciav.staceymeals.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * @param maxSize                 approximate heap the per-user read cache may use
+ * @param expireAfterAccess       how long an untouched entry is kept
+ * @param expireAfterWrite        how long any entry is kept, however often it is read; bounds how long a
+ *                                write made on another node can go unseen here
+ * @param replicaExpireAfterWrite how long an entry read from a replica is kept at most; no longer
+ *                                than the read-your-writes window, which bounds replica lag
+ */
+@ConfigurationProperties(prefix = "staceymeals.read-cache")
+public record UserLibraryCacheProperties(
+        @DefaultValue("64MB") DataSize maxSize,
+        @DefaultValue("30m") Duration expireAfterAccess,
+        @DefaultValue("1m") Duration expireAfterWrite,
+        @DefaultValue("5s") Duration replicaExpireAfterWrite) {
+}
@@ -0,0 +1,99 @@
+package com.ciav.staceymeals.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+
+/**
+ * Keeps caching correct once one URL can answer in JSON, CBOR or Smile.
+ * <p>
+ * Every negotiated response gets {@code Vary: Accept}. The controllers' entity tags describe
+ * the data, not its encoding, so a binary response's tag gets the format appended and no two
+ * encodings share a tag. The controller's own {@code If-None-Match} check only knows the plain
+ * tag, so the suffixed one is checked here, before anything is serialized.
+ */
+@ControllerAdvice
+public class BinaryFormatAdvice implements ResponseBodyAdvice<Object> {
+
+    static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                  Class<? extends HttpMessageConverter<?>> converterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        String format = format(contentType);
+        if (format == null && !MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return body;
+        }
+        HttpHeaders headers = response.getHeaders();
+        if (!headers.getVary().contains(HttpHeaders.ACCEPT)) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String etag = headers.getETag();
+        if (format == null || etag == null) {
+            return body;
+        }
+
+        String tagged = etag.substring(0, etag.length() - 1) + "-" + format + "\"";
+        headers.setETag(tagged);
+        HttpMethod method = request.getMethod();
+        if ((method == HttpMethod.GET || method == HttpMethod.HEAD) && matches(request.getHeaders().getIfNoneMatch(), tagged)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return null;
+        }
+        return body;
+    }
+
+    /**
+     * Whether the request names a binary format in {@code Accept}, so that only content
+     * negotiation can tell which tag its response will carry.
+     */
+    static boolean acceptsBinary(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(type -> !type.isWildcardType() && !type.isWildcardSubtype() && format(type) != null);
+        } catch (InvalidMediaTypeException e) {
+            // Negotiation will reject it
+            return true;
+        }
+    }
+
+    private static String format(MediaType contentType) {
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(contentType)) {
+            return "cbor";
+        }
+        if (SMILE.isCompatibleWith(contentType)) {
+            return "smile";
+        }
+        return null;
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch) {
+            String value = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+            if (value.equals(opaque) || value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
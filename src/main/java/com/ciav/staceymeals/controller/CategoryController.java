@@ -1,26 +1,29 @@
 package com.ciav.staceymeals.controller;
 
 import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.PagedResult;
+import com.ciav.staceymeals.model.RecipeSummary;
 import com.ciav.staceymeals.service.CategoryService;
+import com.ciav.staceymeals.service.RecipeService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import java.util.List;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/api")
-@EnableWebMvc
 @Slf4j
 public class CategoryController {
     private final CategoryService categoryService;
+    private final RecipeService recipeService;
 
     @Autowired
-    public CategoryController(CategoryService categoryService) {
+    public CategoryController(CategoryService categoryService, RecipeService recipeService) {
         this.categoryService = categoryService;
+        this.recipeService = recipeService;
     }
 
     @PostMapping("users/{userId}/categories")
@@ -37,13 +40,43 @@ public class CategoryController {
             @PathVariable("userId") UUID userId,
             @PathVariable("categoryId") UUID categoryId){
 
-        return ResponseEntity.ok(categoryService.getCategory(userId, categoryId));
+        Category category = categoryService.getCategory(userId, categoryId);
+        return ResponseEntity.ok().eTag(ETags.of(category)).body(category);
+    }
+
+    @GetMapping("users/{userId}/categories/{categoryId}/subtree")
+    public ResponseEntity<Category> getCategorySubtree(
+            @PathVariable("userId") UUID userId,
+            @PathVariable("categoryId") UUID categoryId) {
+
+        Category subtree = categoryService.getSubtree(userId, categoryId);
+        return ResponseEntity.ok().eTag(ETags.of(subtree)).body(subtree);
+    }
+
+    @GetMapping("users/{userId}/categories/{categoryId}/recipes")
+    public ResponseEntity<PagedResult<RecipeSummary>> getRecipesInCategorySubtree(
+            @PathVariable("userId") UUID userId,
+            @PathVariable("categoryId") UUID categoryId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+
+        return ResponseEntity.ok(recipeService.getRecipeSummariesInCategory(userId, categoryId, cursor, limit));
+    }
+
+    @PutMapping("users/{userId}/categories/{categoryId}/parent")
+    public ResponseEntity<Category> moveCategory(
+            @PathVariable("userId") UUID userId,
+            @PathVariable("categoryId") UUID categoryId,
+            @RequestParam(value = "parentId", required = false) UUID parentId) {
+
+        return ResponseEntity.ok(categoryService.moveCategory(userId, categoryId, parentId));
     }
 
     @GetMapping("users/{userId}/categories/")
     public ResponseEntity<List<Category>> getFullCategoryTree(
             @PathVariable("userId") UUID userId){
 
-        return ResponseEntity.ok(categoryService.getFullCategoryTree(userId));
+        List<Category> tree = categoryService.getFullCategoryTree(userId);
+        return ResponseEntity.ok().eTag(ETags.of(tree)).body(tree);
     }
 }
@@ -0,0 +1,73 @@
+package com.ciav.staceymeals.controller;
+
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.Recipe;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+/**
+ * Entity tags for recipe and category responses, derived from row versions so they cost
+ * nothing to compute.
+ * <p>
+ * A recipe's tag is its version plus a checksum of the categories embedded in it, which
+ * change without touching the recipe row. Category tags checksum the id and version of every
+ * category in the response, so a rename or a move anywhere in a tree changes the tree's tag.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Recipe recipe, boolean includeRaw) {
+        CRC32 crc = new CRC32();
+        for (Category category : recipe.getCategories()) {
+            update(crc, category.getId() + ":" + category.getName());
+        }
+        return "\"" + recipe.getVersion() + "-" + Long.toHexString(crc.getValue()) + (includeRaw ? "-raw" : "") + "\"";
+    }
+
+    static String of(Category category) {
+        CRC32 crc = new CRC32();
+        update(crc, category);
+        return "\"" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    static String of(Collection<Category> categories) {
+        CRC32 crc = new CRC32();
+        categories.forEach(category -> update(crc, category));
+        return "\"" + Long.toHexString(crc.getValue()) + "\"";
+    }
+
+    /**
+     * The recipe version an {@code If-Match} header refers to, or null for {@code *} (any
+     * version). A tag this class didn't issue can't match, so it is reported as version -1;
+     * so is a weak tag, since {@code If-Match} compares strongly (RFC 9110 section 13.1.1).
+     */
+    static Long recipeVersion(String ifMatch) {
+        String tag = ifMatch.strip();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.startsWith("W/")) {
+            return -1L;
+        }
+        tag = tag.replace("\"", "");
+        int dash = tag.indexOf('-');
+        try {
+            return Long.parseLong(dash < 0 ? tag : tag.substring(0, dash));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static void update(CRC32 crc, Category category) {
+        update(crc, category.getId() + ":" + category.getVersion() + ";");
+        category.getSubCategories().forEach(child -> update(crc, child));
+    }
+
+    private static void update(CRC32 crc, String value) {
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
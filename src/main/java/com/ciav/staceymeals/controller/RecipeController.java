@@ -1,35 +1,194 @@
 package com.ciav.staceymeals.controller;
 
+import com.ciav.staceymeals.config.ThumbnailProperties;
+import com.ciav.staceymeals.exception.ServiceUnavailableException;
+import com.ciav.staceymeals.model.FetchJob;
+import com.ciav.staceymeals.model.PagedResult;
+import com.ciav.staceymeals.model.PantryIndexStats;
+import com.ciav.staceymeals.model.PantryMatch;
 import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeBulkImportResult;
+import com.ciav.staceymeals.model.RecipeChanges;
+import com.ciav.staceymeals.model.RecipeImportResult;
+import com.ciav.staceymeals.model.RecipeSummary;
 import com.ciav.staceymeals.model.RecipesCategories;
+import com.ciav.staceymeals.service.FetchAdmission;
+import com.ciav.staceymeals.service.FetchJobService;
+import com.ciav.staceymeals.service.RecipeBulkImportService;
+import com.ciav.staceymeals.service.RecipeExportService;
+import com.ciav.staceymeals.service.RecipeImportService;
 import com.ciav.staceymeals.service.RecipeService;
+import com.ciav.staceymeals.service.RecipeSyncService;
+import com.ciav.staceymeals.service.ThumbnailService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/users/{userId}/recipes")
-@EnableWebMvc
 @Slf4j
 public class RecipeController {
+    private static final long IMPORT_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+    private static final MediaType LD_JSON = MediaType.parseMediaType("application/ld+json");
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final RecipeService recipeService;
+    private final FetchAdmission fetchAdmission;
+    private final RecipeImportService recipeImportService;
+    private final RecipeExportService recipeExportService;
+    private final RecipeBulkImportService recipeBulkImportService;
+    private final FetchJobService fetchJobService;
+    private final RecipeSyncService recipeSyncService;
+    private final ThumbnailService thumbnailService;
+    private final CacheControl thumbnailCacheControl;
 
     @Autowired
-    public RecipeController(RecipeService recipeService) {
+    public RecipeController(RecipeService recipeService,
+                            FetchAdmission fetchAdmission,
+                            RecipeImportService recipeImportService,
+                            RecipeExportService recipeExportService,
+                            RecipeBulkImportService recipeBulkImportService,
+                            FetchJobService fetchJobService,
+                            RecipeSyncService recipeSyncService,
+                            ThumbnailService thumbnailService,
+                            ThumbnailProperties thumbnailProperties) {
         this.recipeService = recipeService;
+        this.fetchAdmission = fetchAdmission;
+        this.recipeImportService = recipeImportService;
+        this.recipeExportService = recipeExportService;
+        this.recipeBulkImportService = recipeBulkImportService;
+        this.fetchJobService = fetchJobService;
+        this.recipeSyncService = recipeSyncService;
+        this.thumbnailService = thumbnailService;
+        this.thumbnailCacheControl = CacheControl.maxAge(thumbnailProperties.maxAge()).cachePublic();
     }
 
+    /**
+     * Fetches and saves on the fetch pool, leaving the servlet thread free; 429 if the user is
+     * over budget or the pool is saturated. The request is held for the admission's own timeout
+     * rather than the container default, which a full queue of fetches could outlast, and gets a
+     * 503 with {@code Retry-After} if that runs out. A fetch still queued by then is dropped; one
+     * already running still saves the recipe, which a retry then updates in place by its URL.
+     */
     @PostMapping("/fetch-and-save")
-    public ResponseEntity<Recipe> fetchAndSaveRecipe(
+    public DeferredResult<ResponseEntity<Recipe>> fetchAndSaveRecipe(
             @PathVariable("userId") UUID userId,
             @RequestBody String url) {
-        Recipe recipe = recipeService.fetchAndSaveRecipe(userId, url);
-        return ResponseEntity.ok(recipe);
+        DeferredResult<ResponseEntity<Recipe>> result = new DeferredResult<>(fetchAdmission.requestTimeout().toMillis());
+        CompletableFuture<Recipe> fetch = fetchAdmission.submit(userId, () -> recipeService.fetchAndSaveRecipe(userId, url));
+        fetch.whenComplete((recipe, e) -> {
+            if (e != null) {
+                result.setErrorResult(e);
+            } else {
+                result.setResult(ResponseEntity.ok(recipe));
+            }
+        });
+        result.onTimeout(() -> {
+            fetch.cancel(false);
+            String msg = "Fetch did not finish in time for user " + userId;
+            log.warn(msg);
+            result.setErrorResult(new ServiceUnavailableException(msg, fetchAdmission.timeoutRetryAfter()));
+        });
+        return result;
+    }
+
+    /**
+     * Queues the fetch instead of running it in the request; poll the returned Location for the outcome.
+     */
+    @PostMapping(value = "/fetch-and-save", params = "async=true")
+    public ResponseEntity<FetchJob> enqueueFetchAndSave(
+            @PathVariable("userId") UUID userId,
+            @RequestBody String url) {
+        FetchJob job = fetchJobService.enqueue(userId, url);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/users/{userId}/recipes/fetch-jobs/{jobId}")
+                .buildAndExpand(userId, job.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    /**
+     * A fetch job's status. With {@code waitSeconds}, holds the request until the job finishes
+     * or the wait runs out, whichever is first.
+     */
+    @GetMapping("/fetch-jobs/{jobId}")
+    public CompletableFuture<FetchJob> getFetchJob(
+            @PathVariable("userId") UUID userId,
+            @PathVariable("jobId") UUID jobId,
+            @RequestParam(value = "waitSeconds", defaultValue = "0") long waitSeconds) {
+        return fetchJobService.awaitJob(userId, jobId, Duration.ofSeconds(waitSeconds));
+    }
+
+    /**
+     * Fetches and saves a list of URLs, streaming one NDJSON result line per URL as each finishes.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ResponseBodyEmitter> importRecipes(
+            @PathVariable("userId") UUID userId,
+            @RequestBody List<String> urls) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(IMPORT_TIMEOUT_MS);
+        recipeImportService.importRecipes(userId, urls, result -> sendLine(emitter, result))
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        emitter.completeWithError(error);
+                    } else {
+                        emitter.complete();
+                    }
+                });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(emitter);
+    }
+
+    private static void sendLine(ResponseBodyEmitter emitter, RecipeImportResult result) {
+        try {
+            emitter.send(result, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Restores an NDJSON archive, such as one from {@code /export}, gzipped or not, in one
+     * transaction. The body is streamed straight into the database rather than read into memory.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<RecipeBulkImportResult> bulkImportRecipes(
+            @PathVariable("userId") UUID userId,
+            InputStream archive) {
+        return ResponseEntity.ok(recipeBulkImportService.importArchive(userId, archive));
     }
 
     @GetMapping
@@ -38,21 +197,186 @@ public class RecipeController {
         return ResponseEntity.ok(recipe);
     }
 
+    @GetMapping("/summaries")
+    public ResponseEntity<PagedResult<RecipeSummary>> getRecipeSummaries(
+            @PathVariable("userId") UUID userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(recipeService.getRecipeSummaries(userId, cursor, limit));
+    }
+
+    /**
+     * What changed since the client's last sync token; without one, the whole library. A token
+     * older than the change log's retention gets a 410, and the client syncs again without one.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<RecipeChanges> getChanges(
+            @PathVariable("userId") UUID userId,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(recipeSyncService.getChanges(userId, since, limit));
+    }
+
+    /**
+     * Summaries filtered by total time, rating and category, sorted newest, quickest or best
+     * rated first. Times are in seconds.
+     */
+    @GetMapping("/query")
+    public ResponseEntity<PagedResult<RecipeSummary>> queryRecipes(
+            @PathVariable("userId") UUID userId,
+            @RequestParam(value = "sort", defaultValue = "NEWEST") RecipeSummary.Sort sort,
+            @RequestParam(value = "maxTotalSeconds", required = false) Integer maxTotalSeconds,
+            @RequestParam(value = "minRating", required = false) Integer minRating,
+            @RequestParam(value = "categoryId", required = false) UUID categoryId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(recipeService.queryRecipeSummaries(userId, sort, maxTotalSeconds, minRating, categoryId,
+                cursor, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<PagedResult<RecipeSummary>> searchRecipes(
+            @PathVariable("userId") UUID userId,
+            @RequestParam("q") String query,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(recipeService.searchRecipes(userId, query, cursor, limit));
+    }
+
+    /**
+     * Ranks the user's recipes by how much of each ingredient list the posted pantry covers.
+     */
+    @PostMapping("/pantry-matches")
+    public ResponseEntity<List<PantryMatch>> matchPantry(
+            @PathVariable("userId") UUID userId,
+            @RequestBody List<String> pantry,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(recipeService.matchPantry(userId, pantry, limit));
+    }
+
+    @GetMapping("/pantry-index")
+    public ResponseEntity<PantryIndexStats> getPantryIndexStats(@PathVariable("userId") UUID userId) {
+        return ResponseEntity.ok(recipeService.getPantryIndexStats(userId));
+    }
+
+    /**
+     * Full-library backup as NDJSON, one recipe per line. With {@code gzip=true} the body
+     * is a gzip file rather than a gzip-encoded response, so it can be saved as-is.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecipes(
+            @PathVariable("userId") UUID userId,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        String filename = "recipes-" + userId + (gzip ? ".ndjson.gz" : ".ndjson");
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(out -> recipeExportService.exportRecipes(userId, out, gzip));
+    }
+
+    /**
+     * The recipe. A JSON request whose {@code If-None-Match} still matches is answered with 304
+     * from the recipe's version and categories alone, before the recipe itself is loaded; binary
+     * formats are revalidated by {@link BinaryFormatAdvice} once negotiated.
+     */
     @GetMapping("/{recipeId}")
     public ResponseEntity<Recipe> getRecipe(
+            @PathVariable("userId") UUID userId,
+            @PathVariable("recipeId") UUID recipeId,
+            @RequestParam(value = "includeRaw", defaultValue = "false") boolean includeRaw,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        if (ifNoneMatch != null && !BinaryFormatAdvice.acceptsBinary(accept)) {
+            String etag = ETags.of(recipeService.getRecipeVersion(userId, recipeId), includeRaw);
+            if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                return null;
+            }
+        }
+        Recipe recipe = includeRaw
+                ? recipeService.getRecipeWithRaw(userId, recipeId)
+                : recipeService.getRecipe(userId, recipeId);
+        return ResponseEntity.ok()
+                .eTag(ETags.of(recipe, includeRaw))
+                .body(recipe);
+    }
+
+    /**
+     * The JSON-LD the recipe was extracted from, exactly as stored.
+     */
+    @GetMapping("/{recipeId}/raw")
+    public ResponseEntity<String> getRecipeRaw(
             @PathVariable("userId") UUID userId,
             @PathVariable("recipeId") UUID recipeId) {
-        Recipe recipe = recipeService.getRecipe(userId, recipeId);
-        return ResponseEntity.ok(recipe);
+        return ResponseEntity.ok()
+                .contentType(LD_JSON)
+                .body(recipeService.getRecipeRaw(userId, recipeId));
     }
 
+    /**
+     * The recipe's thumbnail resized to {@code width} (by default the configured default width),
+     * served from the local cache. Under Tomcat the file is handed to the connector's sendfile,
+     * so its bytes never pass through the heap.
+     */
+    @GetMapping("/{recipeId}/thumbnail")
+    public void getThumbnail(
+            @PathVariable("userId") UUID userId,
+            @PathVariable("recipeId") UUID recipeId,
+            @RequestParam(value = "width", required = false) Integer width,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Path thumbnail = thumbnailService.getThumbnail(userId, recipeId, width);
+        // The file name is the content hash and width, so it doubles as a strong validator
+        String etag = "\"" + thumbnail.getFileName() + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, thumbnailCacheControl.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return;
+        }
+
+        FileChannel file;
+        try {
+            file = FileChannel.open(thumbnail);
+        } catch (NoSuchFileException e) {
+            // Deleted since the lookup; looking it up again rebuilds it
+            thumbnail = thumbnailService.getThumbnail(userId, recipeId, width);
+            file = FileChannel.open(thumbnail);
+        }
+        try (file) {
+            long length = file.size();
+            response.setContentType(MediaType.IMAGE_JPEG_VALUE);
+            response.setContentLengthLong(length);
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat reopens it by name after we return; eviction spares recently served files
+                request.setAttribute(SENDFILE_FILENAME, thumbnail.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, length);
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = 0; position < length; ) {
+                position += file.transferTo(position, length - position, out);
+            }
+        }
+    }
+
+    /**
+     * Replaces the recipe. With {@code If-Match}, only if it is still at the version that tag
+     * was issued for; otherwise 412.
+     */
     @PutMapping("/{recipeId}")
     public ResponseEntity<Recipe> updateRecipe(
             @PathVariable("userId") UUID userId,
             @PathVariable("recipeId") UUID recipeId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody Recipe updatedRecipe) {
-        Recipe recipe = recipeService.updateRecipe(userId, recipeId, updatedRecipe);
-        return ResponseEntity.ok(recipe);
+        Long expectedVersion = ifMatch == null ? null : ETags.recipeVersion(ifMatch);
+        Recipe recipe = recipeService.updateRecipe(userId, recipeId, updatedRecipe, expectedVersion);
+        // The new tag, so the client's next If-Match needs no GET first
+        return ResponseEntity.ok()
+                .eTag(ETags.of(recipe, false))
+                .body(recipe);
     }
 
     @DeleteMapping("/{recipeId}")
@@ -70,7 +394,7 @@ public class RecipeController {
             @PathVariable("userId") UUID userId,
             @PathVariable("recipeId") UUID recipeId,
             @PathVariable("categoryId") UUID categoryId) {
-        RecipesCategories createdCategory = recipeService.categorizeRecipe(recipeId, categoryId);
+        RecipesCategories createdCategory = recipeService.categorizeRecipe(userId, recipeId, categoryId);
         return ResponseEntity.ok(createdCategory);
     }
 
@@ -79,7 +403,7 @@ public class RecipeController {
             @PathVariable("userId") UUID userId,
             @PathVariable("recipeId") UUID recipeId,
             @PathVariable("categoryId") UUID categoryId) {
-        recipeService.uncategorizeRecipe(recipeId, categoryId);
+        recipeService.uncategorizeRecipe(userId, recipeId, categoryId);
         return ResponseEntity.noContent().build();
     }
 }
@@ -0,0 +1,30 @@
+package com.ciav.staceymeals.controller;
+
+import com.ciav.staceymeals.model.RecipeStorageReport;
+import com.ciav.staceymeals.service.RecipeContentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code /actuator/recipestorage}: storage saved by sharing recipe content across users. It
+ * covers every user, so it sits with the other operational endpoints rather than under
+ * {@code /api}.
+ */
+@Component
+@Endpoint(id = "recipestorage")
+public class RecipeStorageEndpoint {
+
+    private final RecipeContentService recipeContentService;
+
+    @Autowired
+    public RecipeStorageEndpoint(RecipeContentService recipeContentService) {
+        this.recipeContentService = recipeContentService;
+    }
+
+    @ReadOperation
+    public RecipeStorageReport report() {
+        return recipeContentService.getStorageReport();
+    }
+}
@@ -0,0 +1,97 @@
+package com.ciav.staceymeals.db;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jdbi.v3.core.extension.ExtensionHandler;
+import org.jdbi.v3.core.extension.ExtensionHandlerCustomizer;
+import org.jdbi.v3.core.extension.ExtensionMethod;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Per-DAO-method database metrics.
+ * <p>
+ * As a {@link SqlLogger} it times every statement, tagged with the DAO and method that issued
+ * it ({@code jdbi.statements}). As an {@link ExtensionHandlerCustomizer} it records how many rows
+ * each DAO method returned or changed ({@code jdbi.rows}); Jdbi has no row hook at statement
+ * level because results are mapped after execution.
+ */
+public class JdbiMetrics implements SqlLogger, ExtensionHandlerCustomizer {
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    public JdbiMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void logAfterExecution(StatementContext context) {
+        record(context, "success");
+    }
+
+    @Override
+    public void logException(StatementContext context, SQLException ex) {
+        record(context, "error");
+    }
+
+    @Override
+    public ExtensionHandler customize(ExtensionHandler handler, Class<?> extensionType, Method method) {
+        String dao = extensionType.getSimpleName();
+        String name = method.getName();
+        return (handleSupplier, target, args) -> {
+            Object result = handler.invoke(handleSupplier, target, args);
+            long rows = rowCount(result);
+            if (rows >= 0) {
+                DistributionSummary.builder("jdbi.rows")
+                        .description("Rows returned or affected per DAO call")
+                        .tag("dao", dao)
+                        .tag("method", name)
+                        .register(meterRegistry)
+                        .record(rows);
+            }
+            return result;
+        };
+    }
+
+    private void record(StatementContext context, String outcome) {
+        ExtensionMethod extensionMethod = context.getExtensionMethod();
+        Timer.builder("jdbi.statements")
+                .description("SQL statement execution time by issuing DAO method")
+                .tag("dao", extensionMethod == null ? NONE : extensionMethod.getType().getSimpleName())
+                .tag("method", extensionMethod == null ? NONE : extensionMethod.getMethod().getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(context.getElapsedTime(ChronoUnit.NANOS), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Rows represented by a DAO result, or -1 when the result isn't a row count or rows.
+     */
+    private static long rowCount(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            return IntStream.of(counts).filter(count -> count > 0).sum();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ciav.staceymeals.db;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Rows bound for one table through {@code COPY ... FROM STDIN}, in Postgres's text format.
+ * <p>
+ * A connection can only run one COPY at a time, so rows for several tables fed in interleaved
+ * order are buffered per table and sent as a COPY whenever a buffer reaches {@code flushBytes}.
+ * Memory stays at one buffer per table, however many rows go through. Call {@link #flush()}
+ * once after the last row.
+ */
+public class StagingCopy {
+
+    private static final String NULL = "\\N";
+
+    private final CopyManager copyManager;
+    private final String sql;
+    private final int flushBytes;
+    private final ByteArrayOutputStream buffer;
+    private final StringBuilder row = new StringBuilder(256);
+    private boolean firstColumn = true;
+    private long rows;
+
+    public StagingCopy(CopyManager copyManager, String table, String columns, int flushBytes) {
+        this.copyManager = copyManager;
+        this.sql = "COPY " + table + " (" + columns + ") FROM STDIN";
+        this.flushBytes = flushBytes;
+        this.buffer = new ByteArrayOutputStream(flushBytes + flushBytes / 4);
+    }
+
+    public StagingCopy text(String value) {
+        separator();
+        if (value == null) {
+            row.append(NULL);
+        } else {
+            escape(value);
+        }
+        return this;
+    }
+
+    public StagingCopy uuid(UUID value) {
+        separator();
+        row.append(value == null ? NULL : value.toString());
+        return this;
+    }
+
+    public StagingCopy number(Number value) {
+        separator();
+        row.append(value == null ? NULL : value.toString());
+        return this;
+    }
+
+    public StagingCopy bool(boolean value) {
+        separator();
+        row.append(value ? 't' : 'f');
+        return this;
+    }
+
+    /**
+     * A {@code TEXT[]} column. The array literal is built first and then escaped for COPY like
+     * any other text, so a backslash in an element is doubled twice.
+     */
+    public StagingCopy textArray(List<String> values) {
+        if (values == null) {
+            return text(null);
+        }
+        StringBuilder literal = new StringBuilder(16 * values.size() + 2).append('{');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            String value = values.get(i);
+            if (value == null) {
+                literal.append("NULL");
+                continue;
+            }
+            literal.append('"');
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '"' || c == '\\') {
+                    literal.append('\\');
+                }
+                literal.append(c);
+            }
+            literal.append('"');
+        }
+        return text(literal.append('}').toString());
+    }
+
+    /**
+     * Ends the current row, sending the buffer if it has reached the flush size.
+     */
+    public void endRow() {
+        row.append('\n');
+        buffer.writeBytes(row.toString().getBytes(StandardCharsets.UTF_8));
+        row.setLength(0);
+        firstColumn = true;
+        rows++;
+        if (buffer.size() >= flushBytes) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (buffer.size() == 0) {
+            return;
+        }
+        try (PGCopyOutputStream out = new PGCopyOutputStream(copyManager.copyIn(sql))) {
+            buffer.writeTo(out);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not start " + sql, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.reset();
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    private void separator() {
+        if (!firstColumn) {
+            row.append('\t');
+        }
+        firstColumn = false;
+    }
+
+    private void escape(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> row.append("\\\\");
+                case '\t' -> row.append("\\t");
+                case '\n' -> row.append("\\n");
+                case '\r' -> row.append("\\r");
+                default -> row.append(c);
+            }
+        }
+    }
+}
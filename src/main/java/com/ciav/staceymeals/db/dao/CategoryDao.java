@@ -31,4 +31,30 @@ public interface CategoryDao {
 
     @SqlQuery("SELECT * FROM categories WHERE user_id = :userId ORDER BY name")
     List<Category> findByUserId(@Bind("userId") UUID userId);
+
+    /**
+     * The category and all of its descendants, shallowest first.
+     */
+    @SqlQuery("""
+            SELECT c.*
+            FROM category_closure cc
+            JOIN categories c ON c.id = cc.descendant_id
+            WHERE cc.ancestor_id = :id AND c.user_id = :userId
+            ORDER BY cc.depth, c.name
+            """)
+    List<Category> findSubtree(@Bind("id") UUID id, @Bind("userId") UUID userId);
+
+    /**
+     * Re-parents a category, taking its subtree with it; the closure trigger relinks the subtree.
+     * Matches nothing if the new parent belongs to another user or sits inside the subtree.
+     */
+    @SqlUpdate("""
+            UPDATE categories SET parent_category_id = :parentId
+            WHERE id = :id AND user_id = :userId
+              AND (CAST(:parentId AS uuid) IS NULL OR (
+                  EXISTS (SELECT 1 FROM categories p WHERE p.id = :parentId AND p.user_id = :userId)
+                  AND NOT EXISTS (SELECT 1 FROM category_closure cc
+                                  WHERE cc.ancestor_id = :id AND cc.descendant_id = :parentId)))
+            """)
+    int moveSubtree(@Bind("id") UUID id, @Bind("userId") UUID userId, @Bind("parentId") UUID parentId);
 }
\ No newline at end of file
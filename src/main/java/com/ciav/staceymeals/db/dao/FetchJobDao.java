@@ -0,0 +1,78 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.FetchJob;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.customizer.BindBean;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@RegisterBeanMapper(FetchJob.class)
+public interface FetchJobDao {
+
+    @SqlQuery("""
+            INSERT INTO fetch_jobs (id, user_id, url)
+            VALUES (:id, :userId, :url)
+            RETURNING *
+            """)
+    FetchJob insert(@BindBean FetchJob job);
+
+    @SqlQuery("SELECT * FROM fetch_jobs WHERE id = :id AND user_id = :userId")
+    Optional<FetchJob> findByIdAndUserId(@Bind("id") UUID id, @Bind("userId") UUID userId);
+
+    @SqlQuery("SELECT * FROM fetch_jobs WHERE id = ANY(:ids)")
+    List<FetchJob> findByIds(@Bind("ids") UUID[] ids);
+
+    /**
+     * Locks up to {@code limit} runnable jobs for this worker: queued jobs that are due, and
+     * running jobs whose lease has expired. Rows another worker is claiming are skipped, not waited on.
+     */
+    @SqlQuery("""
+            UPDATE fetch_jobs
+            SET status = 'RUNNING',
+                attempts = attempts + 1,
+                locked_by = :workerId,
+                locked_until = CURRENT_TIMESTAMP + :leaseMillis * INTERVAL '1 millisecond',
+                updated_at = CURRENT_TIMESTAMP
+            WHERE id IN (
+                SELECT id FROM fetch_jobs
+                WHERE (status = 'QUEUED' AND run_after <= CURRENT_TIMESTAMP)
+                   OR (status = 'RUNNING' AND locked_until < CURRENT_TIMESTAMP)
+                ORDER BY run_after
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """)
+    List<FetchJob> claim(@Bind("workerId") String workerId, @Bind("limit") int limit, @Bind("leaseMillis") long leaseMillis);
+
+    @SqlUpdate("""
+            UPDATE fetch_jobs
+            SET status = 'SUCCEEDED', recipe_id = :recipeId, last_error = NULL,
+                locked_by = NULL, locked_until = NULL, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND locked_by = :workerId AND status = 'RUNNING'
+            """)
+    int complete(@Bind("id") UUID id, @Bind("workerId") String workerId, @Bind("recipeId") UUID recipeId);
+
+    @SqlUpdate("""
+            UPDATE fetch_jobs
+            SET status = 'QUEUED', last_error = :error,
+                run_after = CURRENT_TIMESTAMP + :backoffMillis * INTERVAL '1 millisecond',
+                locked_by = NULL, locked_until = NULL, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND locked_by = :workerId AND status = 'RUNNING'
+            """)
+    int retry(@Bind("id") UUID id, @Bind("workerId") String workerId, @Bind("error") String error,
+              @Bind("backoffMillis") long backoffMillis);
+
+    @SqlUpdate("""
+            UPDATE fetch_jobs
+            SET status = 'DEAD', last_error = :error,
+                locked_by = NULL, locked_until = NULL, updated_at = CURRENT_TIMESTAMP
+            WHERE id = :id AND locked_by = :workerId AND status = 'RUNNING'
+            """)
+    int bury(@Bind("id") UUID id, @Bind("workerId") String workerId, @Bind("error") String error);
+}
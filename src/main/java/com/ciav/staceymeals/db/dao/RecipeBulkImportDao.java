@@ -0,0 +1,318 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.db.StagingCopy;
+import com.ciav.staceymeals.model.RecipeBulkImportResult;
+import org.jdbi.v3.sqlobject.SqlObject;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlScript;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Loads a recipe archive into per-transaction staging tables with COPY, then merges it into the
+ * user's library with a handful of set-based statements.
+ * <p>
+ * Archive ids are kept where they are free or already the user's, and remapped to fresh ids
+ * where they belong to someone else; a recipe for a page the user already has lands on that
+ * recipe, as with {@link RecipeDao#save}. Within the archive the last line for an id or page
+ * wins. Rows the archive doesn't change are left alone, so re-importing an archive bumps no
+ * versions and adds nothing to the change log.
+ */
+public interface RecipeBulkImportDao extends SqlObject {
+
+    String RECIPE_COLUMNS = "line, id, source_url, title, ingredients, ingredient_terms, steps, "
+            + "thumbnail_url, prep_time, cook_time, total_time, prep_seconds, cook_seconds, total_seconds, "
+            + "servings, raw, rating";
+    String CATEGORY_COLUMNS = "line, id, name, parent_category_id, explicit";
+    String LINK_COLUMNS = "recipe_line, recipe_id, category_id";
+
+    /**
+     * The archive's three kinds of line, each fed through a {@link StagingCopy} by the loader.
+     */
+    record Staging(StagingCopy recipes, StagingCopy categories, StagingCopy links) {
+    }
+
+    /**
+     * Creates the staging tables, runs {@code loader} to fill them, and merges them into the
+     * user's library, all in one transaction.
+     */
+    @Transaction
+    default RecipeBulkImportResult importArchive(UUID userId, int flushBytes, Consumer<Staging> loader) {
+        createStagingTables();
+        CopyManager copyManager;
+        try {
+            copyManager = getHandle().getConnection().unwrap(PGConnection.class).getCopyAPI();
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY needs a PostgreSQL connection", e);
+        }
+        Staging staging = new Staging(
+                new StagingCopy(copyManager, "import_recipes", RECIPE_COLUMNS, flushBytes),
+                new StagingCopy(copyManager, "import_categories", CATEGORY_COLUMNS, flushBytes),
+                new StagingCopy(copyManager, "import_links", LINK_COLUMNS, flushBytes));
+        loader.accept(staging);
+        staging.recipes().flush();
+        staging.categories().flush();
+        staging.links().flush();
+        analyzeStagingTables();
+
+        dropSupersededRecipeLines();
+        mapCategoryIds(userId);
+        int categories = upsertCategories(userId);
+        setCategoryParents(userId);
+        mapRecipeIds(userId);
+        pickRecipeRows();
+        internContents();
+        int recipes = upsertRecipes(userId);
+        resolveLinkLines();
+        int links = insertLinks(userId);
+        return RecipeBulkImportResult.builder()
+                .recipesRead(staging.recipes().rows())
+                .recipesSaved(recipes)
+                .categoriesSaved(categories)
+                .linksSaved(links)
+                .linksSkipped(countUnresolvedLinks(userId))
+                .build();
+    }
+
+    @SqlScript("""
+            CREATE TEMPORARY TABLE import_recipes (
+                line BIGINT NOT NULL, id UUID, source_url TEXT, title TEXT,
+                ingredients TEXT[], ingredient_terms TEXT[], steps TEXT[],
+                thumbnail_url TEXT, prep_time TEXT, cook_time TEXT, total_time TEXT,
+                prep_seconds INTEGER, cook_seconds INTEGER, total_seconds INTEGER, servings TEXT,
+                raw TEXT, rating INTEGER
+            ) ON COMMIT DROP
+            """)
+    @SqlScript("""
+            CREATE TEMPORARY TABLE import_categories (
+                line BIGINT NOT NULL, id UUID NOT NULL, name TEXT, parent_category_id UUID, explicit BOOLEAN NOT NULL
+            ) ON COMMIT DROP
+            """)
+    @SqlScript("""
+            CREATE TEMPORARY TABLE import_links (recipe_line BIGINT, recipe_id UUID, category_id UUID NOT NULL)
+            ON COMMIT DROP
+            """)
+    @SqlScript("""
+            CREATE TEMPORARY TABLE import_category_ids (
+                old_id UUID PRIMARY KEY, new_id UUID NOT NULL, name TEXT, old_parent_id UUID, explicit BOOLEAN NOT NULL
+            ) ON COMMIT DROP
+            """)
+    @SqlScript("CREATE TEMPORARY TABLE import_recipe_ids (line BIGINT PRIMARY KEY, new_id UUID NOT NULL) ON COMMIT DROP")
+    @SqlScript("""
+            CREATE TEMPORARY TABLE import_recipe_rows (new_id UUID PRIMARY KEY, line BIGINT NOT NULL, content_hash BYTEA NOT NULL)
+            ON COMMIT DROP
+            """)
+    void createStagingTables();
+
+    // Temporary tables are never analyzed automatically, and the merge joins them to big tables
+    @SqlScript("ANALYZE import_recipes")
+    @SqlScript("ANALYZE import_categories")
+    @SqlScript("ANALYZE import_links")
+    void analyzeStagingTables();
+
+    @SqlUpdate("""
+            DELETE FROM import_recipes s
+            USING import_recipes later
+            WHERE later.id = s.id AND later.line > s.line
+            """)
+    void dropSupersededRecipeLines();
+
+    /**
+     * Categories declared on their own line win over those only named inside a recipe, and
+     * named ones over those given only by id.
+     */
+    @SqlUpdate("""
+            INSERT INTO import_category_ids (old_id, new_id, name, old_parent_id, explicit)
+            SELECT s.id,
+                   CASE WHEN c.id IS NULL OR c.user_id = :userId THEN s.id ELSE gen_random_uuid() END,
+                   s.name, s.parent_category_id, s.explicit
+            FROM (SELECT DISTINCT ON (id) * FROM import_categories ORDER BY id, explicit DESC, name IS NULL, line DESC) s
+            LEFT JOIN categories c ON c.id = s.id
+            """)
+    void mapCategoryIds(@Bind("userId") UUID userId);
+
+    /**
+     * A category given only by id keeps its name if the user has it, and is otherwise named
+     * {@code Imported}.
+     */
+    @SqlUpdate("""
+            INSERT INTO categories (id, user_id, name)
+            SELECT m.new_id, :userId, coalesce(m.name, own.name, 'Imported')
+            FROM import_category_ids m
+            LEFT JOIN categories own ON own.id = m.new_id
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name
+            WHERE categories.name IS DISTINCT FROM EXCLUDED.name
+            """)
+    int upsertCategories(@Bind("userId") UUID userId);
+
+    /**
+     * Runs once every category exists, so parents can come in any order; the closure triggers
+     * reject a cycle. A parent outside the archive must be one of the user's own categories.
+     */
+    @SqlUpdate("""
+            UPDATE categories c
+            SET parent_category_id = coalesce(parent.new_id, own_parent.id)
+            FROM import_category_ids m
+            LEFT JOIN import_category_ids parent ON parent.old_id = m.old_parent_id
+            LEFT JOIN categories own_parent ON parent.old_id IS NULL
+                                            AND own_parent.id = m.old_parent_id
+                                            AND own_parent.user_id = :userId
+            WHERE c.id = m.new_id
+              AND m.explicit
+              AND c.parent_category_id IS DISTINCT FROM coalesce(parent.new_id, own_parent.id)
+            """)
+    void setCategoryParents(@Bind("userId") UUID userId);
+
+    /**
+     * One target id per page: the user's existing recipe for it, else the archive id if it's
+     * free or already theirs, else a new one. Lines without a URL are pages of their own.
+     */
+    @SqlUpdate("""
+            WITH keyed AS (
+                SELECT line, id, normalize_source_url(source_url) AS url_key
+                FROM import_recipes
+            ),
+            pages AS (
+                SELECT DISTINCT ON (coalesce(url_key, 'line ' || line))
+                       coalesce(url_key, 'line ' || line) AS page, id, url_key
+                FROM keyed
+                ORDER BY coalesce(url_key, 'line ' || line), line DESC
+            ),
+            assigned AS (
+                SELECT p.page,
+                       coalesce(by_url.id,
+                                CASE WHEN by_id.id IS NULL OR by_id.user_id = :userId THEN p.id END,
+                                gen_random_uuid()) AS new_id
+                FROM pages p
+                LEFT JOIN recipes by_url ON by_url.user_id = :userId AND by_url.source_url_normalized = p.url_key
+                LEFT JOIN recipes by_id ON by_id.id = p.id
+            )
+            INSERT INTO import_recipe_ids (line, new_id)
+            SELECT k.line, a.new_id
+            FROM keyed k
+            JOIN assigned a ON a.page = coalesce(k.url_key, 'line ' || k.line)
+            """)
+    void mapRecipeIds(@Bind("userId") UUID userId);
+
+    /**
+     * The line that supplies each target recipe, should several pages have landed on the same
+     * existing one.
+     */
+    @SqlUpdate("""
+            INSERT INTO import_recipe_rows (new_id, line, content_hash)
+            SELECT DISTINCT ON (m.new_id) m.new_id, s.line, recipe_content_hash(s.ingredients, s.steps, s.raw)
+            FROM import_recipes s
+            JOIN import_recipe_ids m ON m.line = s.line
+            ORDER BY m.new_id, s.line DESC
+            """)
+    void pickRecipeRows();
+
+    /**
+     * {@code intern_recipe_content} for the whole archive in one statement.
+     */
+    @SqlUpdate("""
+            INSERT INTO recipe_contents AS c (content_hash, ingredients, ingredient_terms, steps, raw)
+            SELECT DISTINCT ON (r.content_hash) r.content_hash, s.ingredients, s.ingredient_terms, s.steps, s.raw
+            FROM import_recipe_rows r
+            JOIN import_recipes s ON s.line = r.line
+            ORDER BY r.content_hash
+            ON CONFLICT (content_hash) DO UPDATE SET
+                last_referenced_at = CURRENT_TIMESTAMP,
+                ingredient_terms = coalesce(c.ingredient_terms, EXCLUDED.ingredient_terms),
+                raw = coalesce(c.raw, EXCLUDED.raw)
+            """)
+    void internContents();
+
+    /**
+     * Archives from before the times in seconds existed get them from the recipe's JSON-LD,
+     * as the V11 migration did.
+     */
+    @SqlUpdate("""
+            INSERT INTO recipes (id, user_id, source_url, title, content_hash,
+                                thumbnail_url, prep_time, cook_time, total_time,
+                                prep_seconds, cook_seconds, total_seconds, servings, rating)
+            SELECT r.new_id, :userId, s.source_url, coalesce(s.title, ''), r.content_hash,
+                   s.thumbnail_url, s.prep_time, s.cook_time, s.total_time,
+                   coalesce(s.prep_seconds, iso_duration_seconds(recipe_node(s.raw) ->> 'prepTime')),
+                   coalesce(s.cook_seconds, iso_duration_seconds(recipe_node(s.raw) ->> 'cookTime')),
+                   coalesce(s.total_seconds, iso_duration_seconds(recipe_node(s.raw) ->> 'totalTime')),
+                   s.servings, coalesce(s.rating, 0)
+            FROM import_recipe_rows r
+            JOIN import_recipes s ON s.line = r.line
+            ON CONFLICT (id) DO UPDATE SET
+                source_url = EXCLUDED.source_url,
+                title = EXCLUDED.title,
+                content_hash = EXCLUDED.content_hash,
+                thumbnail_url = EXCLUDED.thumbnail_url,
+                prep_time = EXCLUDED.prep_time,
+                cook_time = EXCLUDED.cook_time,
+                total_time = EXCLUDED.total_time,
+                prep_seconds = EXCLUDED.prep_seconds,
+                cook_seconds = EXCLUDED.cook_seconds,
+                total_seconds = EXCLUDED.total_seconds,
+                servings = EXCLUDED.servings,
+                rating = EXCLUDED.rating
+            WHERE (recipes.source_url, recipes.title, recipes.content_hash, recipes.thumbnail_url,
+                   recipes.prep_time, recipes.cook_time, recipes.total_time,
+                   recipes.prep_seconds, recipes.cook_seconds, recipes.total_seconds, recipes.servings, recipes.rating)
+                IS DISTINCT FROM
+                  (EXCLUDED.source_url, EXCLUDED.title, EXCLUDED.content_hash, EXCLUDED.thumbnail_url,
+                   EXCLUDED.prep_time, EXCLUDED.cook_time, EXCLUDED.total_time,
+                   EXCLUDED.prep_seconds, EXCLUDED.cook_seconds, EXCLUDED.total_seconds, EXCLUDED.servings, EXCLUDED.rating)
+            """)
+    int upsertRecipes(@Bind("userId") UUID userId);
+
+    /**
+     * Points links given by recipe id at the line for that recipe, where the archive has one.
+     */
+    @SqlUpdate("""
+            UPDATE import_links l SET recipe_line = s.line
+            FROM import_recipes s
+            WHERE l.recipe_line IS NULL AND s.id = l.recipe_id
+            """)
+    void resolveLinkLines();
+
+    /**
+     * Links whose recipe or category is neither in the archive nor the user's own are skipped.
+     */
+    @SqlUpdate("""
+            INSERT INTO recipes_categories (recipe_id, category_id)
+            SELECT DISTINCT coalesce(r.new_id, own_recipe.id), coalesce(c.new_id, own_category.id)
+            FROM import_links l
+            LEFT JOIN import_recipe_ids r ON r.line = l.recipe_line
+            LEFT JOIN recipes own_recipe ON l.recipe_line IS NULL
+                                        AND own_recipe.id = l.recipe_id
+                                        AND own_recipe.user_id = :userId
+            LEFT JOIN import_category_ids c ON c.old_id = l.category_id
+            LEFT JOIN categories own_category ON c.old_id IS NULL
+                                             AND own_category.id = l.category_id
+                                             AND own_category.user_id = :userId
+            WHERE coalesce(r.new_id, own_recipe.id) IS NOT NULL
+              AND coalesce(c.new_id, own_category.id) IS NOT NULL
+            ON CONFLICT (recipe_id, category_id) DO NOTHING
+            """)
+    int insertLinks(@Bind("userId") UUID userId);
+
+    @SqlQuery("""
+            SELECT count(*)
+            FROM import_links l
+            LEFT JOIN import_recipe_ids r ON r.line = l.recipe_line
+            LEFT JOIN recipes own_recipe ON l.recipe_line IS NULL
+                                        AND own_recipe.id = l.recipe_id
+                                        AND own_recipe.user_id = :userId
+            LEFT JOIN import_category_ids c ON c.old_id = l.category_id
+            LEFT JOIN categories own_category ON c.old_id IS NULL
+                                             AND own_category.id = l.category_id
+                                             AND own_category.user_id = :userId
+            WHERE coalesce(r.new_id, own_recipe.id) IS NULL
+               OR coalesce(c.new_id, own_category.id) IS NULL
+            """)
+    long countUnresolvedLinks(@Bind("userId") UUID userId);
+}
@@ -0,0 +1,95 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.RecipeChange;
+import org.jdbi.v3.core.transaction.TransactionIsolationLevel;
+import org.jdbi.v3.sqlobject.SqlObject;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+@RegisterBeanMapper(RecipeChange.class)
+public interface RecipeChangeDao extends SqlObject {
+
+    /**
+     * The user's changes after (txid, seq), oldest first, leaving out any from transactions that
+     * might still be followed by an earlier-numbered commit.
+     */
+    @SqlQuery("""
+            SELECT txid, seq, recipe_id, category_id, kind
+            FROM recipe_changes
+            WHERE user_id = :userId
+              AND (txid, seq) > (:txid, :seq)
+              AND txid < pg_snapshot_xmin(pg_current_snapshot())::text::bigint
+            ORDER BY txid, seq
+            LIMIT :limit
+            """)
+    List<RecipeChange> findAfter(@Bind("userId") UUID userId,
+                                 @Bind("txid") long txid,
+                                 @Bind("seq") long seq,
+                                 @Bind("limit") int limit);
+
+    /**
+     * The oldest transaction this snapshot can't see all of; everything logged before it is
+     * already reflected in the recipes the snapshot reads.
+     */
+    @SqlQuery("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint")
+    long findSnapshotXmin();
+
+    /**
+     * The newest entry pruned from the log so far, or (0, 0) if none has been.
+     */
+    @SqlQuery("SELECT txid, seq FROM recipe_changes_pruned")
+    RecipeChange findPruned();
+
+    /**
+     * The most recently logged entry older than the retention. Entries are logged at their
+     * transaction's start time, so this is the newest position past the retention only
+     * approximately, which is close enough for pruning.
+     */
+    @SqlQuery("""
+            SELECT txid, seq
+            FROM recipe_changes
+            WHERE changed_at < CURRENT_TIMESTAMP - make_interval(secs => :retentionSeconds)
+            ORDER BY changed_at DESC, txid DESC, seq DESC
+            LIMIT 1
+            """)
+    Optional<RecipeChange> findNewestBefore(@Bind("retentionSeconds") long retentionSeconds);
+
+    /**
+     * Moves the pruned position forward to (txid, seq); never back.
+     */
+    @SqlUpdate("UPDATE recipe_changes_pruned SET txid = :txid, seq = :seq WHERE (txid, seq) < (:txid, :seq)")
+    void advancePruned(@Bind("txid") long txid, @Bind("seq") long seq);
+
+    /**
+     * Deletes up to {@code limit} entries at or before (txid, seq), skipping rows another
+     * prune has locked. Returns the number deleted.
+     */
+    @SqlUpdate("""
+            DELETE FROM recipe_changes
+            WHERE (txid, seq) IN (
+                SELECT txid, seq
+                FROM recipe_changes
+                WHERE (txid, seq) <= (:txid, :seq)
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)
+            """)
+    int deleteThrough(@Bind("txid") long txid, @Bind("seq") long seq, @Bind("limit") int limit);
+
+    /**
+     * Runs {@code work} in one read-only repeatable-read transaction, so the log and the recipes
+     * it names are read from the same snapshot on the same server. Read separately, a recipe
+     * missing from a more-lagged replica would look deleted.
+     */
+    @Transaction(value = TransactionIsolationLevel.REPEATABLE_READ, readOnly = true)
+    default <T> T inSnapshot(BiFunction<RecipeChangeDao, RecipeDao, T> work) {
+        return work.apply(this, getHandle().attach(RecipeDao.class));
+    }
+}
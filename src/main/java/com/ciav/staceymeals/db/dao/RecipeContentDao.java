@@ -0,0 +1,62 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.RecipeStorageReport;
+import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
+import org.jdbi.v3.sqlobject.customizer.Bind;
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+
+/**
+ * The shared {@code recipe_contents} rows behind every user's recipes. Rows are written by
+ * {@link RecipeDao} through {@code intern_recipe_content}; this is the upkeep side.
+ */
+public interface RecipeContentDao {
+
+    /**
+     * Sharing only covers the content columns. Each recipe still has its own search vector,
+     * title plus a copy of its content's terms, so those count in full on both sides, and the
+     * shared row's own vector is a cost of sharing.
+     */
+    @SqlQuery("""
+            SELECT coalesce(sum(refs.n), 0) AS recipes,
+                   count(*) AS contents,
+                   count(*) FILTER (WHERE refs.n > 1) AS shared_contents,
+                   count(*) FILTER (WHERE refs.n IS NULL) AS orphaned_contents,
+                   coalesce(sum(c.bytes + c.search_bytes + refs.search_bytes) FILTER (WHERE refs.n IS NOT NULL), 0)
+                       AS content_bytes,
+                   coalesce(sum(c.bytes * refs.n + refs.search_bytes), 0) AS unshared_content_bytes,
+                   coalesce(sum(c.bytes * (refs.n - 1) - c.search_bytes) FILTER (WHERE refs.n IS NOT NULL), 0)
+                       AS saved_bytes,
+                   pg_total_relation_size('recipes') AS recipes_table_bytes,
+                   pg_total_relation_size('recipe_contents') AS contents_table_bytes
+            FROM (SELECT content_hash,
+                         coalesce(pg_column_size(ingredients), 0) + coalesce(pg_column_size(ingredient_terms), 0)
+                             + coalesce(pg_column_size(steps), 0) + coalesce(pg_column_size(raw), 0) AS bytes,
+                         coalesce(pg_column_size(search_vector), 0) AS search_bytes
+                  FROM recipe_contents) c
+            LEFT JOIN (SELECT content_hash, count(*) AS n,
+                              sum(coalesce(pg_column_size(search_vector), 0)) AS search_bytes
+                       FROM recipes
+                       GROUP BY content_hash) refs
+                   ON refs.content_hash = c.content_hash
+            """)
+    @RegisterBeanMapper(RecipeStorageReport.class)
+    RecipeStorageReport report();
+
+    /**
+     * Deletes up to {@code limit} content rows that no recipe references and none has been
+     * interned for in {@code graceSeconds}; the grace period covers a save whose recipe row is
+     * not yet committed. Returns the number deleted.
+     */
+    @SqlUpdate("""
+            DELETE FROM recipe_contents
+            WHERE content_hash IN (
+                SELECT c.content_hash
+                FROM recipe_contents c
+                WHERE c.last_referenced_at < CURRENT_TIMESTAMP - make_interval(secs => :graceSeconds)
+                  AND NOT EXISTS (SELECT 1 FROM recipes r WHERE r.content_hash = c.content_hash)
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)
+            """)
+    int deleteOrphans(@Bind("graceSeconds") long graceSeconds, @Bind("limit") int limit);
+}
@@ -1,48 +1,141 @@
 package com.ciav.staceymeals.db.dao;
 
+import com.ciav.staceymeals.db.mapper.CategoryArrayRecipeMapper;
+import com.ciav.staceymeals.db.mapper.RecipeRowFolder;
 import com.ciav.staceymeals.db.mapper.RecipeRowMapper;
+import com.ciav.staceymeals.model.Category;
 import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeSummary;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.sqlobject.SqlObject;
 import org.jdbi.v3.sqlobject.config.RegisterBeanMapper;
 import org.jdbi.v3.sqlobject.customizer.Bind;
 import org.jdbi.v3.sqlobject.customizer.BindBean;
 import org.jdbi.v3.sqlobject.statement.GetGeneratedKeys;
+import org.jdbi.v3.sqlobject.statement.SqlBatch;
 import org.jdbi.v3.sqlobject.statement.SqlQuery;
 import org.jdbi.v3.sqlobject.statement.SqlUpdate;
+import org.jdbi.v3.sqlobject.statement.UseRowMapper;
 import org.jdbi.v3.sqlobject.statement.UseRowReducer;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @RegisterBeanMapper(Recipe.class)
-public interface RecipeDao {
+public interface RecipeDao extends SqlObject {
 
-    @SqlUpdate("""
-            INSERT INTO recipes (id, user_id, source_url, title, ingredients, steps,
-                                thumbnail_url, prep_time, cook_time, total_time, servings, raw, rating)
-            VALUES (:id, :userId, :sourceUrl, :title, :ingredients, :steps,
-                    :thumbnailUrl, :prepTime, :cookTime, :totalTime, :servings, :raw, :rating)
+    /**
+     * Start of a full-recipe read: the recipe row's mapped columns, listed rather than
+     * {@code r.*}, which would also fetch the search vector, large and never read back.
+     */
+    String SELECT_RECIPE = """
+            SELECT r.id, r.user_id, r.source_url, r.title, r.thumbnail_url, r.prep_time, r.cook_time, r.total_time,
+                   r.prep_seconds, r.cook_seconds, r.total_seconds, r.servings, r.rating, r.version,
+            """;
+
+    /**
+     * Resolves the row to write (the user's existing copy of the URL, else {@code :id}) before
+     * the insert, so that {@code ON CONFLICT (id)} covers both.
+     */
+    String SAVE = """
+            WITH target AS (
+                SELECT coalesce((SELECT id FROM recipes
+                                 WHERE user_id = :userId
+                                   AND source_url_normalized = normalize_source_url(:sourceUrl)),
+                                :id) AS id
+            )
+            INSERT INTO recipes (id, user_id, source_url, title, content_hash,
+                                thumbnail_url, prep_time, cook_time, total_time,
+                                prep_seconds, cook_seconds, total_seconds, servings, rating)
+            SELECT target.id, :userId, :sourceUrl, :title,
+                   intern_recipe_content(:ingredients, :ingredientTerms, :steps,
+                       coalesce(:raw, (SELECT c.raw
+                                       FROM recipes r
+                                       JOIN recipe_contents c ON c.content_hash = r.content_hash
+                                       WHERE r.id = target.id))),
+                   :thumbnailUrl, :prepTime, :cookTime, :totalTime,
+                   :prepSeconds, :cookSeconds, :totalSeconds, :servings, :rating
+            FROM target
             ON CONFLICT (id) DO UPDATE SET
                 user_id = EXCLUDED.user_id,
                 source_url = EXCLUDED.source_url,
                 title = EXCLUDED.title,
-                ingredients = EXCLUDED.ingredients,
-                steps = EXCLUDED.steps,
+                content_hash = EXCLUDED.content_hash,
                 thumbnail_url = EXCLUDED.thumbnail_url,
                 prep_time = EXCLUDED.prep_time,
                 cook_time = EXCLUDED.cook_time,
                 total_time = EXCLUDED.total_time,
+                prep_seconds = EXCLUDED.prep_seconds,
+                cook_seconds = EXCLUDED.cook_seconds,
+                total_seconds = EXCLUDED.total_seconds,
                 servings = EXCLUDED.servings,
-                raw = EXCLUDED.raw,
-                rating = EXCLUDED.rating
-            returning *
-            """)
-    @GetGeneratedKeys
+                rating = CASE WHEN recipes.id = :id THEN EXCLUDED.rating ELSE recipes.rating END
+            RETURNING id
+            """;
+
+    /**
+     * Inserts or overwrites the recipe and returns the id it was stored under. A recipe whose
+     * source URL the user has already saved overwrites that recipe, keeping its rating, rather
+     * than adding a second copy. The content goes into the shared {@code recipe_contents} row for
+     * it; a recipe saved without {@code raw} keeps whatever source it already had.
+     */
+    @SqlUpdate(SAVE)
+    @GetGeneratedKeys("id")
     UUID save(@BindBean Recipe recipe);
 
+    /**
+     * {@link #save} for each recipe, returning the ids in the same order.
+     */
+    @SqlBatch(SAVE)
+    @GetGeneratedKeys("id")
+    List<UUID> saveBatch(@BindBean List<Recipe> recipes);
+
+    /**
+     * Rewrites the recipe's fields if it exists and, when {@code expectedVersion} is given, is
+     * still at that version. Changed content is interned as a new shared row and only this
+     * recipe is pointed at it. Times in seconds left null keep their stored values, since
+     * clients that predate them send none. Returns the new version, or empty if nothing matched.
+     */
     @SqlQuery("""
-            SELECT r.*, c.id as category_id, c.name as category_name
+            UPDATE recipes SET
+                source_url = :sourceUrl,
+                title = :title,
+                content_hash = intern_recipe_content(:ingredients, :ingredientTerms, :steps,
+                    coalesce(:raw, (SELECT c.raw FROM recipe_contents c WHERE c.content_hash = recipes.content_hash))),
+                thumbnail_url = :thumbnailUrl,
+                prep_time = :prepTime,
+                cook_time = :cookTime,
+                total_time = :totalTime,
+                prep_seconds = coalesce(:prepSeconds, prep_seconds),
+                cook_seconds = coalesce(:cookSeconds, cook_seconds),
+                total_seconds = coalesce(:totalSeconds, total_seconds),
+                servings = :servings,
+                rating = :rating
+            WHERE id = :id AND user_id = :userId
+              AND (CAST(:expectedVersion AS BIGINT) IS NULL OR version = :expectedVersion)
+            RETURNING version
+            """)
+    Optional<Long> update(@BindBean Recipe recipe, @Bind("expectedVersion") Long expectedVersion);
+
+    @SqlQuery("""
+            SELECT content.raw
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            WHERE r.id = :id AND r.user_id = :userId AND content.raw IS NOT NULL
+            """)
+    Optional<String> findRawByIdAndUserId(@Bind("id") UUID id, @Bind("userId") UUID userId);
+
+    @SqlQuery(SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps,
+                   c.id as category_id, c.name as category_name
             FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
             LEFT JOIN recipes_categories rc ON r.id = rc.recipe_id
             LEFT JOIN categories c ON rc.category_id = c.id
             WHERE r.user_id = :userId
@@ -51,9 +144,317 @@ public interface RecipeDao {
     @UseRowReducer(RecipeRowMapper.class)
     List<Recipe> findByUserId(@Bind("userId") UUID userId);
 
+    /**
+     * Same result as {@link #findByUserId}, one row per recipe.
+     */
+    @SqlQuery(SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps,
+                   coalesce(cats.ids, '{}') AS category_ids,
+                   coalesce(cats.names, '{}') AS category_names
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            LEFT JOIN LATERAL (
+                SELECT array_agg(c.id ORDER BY c.id) AS ids, array_agg(c.name ORDER BY c.id) AS names
+                FROM recipes_categories rc
+                JOIN categories c ON c.id = rc.category_id
+                WHERE rc.recipe_id = r.id
+            ) cats ON true
+            WHERE r.user_id = :userId
+            ORDER BY r.id
+            """)
+    @UseRowMapper(CategoryArrayRecipeMapper.class)
+    List<Recipe> findByUserIdAggregated(@Bind("userId") UUID userId);
+
+    @SqlQuery(SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps,
+                   coalesce(cats.ids, '{}') AS category_ids,
+                   coalesce(cats.names, '{}') AS category_names
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            LEFT JOIN LATERAL (
+                SELECT array_agg(c.id ORDER BY c.id) AS ids, array_agg(c.name ORDER BY c.id) AS names
+                FROM recipes_categories rc
+                JOIN categories c ON c.id = rc.category_id
+                WHERE rc.recipe_id = r.id
+            ) cats ON true
+            WHERE r.user_id = :userId AND r.id = ANY(:ids)
+            ORDER BY r.id
+            """)
+    @UseRowMapper(CategoryArrayRecipeMapper.class)
+    List<Recipe> findByIdsAndUserId(@Bind("ids") UUID[] ids, @Bind("userId") UUID userId);
+
+    /**
+     * One page of the user's library in id order, with categories, for a first sync.
+     */
+    String LIBRARY_PAGE = SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps,
+                   coalesce(cats.ids, '{}') AS category_ids,
+                   coalesce(cats.names, '{}') AS category_names
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            LEFT JOIN LATERAL (
+                SELECT array_agg(c.id ORDER BY c.id) AS ids, array_agg(c.name ORDER BY c.id) AS names
+                FROM recipes_categories rc
+                JOIN categories c ON c.id = rc.category_id
+                WHERE rc.recipe_id = r.id
+            ) cats ON true
+            WHERE r.user_id = :userId
+            """;
+
+    @SqlQuery(LIBRARY_PAGE + """
+            ORDER BY r.id
+            LIMIT :limit
+            """)
+    @UseRowMapper(CategoryArrayRecipeMapper.class)
+    List<Recipe> findLibraryPage(@Bind("userId") UUID userId, @Bind("limit") int limit);
+
+    @SqlQuery(LIBRARY_PAGE + """
+              AND r.id > :afterId
+            ORDER BY r.id
+            LIMIT :limit
+            """)
+    @UseRowMapper(CategoryArrayRecipeMapper.class)
+    List<Recipe> findLibraryPageAfter(@Bind("userId") UUID userId,
+                                      @Bind("afterId") UUID afterId,
+                                      @Bind("limit") int limit);
+
+    @SqlQuery(SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            WHERE r.user_id = :userId
+            ORDER BY r.id
+            """)
+    List<Recipe> findRowsByUserId(@Bind("userId") UUID userId);
+
+    /**
+     * Same result as {@link #findByUserId}: the recipe rows, then every category for all of
+     * them in one {@code ANY} query.
+     */
+    @Transaction(readOnly = true)
+    default List<Recipe> findByUserIdBatched(UUID userId) {
+        List<Recipe> recipes = findRowsByUserId(userId);
+        if (recipes.isEmpty()) {
+            return recipes;
+        }
+        Map<UUID, Recipe> byId = new HashMap<>(recipes.size() * 2);
+        for (Recipe recipe : recipes) {
+            byId.put(recipe.getId(), recipe);
+        }
+        getHandle().createQuery("""
+                        SELECT rc.recipe_id, c.id, c.name
+                        FROM recipes_categories rc
+                        JOIN categories c ON c.id = rc.category_id
+                        WHERE rc.recipe_id = ANY(:ids)
+                        ORDER BY rc.recipe_id, c.id
+                        """)
+                .bindArray("ids", UUID.class, byId.keySet())
+                .reduceRows(byId, (recipesById, row) -> {
+                    recipesById.get(row.getColumn("recipe_id", UUID.class)).getCategories().add(Category.builder()
+                            .id(row.getColumn("id", UUID.class))
+                            .name(row.getColumn("name", String.class))
+                            .build());
+                    return recipesById;
+                });
+        return recipes;
+    }
+
+    /**
+     * Just enough of each recipe to build the pantry index. Older rows may have no terms yet.
+     */
+    @SqlQuery("""
+            SELECT r.id, r.user_id, r.title, content.ingredients, content.ingredient_terms
+            FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
+            WHERE r.user_id = :userId
+            """)
+    List<Recipe> findIngredientTermsByUserId(@Bind("userId") UUID userId);
+
+    @SqlQuery("""
+            SELECT r.id, r.title, r.thumbnail_url, r.prep_time, r.cook_time, r.total_time,
+                   r.prep_seconds, r.cook_seconds, r.total_seconds, r.rating, r.created_at,
+                   ARRAY(SELECT rc.category_id FROM recipes_categories rc WHERE rc.recipe_id = r.id) AS category_ids
+            FROM recipes r
+            WHERE r.user_id = :userId
+            ORDER BY r.created_at DESC, r.id DESC
+            LIMIT :limit
+            """)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> findSummariesByUserId(@Bind("userId") UUID userId, @Bind("limit") int limit);
+
     @SqlQuery("""
-            SELECT r.*, c.id as category_id, c.name as category_name
+            SELECT r.id, r.title, r.thumbnail_url, r.prep_time, r.cook_time, r.total_time,
+                   r.prep_seconds, r.cook_seconds, r.total_seconds, r.rating, r.created_at,
+                   ARRAY(SELECT rc.category_id FROM recipes_categories rc WHERE rc.recipe_id = r.id) AS category_ids
+            FROM recipes r
+            WHERE r.user_id = :userId
+              AND (r.created_at, r.id) < (:createdAt, :id)
+            ORDER BY r.created_at DESC, r.id DESC
+            LIMIT :limit
+            """)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> findSummariesByUserIdBefore(@Bind("userId") UUID userId,
+                                                    @Bind("createdAt") LocalDateTime createdAt,
+                                                    @Bind("id") UUID id,
+                                                    @Bind("limit") int limit);
+
+    /**
+     * Summaries of recipes matching a web-style search ({@code "quoted phrases"}, {@code or},
+     * {@code -excluded}), best match first. Title hits outrank ingredient hits, which outrank steps.
+     */
+    @SqlQuery("""
+            SELECT r.id, r.title, r.thumbnail_url, r.prep_time, r.cook_time, r.total_time,
+                   r.prep_seconds, r.cook_seconds, r.total_seconds, r.rating, r.created_at,
+                   ARRAY(SELECT rc.category_id FROM recipes_categories rc WHERE rc.recipe_id = r.id) AS category_ids
+            FROM recipes r, websearch_to_tsquery('english', :query) q
+            WHERE r.user_id = :userId
+              AND r.search_vector @@ q
+            ORDER BY ts_rank_cd(r.search_vector, q) DESC, r.created_at DESC, r.id DESC
+            LIMIT :limit OFFSET :offset
+            """)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> searchSummaries(@Bind("userId") UUID userId,
+                                        @Bind("query") String query,
+                                        @Bind("limit") int limit,
+                                        @Bind("offset") int offset);
+
+    /**
+     * The filters shared by the recipe queries, each skipped when its parameter is null. Recipes
+     * without a total time sort as {@link Integer#MAX_VALUE}, after every recipe that has one.
+     * <p>
+     * Each sort has a first-page and a next-page statement rather than one with an optional
+     * cursor: the driver server-prepares statements it runs often, and a generic plan can't
+     * fold away a {@code :after IS NULL OR ...} test, which would leave the keyset as a filter
+     * over every earlier page instead of the index bound it is here. The optional filters stay
+     * filters on the index walk either way.
+     */
+    String QUERY_FILTERED = """
+            SELECT r.id, r.title, r.thumbnail_url, r.prep_time, r.cook_time, r.total_time,
+                   r.prep_seconds, r.cook_seconds, r.total_seconds, r.rating, r.created_at,
+                   ARRAY(SELECT rc.category_id FROM recipes_categories rc WHERE rc.recipe_id = r.id) AS category_ids
+            FROM recipes r
+            WHERE r.user_id = :userId
+              AND (CAST(:maxTotalSeconds AS integer) IS NULL
+                   OR coalesce(r.total_seconds, 2147483647) <= :maxTotalSeconds)
+              AND (CAST(:minRating AS integer) IS NULL OR r.rating >= :minRating)
+              AND (CAST(:categoryId AS uuid) IS NULL
+                   OR r.id IN (SELECT rc.recipe_id
+                               FROM category_closure cc
+                               JOIN recipes_categories rc ON rc.category_id = cc.descendant_id
+                               WHERE cc.ancestor_id = :categoryId))
+            """;
+
+    String NEWEST_ORDER = """
+            ORDER BY r.created_at DESC, r.id DESC
+            LIMIT :limit
+            """;
+
+    String TOTAL_TIME_ORDER = """
+            ORDER BY coalesce(r.total_seconds, 2147483647), r.id
+            LIMIT :limit
+            """;
+
+    String RATING_ORDER = """
+            ORDER BY r.rating DESC, r.id DESC
+            LIMIT :limit
+            """;
+
+    String QUERY_NEWEST = QUERY_FILTERED + NEWEST_ORDER;
+
+    String QUERY_NEWEST_AFTER = QUERY_FILTERED + """
+              AND (r.created_at, r.id) < (:afterCreatedAt, :afterId)
+            """ + NEWEST_ORDER;
+
+    String QUERY_BY_TOTAL_TIME = QUERY_FILTERED + TOTAL_TIME_ORDER;
+
+    String QUERY_BY_TOTAL_TIME_AFTER = QUERY_FILTERED + """
+              AND (coalesce(r.total_seconds, 2147483647), r.id) > (:afterTotalSeconds, :afterId)
+            """ + TOTAL_TIME_ORDER;
+
+    String QUERY_BY_RATING = QUERY_FILTERED + RATING_ORDER;
+
+    String QUERY_BY_RATING_AFTER = QUERY_FILTERED + """
+              AND (r.rating, r.id) < (:afterRating, :afterId)
+            """ + RATING_ORDER;
+
+    /**
+     * The first page of filtered summaries, newest first.
+     */
+    @SqlQuery(QUERY_NEWEST)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> querySummariesNewest(@Bind("userId") UUID userId,
+                                             @Bind("maxTotalSeconds") Integer maxTotalSeconds,
+                                             @Bind("minRating") Integer minRating,
+                                             @Bind("categoryId") UUID categoryId,
+                                             @Bind("limit") int limit);
+
+    /**
+     * The next page of filtered summaries, newest first, after the given row.
+     */
+    @SqlQuery(QUERY_NEWEST_AFTER)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> querySummariesNewestAfter(@Bind("userId") UUID userId,
+                                                  @Bind("maxTotalSeconds") Integer maxTotalSeconds,
+                                                  @Bind("minRating") Integer minRating,
+                                                  @Bind("categoryId") UUID categoryId,
+                                                  @Bind("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                                  @Bind("afterId") UUID afterId,
+                                                  @Bind("limit") int limit);
+
+    /**
+     * The first page of filtered summaries, quickest first.
+     */
+    @SqlQuery(QUERY_BY_TOTAL_TIME)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> querySummariesByTotalTime(@Bind("userId") UUID userId,
+                                                  @Bind("maxTotalSeconds") Integer maxTotalSeconds,
+                                                  @Bind("minRating") Integer minRating,
+                                                  @Bind("categoryId") UUID categoryId,
+                                                  @Bind("limit") int limit);
+
+    /**
+     * The next page of filtered summaries, quickest first. {@code afterTotalSeconds} is the sort
+     * key of the last row returned, {@link Integer#MAX_VALUE} for a recipe without a total time.
+     */
+    @SqlQuery(QUERY_BY_TOTAL_TIME_AFTER)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> querySummariesByTotalTimeAfter(@Bind("userId") UUID userId,
+                                                       @Bind("maxTotalSeconds") Integer maxTotalSeconds,
+                                                       @Bind("minRating") Integer minRating,
+                                                       @Bind("categoryId") UUID categoryId,
+                                                       @Bind("afterTotalSeconds") int afterTotalSeconds,
+                                                       @Bind("afterId") UUID afterId,
+                                                       @Bind("limit") int limit);
+
+    /**
+     * The first page of filtered summaries, best rated first.
+     */
+    @SqlQuery(QUERY_BY_RATING)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> querySummariesByRating(@Bind("userId") UUID userId,
+                                               @Bind("maxTotalSeconds") Integer maxTotalSeconds,
+                                               @Bind("minRating") Integer minRating,
+                                               @Bind("categoryId") UUID categoryId,
+                                               @Bind("limit") int limit);
+
+    /**
+     * The next page of filtered summaries, best rated first, after the given row.
+     */
+    @SqlQuery(QUERY_BY_RATING_AFTER)
+    @RegisterBeanMapper(RecipeSummary.class)
+    List<RecipeSummary> querySummariesByRatingAfter(@Bind("userId") UUID userId,
+                                                    @Bind("maxTotalSeconds") Integer maxTotalSeconds,
+                                                    @Bind("minRating") Integer minRating,
+                                                    @Bind("categoryId") UUID categoryId,
+                                                    @Bind("afterRating") int afterRating,
+                                                    @Bind("afterId") UUID afterId,
+                                                    @Bind("limit") int limit);
+
+    @SqlQuery(SELECT_RECIPE + """
+                   content.ingredients, content.ingredient_terms, content.steps,
+                   c.id as category_id, c.name as category_name
             FROM recipes r
+            JOIN recipe_contents content ON content.content_hash = r.content_hash
             LEFT JOIN recipes_categories rc ON r.id = rc.recipe_id
             LEFT JOIN categories c ON rc.category_id = c.id
             WHERE r.id = :id AND r.user_id = :userId
@@ -62,6 +463,55 @@ public interface RecipeDao {
     @UseRowReducer(RecipeRowMapper.class)
     Optional<Recipe> findByIdAndUserId(@Bind("id") UUID id, @Bind("userId") UUID userId);
 
+    /**
+     * Only what a recipe's entity tag depends on: its version and categories, with every other
+     * field left unset. Reads neither the contents nor the source JSON-LD.
+     */
+    @SqlQuery("""
+            SELECT r.id, r.version,
+                   coalesce(cats.ids, '{}') AS category_ids,
+                   coalesce(cats.names, '{}') AS category_names
+            FROM recipes r
+            LEFT JOIN LATERAL (
+                SELECT array_agg(c.id ORDER BY c.id) AS ids, array_agg(c.name ORDER BY c.id) AS names
+                FROM recipes_categories rc
+                JOIN categories c ON c.id = rc.category_id
+                WHERE rc.recipe_id = r.id
+            ) cats ON true
+            WHERE r.id = :id AND r.user_id = :userId
+            """)
+    @UseRowMapper(CategoryArrayRecipeMapper.class)
+    Optional<Recipe> findVersionByIdAndUserId(@Bind("id") UUID id, @Bind("userId") UUID userId);
+
+    /**
+     * Streams every recipe for a user, source JSON-LD included, to {@code sink} without
+     * materialising the result set.
+     * Runs in a read-only transaction because the driver only honours the fetch size
+     * (and so only uses a server-side cursor) with autocommit off.
+     */
+    @Transaction(readOnly = true)
+    default void forEachByUserId(UUID userId, int fetchSize, Consumer<Recipe> sink) {
+        RecipeRowFolder folder = new RecipeRowFolder(sink);
+        getHandle().createQuery(SELECT_RECIPE + """
+                               content.ingredients, content.ingredient_terms, content.steps, content.raw,
+                               c.id as category_id, c.name as category_name
+                        FROM recipes r
+                        JOIN recipe_contents content ON content.content_hash = r.content_hash
+                        LEFT JOIN recipes_categories rc ON r.id = rc.recipe_id
+                        LEFT JOIN categories c ON rc.category_id = c.id
+                        WHERE r.user_id = :userId
+                        ORDER BY r.id, c.id
+                        """)
+                .bind("userId", userId)
+                .setFetchSize(fetchSize)
+                .registerRowMapper(BeanMapper.factory(Recipe.class))
+                .reduceRows(folder, RecipeRowFolder::accumulate)
+                .finish();
+    }
+
     @SqlUpdate("DELETE FROM recipes WHERE id = :id AND user_id = :userId")
     int deleteByIdAndUserId(@Bind("id") UUID id, @Bind("userId") UUID userId);
+
+    @SqlQuery("SELECT EXISTS (SELECT 1 FROM recipes WHERE id = :id AND user_id = :userId)")
+    boolean existsByIdAndUserId(@Bind("id") UUID id, @Bind("userId") UUID userId);
 }
\ No newline at end of file
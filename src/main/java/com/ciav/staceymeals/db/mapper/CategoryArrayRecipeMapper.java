@@ -0,0 +1,54 @@
+package com.ciav.staceymeals.db.mapper;
+
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.Recipe;
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.mapper.reflect.BeanMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Maps one row per recipe, with its categories aggregated into parallel
+ * {@code category_ids}/{@code category_names} arrays, so no reducer is needed.
+ */
+public class CategoryArrayRecipeMapper implements RowMapper<Recipe> {
+
+    private final RowMapper<Recipe> recipeMapper;
+
+    public CategoryArrayRecipeMapper() {
+        this(BeanMapper.of(Recipe.class));
+    }
+
+    private CategoryArrayRecipeMapper(RowMapper<Recipe> recipeMapper) {
+        this.recipeMapper = recipeMapper;
+    }
+
+    @Override
+    public RowMapper<Recipe> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+        return new CategoryArrayRecipeMapper(recipeMapper.specialize(rs, ctx));
+    }
+
+    @Override
+    public Recipe map(ResultSet rs, StatementContext ctx) throws SQLException {
+        Recipe recipe = recipeMapper.map(rs, ctx);
+        Object[] ids = elements(rs.getArray("category_ids"));
+        Object[] names = elements(rs.getArray("category_names"));
+        List<Category> categories = recipe.getCategories();
+        for (int i = 0; i < ids.length; i++) {
+            categories.add(Category.builder()
+                    .id((UUID) ids[i])
+                    .name((String) names[i])
+                    .build());
+        }
+        return recipe;
+    }
+
+    private static Object[] elements(Array array) throws SQLException {
+        return array == null ? new Object[0] : (Object[]) array.getArray();
+    }
+}
@@ -0,0 +1,42 @@
+package com.ciav.staceymeals.db.mapper;
+
+import com.ciav.staceymeals.model.Recipe;
+import org.jdbi.v3.core.result.RowView;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Streaming counterpart to {@link RecipeRowMapper}: folds recipe/category join rows into
+ * recipes and hands each one on as soon as its last row has gone by, so only the recipe in
+ * progress is held. Rows must arrive grouped by recipe id.
+ */
+public class RecipeRowFolder {
+
+    private final Consumer<Recipe> sink;
+    private Recipe current;
+
+    public RecipeRowFolder(Consumer<Recipe> sink) {
+        this.sink = sink;
+    }
+
+    public RecipeRowFolder accumulate(RowView rowView) {
+        UUID id = rowView.getColumn("id", UUID.class);
+        if (current == null || !current.getId().equals(id)) {
+            finish();
+            current = rowView.getRow(Recipe.class);
+        }
+        RecipeRowMapper.addCategory(current, rowView);
+        return this;
+    }
+
+    /**
+     * Emits the recipe still in progress. Call once after the last row.
+     */
+    public void finish() {
+        if (current != null) {
+            sink.accept(current);
+            current = null;
+        }
+    }
+}
@@ -16,14 +16,20 @@ public class RecipeRowMapper implements LinkedHashMapRowReducer<UUID, Recipe> {
             rowView.getColumn("id", UUID.class),
             id -> rowView.getRow(Recipe.class)
         );
+        addCategory(recipe, rowView);
+    }
 
+    /**
+     * Adds the category joined onto this row, if any, to the recipe.
+     */
+    static void addCategory(Recipe recipe, RowView rowView) {
         UUID categoryId = rowView.getColumn("category_id", UUID.class);
         if (categoryId != null) {
             Category category = Category.builder()
-                .id(rowView.getColumn("category_id", UUID.class))
+                .id(categoryId)
                 .name(rowView.getColumn("category_name", String.class))
                 .build();
             recipe.getCategories().add(category);
         }
     }
-}
\ No newline at end of file
+}
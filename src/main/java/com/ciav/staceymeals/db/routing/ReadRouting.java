@@ -0,0 +1,185 @@
+package com.ciav.staceymeals.db.routing;
+
+import org.jdbi.v3.sqlobject.statement.SqlQuery;
+import org.jdbi.v3.sqlobject.transaction.Transaction;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Per-thread routing state read by {@link RoutingDataSource}.
+ * <p>
+ * A connection goes to a replica only while a read-only DAO method is running inside a unit of
+ * work that allows replica reads, which {@link ReadRoutingFilter} grants to GET requests from
+ * users without a recent write. The first write in a unit of work pins the rest of it to the
+ * primary. Everything else, background threads included, uses the primary.
+ * <p>
+ * A unit of work reads from one replica throughout. Replicas replay at different positions, so
+ * two reads spread over two of them could see a row in the first and miss it in the second.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> READ_CALL = ThreadLocal.withInitial(() -> false);
+    private static final AtomicInteger TICKETS = new AtomicInteger();
+
+    private static final class State {
+        volatile boolean replicaAllowed;
+        volatile boolean wrote;
+        Runnable onWrite;
+        int ticket;
+        boolean replicaChosen;
+        int replica;
+        long replicaReads;
+    }
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Starts a unit of work on this thread, such as one request.
+     */
+    public static void begin(boolean replicaAllowed) {
+        begin(replicaAllowed, null);
+    }
+
+    /**
+     * Starts a unit of work that calls {@code onWrite} as each write is made, on whichever
+     * thread makes it.
+     */
+    public static void begin(boolean replicaAllowed, Runnable onWrite) {
+        State state = new State();
+        state.replicaAllowed = replicaAllowed;
+        state.onWrite = onWrite;
+        state.ticket = TICKETS.getAndIncrement();
+        STATE.set(state);
+    }
+
+    /**
+     * Ends the unit of work, returning whether it wrote anything.
+     */
+    public static boolean end() {
+        State state = STATE.get();
+        STATE.remove();
+        return state != null && state.wrote;
+    }
+
+    /**
+     * Wraps {@code work} to run in this thread's unit of work on whatever thread runs it, so
+     * work handed to a pool keeps the request's routing and its writes still count against the
+     * request. {@code onWrite} runs once more when the work finishes, after its writes have
+     * committed. Without a unit of work, returns {@code work} unchanged.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        State state = STATE.get();
+        if (state == null) {
+            return work;
+        }
+        return () -> {
+            State previous = STATE.get();
+            STATE.set(state);
+            try {
+                return work.get();
+            } finally {
+                if (previous == null) {
+                    STATE.remove();
+                } else {
+                    STATE.set(previous);
+                }
+                if (state.wrote && state.onWrite != null) {
+                    state.onWrite.run();
+                }
+            }
+        };
+    }
+
+    static boolean useReplica() {
+        State state = STATE.get();
+        return READ_CALL.get() && state != null && state.replicaAllowed;
+    }
+
+    /**
+     * How many connections this unit of work has taken from a replica so far; comparing two
+     * calls tells whether what was read in between may lag the primary.
+     */
+    public static long replicaReads() {
+        State state = STATE.get();
+        return state == null ? 0 : state.replicaReads;
+    }
+
+    static void countReplicaRead() {
+        STATE.get().replicaReads++;
+    }
+
+    /**
+     * The replica this unit of work reads from, or -1 for the primary. {@code choose} turns the
+     * ticket drawn in {@link #begin} into a replica on the first read; later reads keep it.
+     */
+    static int replica(IntUnaryOperator choose) {
+        State state = STATE.get();
+        if (!state.replicaChosen) {
+            state.replica = choose.applyAsInt(state.ticket);
+            state.replicaChosen = true;
+        }
+        return state.replica;
+    }
+
+    /**
+     * Wraps an on-demand DAO so each call declares whether it only reads. A method reads if it
+     * is a {@code SELECT} {@link SqlQuery} outside any transaction, or a read-only {@link Transaction};
+     * {@code INSERT}/{@code UPDATE ... RETURNING} queries and default methods count as writes.
+     */
+    public static <T> T routeReads(Class<T> type, T dao) {
+        Set<Method> reads = Arrays.stream(type.getMethods())
+                .filter(ReadRouting::isRead)
+                .collect(Collectors.toUnmodifiableSet());
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return invoke(dao, method, args);
+            }
+            if (!reads.contains(method)) {
+                State state = STATE.get();
+                if (state != null) {
+                    state.wrote = true;
+                    state.replicaAllowed = false;
+                    if (state.onWrite != null) {
+                        state.onWrite.run();
+                    }
+                }
+                return invoke(dao, method, args);
+            }
+            READ_CALL.set(true);
+            try {
+                return invoke(dao, method, args);
+            } finally {
+                READ_CALL.set(false);
+            }
+        });
+        return type.cast(proxy);
+    }
+
+    static boolean isRead(Method method) {
+        Transaction transaction = method.getAnnotation(Transaction.class);
+        if (transaction != null) {
+            return transaction.readOnly();
+        }
+        SqlQuery query = method.getAnnotation(SqlQuery.class);
+        return query != null && query.value().strip().toUpperCase(Locale.ROOT).startsWith("SELECT");
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
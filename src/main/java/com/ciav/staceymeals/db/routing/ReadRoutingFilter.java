@@ -0,0 +1,119 @@
+package com.ciav.staceymeals.db.routing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Lets GET and HEAD requests read from replicas, unless the user they are for wrote within
+ * the read-your-writes window, so a client always sees its own changes.
+ * <p>
+ * The window travels with the client: every unsafe request for a user gets a short-lived
+ * cookie, scoped to that user's paths, saying until when their reads must use the primary. It
+ * is set before the request runs, while the response can still take headers, so it covers
+ * async requests too. Whichever node behind the load balancer serves the next read honours it.
+ * <p>
+ * Each node also remembers the writes it made, as they are made, including from work a
+ * request handed to another thread. That covers clients that drop cookies, as long as they
+ * come back to the same node.
+ */
+public class ReadRoutingFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "primary-reads-until";
+
+    private static final Pattern USER_PATH = Pattern.compile("^/api/users/([0-9a-fA-F-]{36})(/|$)");
+
+    private final Duration window;
+    private final Cache<UUID, Boolean> recentWriters;
+
+    public ReadRoutingFilter(Duration readYourWritesWindow) {
+        this.window = readYourWritesWindow;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        UUID userId = userIdOf(request.getRequestURI().substring(request.getContextPath().length()));
+        boolean safe = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (!safe && userId != null) {
+            startWindow(request, response, userId);
+        }
+        ReadRouting.begin(safe && mayReadReplica(request, userId),
+                userId == null ? null : () -> recentWriters.put(userId, Boolean.TRUE));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (ReadRouting.end() && userId != null) {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        }
+    }
+
+    boolean mayReadReplica(HttpServletRequest request, UUID userId) {
+        if (userId == null) {
+            return true;
+        }
+        if (recentWriters.getIfPresent(userId) != null) {
+            return false;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName()) && readsPrimaryUntil(cookie.getValue()) > System.currentTimeMillis()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sent whether or not the request ends up writing: by the time that is known the response
+     * may be committed, and a needless window only costs a few seconds of primary reads.
+     */
+    private void startWindow(HttpServletRequest request, HttpServletResponse response, UUID userId) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, Long.toString(System.currentTimeMillis() + window.toMillis()))
+                .path(request.getContextPath() + "/api/users/" + userId)
+                .maxAge(Duration.ofSeconds(Math.max(1, (window.toMillis() + 999) / 1000)))
+                .httpOnly(true)
+                .sameSite("Lax")
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private static long readsPrimaryUntil(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static UUID userIdOf(String path) {
+        Matcher matcher = USER_PATH.matcher(path);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return UUID.fromString(matcher.group(1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.ciav.staceymeals.db.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Hands out primary connections, except for reads that {@link ReadRouting} allows on a
+ * replica. Units of work are spread round-robin over the replicas that passed their last
+ * health check, and each keeps the replica it started on. With no healthy replica, or once
+ * that replica fails, reads fall back to the primary, which is never behind.
+ */
+@Slf4j
+public class RoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final List<HikariDataSource> replicas;
+    private final AtomicIntegerArray healthy;
+    private final ScheduledExecutorService healthChecker;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter replicaFallbacks;
+
+    public RoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                             Duration healthCheckInterval, MeterRegistry meterRegistry) {
+        this.replicas = replicas;
+        this.healthy = new AtomicIntegerArray(replicas.size());
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (HikariDataSource replica : replicas) {
+            targets.put(replica.getPoolName(), replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+
+        this.primaryConnections = routedCounter(meterRegistry, PRIMARY);
+        this.replicaConnections = routedCounter(meterRegistry, "replica");
+        this.replicaFallbacks = routedCounter(meterRegistry, "primary_fallback");
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = i;
+            Gauge.builder("datasource.replica.healthy", healthy, flags -> flags.get(index))
+                    .description("Whether the replica passed its last health check")
+                    .tag("pool", replicas.get(i).getPoolName())
+                    .register(meterRegistry);
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("replica-health-");
+        threadFactory.setDaemon(true);
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        checkReplicas();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas,
+                healthCheckInterval.toMillis(), healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!ReadRouting.useReplica()) {
+            primaryConnections.increment();
+            return PRIMARY;
+        }
+        int replica = ReadRouting.replica(this::chooseReplica);
+        if (replica >= 0 && healthy.get(replica) == 1) {
+            ReadRouting.countReplicaRead();
+            replicaConnections.increment();
+            return replicas.get(replica).getPoolName();
+        }
+        replicaFallbacks.increment();
+        return PRIMARY;
+    }
+
+    private int chooseReplica(int ticket) {
+        int start = Math.floorMod(ticket, replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (healthy.get(index) == 1) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(HikariDataSource::close);
+    }
+
+    private void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariDataSource replica = replicas.get(i);
+            boolean up;
+            try (Connection connection = replica.getConnection()) {
+                up = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                up = false;
+            }
+            int previous = healthy.getAndSet(i, up ? 1 : 0);
+            if (previous != (up ? 1 : 0)) {
+                if (up) {
+                    log.info("Replica {} is healthy; routing reads to it", replica.getPoolName());
+                } else {
+                    log.error("Replica {} failed its health check; reads go elsewhere", replica.getPoolName());
+                }
+            }
+        }
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("datasource.connections.routed")
+                .description("Connections handed out, by routing target")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,73 @@
+package com.ciav.staceymeals.function;
+
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.PagedResult;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeSummary;
+import com.ciav.staceymeals.service.CategoryService;
+import com.ciav.staceymeals.service.RecipeService;
+import org.springframework.cloud.function.context.FunctionRegistration;
+import org.springframework.cloud.function.context.catalog.FunctionTypeUtils;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.ResolvableType;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The recipe and category operations as Spring Cloud Functions, for the Lambda adapter.
+ * <p>
+ * They are registered functionally rather than as {@code @Bean} methods, so no configuration
+ * class is parsed or proxied for them, and each one looks its service up on first call; under
+ * the lazy {@code lambda} profile nothing behind a function is built until it is invoked.
+ * <p>
+ * Registered from {@code META-INF/spring.factories}. Skipped while Spring AOT processes the
+ * context, since it can't generate code for supplier-registered beans; at runtime the
+ * registration happens as usual on top of the AOT-generated definitions.
+ */
+public class RecipeFunctions implements ApplicationContextInitializer<GenericApplicationContext> {
+
+    private static final String AOT_PROCESSING = "spring.aot.processing";
+
+    public record RecipeRequest(UUID userId, UUID recipeId) {
+    }
+
+    public record PageRequest(UUID userId, String cursor, Integer limit) {
+    }
+
+    public record FetchRequest(UUID userId, String url) {
+    }
+
+    public record UserRequest(UUID userId) {
+    }
+
+    @Override
+    public void initialize(GenericApplicationContext context) {
+        if (Boolean.getBoolean(AOT_PROCESSING)) {
+            return;
+        }
+        register(context, "getRecipe", RecipeRequest.class, Recipe.class, RecipeService.class,
+                (service, request) -> service.getRecipe(request.userId(), request.recipeId()));
+        register(context, "getRecipeSummaries", PageRequest.class,
+                ResolvableType.forClassWithGenerics(PagedResult.class, RecipeSummary.class).getType(), RecipeService.class,
+                (service, request) -> service.getRecipeSummaries(request.userId(), request.cursor(), request.limit()));
+        register(context, "fetchAndSaveRecipe", FetchRequest.class, Recipe.class, RecipeService.class,
+                (service, request) -> service.fetchAndSaveRecipe(request.userId(), request.url()));
+        register(context, "getCategoryTree", UserRequest.class,
+                ResolvableType.forClassWithGenerics(List.class, Category.class).getType(), CategoryService.class,
+                (service, request) -> service.getFullCategoryTree(request.userId()));
+    }
+
+    private static <S, I, O> void register(GenericApplicationContext context, String name,
+                                           Class<I> input, Type output, Class<S> serviceType,
+                                           BiFunction<S, I, O> operation) {
+        context.registerBean(name, FunctionRegistration.class, () -> {
+            Function<I, O> function = request -> operation.apply(context.getBean(serviceType), request);
+            return new FunctionRegistration<>(function, name).type(FunctionTypeUtils.functionType(input, output));
+        });
+    }
+}
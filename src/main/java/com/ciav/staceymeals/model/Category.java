@@ -1,5 +1,6 @@
 package com.ciav.staceymeals.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +14,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Field order is fixed, as for {@link Recipe}.
+ */
+@JsonPropertyOrder({"id", "userId", "name", "parentCategoryId", "version", "subCategories"})
 @Builder
 @Data
 @Slf4j
@@ -25,6 +30,7 @@ public class Category {
 	private UUID userId;
 	private String name;
 	private UUID parentCategoryId;
+	private long version;
 	@Builder.Default
 	@Transient
 	private List<Category> subCategories = new ArrayList<>();
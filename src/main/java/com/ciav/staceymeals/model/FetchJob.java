@@ -0,0 +1,44 @@
+package com.ciav.staceymeals.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A queued fetch-and-save of one URL. On success {@link #recipeId} is the saved recipe, which
+ * shares the job's id so a retried job overwrites rather than duplicates it.
+ */
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class FetchJob {
+	public enum Status { QUEUED, RUNNING, SUCCEEDED, DEAD }
+
+	private UUID id;
+	private UUID userId;
+	private String url;
+	private Status status;
+	private int attempts;
+	private LocalDateTime runAfter;
+	@JsonIgnore
+	private String lockedBy;
+	@JsonIgnore
+	private LocalDateTime lockedUntil;
+	private UUID recipeId;
+	private String lastError;
+	private LocalDateTime createdAt;
+	private LocalDateTime updatedAt;
+
+	@JsonIgnore
+	public boolean isFinished() {
+		return status == Status.SUCCEEDED || status == Status.DEAD;
+	}
+}
@@ -0,0 +1,18 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of results. {@code nextCursor} is opaque to clients and null on the last page.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PagedResult<T> {
+	private List<T> items;
+	private String nextCursor;
+}
@@ -0,0 +1,21 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class PantryIndexStats {
+	private UUID userId;
+	private int recipes;
+	private int terms;
+	private long estimatedBytes;
+}
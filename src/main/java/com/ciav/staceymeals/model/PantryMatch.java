@@ -0,0 +1,27 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * How much of a recipe's ingredient list a pantry covers.
+ */
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class PantryMatch {
+	private UUID recipeId;
+	private String title;
+	private int matched;
+	private int total;
+	private double coverage;
+	private List<String> missing;
+}
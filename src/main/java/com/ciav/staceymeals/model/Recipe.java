@@ -1,5 +1,8 @@
 package com.ciav.staceymeals.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,7 +15,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-@Builder
+/**
+ * Serialized in a fixed field order, so CBOR and Smile clients see the same layout from one
+ * release to the next. New fields go at the end of {@code @JsonPropertyOrder}.
+ */
+@JsonPropertyOrder({"id", "userId", "sourceUrl", "title", "ingredients", "steps", "thumbnailUrl",
+		"prepTime", "cookTime", "totalTime", "servings", "raw", "rating", "version", "categories",
+		"prepSeconds", "cookSeconds", "totalSeconds"})
+@Builder(toBuilder = true)
 @Data
 @Slf4j
 @AllArgsConstructor
@@ -25,14 +35,25 @@ public class Recipe {
 	private String sourceUrl;
 	private String title;
 	private List<String> ingredients;
+	/** Normalized ingredient names for the pantry index; recomputed on every save, never sent or accepted. */
+	@JsonIgnore
+	private List<String> ingredientTerms;
 	private List<String> steps;
 	private String thumbnailUrl;
 	private String prepTime;
 	private String cookTime;
 	private String totalTime;
+	/** The times above in seconds, for filtering and sorting; null where the source gave none. */
+	private Integer prepSeconds;
+	private Integer cookSeconds;
+	private Integer totalSeconds;
 	private String servings;
+	/** Source JSON-LD; stored apart from the recipe row and only loaded when asked for. */
+	@JsonInclude(JsonInclude.Include.NON_NULL)
 	private String raw;
 	private int rating;
+	/** Bumped by the database on every update; the basis of the recipe's ETag. */
+	private long version;
 
 	@Builder.Default
 	private List<Category> categories = new ArrayList<>();
@@ -0,0 +1,24 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * What a bulk import changed. Rows the archive left as they were are not counted as saved.
+ */
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeBulkImportResult {
+	private long recipesRead;
+	private long recipesSaved;
+	private long categoriesSaved;
+	private long linksSaved;
+	/** Links naming a recipe or category that is neither in the archive nor the user's. */
+	private long linksSkipped;
+}
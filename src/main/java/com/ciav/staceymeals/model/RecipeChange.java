@@ -0,0 +1,27 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+
+/**
+ * One entry in a user's change log. {@code categoryId} is only set for link changes.
+ */
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeChange {
+	public enum Kind { UPSERT, DELETE, LINK, UNLINK }
+
+	private long txid;
+	private long seq;
+	private UUID recipeId;
+	private UUID categoryId;
+	private Kind kind;
+}
@@ -0,0 +1,32 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Net effect of the changes since a sync token: recipes as they are now, tombstones for
+ * deleted ones, and category links added or removed. Pass {@code token} as {@code since}
+ * next time; while {@code hasMore} is set, there are further changes to page through now.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeChanges {
+	@Builder.Default
+	private List<Recipe> upserted = new ArrayList<>();
+	@Builder.Default
+	private List<UUID> deleted = new ArrayList<>();
+	@Builder.Default
+	private List<RecipesCategories> linked = new ArrayList<>();
+	@Builder.Default
+	private List<RecipesCategories> unlinked = new ArrayList<>();
+	private String token;
+	private boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.UUID;
+
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeImportResult {
+	public enum Status { SAVED, FAILED }
+
+	private String url;
+	private Status status;
+	private UUID recipeId;
+	private String error;
+}
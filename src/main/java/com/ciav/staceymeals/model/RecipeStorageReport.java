@@ -0,0 +1,32 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * How much storage sharing recipe content across users saves. Byte counts are the stored
+ * (compressed) size of the content columns, not of whole tables, and include every recipe's
+ * search vector, which still carries a copy of its content's terms.
+ */
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeStorageReport {
+	private long recipes;
+	private long contents;
+	/** Content rows referenced by more than one recipe. */
+	private long sharedContents;
+	/** Content rows no recipe references, waiting for the orphan sweep. */
+	private long orphanedContents;
+	private long contentBytes;
+	/** What the content would take with a copy per recipe. */
+	private long unsharedContentBytes;
+	private long savedBytes;
+	private long recipesTableBytes;
+	private long contentsTableBytes;
+}
@@ -0,0 +1,40 @@
+package com.ciav.staceymeals.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The list-view projection of a {@link Recipe}: never carries raw, steps or ingredients.
+ */
+@Builder
+@Data
+@Slf4j
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecipeSummary {
+	/** Orders for the recipe query: newest, quickest or best rated first. */
+	public enum Sort { NEWEST, TOTAL_TIME, RATING }
+
+	private UUID id;
+	private String title;
+	private String thumbnailUrl;
+	private String prepTime;
+	private String cookTime;
+	private String totalTime;
+	private Integer prepSeconds;
+	private Integer cookSeconds;
+	private Integer totalSeconds;
+	private int rating;
+	private LocalDateTime createdAt;
+
+	@Builder.Default
+	private List<UUID> categoryIds = new ArrayList<>();
+}
@@ -1,5 +1,6 @@
 package com.ciav.staceymeals.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,6 +13,7 @@ import org.springframework.data.relational.core.mapping.Table;
 
 import java.util.UUID;
 
+@JsonPropertyOrder({"recipeId", "categoryId"})
 @Builder
 @Data
 @Slf4j
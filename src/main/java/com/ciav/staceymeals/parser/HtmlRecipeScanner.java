@@ -0,0 +1,196 @@
+package com.ciav.staceymeals.parser;
+
+import org.jsoup.internal.StringUtil;
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Finds the page title and the first JSON-LD Recipe in an HTML stream without building a DOM.
+ * <p>
+ * Reads forward through the markup just far enough to tell tags apart: comments and the
+ * bodies of scripts, styles and textareas are skipped whole, so markup-looking text inside
+ * them is never mistaken for a tag. Reading stops as soon as a {@code <script type="application/ld+json">}
+ * block containing a Recipe has been closed, so the rest of the page is never read. Pages
+ * whose markup this misses can still be handled by a full Jsoup parse.
+ * <p>
+ * Instances are single-use and not thread-safe; go through {@link #scan(Reader)}.
+ */
+public final class HtmlRecipeScanner {
+
+    /**
+     * What the scan found. {@code title} is empty when the recipe came before any title tag.
+     */
+    public record Result(String title, String json, JsonLdRecipe recipe) {
+    }
+
+    private static final String LD_JSON = "application/ld+json";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private String title = "";
+
+    private HtmlRecipeScanner(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads until the first Recipe block is complete or the input ends. The reader is left
+     * open and positioned just past the block.
+     */
+    public static Optional<Result> scan(Reader reader) throws IOException {
+        return new HtmlRecipeScanner(reader).run();
+    }
+
+    private Optional<Result> run() throws IOException {
+        StringBuilder text = new StringBuilder();
+        int c;
+        while ((c = next()) >= 0) {
+            if (c != '<') {
+                continue;
+            }
+            c = next();
+            if (c == '!') {
+                skipDeclaration();
+                continue;
+            }
+            if (!isTagNameStart(c)) {
+                continue;
+            }
+            String name = readTagName(c);
+            String attributes = readRestOfTag();
+            switch (name) {
+                case "title" -> {
+                    text.setLength(0);
+                    readUntilClose("title", text);
+                    if (title.isEmpty()) {
+                        title = StringUtil.normaliseWhitespace(Parser.unescapeEntities(text.toString(), false)).strip();
+                    }
+                }
+                case "script" -> {
+                    if (!attributes.toLowerCase(Locale.ROOT).contains(LD_JSON)) {
+                        readUntilClose("script", null);
+                        continue;
+                    }
+                    text.setLength(0);
+                    readUntilClose("script", text);
+                    String json = text.toString().strip();
+                    Optional<JsonLdRecipe> recipe = JsonLdRecipeParser.parse(json);
+                    if (recipe.isPresent()) {
+                        return Optional.of(new Result(title, json, recipe.get()));
+                    }
+                }
+                case "style", "textarea" -> readUntilClose(name, null);
+                default -> {
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private int next() throws IOException {
+        if (pos == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Skips a comment, doctype or CDATA section; the opening {@code <!} is already consumed.
+     */
+    private void skipDeclaration() throws IOException {
+        int c = next();
+        if (c == '-' && next() == '-') {
+            // Comment: everything up to the next "-->"
+            int dashes = 0;
+            while ((c = next()) >= 0) {
+                if (c == '>' && dashes >= 2) {
+                    return;
+                }
+                dashes = c == '-' ? dashes + 1 : 0;
+            }
+            return;
+        }
+        while (c >= 0 && c != '>') {
+            c = next();
+        }
+    }
+
+    private String readTagName(int first) throws IOException {
+        StringBuilder name = new StringBuilder(8);
+        int c = first;
+        while (c >= 0 && !Character.isWhitespace(c) && c != '>' && c != '/') {
+            name.append(Character.toLowerCase((char) c));
+            c = next();
+        }
+        if (c >= 0) {
+            pos--;
+        }
+        return name.toString();
+    }
+
+    /**
+     * Consumes everything up to and including the tag's closing {@code >}, honouring quoted
+     * attribute values, and returns it.
+     */
+    private String readRestOfTag() throws IOException {
+        StringBuilder attributes = new StringBuilder();
+        int quote = 0;
+        int c;
+        while ((c = next()) >= 0) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                break;
+            }
+            attributes.append((char) c);
+        }
+        return attributes.toString();
+    }
+
+    /**
+     * Consumes raw text up to and including the matching close tag, appending the text (but
+     * not the close tag) to {@code out} when it's non-null.
+     */
+    private void readUntilClose(String name, StringBuilder out) throws IOException {
+        String close = "</" + name;
+        int matched = 0;
+        int c;
+        while ((c = next()) >= 0) {
+            if (Character.toLowerCase((char) c) == close.charAt(matched)) {
+                matched++;
+                if (matched == close.length()) {
+                    if (out != null) {
+                        out.setLength(out.length() - (close.length() - 1));
+                    }
+                    readRestOfTag();
+                    return;
+                }
+            } else {
+                matched = c == '<' ? 1 : 0;
+            }
+            if (out != null) {
+                out.append((char) c);
+            }
+        }
+    }
+
+    private static boolean isTagNameStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
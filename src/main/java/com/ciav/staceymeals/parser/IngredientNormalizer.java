@@ -0,0 +1,130 @@
+package com.ciav.staceymeals.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Reduces free-text ingredient lines to canonical ingredient terms, e.g.
+ * {@code "2 cups finely chopped red onions (about 2 large)"} becomes {@code "red onion"}.
+ * <p>
+ * Quantities, units, preparation words and anything after a comma are dropped, and each
+ * remaining word is singularised. "a and b" and "a or b" yield both terms. Pantry items go
+ * through the same normalisation, so matching is plain equality on the result.
+ */
+public final class IngredientNormalizer {
+
+    private static final Pattern PARENTHETICAL = Pattern.compile("\\([^)]*\\)|\\[[^]]*]");
+    private static final Pattern CLAUSE_END = Pattern.compile("[,;:]| - | – ");
+    private static final Pattern ALTERNATIVES = Pattern.compile("\\s+(?:and|or|&|and/or)\\s+|/");
+    private static final Pattern NON_LETTER = Pattern.compile("[^\\p{L}]+");
+
+    private static final Set<String> UNITS = Set.of(
+            "cup", "c", "tablespoon", "tbsp", "tbs", "tb", "teaspoon", "tsp", "ounce", "oz", "pound", "lb",
+            "gram", "g", "kg", "kilogram", "mg", "ml", "l", "liter", "litre", "milliliter", "millilitre", "dl",
+            "pint", "quart", "qt", "gallon", "pinch", "dash", "clove", "can", "tin", "package", "pkg", "packet",
+            "jar", "bottle", "bunch", "slice", "stick", "sprig", "handful", "piece", "inch", "cm", "x", "bag",
+            "container", "carton", "box", "scoop", "drop", "splash");
+
+    private static final Set<String> FILLER = Set.of(
+            "a", "an", "the", "of", "to", "for", "into", "in", "with", "plus", "about", "approximately", "more",
+            "taste", "serving", "garnish", "optional", "divided", "needed", "desired",
+            "chopped", "diced", "minced", "sliced", "grated", "shredded", "crushed", "ground", "cubed", "halved",
+            "quartered", "julienned", "torn", "cut", "peeled", "trimmed", "rinsed", "drained", "beaten", "whisked",
+            "softened", "melted", "sifted", "packed", "heaping", "level", "scant", "mashed", "pitted", "seeded",
+            "finely", "roughly", "thinly", "coarsely", "lightly", "freshly", "very",
+            "fresh", "dried", "dry", "large", "medium", "small", "extra", "virgin", "whole", "boneless", "skinless",
+            "cold", "warm", "hot", "room", "temperature", "unsalted", "salted", "raw", "cooked", "frozen",
+            "thawed", "canned", "organic", "kosher", "good", "quality", "store", "bought", "homemade", "ripe");
+
+    private static final Map<String, String> IRREGULAR = Map.of(
+            "leaves", "leaf",
+            "halves", "half",
+            "loaves", "loaf",
+            "molasses", "molasses",
+            "hummus", "hummus",
+            "couscous", "couscous",
+            "asparagus", "asparagus",
+            "swiss", "swiss");
+
+    private IngredientNormalizer() {
+    }
+
+    /**
+     * Distinct terms for a recipe's ingredient lines, in first-seen order.
+     */
+    public static List<String> terms(List<String> ingredients) {
+        if (ingredients == null || ingredients.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (String line : ingredients) {
+            terms.addAll(normalize(line));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * The terms named by one ingredient line; empty if nothing recognisable is left.
+     */
+    public static List<String> normalize(String line) {
+        if (line == null || line.isBlank()) {
+            return List.of();
+        }
+        String text = PARENTHETICAL.matcher(line.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        text = CLAUSE_END.split(text, 2)[0];
+
+        List<String> terms = new ArrayList<>(2);
+        for (String alternative : ALTERNATIVES.split(text)) {
+            String term = normalizePhrase(alternative);
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private static String normalizePhrase(String phrase) {
+        StringBuilder out = new StringBuilder(phrase.length());
+        for (String word : NON_LETTER.split(phrase)) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String singular = singularize(word);
+            if (UNITS.contains(singular) || FILLER.contains(singular) || FILLER.contains(word)) {
+                continue;
+            }
+            if (out.length() > 0) {
+                out.append(' ');
+            }
+            out.append(singular);
+        }
+        return out.toString();
+    }
+
+    static String singularize(String word) {
+        String irregular = IRREGULAR.get(word);
+        if (irregular != null) {
+            return irregular;
+        }
+        int n = word.length();
+        if (n <= 3) {
+            return word;
+        }
+        if (word.endsWith("ies")) {
+            return word.substring(0, n - 3) + "y";
+        }
+        if (word.endsWith("oes") || word.endsWith("ches") || word.endsWith("shes") || word.endsWith("sses")
+                || word.endsWith("xes")) {
+            return word.substring(0, n - 2);
+        }
+        if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return word.substring(0, n - 1);
+        }
+        return word;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ciav.staceymeals.parser;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * The fields of a schema.org Recipe node that we keep, as they appeared in the JSON-LD.
+ * Durations are left as ISO-8601 strings; formatting is the caller's business.
+ */
+@Value
+@Builder
+public class JsonLdRecipe {
+	String name;
+	List<String> ingredients;
+	List<String> steps;
+	String thumbnailUrl;
+	String prepTime;
+	String cookTime;
+	String totalTime;
+	String recipeYield;
+}
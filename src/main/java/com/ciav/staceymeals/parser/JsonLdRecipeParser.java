@@ -0,0 +1,543 @@
+package com.ciav.staceymeals.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass extractor for schema.org Recipe nodes in a JSON-LD script block.
+ * <p>
+ * Walks the script once without building a tree: keys are matched in place against the
+ * handful we care about, and strings are only materialised when they belong to a field
+ * we keep. Understands top-level arrays, {@code @graph} containers, {@code @type} lists and
+ * nested {@code HowToSection}/{@code HowToStep} instructions. The first Recipe node found wins.
+ * <p>
+ * Instances are single-use and not thread-safe; go through {@link #parse(String)}.
+ */
+public final class JsonLdRecipeParser {
+
+    private enum Key {
+        TYPE("@type"),
+        NAME("name"),
+        RECIPE_INGREDIENT("recipeIngredient"),
+        INGREDIENTS("ingredients"),
+        RECIPE_INSTRUCTIONS("recipeInstructions"),
+        THUMBNAIL_URL("thumbnailUrl"),
+        IMAGE("image"),
+        PREP_TIME("prepTime"),
+        COOK_TIME("cookTime"),
+        TOTAL_TIME("totalTime"),
+        RECIPE_YIELD("recipeYield"),
+        TEXT("text"),
+        ITEM_LIST_ELEMENT("itemListElement"),
+        URL("url");
+
+        private final String literal;
+
+        Key(String literal) {
+            this.literal = literal;
+        }
+    }
+
+    private static final Key[] KEYS = Key.values();
+    private static final String RECIPE_TYPE = "Recipe";
+    private static final Pattern LINE_BREAK = Pattern.compile("\\R");
+
+    private final String json;
+    private final int length;
+    private int pos;
+    private JsonLdRecipe found;
+
+    private JsonLdRecipeParser(String json) {
+        this.json = json;
+        this.length = json.length();
+    }
+
+    /**
+     * Returns the first Recipe node in the given JSON-LD, or empty if there is none or the
+     * script is not well-formed JSON.
+     */
+    public static Optional<JsonLdRecipe> parse(String json) {
+        if (json == null || json.isEmpty()) {
+            return Optional.empty();
+        }
+        JsonLdRecipeParser parser = new JsonLdRecipeParser(json);
+        try {
+            parser.skipWhitespace();
+            parser.skipValue();
+        } catch (MalformedJsonException | IndexOutOfBoundsException | NumberFormatException e) {
+            // Fall through with whatever was found before the bad token
+        }
+        return Optional.ofNullable(parser.found);
+    }
+
+    // --- structure --------------------------------------------------------------------------
+
+    private void skipValue() {
+        switch (peek()) {
+            case '{' -> readObject();
+            case '[' -> readArray();
+            case '"' -> skipString();
+            default -> skipLiteral();
+        }
+    }
+
+    private void readArray() {
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            skipValue();
+            if (found != null) return;
+            if (endOfContainer(']')) return;
+        }
+    }
+
+    private void readObject() {
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+
+        boolean recipe = false;
+        JsonLdRecipe.JsonLdRecipeBuilder builder = null;
+        List<String> ingredients = null;
+        List<String> fallbackIngredients = null;
+        String thumbnailUrl = null;
+        String image = null;
+
+        while (true) {
+            skipWhitespace();
+            Key key = readKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if (key == null) {
+                skipValue();
+                if (found != null) return;
+            } else {
+                switch (key) {
+                    case TYPE -> recipe |= readIsRecipeType();
+                    case RECIPE_INGREDIENT -> ingredients = readStringList();
+                    case INGREDIENTS -> fallbackIngredients = readStringList();
+                    case THUMBNAIL_URL -> thumbnailUrl = readScalar();
+                    case IMAGE -> image = readImageUrl();
+                    case RECIPE_INSTRUCTIONS -> {
+                        List<String> steps = new ArrayList<>();
+                        readInstructions(steps);
+                        builder = builder(builder).steps(steps);
+                    }
+                    case NAME -> builder = builder(builder).name(readScalar());
+                    case PREP_TIME -> builder = builder(builder).prepTime(readScalar());
+                    case COOK_TIME -> builder = builder(builder).cookTime(readScalar());
+                    case TOTAL_TIME -> builder = builder(builder).totalTime(readScalar());
+                    case RECIPE_YIELD -> builder = builder(builder).recipeYield(readFirstScalar());
+                    default -> {
+                        skipValue();
+                        if (found != null) return;
+                    }
+                }
+            }
+
+            if (endOfContainer('}')) break;
+        }
+
+        if (recipe) {
+            builder = builder(builder);
+            List<String> resolvedIngredients = ingredients != null ? ingredients : fallbackIngredients;
+            found = builder
+                    .ingredients(resolvedIngredients != null ? resolvedIngredients : new ArrayList<>())
+                    .thumbnailUrl(thumbnailUrl != null ? thumbnailUrl : image)
+                    .build();
+        }
+    }
+
+    private static JsonLdRecipe.JsonLdRecipeBuilder builder(JsonLdRecipe.JsonLdRecipeBuilder builder) {
+        return builder != null ? builder : JsonLdRecipe.builder().steps(new ArrayList<>());
+    }
+
+    /**
+     * Consumes the separator after a member or element. Returns true once the closing
+     * bracket has been consumed.
+     */
+    private boolean endOfContainer(char close) {
+        skipWhitespace();
+        char c = json.charAt(pos++);
+        if (c == ',') return false;
+        if (c == close) return true;
+        throw new MalformedJsonException();
+    }
+
+    // --- field readers ----------------------------------------------------------------------
+
+    private boolean readIsRecipeType() {
+        char c = peek();
+        if (c == '"') {
+            return readIsRecipeTypeString();
+        }
+        if (c != '[') {
+            skipValue();
+            return false;
+        }
+        boolean recipe = false;
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return false;
+        }
+        do {
+            skipWhitespace();
+            if (peek() == '"') {
+                recipe |= readIsRecipeTypeString();
+            } else {
+                skipValue();
+            }
+        } while (!endOfContainer(']'));
+        return recipe;
+    }
+
+    /**
+     * Matches "Recipe", "schema:Recipe" and "http://schema.org/Recipe" without allocating.
+     */
+    private boolean readIsRecipeTypeString() {
+        int start = pos + 1;
+        skipString();
+        int end = pos - 1;
+        int typeStart = end - RECIPE_TYPE.length();
+        if (typeStart < start || !json.regionMatches(typeStart, RECIPE_TYPE, 0, RECIPE_TYPE.length())) {
+            return false;
+        }
+        if (typeStart == start) return true;
+        char separator = json.charAt(typeStart - 1);
+        return separator == '/' || separator == ':' || separator == '#';
+    }
+
+    /**
+     * Reads a string or number as text; anything else is skipped and yields null.
+     */
+    private String readScalar() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            int start = pos;
+            skipLiteral();
+            return json.substring(start, pos);
+        }
+        skipValue();
+        return null;
+    }
+
+    /**
+     * Like {@link #readScalar()} but takes the first usable element of an array,
+     * e.g. {@code "recipeYield": ["4", "4 servings"]}.
+     */
+    private String readFirstScalar() {
+        if (peek() != '[') {
+            return readScalar();
+        }
+        String first = null;
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return null;
+        }
+        do {
+            skipWhitespace();
+            if (first == null) {
+                first = readScalar();
+            } else {
+                skipValue();
+            }
+        } while (!endOfContainer(']'));
+        return first;
+    }
+
+    private List<String> readStringList() {
+        List<String> out = new ArrayList<>();
+        char c = peek();
+        if (c == '"') {
+            addIfNotBlank(out, readString());
+            return out;
+        }
+        if (c != '[') {
+            skipValue();
+            return out;
+        }
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return out;
+        }
+        do {
+            skipWhitespace();
+            if (peek() == '"') {
+                addIfNotBlank(out, readString());
+            } else {
+                skipValue();
+            }
+        } while (!endOfContainer(']'));
+        return out;
+    }
+
+    /**
+     * Image may be a URL, an ImageObject or a list of either. Takes the first URL.
+     */
+    private String readImageUrl() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{') {
+            return readUrlFromObject();
+        }
+        if (c != '[') {
+            skipValue();
+            return null;
+        }
+        String url = null;
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return null;
+        }
+        do {
+            skipWhitespace();
+            if (url == null) {
+                url = readImageUrl();
+            } else {
+                skipValue();
+            }
+        } while (!endOfContainer(']'));
+        return url;
+    }
+
+    private String readUrlFromObject() {
+        String url = null;
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return null;
+        }
+        do {
+            skipWhitespace();
+            Key key = readKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (key == Key.URL && url == null) {
+                url = readScalar();
+            } else {
+                skipValue();
+            }
+        } while (!endOfContainer('}'));
+        return url;
+    }
+
+    /**
+     * Flattens recipeInstructions into step text. Handles plain strings, HowToStep objects
+     * and HowToSection objects whose steps live under itemListElement, nested to any depth.
+     */
+    private void readInstructions(List<String> out) {
+        switch (peek()) {
+            case '"' -> {
+                // Some sites put every step in one newline-separated string
+                for (String line : LINE_BREAK.split(readString())) {
+                    addIfNotBlank(out, line);
+                }
+            }
+            case '[' -> {
+                pos++;
+                skipWhitespace();
+                if (peek() == ']') {
+                    pos++;
+                    return;
+                }
+                do {
+                    skipWhitespace();
+                    readInstructions(out);
+                } while (!endOfContainer(']'));
+            }
+            case '{' -> readInstructionObject(out);
+            default -> skipValue();
+        }
+    }
+
+    private void readInstructionObject(List<String> out) {
+        pos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        String text = null;
+        String name = null;
+        boolean section = false;
+        do {
+            skipWhitespace();
+            Key key = readKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (key == Key.TEXT) {
+                text = readScalar();
+            } else if (key == Key.NAME) {
+                name = readScalar();
+            } else if (key == Key.ITEM_LIST_ELEMENT) {
+                section = true;
+                readInstructions(out);
+            } else {
+                skipValue();
+            }
+        } while (!endOfContainer('}'));
+
+        if (text != null) {
+            addIfNotBlank(out, text);
+        } else if (name != null && !section) {
+            addIfNotBlank(out, name);
+        }
+    }
+
+    private static void addIfNotBlank(List<String> out, String value) {
+        if (value == null) return;
+        String trimmed = value.strip();
+        if (!trimmed.isEmpty()) out.add(trimmed);
+    }
+
+    // --- tokens -----------------------------------------------------------------------------
+
+    /**
+     * Reads an object key and returns the matching {@link Key}, or null for keys we don't
+     * care about. Plain keys are compared in place; only escaped keys are decoded.
+     */
+    private Key readKey() {
+        if (peek() != '"') throw new MalformedJsonException();
+        int start = pos + 1;
+        boolean escaped = skipString();
+        int end = pos - 1;
+
+        if (escaped) {
+            pos = start - 1;
+            String decoded = readString();
+            for (Key key : KEYS) {
+                if (key.literal.equals(decoded)) return key;
+            }
+            return null;
+        }
+
+        int keyLength = end - start;
+        for (Key key : KEYS) {
+            if (key.literal.length() == keyLength && json.regionMatches(start, key.literal, 0, keyLength)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Advances past a string. Returns whether it contained any escape sequences.
+     */
+    private boolean skipString() {
+        if (peek() != '"') throw new MalformedJsonException();
+        boolean escaped = false;
+        int i = pos + 1;
+        while (true) {
+            char c = json.charAt(i);
+            if (c == '"') break;
+            if (c == '\\') {
+                escaped = true;
+                i++;
+            }
+            i++;
+        }
+        pos = i + 1;
+        return escaped;
+    }
+
+    private String readString() {
+        if (peek() != '"') throw new MalformedJsonException();
+        int start = pos + 1;
+        int i = start;
+        while (true) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                pos = i + 1;
+                return json.substring(start, i);
+            }
+            if (c == '\\') break;
+            i++;
+        }
+
+        StringBuilder sb = new StringBuilder(i - start + 16);
+        sb.append(json, start, i);
+        while (true) {
+            char c = json.charAt(i++);
+            if (c == '"') break;
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char e = json.charAt(i++);
+            switch (e) {
+                case 'n' -> sb.append('\n');
+                case 't' -> sb.append('\t');
+                case 'r' -> sb.append('\r');
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'u' -> {
+                    sb.append((char) Integer.parseInt(json, i, i + 4, 16));
+                    i += 4;
+                }
+                default -> sb.append(e); // \" \\ \/
+            }
+        }
+        pos = i;
+        return sb.toString();
+    }
+
+    private void skipLiteral() {
+        int start = pos;
+        while (pos < length) {
+            char c = json.charAt(pos);
+            if (c == ',' || c == '}' || c == ']' || isWhitespace(c)) break;
+            pos++;
+        }
+        if (pos == start) throw new MalformedJsonException();
+    }
+
+    private void expect(char expected) {
+        if (json.charAt(pos++) != expected) throw new MalformedJsonException();
+    }
+
+    private char peek() {
+        return json.charAt(pos);
+    }
+
+    private void skipWhitespace() {
+        while (pos < length && isWhitespace(json.charAt(pos))) pos++;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static final class MalformedJsonException extends RuntimeException {
+        MalformedJsonException() {
+            super(null, null, false, false);
+        }
+    }
+}
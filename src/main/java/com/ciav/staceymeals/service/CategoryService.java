@@ -15,10 +15,12 @@ import java.util.*;
 public class CategoryService {
 
     private final CategoryDao categoryDao;
+    private final UserLibraryCache userLibraryCache;
 
     @Autowired
-    public CategoryService(CategoryDao categoryDao) {
+    public CategoryService(CategoryDao categoryDao, UserLibraryCache userLibraryCache) {
         this.categoryDao = categoryDao;
+        this.userLibraryCache = userLibraryCache;
     }
 
     public Category upsertCategory(Category category) {
@@ -27,15 +29,21 @@ public class CategoryService {
             category.setId(UUID.randomUUID());
         }
 
-        UUID savedId = categoryDao.save(category);
-        category.setId(savedId);
+        try {
+            UUID savedId = categoryDao.save(category);
+            category.setId(savedId);
+        } finally {
+            // Recipes embed category names, so this drops the user's cached recipes too
+            userLibraryCache.invalidate(category.getUserId());
+        }
 
         log.info("Saved category: {}", category);
         return category;
     }
 
     public Category getCategory(UUID userId, UUID categoryId) {
-        return categoryDao.findByIdAndUserId(categoryId, userId)
+        return Optional.ofNullable(userLibraryCache.get(userId, UserLibraryCache.Kind.CATEGORY, categoryId,
+                        () -> categoryDao.findByIdAndUserId(categoryId, userId).orElse(null)))
                 .orElseThrow(() -> {
                     String msg = "Category not found. Category ID: " + categoryId + ", User ID: " + userId;
                     log.error(msg);
@@ -44,7 +52,53 @@ public class CategoryService {
     }
 
     public List<Category> getFullCategoryTree(UUID userId) {
-        List<Category> categories = categoryDao.findByUserId(userId);
+        return userLibraryCache.get(userId, UserLibraryCache.Kind.CATEGORY_TREE, null,
+                () -> buildCategoryTree(categoryDao.findByUserId(userId)));
+    }
+
+    /**
+     * The category with all of its descendants nested beneath it, read in one closure-table query.
+     */
+    public Category getSubtree(UUID userId, UUID categoryId) {
+        List<Category> subtree = categoryDao.findSubtree(categoryId, userId);
+        if (subtree.isEmpty()) {
+            String msg = "Category not found. Category ID: " + categoryId + ", User ID: " + userId;
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+        }
+
+        // Rows come back shallowest first, so the requested category leads
+        Category root = subtree.get(0);
+        root.setParentCategoryId(null);
+        buildCategoryTree(subtree);
+        return root;
+    }
+
+    /**
+     * Moves a category, and everything under it, beneath a new parent. A null parent makes it a root.
+     */
+    public Category moveCategory(UUID userId, UUID categoryId, UUID parentId) {
+        int updated;
+        try {
+            updated = categoryDao.moveSubtree(categoryId, userId, parentId);
+        } finally {
+            userLibraryCache.invalidate(userId);
+        }
+
+        if (updated == 0) {
+            // Distinguish a missing category from a parent we refused
+            getCategory(userId, categoryId);
+            String msg = "Cannot move category " + categoryId + " under " + parentId
+                    + ": parent not found or inside the category's own subtree";
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, msg);
+        }
+
+        log.info("Moved category {} under {}", categoryId, parentId);
+        return getCategory(userId, categoryId);
+    }
+
+    static List<Category> buildCategoryTree(List<Category> categories) {
         List<Category> rootCategories = new ArrayList<>();
 
         Map<UUID, Category> categoryMap = new HashMap<>();
@@ -0,0 +1,63 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.RecipeChange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a user's change log: the (txid, seq) of the last change a client has seen.
+ * During a first sync, {@code libraryAfter} is the last recipe id handed out so far, and the
+ * position is where the log picks up once the library has been paged through; it is null
+ * otherwise. Encoded as URL-safe base64 so clients treat it as opaque.
+ */
+record ChangeToken(long txid, long seq, UUID libraryAfter) {
+
+    static ChangeToken after(RecipeChange last) {
+        return new ChangeToken(last.getTxid(), last.getSeq(), null);
+    }
+
+    /**
+     * Before every change a transaction with {@code txid} or later could log, which a first
+     * sync reading a snapshot with that xmin has not seen.
+     */
+    static ChangeToken beforeTransaction(long txid) {
+        return new ChangeToken(txid, 0, null);
+    }
+
+    ChangeToken inLibraryAfter(UUID recipeId) {
+        return new ChangeToken(txid, seq, recipeId);
+    }
+
+    ChangeToken inLog() {
+        return new ChangeToken(txid, seq, null);
+    }
+
+    boolean isBefore(ChangeToken other) {
+        return txid < other.txid || (txid == other.txid && seq < other.seq);
+    }
+
+    String encode() {
+        String plain = txid + "|" + seq + (libraryAfter == null ? "" : "|" + libraryAfter);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ChangeToken decode(String token) {
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = plain.indexOf('|');
+            int librarySeparator = plain.indexOf('|', separator + 1);
+            return new ChangeToken(
+                    Long.parseLong(plain.substring(0, separator)),
+                    Long.parseLong(librarySeparator < 0
+                            ? plain.substring(separator + 1)
+                            : plain.substring(separator + 1, librarySeparator)),
+                    librarySeparator < 0 ? null : UUID.fromString(plain.substring(librarySeparator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sync token: " + token);
+        }
+    }
+}
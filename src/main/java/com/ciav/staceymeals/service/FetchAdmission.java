@@ -0,0 +1,180 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.FetchAdmissionProperties;
+import com.ciav.staceymeals.db.routing.ReadRouting;
+import com.ciav.staceymeals.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for synchronous fetches. Each user has a token bucket, and admitted work
+ * runs on a fixed pool with a bounded queue instead of on servlet threads. A request that is
+ * over its user's budget, or that finds the queue full, is rejected straight away with a 429
+ * rather than waiting in Tomcat's accept queue. Admitted work that doesn't get a thread within
+ * {@code maxQueueWait} is dropped the same way, so nothing starts that couldn't finish before
+ * the request times out.
+ */
+@Component
+@Slf4j
+public class FetchAdmission {
+
+    private final FetchAdmissionProperties properties;
+    private final Cache<UUID, TokenBucket> buckets;
+    private final ThreadPoolExecutor executor;
+    private final Counter admitted;
+    private final Counter rateLimited;
+    private final Counter queueFull;
+    private final Counter queueTimedOut;
+
+    @Autowired
+    public FetchAdmission(FetchAdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        // A bucket left alone this long has refilled completely, so forgetting it changes nothing
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(properties.refillPeriod().multipliedBy(properties.burst()))
+                .build();
+        this.executor = new ThreadPoolExecutor(properties.concurrency(), properties.concurrency(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.queueCapacity()),
+                RecipeImportService.daemonThreads("fetch-and-save-"), new ThreadPoolExecutor.AbortPolicy());
+
+        this.admitted = outcomeCounter(meterRegistry, "admitted");
+        this.rateLimited = outcomeCounter(meterRegistry, "rate_limited");
+        this.queueFull = outcomeCounter(meterRegistry, "queue_full");
+        this.queueTimedOut = outcomeCounter(meterRegistry, "queue_timed_out");
+        Gauge.builder("fetch.admission.queued", executor, pool -> pool.getQueue().size())
+                .description("Admitted fetches waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("fetch.admission.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Fetches currently running")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Runs the fetch on the fetch pool if the user has budget and the queue has room. The fetch
+     * runs in the caller's {@link ReadRouting} unit of work, so its writes count as the request's.
+     * If it waits longer than {@code maxQueueWait} for a thread, the future fails with a
+     * {@link TooManyRequestsException} and the fetch never runs. Cancelling the future drops a
+     * fetch that hasn't started; one that has is not interrupted, and runs to completion.
+     *
+     * @throws TooManyRequestsException if neither holds; nothing has been started
+     */
+    public <T> CompletableFuture<T> submit(UUID userId, Supplier<T> fetch) {
+        TokenBucket bucket = buckets.get(userId, id -> new TokenBucket(properties.burst(), properties.refillPeriod()));
+        long waitNanos = bucket.tryTake();
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            String msg = "Too many fetches for user " + userId;
+            log.warn(msg);
+            throw new TooManyRequestsException(msg, Duration.ofNanos(waitNanos));
+        }
+
+        Supplier<T> work = ReadRouting.propagate(fetch);
+        long admittedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isCancelled()) {
+                    bucket.giveBack();
+                    queueTimedOut.increment();
+                    return;
+                }
+                if (System.nanoTime() - admittedAt > properties.maxQueueWait().toNanos()) {
+                    bucket.giveBack();
+                    queueTimedOut.increment();
+                    String msg = "Fetch waited too long for a thread";
+                    log.warn(msg);
+                    result.completeExceptionally(new TooManyRequestsException(msg, properties.queueFullRetryAfter()));
+                    return;
+                }
+                try {
+                    result.complete(work.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The user didn't get to fetch, so they shouldn't pay for it
+            bucket.giveBack();
+            queueFull.increment();
+            String msg = "Fetch queue is full";
+            log.warn(msg);
+            throw new TooManyRequestsException(msg, properties.queueFullRetryAfter());
+        }
+        admitted.increment();
+        return result;
+    }
+
+    /**
+     * How long a request should wait for a fetch it submitted.
+     */
+    public Duration requestTimeout() {
+        return properties.requestTimeout();
+    }
+
+    /**
+     * When a request that gave up waiting for its fetch should try again.
+     */
+    public Duration timeoutRetryAfter() {
+        return properties.queueFullRetryAfter();
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("fetch.admission")
+                .description("Fetch-and-save requests by admission decision")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    static final class TokenBucket {
+        private final int capacity;
+        private final long refillNanos;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int capacity, Duration refillPeriod) {
+            this.capacity = capacity;
+            this.refillNanos = refillPeriod.toNanos();
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * Takes a token, returning 0, or returns how long until one is available.
+         */
+        synchronized long tryTake() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (double) (now - lastRefill) / refillNanos);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * refillNanos);
+        }
+
+        synchronized void giveBack() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+}
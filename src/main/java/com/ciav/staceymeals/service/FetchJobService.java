@@ -0,0 +1,267 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.FetchJobProperties;
+import com.ciav.staceymeals.db.dao.FetchJobDao;
+import com.ciav.staceymeals.model.FetchJob;
+import com.ciav.staceymeals.model.Recipe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Asynchronous fetch-and-save backed by the {@code fetch_jobs} table, so any number of nodes
+ * can share the queue without a broker.
+ * <p>
+ * Each node polls for runnable jobs, claiming no more than it has idle workers for. A claim
+ * holds the row under a lease; jobs left RUNNING by a node that died are claimed again once
+ * the lease runs out. Failures are retried with exponential backoff until {@code maxAttempts},
+ * then the job is dead-lettered. Pages with no recipe on them are dead-lettered straight away.
+ * <p>
+ * Status requests may long-poll: a waiter is completed as soon as a local worker finishes the
+ * job, or by the poller noticing a job another node finished.
+ */
+@Service
+@Slf4j
+public class FetchJobService {
+
+    private final FetchJobDao fetchJobDao;
+    private final RecipeService recipeService;
+    private final FetchJobProperties properties;
+    private final String workerId;
+    private final ExecutorService workers;
+    private final Semaphore idleWorkers;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<UUID, List<CompletableFuture<FetchJob>>> waiters = new ConcurrentHashMap<>();
+    private final Counter succeeded;
+    private final Counter retried;
+    private final Counter dead;
+
+    @Autowired
+    public FetchJobService(FetchJobDao fetchJobDao,
+                           RecipeService recipeService,
+                           FetchJobProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.fetchJobDao = fetchJobDao;
+        this.recipeService = recipeService;
+        this.properties = properties;
+        this.workerId = hostname() + "/" + UUID.randomUUID();
+        this.workers = Executors.newFixedThreadPool(properties.workers(), RecipeImportService.daemonThreads("fetch-job-"));
+        this.idleWorkers = new Semaphore(properties.workers());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(RecipeImportService.daemonThreads("fetch-job-poller-"));
+        this.succeeded = outcomeCounter(meterRegistry, "succeeded");
+        this.retried = outcomeCounter(meterRegistry, "retried");
+        this.dead = outcomeCounter(meterRegistry, "dead");
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.pollInterval().toMillis();
+        if (properties.workersEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::claimAndRun, 0, interval, TimeUnit.MILLISECONDS);
+        }
+        scheduler.scheduleWithFixedDelay(this::checkWaiters, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Jobs interrupted here stay RUNNING until their lease expires, then run elsewhere
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    public FetchJob enqueue(UUID userId, String url) {
+        String target = url.strip();
+        if (RecipeImportService.hostOf(target) == null) {
+            String msg = "Not a valid absolute URL: " + target;
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        }
+        FetchJob job = fetchJobDao.insert(FetchJob.builder()
+                .id(UUID.randomUUID())
+                .userId(userId)
+                .url(target)
+                .build());
+        log.info("Queued fetch job {} for {}", job.getId(), target);
+        return job;
+    }
+
+    public FetchJob getJob(UUID userId, UUID jobId) {
+        return fetchJobDao.findByIdAndUserId(jobId, userId)
+                .orElseThrow(() -> {
+                    String msg = "Fetch job not found with ID: " + jobId;
+                    log.error(msg);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+                });
+    }
+
+    /**
+     * The job once it has finished, or as it stands after {@code wait} (capped at
+     * {@code maxWait}), whichever comes first.
+     */
+    public CompletableFuture<FetchJob> awaitJob(UUID userId, UUID jobId, Duration wait) {
+        FetchJob job = getJob(userId, jobId);
+        if (job.isFinished() || wait.isZero() || wait.isNegative()) {
+            return CompletableFuture.completedFuture(job);
+        }
+        Duration timeout = wait.compareTo(properties.maxWait()) > 0 ? properties.maxWait() : wait;
+
+        CompletableFuture<FetchJob> result = new CompletableFuture<>();
+        waiters.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(result);
+        scheduler.schedule(() -> {
+            removeWaiter(jobId, result);
+            if (!result.isDone()) {
+                try {
+                    result.complete(getJob(userId, jobId));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    private void claimAndRun() {
+        try {
+            int idle = idleWorkers.availablePermits();
+            if (idle == 0) {
+                return;
+            }
+            List<FetchJob> jobs = fetchJobDao.claim(workerId, idle, properties.lease().toMillis());
+            for (FetchJob job : jobs) {
+                idleWorkers.acquireUninterruptibly();
+                workers.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        idleWorkers.release();
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            // Keep polling; a failed run would otherwise cancel the schedule
+            log.error("Error claiming fetch jobs: {}", e.getMessage());
+        }
+    }
+
+    private void run(FetchJob job) {
+        try {
+            Recipe recipe = recipeService.extractRecipe(job.getUrl());
+            // Saving under the job's id makes a re-run after a lost lease overwrite, not duplicate
+            recipe.setId(job.getId());
+            recipe.setUserId(job.getUserId());
+            recipeService.saveRecipe(recipe);
+            if (fetchJobDao.complete(job.getId(), workerId, recipe.getId()) > 0) {
+                succeeded.increment();
+                log.info("Fetch job {} succeeded on attempt {}", job.getId(), job.getAttempts());
+            }
+        } catch (ResponseStatusException e) {
+            if (HttpStatus.NOT_FOUND.equals(e.getStatusCode())) {
+                bury(job, e.getReason());
+            } else {
+                retryOrBury(job, e.getReason());
+            }
+        } catch (RuntimeException e) {
+            log.error("Unexpected error running fetch job {}: {}", job.getId(), e.getMessage());
+            retryOrBury(job, e.getMessage());
+        } finally {
+            notifyWaiters(job.getId());
+        }
+    }
+
+    private void retryOrBury(FetchJob job, String error) {
+        if (job.getAttempts() >= properties.maxAttempts()) {
+            bury(job, error);
+            return;
+        }
+        long backoff = backoffMillis(job.getAttempts());
+        if (fetchJobDao.retry(job.getId(), workerId, error, backoff) > 0) {
+            retried.increment();
+            log.info("Fetch job {} failed attempt {}, retrying in {} ms: {}", job.getId(), job.getAttempts(), backoff, error);
+        }
+    }
+
+    private void bury(FetchJob job, String error) {
+        if (fetchJobDao.bury(job.getId(), workerId, error) > 0) {
+            dead.increment();
+            log.error("Fetch job {} dead after {} attempts: {}", job.getId(), job.getAttempts(), error);
+        }
+    }
+
+    /**
+     * Doubles per attempt up to {@code maxBackoff}, with up to half taken off at random so
+     * jobs that failed together don't all retry together.
+     */
+    long backoffMillis(int attempts) {
+        long initial = properties.initialBackoff().toMillis();
+        long max = properties.maxBackoff().toMillis();
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        long backoff = Math.min(max, initial << doublings);
+        if (backoff < 0) {
+            backoff = max;
+        }
+        return backoff - ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private void notifyWaiters(UUID jobId) {
+        if (!waiters.containsKey(jobId)) {
+            return;
+        }
+        fetchJobDao.findByIds(new UUID[]{jobId}).forEach(this::completeWaiters);
+    }
+
+    private void checkWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        try {
+            fetchJobDao.findByIds(waiters.keySet().toArray(UUID[]::new)).forEach(this::completeWaiters);
+        } catch (RuntimeException e) {
+            log.error("Error checking fetch jobs being waited on: {}", e.getMessage());
+        }
+    }
+
+    private void completeWaiters(FetchJob job) {
+        if (!job.isFinished()) {
+            return;
+        }
+        List<CompletableFuture<FetchJob>> futures = waiters.remove(job.getId());
+        if (futures != null) {
+            futures.forEach(future -> future.complete(job));
+        }
+    }
+
+    private void removeWaiter(UUID jobId, CompletableFuture<FetchJob> future) {
+        waiters.computeIfPresent(jobId, (id, futures) -> {
+            futures.remove(future);
+            return futures.isEmpty() ? null : futures;
+        });
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("fetch.jobs")
+                .description("Fetch job attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
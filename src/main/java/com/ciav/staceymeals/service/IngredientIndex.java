@@ -0,0 +1,176 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.PantryMatch;
+
+import java.util.*;
+
+/**
+ * One user's inverted index from ingredient term to the recipes that use it.
+ * <p>
+ * Recipes get dense int ordinals (reused after deletes) and each term's postings are a
+ * {@link BitSet} over those ordinals, so scoring a pantry is a handful of bitset walks into a
+ * counter array. All access is synchronized: updates are rare and scoring is short.
+ */
+final class IngredientIndex {
+
+    private static final int OBJECT_OVERHEAD = 16;
+    private static final int REFERENCE = 8;
+    private static final int MAP_ENTRY = 48;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<BitSet> postings = new ArrayList<>();
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private UUID[] recipeIds = new UUID[16];
+    private String[] titles = new String[16];
+    private int[][] recipeTerms = new int[16][];
+    private int highWater;
+    private int[] free = new int[4];
+    private int freeCount;
+
+    /**
+     * Adds or replaces a recipe's terms.
+     */
+    synchronized void put(UUID recipeId, String title, List<String> recipeTermList) {
+        remove(recipeId);
+
+        int ordinal = allocate();
+        int[] ids = new int[recipeTermList.size()];
+        for (int i = 0; i < ids.length; i++) {
+            int termId = termIds.computeIfAbsent(recipeTermList.get(i), this::newTerm);
+            ids[i] = termId;
+            postings.get(termId).set(ordinal);
+        }
+        recipeIds[ordinal] = recipeId;
+        titles[ordinal] = title;
+        recipeTerms[ordinal] = ids;
+        ordinals.put(recipeId, ordinal);
+    }
+
+    synchronized void remove(UUID recipeId) {
+        Integer ordinal = ordinals.remove(recipeId);
+        if (ordinal == null) {
+            return;
+        }
+        for (int termId : recipeTerms[ordinal]) {
+            postings.get(termId).clear(ordinal);
+        }
+        recipeIds[ordinal] = null;
+        titles[ordinal] = null;
+        recipeTerms[ordinal] = null;
+        if (freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = ordinal;
+    }
+
+    /**
+     * Recipes sharing at least one term with the pantry, by coverage then by number of
+     * matched terms.
+     */
+    synchronized List<PantryMatch> score(Collection<String> pantryTerms, int limit) {
+        BitSet pantry = new BitSet(terms.size());
+        for (String term : pantryTerms) {
+            Integer termId = termIds.get(term);
+            if (termId != null) {
+                pantry.set(termId);
+            }
+        }
+
+        int[] matched = new int[highWater];
+        for (int termId = pantry.nextSetBit(0); termId >= 0; termId = pantry.nextSetBit(termId + 1)) {
+            BitSet recipes = postings.get(termId);
+            for (int ordinal = recipes.nextSetBit(0); ordinal >= 0; ordinal = recipes.nextSetBit(ordinal + 1)) {
+                matched[ordinal]++;
+            }
+        }
+
+        // Keep the best `limit` candidates in a min-heap ordered by score
+        Comparator<Integer> byScore = Comparator
+                .<Integer>comparingDouble(ordinal -> (double) matched[ordinal] / recipeTerms[ordinal].length)
+                .thenComparingInt(ordinal -> matched[ordinal]);
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, limit), byScore);
+        for (int ordinal = 0; ordinal < highWater; ordinal++) {
+            if (matched[ordinal] == 0) {
+                continue;
+            }
+            best.add(ordinal);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        PantryMatch[] results = new PantryMatch[best.size()];
+        for (int i = results.length - 1; i >= 0; i--) {
+            results[i] = toMatch(best.poll(), matched, pantry);
+        }
+        return Arrays.asList(results);
+    }
+
+    synchronized int recipeCount() {
+        return ordinals.size();
+    }
+
+    synchronized int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * Rough heap footprint: dictionary, postings words, per-recipe arrays and map entries.
+     */
+    synchronized long estimatedBytes() {
+        long bytes = OBJECT_OVERHEAD * 4L;
+        for (String term : terms) {
+            bytes += 40L + term.length() + MAP_ENTRY + REFERENCE;
+        }
+        for (BitSet bits : postings) {
+            bytes += OBJECT_OVERHEAD + 16L + bits.size() / 8;
+        }
+        bytes += (long) recipeIds.length * (REFERENCE * 3) + free.length * 4L;
+        for (int ordinal = 0; ordinal < highWater; ordinal++) {
+            if (recipeIds[ordinal] != null) {
+                bytes += 32 + MAP_ENTRY + 16 + recipeTerms[ordinal].length * 4L
+                        + (titles[ordinal] == null ? 0 : 40L + titles[ordinal].length());
+            }
+        }
+        return bytes;
+    }
+
+    private PantryMatch toMatch(int ordinal, int[] matched, BitSet pantry) {
+        int[] ids = recipeTerms[ordinal];
+        List<String> missing = new ArrayList<>(ids.length - matched[ordinal]);
+        for (int termId : ids) {
+            if (!pantry.get(termId)) {
+                missing.add(terms.get(termId));
+            }
+        }
+        return PantryMatch.builder()
+                .recipeId(recipeIds[ordinal])
+                .title(titles[ordinal])
+                .matched(matched[ordinal])
+                .total(ids.length)
+                .coverage((double) matched[ordinal] / ids.length)
+                .missing(missing)
+                .build();
+    }
+
+    private int newTerm(String term) {
+        terms.add(term);
+        postings.add(new BitSet());
+        return terms.size() - 1;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return free[--freeCount];
+        }
+        if (highWater == recipeIds.length) {
+            int capacity = highWater * 2;
+            recipeIds = Arrays.copyOf(recipeIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            recipeTerms = Arrays.copyOf(recipeTerms, capacity);
+        }
+        return highWater++;
+    }
+}
@@ -0,0 +1,120 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.PantryIndexProperties;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.PantryIndexStats;
+import com.ciav.staceymeals.model.PantryMatch;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.parser.IngredientNormalizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-user {@link IngredientIndex}es, built from the database the first time a user matches
+ * a pantry and then kept current by {@link RecipeService} on every save, update and delete.
+ * <p>
+ * Updates go through {@code computeIfPresent}, which waits for an in-progress build of the
+ * same user's index; since put and remove are idempotent, a write that the build may or
+ * may not have seen is simply applied again afterwards. Users without an index are skipped.
+ * <p>
+ * Indexes are per node and only see this node's writes, such as a fetch job that a worker on
+ * another node saved. Every index is rebuilt after {@code expireAfterWrite}, which bounds how
+ * long such a write goes unmatched here.
+ */
+@Component
+@Slf4j
+public class PantryIndex {
+
+    private final RecipeDao recipeDao;
+    private final Cache<UUID, IngredientIndex> indexes;
+
+    @Autowired
+    public PantryIndex(RecipeDao recipeDao, PantryIndexProperties properties, MeterRegistry meterRegistry) {
+        this.recipeDao = recipeDao;
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(properties.maxSize().toBytes())
+                .weigher((UUID userId, IngredientIndex index) -> (int) Math.min(index.estimatedBytes(), Integer.MAX_VALUE))
+                .expireAfterAccess(properties.expireAfterAccess())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, "pantry-index");
+        Gauge.builder("pantry.index.size", indexes, cache -> cache.asMap().values().stream()
+                        .mapToLong(IngredientIndex::estimatedBytes)
+                        .sum())
+                .description("Estimated heap used by all loaded pantry indexes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The user's recipes ranked by how much of each one the pantry covers.
+     */
+    public List<PantryMatch> match(UUID userId, List<String> pantry, int limit) {
+        List<String> pantryTerms = IngredientNormalizer.terms(pantry);
+        return index(userId).score(pantryTerms, limit);
+    }
+
+    public PantryIndexStats stats(UUID userId) {
+        IngredientIndex index = index(userId);
+        return PantryIndexStats.builder()
+                .userId(userId)
+                .recipes(index.recipeCount())
+                .terms(index.termCount())
+                .estimatedBytes(index.estimatedBytes())
+                .build();
+    }
+
+    void upsert(Recipe recipe) {
+        indexes.asMap().computeIfPresent(recipe.getUserId(), (userId, index) -> {
+            index.put(recipe.getId(), recipe.getTitle(), termsOf(recipe));
+            return index;
+        });
+    }
+
+    void remove(UUID userId, UUID recipeId) {
+        indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            index.remove(recipeId);
+            return index;
+        });
+    }
+
+    /**
+     * Drops the user's index, for changes too broad to apply recipe by recipe; it is rebuilt
+     * on the next match.
+     */
+    void invalidate(UUID userId) {
+        indexes.invalidate(userId);
+    }
+
+    private IngredientIndex index(UUID userId) {
+        return indexes.get(userId, this::build);
+    }
+
+    private IngredientIndex build(UUID userId) {
+        long start = System.nanoTime();
+        IngredientIndex index = new IngredientIndex();
+        for (Recipe recipe : recipeDao.findIngredientTermsByUserId(userId)) {
+            index.put(recipe.getId(), recipe.getTitle(), termsOf(recipe));
+        }
+        log.info("Built pantry index for user {}: {} recipes, {} terms, ~{} bytes in {} ms", userId,
+                index.recipeCount(), index.termCount(), index.estimatedBytes(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    private static List<String> termsOf(Recipe recipe) {
+        // Rows saved before terms were stored have none yet
+        return recipe.getIngredientTerms() != null
+                ? recipe.getIngredientTerms()
+                : IngredientNormalizer.terms(recipe.getIngredients());
+    }
+}
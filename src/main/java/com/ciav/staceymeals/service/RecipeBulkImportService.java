@@ -0,0 +1,226 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeBulkImportProperties;
+import com.ciav.staceymeals.db.StagingCopy;
+import com.ciav.staceymeals.db.dao.RecipeBulkImportDao;
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.RecipeBulkImportResult;
+import com.ciav.staceymeals.parser.IngredientNormalizer;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Restores or migrates a library from an NDJSON archive, optionally gzipped, in one transaction.
+ * <p>
+ * Each line is one of:
+ * <ul>
+ *   <li>a recipe, as written by {@link RecipeExportService}; its {@code categories} are
+ *       created if missing and linked to it</li>
+ *   <li>{@code {"type":"category", "id", "name", "parentCategoryId"}}</li>
+ *   <li>{@code {"type":"link", "recipeId", "categoryId"}}, either of which may be an id
+ *       in the archive or one of the user's own</li>
+ * </ul>
+ * Lines are streamed from the request into COPY buffers as they are parsed, so memory use
+ * depends on the buffer sizes, not the archive. See {@link RecipeBulkImportDao} for how
+ * archive ids map onto the library.
+ */
+@Service
+@Slf4j
+public class RecipeBulkImportService {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private final RecipeBulkImportDao recipeBulkImportDao;
+    private final ObjectReader lineReader;
+    private final UserLibraryCache userLibraryCache;
+    private final PantryIndex pantryIndex;
+    private final RecipeBulkImportProperties properties;
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record ArchiveLine(
+            String type,
+            UUID id,
+            String sourceUrl,
+            String title,
+            List<String> ingredients,
+            List<String> steps,
+            String thumbnailUrl,
+            String prepTime,
+            String cookTime,
+            String totalTime,
+            Integer prepSeconds,
+            Integer cookSeconds,
+            Integer totalSeconds,
+            String servings,
+            String raw,
+            Integer rating,
+            List<Category> categories,
+            String name,
+            UUID parentCategoryId,
+            UUID recipeId,
+            UUID categoryId) {
+    }
+
+    @Autowired
+    public RecipeBulkImportService(RecipeBulkImportDao recipeBulkImportDao,
+                                   ObjectMapper objectMapper,
+                                   UserLibraryCache userLibraryCache,
+                                   PantryIndex pantryIndex,
+                                   RecipeBulkImportProperties properties) {
+        this.recipeBulkImportDao = recipeBulkImportDao;
+        this.lineReader = objectMapper.readerFor(ArchiveLine.class);
+        this.userLibraryCache = userLibraryCache;
+        this.pantryIndex = pantryIndex;
+        this.properties = properties;
+    }
+
+    /**
+     * Imports the archive for the user, or nothing if any line of it is rejected. Does not
+     * close {@code in}.
+     */
+    public RecipeBulkImportResult importArchive(UUID userId, InputStream in) {
+        long start = System.nanoTime();
+        RecipeBulkImportResult result;
+        try {
+            result = recipeBulkImportDao.importArchive(userId, (int) properties.copyBufferSize().toBytes(),
+                    staging -> load(decode(in), staging));
+        } catch (JacksonException e) {
+            String msg = "Malformed archive line: " + e.getOriginalMessage();
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        } catch (RuntimeException e) {
+            SQLException sqlException = sqlCause(e);
+            // Class 22 is bad data, class 23 a broken constraint such as a category cycle
+            if (sqlException != null && sqlException.getSQLState() != null
+                    && (sqlException.getSQLState().startsWith("22") || sqlException.getSQLState().startsWith("23"))) {
+                String msg = "Archive rejected: " + sqlException.getMessage();
+                log.error(msg);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+            }
+            throw e;
+        } finally {
+            userLibraryCache.invalidate(userId);
+            pantryIndex.invalidate(userId);
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Bulk imported {} recipes for user {} in {} ms ({} recipes/s): {}", result.getRecipesRead(), userId,
+                elapsedMs, result.getRecipesRead() * 1000 / elapsedMs, result);
+        return result;
+    }
+
+    private InputStream decode(InputStream in) {
+        try {
+            BufferedInputStream buffered = new BufferedInputStream(in, properties.readBufferSize());
+            buffered.mark(2);
+            int magic = buffered.read() | (buffered.read() << 8);
+            buffered.reset();
+            return magic == GZIP_MAGIC ? new GZIPInputStream(buffered, properties.readBufferSize()) : buffered;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void load(InputStream in, RecipeBulkImportDao.Staging staging) {
+        long line = 0;
+        try (MappingIterator<ArchiveLine> lines = lineReader.readValues(in)) {
+            while (lines.hasNextValue()) {
+                ArchiveLine archiveLine = lines.nextValue();
+                line++;
+                String type = archiveLine.type() == null ? "recipe" : archiveLine.type();
+                switch (type) {
+                    case "recipe" -> stageRecipe(line, archiveLine, staging);
+                    case "category" -> stageCategory(line, archiveLine.id(), archiveLine.name(),
+                            archiveLine.parentCategoryId(), true, staging.categories());
+                    case "link" -> staging.links().number(null)
+                            .uuid(archiveLine.recipeId())
+                            .uuid(requireId(archiveLine.categoryId(), "categoryId", line))
+                            .endRow();
+                    default -> {
+                        String msg = "Unknown archive line type '" + type + "' on line " + line;
+                        log.error(msg);
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void stageRecipe(long line, ArchiveLine recipe, RecipeBulkImportDao.Staging staging) {
+        staging.recipes().number(line)
+                .uuid(recipe.id())
+                .text(recipe.sourceUrl())
+                .text(recipe.title())
+                .textArray(recipe.ingredients())
+                .textArray(IngredientNormalizer.terms(recipe.ingredients()))
+                .textArray(recipe.steps())
+                .text(recipe.thumbnailUrl())
+                .text(recipe.prepTime())
+                .text(recipe.cookTime())
+                .text(recipe.totalTime())
+                .number(recipe.prepSeconds())
+                .number(recipe.cookSeconds())
+                .number(recipe.totalSeconds())
+                .text(recipe.servings())
+                .text(recipe.raw())
+                .number(recipe.rating())
+                .endRow();
+        if (recipe.categories() == null) {
+            return;
+        }
+        for (Category category : recipe.categories()) {
+            UUID categoryId = category.getId() == null ? UUID.randomUUID() : category.getId();
+            stageCategory(line, categoryId, category.getName(), null, false, staging.categories());
+            staging.links().number(line).uuid(null).uuid(categoryId).endRow();
+        }
+    }
+
+    /**
+     * Categories named inside a recipe are not {@code explicit}: they leave an existing
+     * category's parent alone.
+     */
+    private static void stageCategory(long line, UUID id, String name, UUID parentCategoryId, boolean explicit,
+                                      StagingCopy categories) {
+        categories.number(line)
+                .uuid(id == null ? UUID.randomUUID() : id)
+                .text(name)
+                .uuid(parentCategoryId)
+                .bool(explicit)
+                .endRow();
+    }
+
+    private static UUID requireId(UUID id, String field, long line) {
+        if (id == null) {
+            String msg = "Missing " + field + " on line " + line;
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        }
+        return id;
+    }
+
+    private static SQLException sqlCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                return sqlException;
+            }
+        }
+        return null;
+    }
+}
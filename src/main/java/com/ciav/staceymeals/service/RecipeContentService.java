@@ -0,0 +1,90 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeContentProperties;
+import com.ciav.staceymeals.db.dao.RecipeContentDao;
+import com.ciav.staceymeals.model.RecipeStorageReport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upkeep of the recipe content shared between users' recipes.
+ * <p>
+ * Editing or deleting a recipe can leave the content it pointed at unreferenced. Nodes with
+ * the sweep enabled periodically delete such content once it has gone unsaved for the grace
+ * period; running it on several nodes at once is harmless, since rows another sweep has
+ * locked are skipped.
+ */
+@Service
+@Slf4j
+public class RecipeContentService {
+
+    private final RecipeContentDao recipeContentDao;
+    private final RecipeContentProperties properties;
+    private final ScheduledExecutorService scheduler;
+    private final Counter swept;
+
+    @Autowired
+    public RecipeContentService(RecipeContentDao recipeContentDao,
+                                RecipeContentProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.recipeContentDao = recipeContentDao;
+        this.properties = properties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(RecipeImportService.daemonThreads("recipe-content-sweep-"));
+        this.swept = Counter.builder("recipe.contents.swept")
+                .description("Unreferenced shared recipe content rows deleted")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.sweepEnabled()) {
+            long interval = properties.sweepInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public RecipeStorageReport getStorageReport() {
+        return recipeContentDao.report();
+    }
+
+    /**
+     * Deletes unreferenced content in batches until none is left; returns how many rows went.
+     */
+    public int sweepOrphans() {
+        long graceSeconds = properties.orphanGrace().toSeconds();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = recipeContentDao.deleteOrphans(graceSeconds, properties.sweepBatchSize());
+            total += deleted;
+            swept.increment(deleted);
+        } while (deleted >= properties.sweepBatchSize());
+        return total;
+    }
+
+    private void sweep() {
+        try {
+            int deleted = sweepOrphans();
+            if (deleted > 0) {
+                log.info("Deleted {} unreferenced recipe content rows", deleted);
+            }
+        } catch (RuntimeException e) {
+            // Keep sweeping; a failed run would otherwise cancel the schedule
+            log.error("Error sweeping recipe content: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.RecipeSummary;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the newest-first recipe listing: the (created_at, id) of the last row returned.
+ * Encoded as URL-safe base64 so clients treat it as opaque.
+ */
+record RecipeCursor(LocalDateTime createdAt, UUID id) {
+
+    static RecipeCursor after(RecipeSummary last) {
+        return new RecipeCursor(last.getCreatedAt(), last.getId());
+    }
+
+    String encode() {
+        String plain = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static RecipeCursor decode(String cursor) {
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = plain.indexOf('|');
+            return new RecipeCursor(
+                    LocalDateTime.parse(plain.substring(0, separator)),
+                    UUID.fromString(plain.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeExportProperties;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a user's whole library as NDJSON, one recipe per line, straight from a database
+ * cursor. Memory use is bounded by the fetch size and write buffer, not the library size.
+ */
+@Service
+@Slf4j
+public class RecipeExportService {
+
+    private static final byte NEWLINE = '\n';
+
+    private final RecipeDao recipeDao;
+    private final ObjectMapper objectMapper;
+    private final RecipeExportProperties properties;
+
+    @Autowired
+    public RecipeExportService(RecipeDao recipeDao, ObjectMapper objectMapper, RecipeExportProperties properties) {
+        this.recipeDao = recipeDao;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the number of recipes written. Does not close {@code out}.
+     */
+    public long exportRecipes(UUID userId, OutputStream out, boolean gzip) throws IOException {
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, properties.bufferSize()) : null;
+        OutputStream buffered = new BufferedOutputStream(gzip ? gzipOut : out, properties.bufferSize());
+        long[] count = {0};
+
+        try {
+            recipeDao.forEachByUserId(userId, properties.fetchSize(), recipe -> {
+                try {
+                    buffered.write(objectMapper.writeValueAsBytes(recipe));
+                    buffered.write(NEWLINE);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            log.error("Export for user {} aborted after {} recipes: {}", userId, count[0], e.getMessage());
+            throw e.getCause();
+        }
+
+        buffered.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        log.info("Exported {} recipes for user {}", count[0], userId);
+        return count[0];
+    }
+}
@@ -0,0 +1,163 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeFetchCacheProperties;
+import com.ciav.staceymeals.model.Recipe;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared cache of parsed recipes keyed by source URL.
+ * <p>
+ * Concurrent requests for a URL that isn't fresh in the cache are coalesced onto a single
+ * load. Entries past their TTL are kept for a while longer so the next load can revalidate
+ * them with the origin's validators; a 304 refreshes the entry without re-parsing.
+ * Callers always get their own copy of the cached recipe.
+ * <p>
+ * Each lookup is counted under exactly one result: {@code hit}, {@code coalesced},
+ * {@code revalidated} (the origin answered 304) or {@code miss} (the page was fetched and
+ * parsed again, or the load failed).
+ */
+@Component
+@Slf4j
+public class RecipeFetchCache {
+
+    /**
+     * Fetches a page, sending conditional headers from {@code previous} when it is not null.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        FetchResponse load(String url, CachedRecipe previous);
+    }
+
+    public record CachedRecipe(Recipe recipe, String etag, String lastModified, long fetchedAtNanos) {
+    }
+
+    public record FetchResponse(Recipe recipe, String etag, String lastModified) {
+        private static final FetchResponse NOT_MODIFIED = new FetchResponse(null, null, null);
+
+        public static FetchResponse notModified() {
+            return NOT_MODIFIED;
+        }
+
+        public static FetchResponse fetched(Recipe recipe, String etag, String lastModified) {
+            return new FetchResponse(recipe, etag, lastModified);
+        }
+
+        public boolean isNotModified() {
+            return recipe == null;
+        }
+    }
+
+    private final Cache<String, CachedRecipe> cache;
+    private final ConcurrentMap<String, CompletableFuture<CachedRecipe>> inFlight = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+
+    @Autowired
+    public RecipeFetchCache(RecipeFetchCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfterWrite(properties.staleRetention())
+                .build();
+        this.ttlNanos = properties.ttl().toNanos();
+
+        counter(meterRegistry, "hit", hits);
+        counter(meterRegistry, "miss", misses);
+        counter(meterRegistry, "coalesced", coalesced);
+        counter(meterRegistry, "revalidated", revalidated);
+        Gauge.builder("recipe.fetch.cache.size", cache, Cache::estimatedSize)
+                .description("Source URLs held in the recipe fetch cache")
+                .register(meterRegistry);
+    }
+
+    public Recipe get(String url, Loader loader) {
+        CachedRecipe cached = cache.getIfPresent(url);
+        if (isFresh(cached)) {
+            hits.increment();
+            return copy(cached.recipe());
+        }
+
+        CompletableFuture<CachedRecipe> load = new CompletableFuture<>();
+        CompletableFuture<CachedRecipe> existing = inFlight.putIfAbsent(url, load);
+        if (existing != null) {
+            coalesced.increment();
+            return copy(await(existing).recipe());
+        }
+
+        try {
+            // Another caller may have finished loading between our lookup and claiming the URL
+            cached = cache.getIfPresent(url);
+            if (isFresh(cached)) {
+                hits.increment();
+                load.complete(cached);
+                return copy(cached.recipe());
+            }
+
+            FetchResponse response = loader.load(url, cached);
+            CachedRecipe entry;
+            if (response.isNotModified() && cached != null) {
+                revalidated.increment();
+                entry = new CachedRecipe(cached.recipe(), cached.etag(), cached.lastModified(), System.nanoTime());
+            } else {
+                misses.increment();
+                entry = new CachedRecipe(response.recipe(), response.etag(), response.lastModified(), System.nanoTime());
+            }
+            cache.put(url, entry);
+            load.complete(entry);
+            return copy(entry.recipe());
+        } catch (RuntimeException e) {
+            misses.increment();
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(url, load);
+        }
+    }
+
+    private boolean isFresh(CachedRecipe cached) {
+        return cached != null && System.nanoTime() - cached.fetchedAtNanos() < ttlNanos;
+    }
+
+    private static CachedRecipe await(CompletableFuture<CachedRecipe> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Recipe copy(Recipe recipe) {
+        return recipe.toBuilder()
+                .ingredients(recipe.getIngredients() != null ? new ArrayList<>(recipe.getIngredients()) : null)
+                .steps(recipe.getSteps() != null ? new ArrayList<>(recipe.getSteps()) : null)
+                .categories(new ArrayList<>())
+                .build();
+    }
+
+    private static void counter(MeterRegistry registry, String result, LongAdder adder) {
+        FunctionCounter.builder("recipe.fetch.cache.requests", adder, LongAdder::sum)
+                .description("Recipe fetch cache lookups by result")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,215 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeImportProperties;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeImportResult;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Imports many recipe URLs at once. Fetches run on a shared pool sized to the global cap;
+ * within an import, each host gets at most {@code perHostConcurrency} lanes so one slow site
+ * can't take every slot. Results are handed to the listener as they finish, with successes
+ * written in batches before being reported.
+ */
+@Service
+@Slf4j
+public class RecipeImportService {
+
+    private static final long BATCH_FLUSH_INTERVAL_MS = 500;
+
+    private final RecipeService recipeService;
+    private final RecipeImportProperties properties;
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService coordinatorExecutor;
+
+    @Autowired
+    public RecipeImportService(RecipeService recipeService, RecipeImportProperties properties) {
+        this.recipeService = recipeService;
+        this.properties = properties;
+        this.fetchExecutor = Executors.newFixedThreadPool(
+                properties.globalConcurrency(), daemonThreads("recipe-import-fetch-"));
+        this.coordinatorExecutor = Executors.newCachedThreadPool(daemonThreads("recipe-import-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+        coordinatorExecutor.shutdownNow();
+    }
+
+    public CompletableFuture<Void> importRecipes(UUID userId, List<String> urls, Consumer<RecipeImportResult> listener) {
+        List<String> distinctUrls = urls.stream()
+                .map(String::strip)
+                .filter(url -> !url.isEmpty())
+                .distinct()
+                .toList();
+
+        if (distinctUrls.size() > properties.maxUrls()) {
+            String msg = "Too many URLs in one import: " + distinctUrls.size() + " (max " + properties.maxUrls() + ")";
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        }
+
+        return CompletableFuture.runAsync(() -> new ImportRun(userId, listener).run(distinctUrls), coordinatorExecutor);
+    }
+
+    private record FetchOutcome(String host, String url, Recipe recipe, String error) {
+    }
+
+    /**
+     * State for one import request. Everything except {@link #completed} is only touched
+     * from the coordinator thread.
+     */
+    private class ImportRun {
+        private final UUID userId;
+        private final Consumer<RecipeImportResult> listener;
+        private final BlockingQueue<FetchOutcome> completed = new LinkedBlockingQueue<>();
+        private final Map<String, Deque<String>> lanes = new HashMap<>();
+        private final List<Future<?>> inFlight = new ArrayList<>();
+        private final List<Recipe> batch = new ArrayList<>();
+        private final List<String> batchUrls = new ArrayList<>();
+
+        ImportRun(UUID userId, Consumer<RecipeImportResult> listener) {
+            this.userId = userId;
+            this.listener = listener;
+        }
+
+        void run(List<String> urls) {
+            int remaining = 0;
+            for (String url : urls) {
+                String host = hostOf(url);
+                if (host == null) {
+                    listener.accept(failed(url, "Not a valid absolute URL"));
+                } else {
+                    lanes.computeIfAbsent(host, h -> new ArrayDeque<>()).add(url);
+                    remaining++;
+                }
+            }
+
+            try {
+                for (String host : lanes.keySet()) {
+                    for (int i = 0; i < properties.perHostConcurrency(); i++) {
+                        startNext(host);
+                    }
+                }
+
+                while (remaining > 0) {
+                    FetchOutcome outcome = completed.poll(BATCH_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (outcome == null) {
+                        flush();
+                        continue;
+                    }
+                    remaining--;
+                    startNext(outcome.host());
+
+                    if (outcome.recipe() == null) {
+                        listener.accept(failed(outcome.url(), outcome.error()));
+                        continue;
+                    }
+                    outcome.recipe().setUserId(userId);
+                    batch.add(outcome.recipe());
+                    batchUrls.add(outcome.url());
+                    if (batch.size() >= properties.batchSize()) {
+                        flush();
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+            } catch (RuntimeException e) {
+                // Most likely the client went away mid-stream; stop fetching on its behalf
+                log.error("Recipe import for user {} aborted: {}", userId, e.getMessage());
+                cancel();
+                throw e;
+            }
+        }
+
+        private void startNext(String host) {
+            Deque<String> lane = lanes.get(host);
+            String url = lane.poll();
+            if (url == null) {
+                return;
+            }
+            inFlight.add(fetchExecutor.submit(() -> completed.add(fetch(host, url))));
+        }
+
+        private FetchOutcome fetch(String host, String url) {
+            try {
+                return new FetchOutcome(host, url, recipeService.extractRecipe(url), null);
+            } catch (ResponseStatusException e) {
+                return new FetchOutcome(host, url, null, e.getReason());
+            } catch (RuntimeException e) {
+                log.error("Unexpected error importing {}: {}", url, e.getMessage());
+                return new FetchOutcome(host, url, null, e.getMessage());
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<RecipeImportResult> results = new ArrayList<>(batch.size());
+            try {
+                recipeService.saveRecipes(new ArrayList<>(batch));
+                for (int i = 0; i < batch.size(); i++) {
+                    results.add(RecipeImportResult.builder()
+                            .url(batchUrls.get(i))
+                            .status(RecipeImportResult.Status.SAVED)
+                            .recipeId(batch.get(i).getId())
+                            .build());
+                }
+            } catch (RuntimeException e) {
+                log.error("Error saving batch of {} imported recipes: {}", batch.size(), e.getMessage());
+                for (String url : batchUrls) {
+                    results.add(failed(url, "Could not save recipe"));
+                }
+            }
+            batch.clear();
+            batchUrls.clear();
+            results.forEach(listener);
+        }
+
+        private void cancel() {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static RecipeImportResult failed(String url, String error) {
+        return RecipeImportResult.builder()
+                .url(url)
+                .status(RecipeImportResult.Status.FAILED)
+                .error(error)
+                .build();
+    }
+
+    static String hostOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            String scheme = uri.getScheme();
+            if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+                return null;
+            }
+            return uri.getHost().toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+}
@@ -0,0 +1,411 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeFetchProperties;
+import com.ciav.staceymeals.parser.HtmlRecipeScanner;
+import lombok.extern.slf4j.Slf4j;
+import org.brotli.dec.BrotliInputStream;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Downloads recipe pages for {@link RecipeService}.
+ * <p>
+ * In {@link RecipeFetchProperties.Mode#SCAN} mode pages come through one shared HTTP/2 client
+ * (HTTP/1.1 where the site doesn't offer it) that keeps connections open between fetches and
+ * accepts gzip, deflate and brotli. A body whose Content-Type names no charset is decoded as its
+ * byte order mark or {@code <meta>} charset says, as a browser would, else as UTF-8. The decoded
+ * body goes through {@link HtmlRecipeScanner},
+ * and the connection is dropped once the Recipe block is complete, so most of a long page is
+ * never transferred. If the scan finds nothing, the bytes read so far plus the rest of the
+ * body are parsed into a Jsoup {@link Document} instead. {@link RecipeFetchProperties.Mode#DOM}
+ * mode is the plain Jsoup download and parse, kept for comparison.
+ */
+@Component
+@Slf4j
+public class RecipePageFetcher {
+
+    static final String USER_AGENT = "Mozilla/5.0 (compatible; StaceyMealsBot/1.0)";
+
+    // How far browsers look for a <meta> charset declaration (the HTML encoding prescan)
+    private static final int PRESCAN_BYTES = 1024;
+    // Matches both <meta charset="..."> and <meta http-equiv="Content-Type" content="...; charset=...">
+    private static final Pattern META_CHARSET = Pattern.compile(
+            "<meta\\s[^>]*?charset\\s*=\\s*[\"']?\\s*([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A fetched page. For 2xx responses exactly one of {@code scanned} and {@code document} is
+     * set; for anything else both are null and the body was not read.
+     */
+    public record Page(int status, String etag, String lastModified, long bytesRead,
+                       HtmlRecipeScanner.Result scanned, Document document) {
+    }
+
+    private final RecipeFetchProperties properties;
+    private final HttpClient client;
+
+    @Autowired
+    public RecipePageFetcher(RecipeFetchProperties properties) {
+        this.properties = properties;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(properties.connectTimeout())
+                .build();
+    }
+
+    /**
+     * Fetches a page, sending {@code If-None-Match}/{@code If-Modified-Since} for whichever
+     * validators are non-null.
+     */
+    public Page fetch(String url, String etag, String lastModified) throws IOException {
+        return properties.mode() == RecipeFetchProperties.Mode.DOM
+                ? fetchDocument(url, etag, lastModified)
+                : scan(url, etag, lastModified);
+    }
+
+    private Page scan(String url, String etag, String lastModified) throws IOException {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException("Not a valid http(s) URL: " + url);
+        }
+        request.timeout(properties.timeout())
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate, br");
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        long deadline = System.nanoTime() + properties.timeout().toNanos();
+        HttpResponse<Flow.Publisher<List<ByteBuffer>>> response;
+        try {
+            response = client.send(request.GET().build(), HttpResponse.BodyHandlers.ofPublisher());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching " + url);
+        }
+
+        BodyStream body = new BodyStream(deadline);
+        response.body().subscribe(body);
+        String newEtag = response.headers().firstValue("ETag").orElse(null);
+        String newLastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            body.close();
+            return new Page(response.statusCode(), newEtag, newLastModified, 0, null, null);
+        }
+
+        String charsetName = charsetOf(response.headers().firstValue("Content-Type").orElse(null));
+        try (CappedStream page = new CappedStream(decode(body, response.headers().firstValue("Content-Encoding").orElse(null)),
+                properties.maxBodySize().toBytes())) {
+            InputStream text = page;
+            if (charsetName == null) {
+                BufferedInputStream head = new BufferedInputStream(page, 8192);
+                charsetName = sniffCharset(head);
+                text = head;
+            }
+            Optional<HtmlRecipeScanner.Result> scanned = HtmlRecipeScanner.scan(
+                    new InputStreamReader(text, scanCharset(charsetName)));
+            if (scanned.isPresent()) {
+                return new Page(response.statusCode(), newEtag, newLastModified, page.count(), scanned.get(), null);
+            }
+            log.info("No JSON-LD recipe found by scanning {}; parsing the full page", url);
+            byte[] bytes = page.readFully();
+            Document document = Jsoup.parse(new ByteArrayInputStream(bytes), charsetName, url);
+            return new Page(response.statusCode(), newEtag, newLastModified, bytes.length, null, document);
+        } finally {
+            // Whatever is left of the body is not wanted
+            body.close();
+        }
+    }
+
+    private Page fetchDocument(String url, String etag, String lastModified) throws IOException {
+        Connection connection = Jsoup.connect(url)
+                .userAgent(USER_AGENT)
+                .timeout((int) properties.timeout().toMillis())
+                .maxBodySize((int) properties.maxBodySize().toBytes())
+                .ignoreHttpErrors(true);
+        if (etag != null) {
+            connection.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            connection.header("If-Modified-Since", lastModified);
+        }
+
+        Connection.Response response = connection.execute();
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            return new Page(response.statusCode(), response.header("ETag"), response.header("Last-Modified"), 0, null, null);
+        }
+        long bytes = response.bodyAsBytes().length;
+        return new Page(response.statusCode(), response.header("ETag"), response.header("Last-Modified"),
+                bytes, null, response.parse());
+    }
+
+    private static InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return body;
+        }
+        return switch (contentEncoding.strip().toLowerCase(Locale.ROOT)) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(body, 8192);
+            case "deflate" -> new InflaterInputStream(body);
+            case "br" -> new BrotliInputStream(body);
+            default -> body;
+        };
+    }
+
+    /**
+     * The charset named in a Content-Type header, or null to let Jsoup detect it.
+     */
+    static String charsetOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String[] pair = parameter.strip().split("=", 2);
+            if (pair.length == 2 && pair[0].strip().equalsIgnoreCase("charset")) {
+                return pair[1].strip().replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The charset a byte order mark or {@code <meta>} declaration in the first
+     * {@value #PRESCAN_BYTES} bytes names, or null if there is none we can decode. The stream
+     * is reset to where it was.
+     */
+    static String sniffCharset(BufferedInputStream in) throws IOException {
+        in.mark(PRESCAN_BYTES);
+        byte[] head = in.readNBytes(PRESCAN_BYTES);
+        in.reset();
+
+        if (head.length >= 3 && (head[0] & 0xff) == 0xEF && (head[1] & 0xff) == 0xBB && (head[2] & 0xff) == 0xBF) {
+            return "UTF-8";
+        }
+        if (head.length >= 2 && (head[0] & 0xff) == 0xFE && (head[1] & 0xff) == 0xFF) {
+            return "UTF-16BE";
+        }
+        if (head.length >= 2 && (head[0] & 0xff) == 0xFF && (head[1] & 0xff) == 0xFE) {
+            return "UTF-16LE";
+        }
+        // Every byte maps to one char, so the ASCII markup reads the same whatever the charset
+        Matcher meta = META_CHARSET.matcher(new String(head, StandardCharsets.ISO_8859_1));
+        if (!meta.find()) {
+            return null;
+        }
+        String declared = meta.group(1);
+        // A page that got this far in ASCII can't really be UTF-16, so browsers read it as UTF-8
+        if (declared.toLowerCase(Locale.ROOT).startsWith("utf-16")) {
+            return "UTF-8";
+        }
+        try {
+            return Charset.isSupported(declared) ? declared : null;
+        } catch (IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    private static Charset scanCharset(String charsetName) {
+        if (charsetName == null) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(charsetName);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * Counts decoded bytes, stops at the cap and keeps a copy of everything read in case the
+     * page has to be parsed in full afterwards.
+     */
+    private static final class CappedStream extends InputStream {
+        private final InputStream in;
+        private final long cap;
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream(8192);
+        private long count;
+
+        CappedStream(InputStream in, long cap) {
+            this.in = in;
+            this.cap = cap;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (count >= cap) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, cap - count));
+            if (n > 0) {
+                count += n;
+                copy.write(b, off, n);
+            }
+            return n;
+        }
+
+        long count() {
+            return count;
+        }
+
+        /**
+         * Reads up to the cap and returns every byte read, including those already scanned.
+         */
+        byte[] readFully() throws IOException {
+            byte[] chunk = new byte[8192];
+            while (read(chunk, 0, chunk.length) >= 0) {
+                // Keeps the copy growing
+            }
+            return copy.toByteArray();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * The response body as a blocking stream with an overall deadline. The JDK's own
+     * {@code ofInputStream} handler waits indefinitely on a stalled server.
+     */
+    private static final class BodyStream extends InputStream implements Flow.Subscriber<List<ByteBuffer>> {
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> chunks = new LinkedBlockingQueue<>();
+        private final long deadline;
+        private volatile Flow.Subscription subscription;
+        private Iterator<ByteBuffer> buffers;
+        private ByteBuffer current;
+        private boolean done;
+
+        BodyStream(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            chunks.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            chunks.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            chunks.add(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || !current.hasRemaining()) {
+                if (buffers != null && buffers.hasNext()) {
+                    current = buffers.next();
+                    continue;
+                }
+                if (done || !nextChunk()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, current.remaining());
+            current.get(b, off, n);
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            Object chunk;
+            try {
+                chunk = chunks.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            if (chunk == null) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            if (chunk == END) {
+                done = true;
+                return false;
+            }
+            if (chunk instanceof Throwable error) {
+                done = true;
+                throw error instanceof IOException io ? io : new IOException(error);
+            }
+            @SuppressWarnings("unchecked")
+            List<ByteBuffer> list = (List<ByteBuffer>) chunk;
+            buffers = list.iterator();
+            subscription.request(1);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            Flow.Subscription s = subscription;
+            if (!done && s != null) {
+                done = true;
+                s.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.RecipeSummary;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a recipe query: the sort it belongs to plus the sort key and id of the last row
+ * returned. A cursor is only valid for the sort that issued it.
+ */
+record RecipeQueryCursor(RecipeSummary.Sort sort, String key, UUID id) {
+
+    static RecipeQueryCursor after(RecipeSummary.Sort sort, RecipeSummary last) {
+        String key = switch (sort) {
+            case NEWEST -> last.getCreatedAt().toString();
+            case TOTAL_TIME -> Integer.toString(totalTimeKey(last.getTotalSeconds()));
+            case RATING -> Integer.toString(last.getRating());
+        };
+        return new RecipeQueryCursor(sort, key, last.getId());
+    }
+
+    /**
+     * Recipes without a total time sort last, as in {@code RecipeDao.QUERY_BY_TOTAL_TIME}.
+     */
+    static int totalTimeKey(Integer totalSeconds) {
+        return totalSeconds == null ? Integer.MAX_VALUE : totalSeconds;
+    }
+
+    LocalDateTime createdAt() {
+        return LocalDateTime.parse(key);
+    }
+
+    int intKey() {
+        return Integer.parseInt(key);
+    }
+
+    String encode() {
+        String plain = sort + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static RecipeQueryCursor decode(String cursor, RecipeSummary.Sort expectedSort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+            RecipeQueryCursor decoded = new RecipeQueryCursor(
+                    RecipeSummary.Sort.valueOf(parts[0]), parts[1], UUID.fromString(parts[2]));
+            if (decoded.sort() != expectedSort) {
+                throw new IllegalArgumentException("Cursor is for sort " + decoded.sort());
+            }
+            // Fail here rather than in the query
+            if (expectedSort == RecipeSummary.Sort.NEWEST) {
+                decoded.createdAt();
+            } else {
+                decoded.intKey();
+            }
+            return decoded;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+}
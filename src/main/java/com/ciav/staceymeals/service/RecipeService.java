@@ -1,12 +1,24 @@
 package com.ciav.staceymeals.service;
 
+import com.ciav.staceymeals.config.RecipeLoadingProperties;
 import com.ciav.staceymeals.db.dao.RecipeCategoriesDao;
 import com.ciav.staceymeals.db.dao.RecipeDao;
 import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.PagedResult;
+import com.ciav.staceymeals.model.PantryIndexStats;
+import com.ciav.staceymeals.model.PantryMatch;
 import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeSummary;
 import com.ciav.staceymeals.model.RecipesCategories;
+import com.ciav.staceymeals.parser.HtmlRecipeScanner;
+import com.ciav.staceymeals.parser.IngredientNormalizer;
+import com.ciav.staceymeals.parser.JsonLdRecipe;
+import com.ciav.staceymeals.parser.JsonLdRecipeParser;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
+import org.jsoup.HttpStatusException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -18,21 +30,44 @@ import org.threeten.extra.AmountFormats;
 import org.threeten.extra.PeriodDuration;
 
 import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Period;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 @Slf4j
 public class RecipeService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
     private final RecipeDao recipeDao;
     private final RecipeCategoriesDao recipeCategoriesDao;
+    private final RecipeFetchCache recipeFetchCache;
+    private final RecipePageFetcher recipePageFetcher;
+    private final UserLibraryCache userLibraryCache;
+    private final PantryIndex pantryIndex;
+    private final RecipeLoadingProperties.Strategy loadingStrategy;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
-    public RecipeService(RecipeDao recipeDao, RecipeCategoriesDao recipeCategoriesDao) {
+    public RecipeService(RecipeDao recipeDao,
+                         RecipeCategoriesDao recipeCategoriesDao,
+                         RecipeFetchCache recipeFetchCache,
+                         RecipePageFetcher recipePageFetcher,
+                         UserLibraryCache userLibraryCache,
+                         PantryIndex pantryIndex,
+                         RecipeLoadingProperties loadingProperties,
+                         MeterRegistry meterRegistry) {
         this.recipeDao = recipeDao;
         this.recipeCategoriesDao = recipeCategoriesDao;
+        this.recipeFetchCache = recipeFetchCache;
+        this.recipePageFetcher = recipePageFetcher;
+        this.userLibraryCache = userLibraryCache;
+        this.pantryIndex = pantryIndex;
+        this.loadingStrategy = loadingProperties.strategy();
+        this.meterRegistry = meterRegistry;
     }
 
     public Recipe fetchAndSaveRecipe(UUID userId, String url) {
@@ -42,67 +77,128 @@ public class RecipeService {
     }
 
     public Recipe saveRecipe(Recipe recipe) {
-        UUID savedId = recipeDao.save(recipe);
-        recipe.setId(savedId);
+        // Generate ID if not present (insert)
+        if (recipe.getId() == null) {
+            recipe.setId(UUID.randomUUID());
+        }
+        recipe.setIngredientTerms(IngredientNormalizer.terms(recipe.getIngredients()));
+
+        try {
+            UUID savedId = recipeDao.save(recipe);
+            recipe.setId(savedId);
 
-        if (recipe.getCategories() != null) {
-            List <RecipesCategories> recipesCategories = new ArrayList<>();
-            for (Category c : recipe.getCategories()) {
-                recipesCategories.add(new RecipesCategories(recipe.getId(), c.getId()));
+            if (recipe.getCategories() != null) {
+                List <RecipesCategories> recipesCategories = new ArrayList<>();
+                for (Category c : recipe.getCategories()) {
+                    recipesCategories.add(new RecipesCategories(recipe.getId(), c.getId()));
+                }
+                recipeCategoriesDao.saveBatch(recipesCategories);
             }
-            recipeCategoriesDao.saveBatch(recipesCategories);
+        } finally {
+            userLibraryCache.invalidate(recipe.getUserId());
         }
+        pantryIndex.upsert(recipe);
 
         log.info("Saved recipe: {}", recipe);
         return recipe;
     }
 
+    public List<Recipe> saveRecipes(List<Recipe> recipes) {
+        for (Recipe recipe : recipes) {
+            if (recipe.getId() == null) {
+                recipe.setId(UUID.randomUUID());
+            }
+            recipe.setIngredientTerms(IngredientNormalizer.terms(recipe.getIngredients()));
+        }
+
+        try {
+            // A URL the user already has is saved under that recipe's id
+            List<UUID> savedIds = recipeDao.saveBatch(recipes);
+            for (int i = 0; i < savedIds.size(); i++) {
+                recipes.get(i).setId(savedIds.get(i));
+            }
+            List<RecipesCategories> recipesCategories = new ArrayList<>();
+            for (Recipe recipe : recipes) {
+                if (recipe.getCategories() != null) {
+                    for (Category c : recipe.getCategories()) {
+                        recipesCategories.add(new RecipesCategories(recipe.getId(), c.getId()));
+                    }
+                }
+            }
+            if (!recipesCategories.isEmpty()) {
+                recipeCategoriesDao.saveBatch(recipesCategories);
+            }
+        } finally {
+            recipes.stream().map(Recipe::getUserId).distinct().forEach(userLibraryCache::invalidate);
+        }
+        recipes.forEach(pantryIndex::upsert);
+
+        log.info("Saved {} recipes in batch", recipes.size());
+        return recipes;
+    }
+
     public Recipe extractRecipe(String url) {
+        return recipeFetchCache.get(url, this::fetchRecipe);
+    }
+
+    RecipeFetchCache.FetchResponse fetchRecipe(String url, RecipeFetchCache.CachedRecipe previous) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        String failure = "io";
         try {
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Mozilla/5.0 (compatible; StaceyMealsBot/1.0)")
-                    .timeout(10_000)
-                    .get();
+            RecipePageFetcher.Page page = recipePageFetcher.fetch(url,
+                    previous != null ? previous.etag() : null,
+                    previous != null ? previous.lastModified() : null);
+            if (page.status() == HttpStatus.NOT_MODIFIED.value() && previous != null) {
+                log.info("Source unchanged, reusing cached recipe for URL: {}", url);
+                outcome = "not_modified";
+                return RecipeFetchCache.FetchResponse.notModified();
+            }
+            if (page.scanned() == null && page.document() == null) {
+                failure = "http_" + page.status() / 100 + "xx";
+                throw new HttpStatusException("HTTP error fetching URL", page.status(), url);
+            }
 
-            Recipe recipe = parseJsonLdRecipe(doc, url);
+            DistributionSummary.builder("recipe.fetch.bytes")
+                    .description("Decoded bytes read from fetched recipe pages")
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .record(page.bytesRead());
+
+            failure = "no_recipe";
+            HtmlRecipeScanner.Result scanned = page.scanned();
+            Recipe recipe = scanned != null
+                    ? buildRecipe(scanned.recipe(), scanned.json(), scanned.title(), url)
+                    : parseJsonLdRecipe(page.document(), url);
+            meterRegistry.counter("recipe.fetch.parse", "method", scanned != null ? "scan" : "dom").increment();
             log.info("Extracted recipe using JSON-LD from URL: {}", url);
-            return recipe;
+            outcome = "success";
+            return RecipeFetchCache.FetchResponse.fetched(recipe, page.etag(), page.lastModified());
 
         } catch (IOException e) {
+            if (e instanceof SocketTimeoutException || e instanceof HttpTimeoutException) {
+                failure = "timeout";
+            }
             log.error("Error fetching URL {}: {}", url, e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } finally {
+            sample.stop(Timer.builder("recipe.fetch")
+                    .description("Outbound recipe page fetches, including parsing")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            if ("failure".equals(outcome)) {
+                meterRegistry.counter("recipe.fetch.failures", "reason", failure).increment();
+            }
         }
     }
 
-    private Recipe parseJsonLdRecipe(Document doc, String sourceUrl) {
+    Recipe parseJsonLdRecipe(Document doc, String sourceUrl) {
         Elements scripts = doc.select("script[type=application/ld+json]");
         for (Element script : scripts) {
-            String json = script.html();
-            if (json.contains("\"@type\"") && json.toLowerCase().contains("recipe")) {
-                List<String> ingredients = extractJsonArrayField(json, "recipeIngredient");
-                if (ingredients.isEmpty())
-                    ingredients = extractJsonArrayField(json, "ingredients");
-
-                List<String> steps = extractJsonTextFromInstructions(json);
-                String thumbnailUrl = extractJsonField(json, "thumbnailUrl").orElse("");
-
-                String prepTime = extractTime(extractJsonField(json, "prepTime").orElse(""));
-                String cookTime = extractTime(extractJsonField(json, "cookTime").orElse(""));
-                String totalTime = extractTime(extractJsonField(json, "totalTime").orElse(""));
-                String servings = extractJsonField(json, "recipeYield").orElse("0");
-
-                return Recipe.builder()
-                        .sourceUrl(sourceUrl)
-                        .title(doc.title())
-                        .ingredients(ingredients)
-                        .steps(steps)
-                        .thumbnailUrl(thumbnailUrl)
-                        .raw(json)
-                        .prepTime(prepTime)
-                        .cookTime(cookTime)
-                        .totalTime(totalTime)
-                        .servings(servings)
-                        .build();
+            Optional<Recipe> recipe = buildRecipe(script.data(), doc.title(), sourceUrl);
+            if (recipe.isPresent()) {
+                return recipe.get();
             }
         }
         String msg = "No recipe data found at the provided URL: " + sourceUrl;
@@ -110,36 +206,40 @@ public class RecipeService {
         throw new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
     }
 
-    private Optional<String> extractJsonField(String json, String field) {
-        Pattern p = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*\"([^\"]+)\"");
-        Matcher m = p.matcher(json);
-        if (m.find()) return Optional.of(m.group(1));
-        return Optional.empty();
+    private Optional<Recipe> buildRecipe(String json, String title, String sourceUrl) {
+        return JsonLdRecipeParser.parse(json).map(parsed -> buildRecipe(parsed, json, title, sourceUrl));
     }
 
-    private List<String> extractJsonArrayField(String json, String field) {
-        List<String> out = new ArrayList<>();
-        Pattern p = Pattern.compile("\"" + Pattern.quote(field) + "\"\\s*:\\s*\\[(.*?)\\]", Pattern.DOTALL);
-        Matcher m = p.matcher(json);
-        if (m.find()) {
-            String inside = m.group(1);
-            Pattern q = Pattern.compile("\\\"([^\\\"]+)\\\"");
-            Matcher mq = q.matcher(inside);
-            while (mq.find()) out.add(mq.group(1));
+    private Recipe buildRecipe(JsonLdRecipe parsed, String json, String title, String sourceUrl) {
+        Integer prepSeconds = extractSeconds(parsed.getPrepTime());
+        Integer cookSeconds = extractSeconds(parsed.getCookTime());
+        Integer totalSeconds = extractSeconds(parsed.getTotalTime());
+        // Many pages give prep and cook time but no total
+        if (totalSeconds == null && (prepSeconds != null || cookSeconds != null)) {
+            totalSeconds = Objects.requireNonNullElse(prepSeconds, 0) + Objects.requireNonNullElse(cookSeconds, 0);
         }
-        return out;
-    }
-
-    private List<String> extractJsonTextFromInstructions(String json) {
-        List<String> out = new ArrayList<>();
-        Pattern p = Pattern.compile("\\\"text\\\"\\s*:\\s*\\\"([^\\\"]+)\\\"");
-        Matcher m = p.matcher(json);
-        while (m.find()) out.add(m.group(1));
-        return out;
+        return Recipe.builder()
+                .sourceUrl(sourceUrl)
+                .title(title)
+                .ingredients(parsed.getIngredients())
+                .steps(parsed.getSteps())
+                .thumbnailUrl(Objects.requireNonNullElse(parsed.getThumbnailUrl(), ""))
+                .raw(json)
+                .prepTime(extractTime(parsed.getPrepTime()))
+                .cookTime(extractTime(parsed.getCookTime()))
+                .totalTime(extractTime(parsed.getTotalTime()))
+                .prepSeconds(prepSeconds)
+                .cookSeconds(cookSeconds)
+                .totalSeconds(totalSeconds)
+                .servings(Objects.requireNonNullElse(parsed.getRecipeYield(), "0"))
+                .build();
     }
 
-    private String extractTime(String isoTime){
+    String extractTime(String isoTime){
         String time = "";
+        if (isoTime == null || isoTime.isBlank()) {
+            return time;
+        }
         try {
             PeriodDuration pd = PeriodDuration.parse(isoTime);
             time = AmountFormats.wordBased(pd.getPeriod(), pd.getDuration(), Locale.getDefault());
@@ -149,17 +249,139 @@ public class RecipeService {
         return time;
     }
 
+    /**
+     * The ISO-8601 duration in seconds, or null if there is none or it doesn't parse. A month
+     * counts as 30 days and a year as 365.25, as Postgres does in the V11 backfill.
+     */
+    static Integer extractSeconds(String isoTime) {
+        if (isoTime == null || isoTime.isBlank()) {
+            return null;
+        }
+        try {
+            PeriodDuration pd = PeriodDuration.parse(isoTime.strip());
+            Period period = pd.getPeriod();
+            long seconds = pd.getDuration().getSeconds()
+                    + period.getDays() * 86_400L
+                    + period.getMonths() * 30 * 86_400L
+                    + period.getYears() * 31_557_600L;
+            return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+        } catch (Exception e) {
+            // extractTime has already logged it
+            return null;
+        }
+    }
+
     public Map<UUID, Recipe> getRecipes(UUID userId) {
-        Map<UUID, Recipe> recipes = new HashMap<>();
-        List<Recipe> recipeList = recipeDao.findByUserId(userId);
-        for(Recipe r : recipeList){
-            recipes.put(r.getId(), r);
+        return userLibraryCache.get(userId, UserLibraryCache.Kind.RECIPES, null, () -> {
+            Map<UUID, Recipe> recipes = new HashMap<>();
+            List<Recipe> recipeList = switch (loadingStrategy) {
+                case JOIN -> recipeDao.findByUserId(userId);
+                case AGGREGATE -> recipeDao.findByUserIdAggregated(userId);
+                case BATCH -> recipeDao.findByUserIdBatched(userId);
+            };
+            for(Recipe r : recipeList){
+                recipes.put(r.getId(), r);
+            }
+            return recipes;
+        });
+    }
+
+    /**
+     * Newest-first page of recipe summaries, continuing after {@code cursor} when given.
+     */
+    public PagedResult<RecipeSummary> getRecipeSummaries(UUID userId, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Fetch one extra row to learn whether there is a next page
+        List<RecipeSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = recipeDao.findSummariesByUserId(userId, pageSize + 1);
+        } else {
+            RecipeCursor after = RecipeCursor.decode(cursor);
+            rows = recipeDao.findSummariesByUserIdBefore(userId, after.createdAt(), after.id(), pageSize + 1);
         }
-        return recipes;
+
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * Recipes filed under a category or anything beneath it, paged the same way as {@link #getRecipeSummaries}.
+     */
+    public PagedResult<RecipeSummary> getRecipeSummariesInCategory(UUID userId, UUID categoryId, String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // The recipe query's newest-first statements, with only the category filter set
+        RecipeCursor after = cursor == null || cursor.isBlank() ? null : RecipeCursor.decode(cursor);
+        List<RecipeSummary> rows = after == null
+                ? recipeDao.querySummariesNewest(userId, null, null, categoryId, pageSize + 1)
+                : recipeDao.querySummariesNewestAfter(userId, null, null, categoryId, after.createdAt(), after.id(),
+                        pageSize + 1);
+
+        return toPage(rows, pageSize);
+    }
+
+    /**
+     * Recipes filtered by maximum total time, minimum rating and category (with its
+     * descendants), any of which may be null, in the requested order. Recipes with no known
+     * total time are left out by a time filter and come last when sorting by time.
+     */
+    public PagedResult<RecipeSummary> queryRecipeSummaries(UUID userId, RecipeSummary.Sort sort,
+                                                           Integer maxTotalSeconds, Integer minRating, UUID categoryId,
+                                                           String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        RecipeQueryCursor after = cursor == null || cursor.isBlank() ? null : RecipeQueryCursor.decode(cursor, sort);
+        int fetch = pageSize + 1;
+        List<RecipeSummary> rows = switch (sort) {
+            case NEWEST -> after == null
+                    ? recipeDao.querySummariesNewest(userId, maxTotalSeconds, minRating, categoryId, fetch)
+                    : recipeDao.querySummariesNewestAfter(userId, maxTotalSeconds, minRating, categoryId,
+                            after.createdAt(), after.id(), fetch);
+            case TOTAL_TIME -> after == null
+                    ? recipeDao.querySummariesByTotalTime(userId, maxTotalSeconds, minRating, categoryId, fetch)
+                    : recipeDao.querySummariesByTotalTimeAfter(userId, maxTotalSeconds, minRating, categoryId,
+                            after.intKey(), after.id(), fetch);
+            case RATING -> after == null
+                    ? recipeDao.querySummariesByRating(userId, maxTotalSeconds, minRating, categoryId, fetch)
+                    : recipeDao.querySummariesByRatingAfter(userId, maxTotalSeconds, minRating, categoryId,
+                            after.intKey(), after.id(), fetch);
+        };
+        if (rows.size() <= pageSize) {
+            return new PagedResult<>(rows, null);
+        }
+        List<RecipeSummary> page = rows.subList(0, pageSize);
+        return new PagedResult<>(page, RecipeQueryCursor.after(sort, page.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * Ranked full-text search over titles, ingredients and steps.
+     */
+    public PagedResult<RecipeSummary> searchRecipes(UUID userId, String query, String cursor, Integer limit) {
+        if (query == null || query.isBlank()) {
+            String msg = "Search query must not be empty";
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int offset = cursor == null || cursor.isBlank() ? 0 : SearchCursor.decode(cursor).offset();
+
+        List<RecipeSummary> rows = recipeDao.searchSummaries(userId, query.strip(), pageSize + 1, offset);
+        if (rows.size() <= pageSize) {
+            return new PagedResult<>(rows, null);
+        }
+        return new PagedResult<>(rows.subList(0, pageSize), new SearchCursor(offset + pageSize).encode());
+    }
+
+    private static PagedResult<RecipeSummary> toPage(List<RecipeSummary> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new PagedResult<>(rows, null);
+        }
+        List<RecipeSummary> page = rows.subList(0, pageSize);
+        return new PagedResult<>(page, RecipeCursor.after(page.get(pageSize - 1)).encode());
     }
 
     public Recipe getRecipe(UUID userId, UUID recipeId) {
-        Recipe recipe = recipeDao.findByIdAndUserId(recipeId, userId)
+        Recipe recipe = Optional.ofNullable(userLibraryCache.get(userId, UserLibraryCache.Kind.RECIPE, recipeId,
+                        () -> recipeDao.findByIdAndUserId(recipeId, userId).orElse(null)))
                 .orElseThrow(() -> {
                     String msg = "Recipe not found. Recipe ID: " + recipeId + ", User ID: " + userId;
                     log.error(msg);
@@ -169,20 +391,82 @@ public class RecipeService {
         return recipe;
     }
 
+    /**
+     * The recipe's version and categories only, enough to compute its entity tag without
+     * loading the rest of it.
+     */
+    public Recipe getRecipeVersion(UUID userId, UUID recipeId) {
+        return recipeDao.findVersionByIdAndUserId(recipeId, userId)
+                .orElseThrow(() -> {
+                    String msg = "Recipe not found. Recipe ID: " + recipeId + ", User ID: " + userId;
+                    log.error(msg);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+                });
+    }
+
+    /**
+     * The recipe with its source JSON-LD attached. The cached recipe is left without it.
+     */
+    public Recipe getRecipeWithRaw(UUID userId, UUID recipeId) {
+        Recipe recipe = getRecipe(userId, recipeId);
+        return recipe.toBuilder()
+                .raw(recipeDao.findRawByIdAndUserId(recipeId, userId).orElse(null))
+                .build();
+    }
+
+    public String getRecipeRaw(UUID userId, UUID recipeId) {
+        return recipeDao.findRawByIdAndUserId(recipeId, userId)
+                .orElseThrow(() -> {
+                    String msg = "Recipe source not found. Recipe ID: " + recipeId + ", User ID: " + userId;
+                    log.error(msg);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+                });
+    }
+
     public Recipe updateRecipe(UUID userId, UUID recipeId, Recipe updatedRecipe) {
+        return updateRecipe(userId, recipeId, updatedRecipe, null);
+    }
+
+    /**
+     * Overwrites the recipe in a single conditional UPDATE. With an {@code expectedVersion}, fails
+     * with 412 if someone else has changed the recipe since the caller read that version.
+     */
+    public Recipe updateRecipe(UUID userId, UUID recipeId, Recipe updatedRecipe, Long expectedVersion) {
         updatedRecipe.setId(recipeId);
         updatedRecipe.setUserId(userId);
+        updatedRecipe.setIngredientTerms(IngredientNormalizer.terms(updatedRecipe.getIngredients()));
 
-        // Confirm recipe exists - exception will be thrown if not found
-        getRecipe(userId, recipeId);
-
-        recipeDao.save(updatedRecipe);
+        Optional<Long> version;
+        try {
+            version = recipeDao.update(updatedRecipe, expectedVersion);
+        } finally {
+            userLibraryCache.invalidate(userId);
+        }
+        if (version.isEmpty()) {
+            // Only the failure path pays for telling a stale version from a missing recipe
+            if (expectedVersion != null && recipeDao.existsByIdAndUserId(recipeId, userId)) {
+                String msg = "Recipe has changed since version " + expectedVersion + ". Recipe ID: " + recipeId;
+                log.error(msg);
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, msg);
+            }
+            String msg = "Recipe not found. Recipe ID: " + recipeId + ", User ID: " + userId;
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+        }
+        updatedRecipe.setVersion(version.get());
+        // The update leaves categories alone; return the stored ones, which the entity tag covers
+        updatedRecipe.setCategories(recipeDao.findVersionByIdAndUserId(recipeId, userId)
+                .map(Recipe::getCategories)
+                .orElseGet(ArrayList::new));
+        pantryIndex.upsert(updatedRecipe);
 
         return updatedRecipe;
     }
 
     public void deleteRecipe(UUID userId, UUID recipeId) {
         int numDeleted = recipeDao.deleteByIdAndUserId(recipeId, userId);
+        userLibraryCache.invalidate(userId);
+        pantryIndex.remove(userId, recipeId);
         if (numDeleted < 1) {
             String msg = "Recipe not found. Recipe ID: " + recipeId + ", User ID: " + userId;
             log.error(msg);
@@ -190,15 +474,37 @@ public class RecipeService {
         }
     }
 
-    public RecipesCategories categorizeRecipe(UUID recipeId, UUID categoryId) {
+    /**
+     * Recipes ranked by how much of their ingredient list the pantry covers.
+     */
+    public List<PantryMatch> matchPantry(UUID userId, List<String> pantry, Integer limit) {
+        if (pantry == null || pantry.isEmpty()) {
+            String msg = "Pantry must list at least one ingredient";
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return pantryIndex.match(userId, pantry, pageSize);
+    }
+
+    public PantryIndexStats getPantryIndexStats(UUID userId) {
+        return pantryIndex.stats(userId);
+    }
+
+    public RecipesCategories categorizeRecipe(UUID userId, UUID recipeId, UUID categoryId) {
         RecipesCategories recipeCategory = new RecipesCategories(recipeId, categoryId);
-        recipeCategoriesDao.save(recipeCategory);
+        try {
+            recipeCategoriesDao.save(recipeCategory);
+        } finally {
+            userLibraryCache.invalidate(userId);
+        }
         log.info("Saved recipe category: {}", recipeCategory);
         return recipeCategory;
     }
 
-    public void uncategorizeRecipe(UUID recipeId, UUID categoryId) {
+    public void uncategorizeRecipe(UUID userId, UUID recipeId, UUID categoryId) {
         int numDeleted = recipeCategoriesDao.delete(recipeId, categoryId);
+        userLibraryCache.invalidate(userId);
         if (numDeleted < 1) {
             String msg = "Recipe category not found. Recipe ID: " + recipeId + ", Category ID: " + categoryId;
             log.error(msg);
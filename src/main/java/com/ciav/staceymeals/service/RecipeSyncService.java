@@ -0,0 +1,193 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeSyncProperties;
+import com.ciav.staceymeals.db.dao.RecipeChangeDao;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeChange;
+import com.ciav.staceymeals.model.RecipeChanges;
+import com.ciav.staceymeals.model.RecipesCategories;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delta sync over the {@code recipe_changes} log, which database triggers keep for every write
+ * to recipes and their category links. A page of log entries is folded down to its net effect
+ * per recipe and per link, and upserted recipes are read as they are now, in one query. The
+ * log and the recipes are read in one snapshot.
+ * <p>
+ * A first sync pages through the library itself rather than the log, and its token picks the
+ * log up from the first page's snapshot, so anything that changes while the client pages is
+ * replayed afterwards. The log only keeps the retention's worth of changes; nodes with pruning
+ * enabled delete older entries, and a token from before them gets a 410, telling the client to
+ * sync again from scratch.
+ */
+@Service
+@Slf4j
+public class RecipeSyncService {
+
+    private final RecipeChangeDao recipeChangeDao;
+    private final RecipeSyncProperties properties;
+    private final ScheduledExecutorService scheduler;
+    private final Counter pruned;
+
+    @Autowired
+    public RecipeSyncService(RecipeChangeDao recipeChangeDao,
+                             RecipeSyncProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.recipeChangeDao = recipeChangeDao;
+        this.properties = properties;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(RecipeImportService.daemonThreads("recipe-change-prune-"));
+        this.pruned = Counter.builder("recipe.changes.pruned")
+                .description("Sync log entries deleted past the retention")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.pruneEnabled()) {
+            long interval = properties.pruneInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::prune, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Changes after {@code since}, or the whole library as upserts when it is null.
+     */
+    public RecipeChanges getChanges(UUID userId, String since, Integer limit) {
+        int pageSize = limit == null
+                ? RecipeService.DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(limit, RecipeService.MAX_PAGE_SIZE));
+        ChangeToken token = since == null ? null : ChangeToken.decode(since);
+        return recipeChangeDao.inSnapshot((changeDao, recipeDao) -> {
+            if (token == null) {
+                return readLibrary(recipeDao, userId, ChangeToken.beforeTransaction(changeDao.findSnapshotXmin()), pageSize);
+            }
+            if (token.isBefore(ChangeToken.after(changeDao.findPruned()))) {
+                String msg = "Sync token is older than the change log; sync again without one";
+                log.error(msg);
+                throw new ResponseStatusException(HttpStatus.GONE, msg);
+            }
+            return token.libraryAfter() != null
+                    ? readLibrary(recipeDao, userId, token, pageSize)
+                    : readChanges(changeDao, recipeDao, userId, token, pageSize);
+        });
+    }
+
+    /**
+     * Marks the log as pruned through the newest entry past the retention, then deletes
+     * everything up to it in batches; returns how many entries went. Tokens are refused before
+     * any entry they still need is gone.
+     */
+    public int pruneChanges() {
+        Optional<RecipeChange> horizon = recipeChangeDao.findNewestBefore(properties.retention().toSeconds());
+        if (horizon.isEmpty()) {
+            return 0;
+        }
+        long txid = horizon.get().getTxid();
+        long seq = horizon.get().getSeq();
+        recipeChangeDao.advancePruned(txid, seq);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = recipeChangeDao.deleteThrough(txid, seq, properties.pruneBatchSize());
+            total += deleted;
+            pruned.increment(deleted);
+        } while (deleted >= properties.pruneBatchSize());
+        return total;
+    }
+
+    private void prune() {
+        try {
+            int deleted = pruneChanges();
+            if (deleted > 0) {
+                log.info("Pruned {} recipe change log entries", deleted);
+            }
+        } catch (RuntimeException e) {
+            // Keep pruning; a failed run would otherwise cancel the schedule
+            log.error("Error pruning recipe changes: {}", e.getMessage());
+        }
+    }
+
+    private static RecipeChanges readLibrary(RecipeDao recipeDao, UUID userId, ChangeToken token, int pageSize) {
+        List<Recipe> recipes = token.libraryAfter() == null
+                ? recipeDao.findLibraryPage(userId, pageSize + 1)
+                : recipeDao.findLibraryPageAfter(userId, token.libraryAfter(), pageSize + 1);
+        boolean hasMore = recipes.size() > pageSize;
+        if (hasMore) {
+            recipes = recipes.subList(0, pageSize);
+        }
+
+        RecipeChanges changes = RecipeChanges.builder()
+                .token((hasMore ? token.inLibraryAfter(recipes.get(recipes.size() - 1).getId()) : token.inLog()).encode())
+                .hasMore(hasMore)
+                .build();
+        changes.getUpserted().addAll(recipes);
+        recipes.forEach(recipe -> recipe.getCategories().forEach(
+                category -> changes.getLinked().add(new RecipesCategories(recipe.getId(), category.getId()))));
+        return changes;
+    }
+
+    private static RecipeChanges readChanges(RecipeChangeDao changeDao, RecipeDao recipeDao, UUID userId,
+                                             ChangeToken token, int pageSize) {
+        List<RecipeChange> entries = changeDao.findAfter(userId, token.txid(), token.seq(), pageSize + 1);
+        boolean hasMore = entries.size() > pageSize;
+        if (hasMore) {
+            entries = entries.subList(0, pageSize);
+        }
+        if (entries.isEmpty()) {
+            return RecipeChanges.builder().token(token.encode()).build();
+        }
+
+        // Later entries win: last state per recipe, and per link
+        Map<UUID, RecipeChange.Kind> recipes = new LinkedHashMap<>();
+        Map<RecipesCategories, RecipeChange.Kind> links = new LinkedHashMap<>();
+        for (RecipeChange change : entries) {
+            switch (change.getKind()) {
+                case UPSERT, DELETE -> recipes.put(change.getRecipeId(), change.getKind());
+                case LINK, UNLINK -> links.put(new RecipesCategories(change.getRecipeId(), change.getCategoryId()), change.getKind());
+            }
+        }
+
+        RecipeChanges changes = RecipeChanges.builder()
+                .token(ChangeToken.after(entries.get(entries.size() - 1)).encode())
+                .hasMore(hasMore)
+                .build();
+
+        Set<UUID> upserted = new LinkedHashSet<>();
+        recipes.forEach((recipeId, kind) -> {
+            if (kind == RecipeChange.Kind.UPSERT) {
+                upserted.add(recipeId);
+            } else {
+                changes.getDeleted().add(recipeId);
+            }
+        });
+        if (!upserted.isEmpty()) {
+            List<Recipe> current = recipeDao.findByIdsAndUserId(upserted.toArray(UUID[]::new), userId);
+            changes.getUpserted().addAll(current);
+            // Deleted since this page was logged; its tombstone is further along the log
+            current.forEach(recipe -> upserted.remove(recipe.getId()));
+            changes.getDeleted().addAll(upserted);
+        }
+
+        links.forEach((link, kind) -> (kind == RecipeChange.Kind.LINK ? changes.getLinked() : changes.getUnlinked()).add(link));
+        return changes;
+    }
+}
@@ -0,0 +1,396 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.ThumbnailProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+
+/**
+ * Resized thumbnails on local disk, content-addressed by the SHA-256 of the source image so
+ * the same picture behind several URLs is stored once.
+ * <p>
+ * The first request for a source URL downloads it once and writes every configured width;
+ * a small index file maps the URL to its content hash. Thumbnails are evicted least recently
+ * served first once they outgrow {@code maxSize}; an evicted one is simply rebuilt on demand.
+ * Eviction spares thumbnails served within the last {@link #SERVING_GRACE}, since the response
+ * (or Tomcat's sendfile) may still be about to open them, so the cache can briefly run over.
+ * Concurrent requests for the same URL share one download.
+ */
+@Component
+@Slf4j
+public class ThumbnailCache {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    static final Duration SERVING_GRACE = Duration.ofMinutes(1);
+
+    private final ThumbnailProperties properties;
+    private final Path variantsDir;
+    private final Path indexDir;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    // Access-ordered, so iteration starts at the least recently served thumbnail
+    private final LinkedHashMap<Path, Cached> files = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private record Cached(long size, long servedAt) {
+    }
+
+    @Autowired
+    public ThumbnailCache(ThumbnailProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.variantsDir = properties.directory().resolve("variants");
+        this.indexDir = properties.directory().resolve("index");
+        try {
+            Files.createDirectories(variantsDir);
+            Files.createDirectories(indexDir);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open thumbnail cache at " + properties.directory(), e);
+        }
+        this.hits = meterRegistry.counter("thumbnail.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("thumbnail.cache.requests", "result", "miss");
+        Gauge.builder("thumbnail.cache.size", this, cache -> cache.totalBytes())
+                .description("Disk used by cached thumbnails")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The thumbnail of {@code sourceUrl} at {@code width}, fetching and resizing it first if needed.
+     */
+    public Path get(String sourceUrl, int width) {
+        if (!properties.widths().contains(width)) {
+            String msg = "Unsupported thumbnail width " + width + "; supported: " + properties.widths();
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, msg);
+        }
+
+        String indexed = readIndex(sourceUrl);
+        if (indexed != null) {
+            Path variant = touch(variantPath(indexed, width));
+            if (variant != null && Files.exists(variant)) {
+                hits.increment();
+                return variant;
+            }
+            if (variant != null) {
+                // Deleted behind our back; forgetting it makes the store below write it again
+                forget(variant);
+            }
+        }
+
+        misses.increment();
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(sourceUrl, load);
+        if (existing != null) {
+            return variantPath(await(existing), width);
+        }
+        try {
+            String contentHash = store(sourceUrl);
+            load.complete(contentHash);
+            return variantPath(contentHash, width);
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(sourceUrl, load);
+        }
+    }
+
+    synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    private String store(String sourceUrl) {
+        byte[] source = download(sourceUrl);
+        String contentHash = sha256(source);
+
+        boolean complete;
+        synchronized (this) {
+            complete = properties.widths().stream().allMatch(width -> files.containsKey(variantPath(contentHash, width)));
+        }
+        if (!complete) {
+            BufferedImage image = decode(sourceUrl, source);
+            for (int width : properties.widths()) {
+                write(variantPath(contentHash, width), resize(image, width));
+            }
+        }
+        writeAtomically(indexDir.resolve(sha256(sourceUrl.getBytes(StandardCharsets.UTF_8))),
+                contentHash.getBytes(StandardCharsets.US_ASCII));
+        evict(contentHash);
+        return contentHash;
+    }
+
+    private byte[] download(String sourceUrl) {
+        try {
+            Connection.Response response = Jsoup.connect(sourceUrl)
+                    .userAgent("Mozilla/5.0 (compatible; StaceyMealsBot/1.0)")
+                    .timeout((int) properties.fetchTimeout().toMillis())
+                    .maxBodySize((int) properties.maxSourceSize().toBytes())
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .execute();
+            if (response.statusCode() >= 400) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            return response.bodyAsBytes();
+        } catch (IOException e) {
+            String msg = "Could not fetch thumbnail source " + sourceUrl + ": " + e.getMessage();
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, msg);
+        }
+    }
+
+    /**
+     * Decodes the source, checking its declared dimensions before any pixels are allocated.
+     * Sources much wider than the largest thumbnail are subsampled while decoding, so they are
+     * never held at full size.
+     */
+    private BufferedImage decode(String sourceUrl, byte[] source) {
+        BufferedImage image = null;
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    long width = reader.getWidth(0);
+                    long height = reader.getHeight(0);
+                    if (width * height > properties.maxSourcePixels()) {
+                        String msg = "Thumbnail source is " + width + "x" + height + " pixels, over the limit of "
+                                + properties.maxSourcePixels() + ": " + sourceUrl;
+                        log.error(msg);
+                        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, msg);
+                    }
+                    // Keep at least twice the largest width so resize() still has pixels to filter
+                    int largest = Collections.max(properties.widths());
+                    int step = (int) Math.max(1, width / (2L * largest));
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(step, step, 0, 0);
+                    image = reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error decoding thumbnail source {}: {}", sourceUrl, e.getMessage());
+        }
+        if (image == null) {
+            String msg = "Thumbnail source is not a supported image: " + sourceUrl;
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, msg);
+        }
+        return image;
+    }
+
+    /**
+     * Scales to {@code width} (never up), halving at most per step so bilinear filtering doesn't
+     * skip pixels on large reductions. Transparency is flattened onto white for JPEG.
+     */
+    static BufferedImage resize(BufferedImage source, int width) {
+        int targetWidth = Math.min(width, source.getWidth());
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * targetWidth / source.getWidth()));
+
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private void write(Path target, BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        try {
+            Path temp = Files.createTempFile(variantsDir, "tmp-", ".jpg");
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            record(target, Files.size(target), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write thumbnail " + target, e);
+        }
+    }
+
+    private void writeAtomically(Path target, byte[] content) {
+        try {
+            Path temp = Files.createTempFile(target.getParent(), "tmp-", null);
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write thumbnail index " + target, e);
+        }
+    }
+
+    private String readIndex(String sourceUrl) {
+        Path entry = indexDir.resolve(sha256(sourceUrl.getBytes(StandardCharsets.UTF_8)));
+        try {
+            return Files.readString(entry, StandardCharsets.US_ASCII).strip();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private synchronized Path touch(Path variant) {
+        Cached cached = files.get(variant);
+        if (cached == null) {
+            return null;
+        }
+        files.put(variant, new Cached(cached.size(), System.nanoTime()));
+        return variant;
+    }
+
+    private synchronized void record(Path variant, long size, boolean served) {
+        // Thumbnails found at startup count as served long ago
+        long servedAt = served ? System.nanoTime() : System.nanoTime() - SERVING_GRACE.toNanos();
+        Cached previous = files.put(variant, new Cached(size, servedAt));
+        totalBytes += size - (previous == null ? 0 : previous.size());
+    }
+
+    private synchronized void forget(Path variant) {
+        Cached cached = files.remove(variant);
+        if (cached != null) {
+            totalBytes -= cached.size();
+        }
+    }
+
+    /**
+     * Deletes least recently served thumbnails until the cache fits, sparing those of
+     * {@code keepHash}, which are about to be served, and any served within {@link #SERVING_GRACE}.
+     */
+    private synchronized void evict(String keepHash) {
+        long limit = properties.maxSize().toBytes();
+        long servedSince = System.nanoTime() - SERVING_GRACE.toNanos();
+        Iterator<Map.Entry<Path, Cached>> oldest = files.entrySet().iterator();
+        while (totalBytes > limit && oldest.hasNext()) {
+            Map.Entry<Path, Cached> entry = oldest.next();
+            if (entry.getValue().servedAt() - servedSince > 0) {
+                // Everything from here on was served even more recently
+                break;
+            }
+            if (keepHash != null && entry.getKey().getFileName().toString().startsWith(keepHash)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(entry.getKey());
+            } catch (IOException e) {
+                log.error("Error evicting thumbnail {}: {}", entry.getKey(), e.getMessage());
+                continue;
+            }
+            totalBytes -= entry.getValue().size();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Picks up thumbnails left by an earlier run, oldest-modified first as a stand-in for LRU order.
+     */
+    private void load() throws IOException {
+        try (Stream<Path> paths = Files.list(variantsDir)) {
+            List<Path> variants = paths.filter(path -> path.getFileName().toString().endsWith(".jpg")).toList();
+            List<Path> stale = new ArrayList<>();
+            Map<Path, Long> modified = new HashMap<>();
+            for (Path variant : variants) {
+                if (variant.getFileName().toString().startsWith("tmp-")) {
+                    stale.add(variant);
+                } else {
+                    modified.put(variant, Files.getLastModifiedTime(variant).toMillis());
+                }
+            }
+            for (Path path : stale) {
+                Files.deleteIfExists(path);
+            }
+            modified.entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue())
+                    .forEach(entry -> record(entry.getKey(), sizeOf(entry.getKey()), false));
+        }
+        evict(null);
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path variantPath(String contentHash, int width) {
+        return variantsDir.resolve(contentHash + "-" + width + ".jpg");
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String await(CompletableFuture<String> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
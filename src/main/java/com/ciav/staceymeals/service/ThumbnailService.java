@@ -0,0 +1,43 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.ThumbnailProperties;
+import com.ciav.staceymeals.model.Recipe;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class ThumbnailService {
+
+    private final RecipeService recipeService;
+    private final ThumbnailCache thumbnailCache;
+    private final ThumbnailProperties properties;
+
+    @Autowired
+    public ThumbnailService(RecipeService recipeService, ThumbnailCache thumbnailCache,
+                            ThumbnailProperties properties) {
+        this.recipeService = recipeService;
+        this.thumbnailCache = thumbnailCache;
+        this.properties = properties;
+    }
+
+    /**
+     * The recipe's thumbnail image resized to {@code width}, or the configured default width when
+     * null, as a JPEG file in the local cache.
+     */
+    public Path getThumbnail(UUID userId, UUID recipeId, Integer width) {
+        Recipe recipe = recipeService.getRecipe(userId, recipeId);
+        if (recipe.getThumbnailUrl() == null || recipe.getThumbnailUrl().isBlank()) {
+            String msg = "Recipe has no thumbnail. Recipe ID: " + recipeId;
+            log.error(msg);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+        }
+        return thumbnailCache.get(recipe.getThumbnailUrl(), width == null ? properties.defaultWidth() : width);
+    }
+}
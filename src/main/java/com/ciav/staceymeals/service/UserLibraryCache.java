@@ -0,0 +1,190 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.UserLibraryCacheProperties;
+import com.ciav.staceymeals.db.routing.ReadRouting;
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.Recipe;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Read cache for recipes, categories and the assembled category tree, scoped per user.
+ * <p>
+ * Every entry is keyed by the user's current generation. A write bumps the generation
+ * once it has hit the database, so nothing read before the write can be served after it:
+ * a load that raced the write lands under the old generation, which nobody looks up any more.
+ * Generations come from one global counter and are never reused, so even a user whose
+ * generation was evicted can't resurrect old entries. Orphaned entries age out by weight.
+ * <p>
+ * A replica may not have replayed a write yet when the generation it bumped is first read, so
+ * values loaded from a replica are kept only briefly, however often they are hit.
+ * <p>
+ * Generations are per node, so a write made on another node, such as a fetch job run by a
+ * worker there, doesn't invalidate anything here. Every entry is dropped after
+ * {@code expireAfterWrite} however often it is read, which bounds how long a client polling
+ * this node can keep seeing its library as it was before that write.
+ */
+@Component
+@Slf4j
+public class UserLibraryCache {
+
+    public enum Kind { RECIPE, RECIPES, CATEGORY, CATEGORY_TREE }
+
+    private record Key(UUID userId, long generation, Kind kind, UUID id) {
+    }
+
+    private record Entry(Object value, boolean fromReplica, long loadedAt) {
+    }
+
+    private static final int OBJECT_OVERHEAD = 64;
+
+    private final AtomicLong generationCounter = new AtomicLong();
+    private final Cache<UUID, Long> generations;
+    private final Cache<Key, Entry> entries;
+
+    @Autowired
+    public UserLibraryCache(UserLibraryCacheProperties properties, MeterRegistry meterRegistry) {
+        this.generations = Caffeine.newBuilder()
+                .expireAfterAccess(properties.expireAfterAccess())
+                .build();
+        long writeNanos = properties.expireAfterWrite().toNanos();
+        long accessNanos = Math.min(writeNanos, properties.expireAfterAccess().toNanos());
+        long replicaNanos = Math.min(accessNanos, properties.replicaExpireAfterWrite().toNanos());
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(properties.maxSize().toBytes())
+                .weigher((Key key, Entry entry) -> weigh(entry.value()))
+                .expireAfter(new Expiry<Key, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Entry entry, long currentTime) {
+                        return entry.fromReplica() ? replicaNanos : accessNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Entry entry, long currentTime, long currentDuration) {
+                        if (entry.fromReplica()) {
+                            return currentDuration;
+                        }
+                        // Reads extend an entry's life, but never past expireAfterWrite from its load
+                        return Math.max(0, Math.min(accessNanos, writeNanos - (currentTime - entry.loadedAt())));
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "user-library");
+    }
+
+    /**
+     * Returns the cached value, or loads and caches it. A null from the loader is passed
+     * through and not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(UUID userId, Kind kind, UUID id, Supplier<T> loader) {
+        Key key = new Key(userId, generation(userId), kind, id);
+        Entry cached = entries.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached.value();
+        }
+        long replicaReads = ReadRouting.replicaReads();
+        T loaded = loader.get();
+        if (loaded != null) {
+            entries.put(key, new Entry(loaded, ReadRouting.replicaReads() != replicaReads, System.nanoTime()));
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops everything cached for the user. Call after the write has reached the database.
+     */
+    public void invalidate(UUID userId) {
+        if (userId != null) {
+            generations.put(userId, generationCounter.incrementAndGet());
+        }
+    }
+
+    private long generation(UUID userId) {
+        return generations.get(userId, id -> generationCounter.incrementAndGet());
+    }
+
+    // --- weighing ---------------------------------------------------------------------------
+
+    private static int weigh(Object value) {
+        long bytes;
+        if (value instanceof Recipe recipe) {
+            bytes = weigh(recipe);
+        } else if (value instanceof Category category) {
+            bytes = weigh(category);
+        } else if (value instanceof Map<?, ?> map) {
+            bytes = weighAll(map.values());
+        } else if (value instanceof Collection<?> collection) {
+            bytes = weighAll(collection);
+        } else {
+            bytes = OBJECT_OVERHEAD;
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long weighAll(Collection<?> values) {
+        long bytes = OBJECT_OVERHEAD;
+        for (Object value : values) {
+            bytes += value instanceof Recipe recipe ? weigh(recipe)
+                    : value instanceof Category category ? weigh(category)
+                    : OBJECT_OVERHEAD;
+        }
+        return bytes;
+    }
+
+    private static long weigh(Recipe recipe) {
+        long bytes = OBJECT_OVERHEAD * 2
+                + weigh(recipe.getSourceUrl()) + weigh(recipe.getTitle()) + weigh(recipe.getThumbnailUrl())
+                + weigh(recipe.getPrepTime()) + weigh(recipe.getCookTime()) + weigh(recipe.getTotalTime())
+                + weigh(recipe.getServings()) + weigh(recipe.getRaw())
+                + weigh(recipe.getIngredients()) + weigh(recipe.getSteps());
+        if (recipe.getCategories() != null) {
+            for (Category category : recipe.getCategories()) {
+                bytes += weigh(category);
+            }
+        }
+        return bytes;
+    }
+
+    private static long weigh(Category category) {
+        long bytes = OBJECT_OVERHEAD + weigh(category.getName());
+        if (category.getSubCategories() != null) {
+            for (Category child : category.getSubCategories()) {
+                bytes += weigh(child);
+            }
+        }
+        return bytes;
+    }
+
+    private static long weigh(List<String> strings) {
+        if (strings == null) return 0;
+        long bytes = OBJECT_OVERHEAD;
+        for (String s : strings) {
+            bytes += weigh(s);
+        }
+        return bytes;
+    }
+
+    private static long weigh(String s) {
+        return s == null ? 0 : 40L + s.length();
+    }
+}
@@ -0,0 +1,185 @@
+-- Parsed recipe content is stored once, however many users save it. recipe_contents holds the
+-- heavy, shared part of a recipe (ingredients, their terms, steps and the source JSON-LD) keyed
+-- by a hash of the parsed content; a user's recipes row keeps only what is theirs (title and the
+-- other display fields, rating, categories) plus the hash. Editing a recipe's content interns
+-- the edited content and repoints that one row, so shared content is never changed in place.
+-- Content rows nothing references any more are swept by RecipeContentService.
+
+-- Terms are derived from ingredients, so they are not part of the key. Nor is the source JSON-LD:
+-- sites put aggregateRating, reviewCount and dateModified in it, which change from one fetch to
+-- the next, so keying on it would give nearly every save of a page its own row. It only counts
+-- for recipes with nothing parsed, which would otherwise all share one row and its JSON-LD.
+CREATE FUNCTION recipe_content_hash(ingredients TEXT[], steps TEXT[], raw TEXT) RETURNS BYTEA
+LANGUAGE sql IMMUTABLE PARALLEL SAFE
+AS $$
+    SELECT sha256(convert_to(jsonb_build_array(ingredients, steps,
+        CASE WHEN ingredients IS NULL AND steps IS NULL THEN raw END)::text, 'UTF8'))
+$$;
+
+CREATE TABLE recipe_contents (
+    content_hash BYTEA PRIMARY KEY,
+    ingredients TEXT[],
+    ingredient_terms TEXT[],
+    steps TEXT[],
+    raw TEXT COMPRESSION lz4,
+    search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', recipe_search_text(ingredients)), 'B') ||
+        setweight(to_tsvector('english', recipe_search_text(steps)), 'C')
+    ) STORED,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_referenced_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+) WITH (toast_tuple_target = 256);
+CREATE INDEX idx_recipe_contents_referenced ON recipe_contents(last_referenced_at);
+
+-- Stores the content if it's new and returns its hash. An existing row only has its
+-- last_referenced_at refreshed (at most hourly, to spare popular rows a write per save) and
+-- picks up terms or JSON-LD if it had none, so it keeps the JSON-LD of whichever save stored it
+-- first; the row lock taken here keeps the orphan sweep off it until
+-- the caller's transaction ends.
+CREATE FUNCTION intern_recipe_content(new_ingredients TEXT[], new_ingredient_terms TEXT[],
+                                      new_steps TEXT[], new_raw TEXT) RETURNS BYTEA
+LANGUAGE plpgsql AS $$
+DECLARE
+    new_hash BYTEA := recipe_content_hash(new_ingredients, new_steps, new_raw);
+BEGIN
+    INSERT INTO recipe_contents AS c (content_hash, ingredients, ingredient_terms, steps, raw)
+    VALUES (new_hash, new_ingredients, new_ingredient_terms, new_steps, new_raw)
+    ON CONFLICT (content_hash) DO UPDATE SET
+        last_referenced_at = CURRENT_TIMESTAMP,
+        ingredient_terms = coalesce(c.ingredient_terms, EXCLUDED.ingredient_terms),
+        raw = coalesce(c.raw, EXCLUDED.raw)
+    WHERE c.last_referenced_at < CURRENT_TIMESTAMP - INTERVAL '1 hour'
+       OR (c.ingredient_terms IS NULL AND EXCLUDED.ingredient_terms IS NOT NULL)
+       OR (c.raw IS NULL AND EXCLUDED.raw IS NOT NULL);
+    RETURN new_hash;
+END;
+$$;
+
+-- The same page under different spellings of its URL: host case, www., default ports, scheme,
+-- fragment, trailing slashes, tracking parameters and query parameter order are ignored.
+CREATE FUNCTION normalize_source_url(url TEXT) RETURNS TEXT
+LANGUAGE plpgsql IMMUTABLE STRICT PARALLEL SAFE
+AS $$
+DECLARE
+    parts TEXT[] := regexp_match(btrim(url), '^(?:[A-Za-z][A-Za-z0-9+.-]*://)?([^/?#]*)([^?#]*)(?:\?([^#]*))?');
+    host TEXT;
+    params TEXT;
+BEGIN
+    host := regexp_replace(lower(parts[1]), '^([^@]*@)?(www\.)?', '');
+    host := regexp_replace(host, ':(80|443)$', '');
+    SELECT string_agg(param, '&' ORDER BY param) INTO params
+    FROM unnest(string_to_array(parts[3], '&')) AS param
+    WHERE param <> ''
+      AND lower(split_part(param, '=', 1)) !~ '^(utm_[a-z]+|fbclid|gclid|mc_cid|mc_eid)$';
+    RETURN host || regexp_replace(parts[2], '/+$', '') || coalesce('?' || params, '');
+END;
+$$;
+
+-- What the per-row copies take now, for the report at the end. The search vector counts too:
+-- each recipe keeps one after this, still holding its content's terms.
+CREATE TEMPORARY TABLE recipe_storage_before ON COMMIT DROP AS
+SELECT (SELECT coalesce(sum(coalesce(pg_column_size(ingredients), 0)
+                            + coalesce(pg_column_size(ingredient_terms), 0)
+                            + coalesce(pg_column_size(steps), 0)
+                            + coalesce(pg_column_size(search_vector), 0)), 0) FROM recipes)
+     + (SELECT coalesce(sum(pg_column_size(raw)), 0) FROM recipe_sources) AS content_bytes,
+       (SELECT count(*) FROM recipes) AS recipes;
+
+ALTER TABLE recipes ADD COLUMN content_hash BYTEA;
+ALTER TABLE recipes ADD COLUMN source_url_normalized TEXT
+    GENERATED ALWAYS AS (normalize_source_url(source_url)) STORED;
+-- Can no longer be generated from the row alone; kept by trg_recipes_search_vector below
+ALTER TABLE recipes DROP COLUMN search_vector;
+ALTER TABLE recipes ADD COLUMN search_vector TSVECTOR;
+
+-- Moving content out is not a change to anyone's recipe: no version bumps, no sync entries
+ALTER TABLE recipes DISABLE TRIGGER USER;
+
+UPDATE recipes r SET content_hash = intern_recipe_content(
+    r.ingredients, r.ingredient_terms, r.steps,
+    (SELECT s.raw FROM recipe_sources s WHERE s.recipe_id = r.id));
+
+-- A separate statement, so that it sees the content rows the one above inserted
+UPDATE recipes r SET search_vector = setweight(to_tsvector('english', coalesce(r.title, '')), 'A') || c.search_vector
+FROM recipe_contents c
+WHERE c.content_hash = r.content_hash;
+
+ALTER TABLE recipes ENABLE TRIGGER USER;
+
+-- One recipe per user per page: keep the most recently updated copy, give it every category
+-- any copy was filed under, and point fetch jobs at it. The other copies are deleted with the
+-- triggers on, so sync clients get tombstones for them.
+CREATE TEMPORARY TABLE recipe_duplicates ON COMMIT DROP AS
+SELECT id, keeper_id
+FROM (SELECT id, first_value(id) OVER (
+                 PARTITION BY user_id, source_url_normalized
+                 ORDER BY updated_at DESC NULLS LAST, created_at DESC, id) AS keeper_id
+      FROM recipes
+      WHERE source_url_normalized IS NOT NULL) copies
+WHERE id <> keeper_id;
+
+INSERT INTO recipes_categories (recipe_id, category_id)
+SELECT d.keeper_id, rc.category_id
+FROM recipes_categories rc
+JOIN recipe_duplicates d ON d.id = rc.recipe_id
+ON CONFLICT (recipe_id, category_id) DO NOTHING;
+
+UPDATE fetch_jobs f SET recipe_id = d.keeper_id
+FROM recipe_duplicates d
+WHERE f.recipe_id = d.id;
+
+DELETE FROM recipes r
+USING recipe_duplicates d
+WHERE r.id = d.id;
+
+ALTER TABLE recipes DROP COLUMN ingredients;
+ALTER TABLE recipes DROP COLUMN ingredient_terms;
+ALTER TABLE recipes DROP COLUMN steps;
+DROP TABLE recipe_sources;
+
+ALTER TABLE recipes ALTER COLUMN content_hash SET NOT NULL;
+ALTER TABLE recipes ADD FOREIGN KEY (content_hash) REFERENCES recipe_contents(content_hash);
+-- The foreign key's own lookups, and the orphan sweep's
+CREATE INDEX idx_recipes_content ON recipes(content_hash);
+CREATE UNIQUE INDEX idx_recipes_user_source ON recipes(user_id, source_url_normalized);
+CREATE INDEX idx_recipes_user_search ON recipes USING GIN (user_id, search_vector);
+
+-- Title hits still outrank ingredient hits, which outrank steps. The content half is copied
+-- from recipe_contents so that search stays one GIN scan per user.
+CREATE FUNCTION recipes_search_vector() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    NEW.search_vector := setweight(to_tsvector('english', coalesce(NEW.title, '')), 'A') ||
+        coalesce((SELECT c.search_vector FROM recipe_contents c WHERE c.content_hash = NEW.content_hash), '');
+    RETURN NEW;
+END;
+$$;
+
+CREATE TRIGGER trg_recipes_search_vector
+    BEFORE INSERT OR UPDATE OF title, content_hash ON recipes
+    FOR EACH ROW EXECUTE FUNCTION recipes_search_vector();
+
+-- The dropped columns' space comes back as rows are rewritten, or at once with VACUUM FULL
+DO $$
+DECLARE
+    prior recipe_storage_before%ROWTYPE;
+    after_bytes BIGINT;
+    contents BIGINT;
+    remaining BIGINT;
+BEGIN
+    SELECT * INTO prior FROM recipe_storage_before;
+    SELECT coalesce(sum(coalesce(pg_column_size(ingredients), 0)
+                        + coalesce(pg_column_size(ingredient_terms), 0)
+                        + coalesce(pg_column_size(steps), 0)
+                        + coalesce(pg_column_size(raw), 0)
+                        + coalesce(pg_column_size(search_vector), 0)), 0),
+           count(*)
+    INTO after_bytes, contents
+    FROM recipe_contents;
+    SELECT after_bytes + coalesce(sum(pg_column_size(search_vector)), 0), count(*)
+    INTO after_bytes, remaining
+    FROM recipes;
+    RAISE NOTICE 'Recipe content: % bytes across % recipes before, % bytes in % shared rows plus the search vectors of % recipes after (% bytes saved)',
+        prior.content_bytes, prior.recipes, after_bytes, contents, remaining, prior.content_bytes - after_bytes;
+END;
+$$;
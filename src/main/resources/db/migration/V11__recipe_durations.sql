@@ -0,0 +1,64 @@
+-- Prep, cook and total time as whole seconds next to the display strings, so recipes can be
+-- filtered and sorted by time in the database. New recipes get them from RecipeService, which
+-- parses the same ISO-8601 durations it formats; existing ones are backfilled from their
+-- source JSON-LD below.
+ALTER TABLE recipes ADD COLUMN prep_seconds INTEGER;
+ALTER TABLE recipes ADD COLUMN cook_seconds INTEGER;
+ALTER TABLE recipes ADD COLUMN total_seconds INTEGER;
+
+-- The Recipe node of a JSON-LD document, wherever it sits (top level, an array, an @graph),
+-- or null if there is none or the text isn't JSON
+CREATE FUNCTION recipe_node(raw TEXT) RETURNS JSONB
+LANGUAGE plpgsql IMMUTABLE STRICT PARALLEL SAFE
+AS $$
+BEGIN
+    RETURN jsonb_path_query_first(raw::jsonb,
+        'strict $.** ? (@."@type" == "Recipe" || @."@type"[*] == "Recipe")');
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END;
+$$;
+
+-- An ISO-8601 duration such as PT1H30M in seconds, or null if it doesn't parse. A month
+-- counts as 30 days and a year as 365.25, as in RecipeService.extractSeconds.
+CREATE FUNCTION iso_duration_seconds(duration TEXT) RETURNS INTEGER
+LANGUAGE plpgsql STABLE STRICT PARALLEL SAFE
+AS $$
+BEGIN
+    RETURN extract(epoch FROM btrim(duration)::interval)::integer;
+EXCEPTION WHEN others THEN
+    RETURN NULL;
+END;
+$$;
+
+-- Filling in derived columns is not a change to anyone's recipe: no version bumps, no sync
+-- entries. Clients see the new fields the next time each recipe changes, or on a full sync.
+ALTER TABLE recipes DISABLE TRIGGER USER;
+
+UPDATE recipes r SET
+    prep_seconds = iso_duration_seconds(c.node ->> 'prepTime'),
+    cook_seconds = iso_duration_seconds(c.node ->> 'cookTime'),
+    total_seconds = iso_duration_seconds(c.node ->> 'totalTime')
+FROM (SELECT content_hash, recipe_node(raw) AS node
+      FROM recipe_contents
+      WHERE raw IS NOT NULL) c
+WHERE c.content_hash = r.content_hash
+  AND c.node IS NOT NULL;
+
+-- Many pages give prep and cook time but no total
+UPDATE recipes SET total_seconds = coalesce(prep_seconds, 0) + coalesce(cook_seconds, 0)
+WHERE total_seconds IS NULL
+  AND (prep_seconds IS NOT NULL OR cook_seconds IS NOT NULL);
+
+-- Keyset paging by rating needs a value on every row
+UPDATE recipes SET rating = 0 WHERE rating IS NULL;
+
+ALTER TABLE recipes ENABLE TRIGGER USER;
+
+ALTER TABLE recipes ALTER COLUMN rating SET NOT NULL;
+
+-- One per sort order of the recipe query, each walked in its keyset order. Rating is walked
+-- backwards, best first; total time forwards, with recipes that have none sorting last as
+-- the largest integer so that every row has a key the cursor can compare.
+CREATE INDEX idx_recipes_user_total_time ON recipes (user_id, (coalesce(total_seconds, 2147483647)), id);
+CREATE INDEX idx_recipes_user_rating ON recipes (user_id, rating, id);
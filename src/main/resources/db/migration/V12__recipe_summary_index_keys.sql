@@ -0,0 +1,7 @@
+-- The summary listing was never answered from idx_recipes_user_created_summary alone: it also
+-- reads thumbnail_url, the duration seconds and the category ids, so every returned row is
+-- fetched from the heap anyway. The INCLUDE payload only made the index larger. What the index
+-- is for is handing rows over in page order, so the LIMIT stops the scan early, and the key
+-- columns are enough for that, as with the total-time and rating indexes in V11.
+DROP INDEX idx_recipes_user_created_summary;
+CREATE INDEX idx_recipes_user_created_summary ON recipes (user_id, created_at, id);
@@ -0,0 +1,14 @@
+-- recipe_changes only holds the last staceymeals.sync.retention of changes; older entries are
+-- pruned. The position of the newest pruned entry is kept here, and a token from before it is
+-- refused, since the changes after that token are no longer all in the log.
+CREATE TABLE recipe_changes_pruned (
+    only_row BOOLEAN PRIMARY KEY DEFAULT true CHECK (only_row),
+    txid BIGINT NOT NULL,
+    seq BIGINT NOT NULL
+);
+INSERT INTO recipe_changes_pruned (txid, seq) VALUES (0, 0);
+
+CREATE INDEX idx_recipe_changes_changed_at ON recipe_changes(changed_at);
+
+-- A first sync pages through the library itself in id order
+CREATE INDEX idx_recipes_user_sync ON recipes (user_id, id);
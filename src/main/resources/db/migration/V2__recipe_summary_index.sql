@@ -0,0 +1,11 @@
+-- Keyset pagination walks (created_at, id), so created_at can no longer be left NULL
+UPDATE recipes SET created_at = CURRENT_TIMESTAMP WHERE created_at IS NULL;
+ALTER TABLE recipes ALTER COLUMN created_at SET NOT NULL;
+
+-- Covers the paged summary listing. thumbnail_url stays out of INCLUDE: long URLs can push
+-- an entry past the btree tuple size limit and fail the insert.
+CREATE INDEX idx_recipes_user_created_summary ON recipes (user_id, created_at, id)
+    INCLUDE (title, prep_time, cook_time, total_time, rating);
+
+-- Redundant with the leading column of the index above
+DROP INDEX idx_recipes_user_id;
@@ -0,0 +1,82 @@
+-- Every (ancestor, descendant) pair in the category hierarchy, including each category paired
+-- with itself at depth 0. Maintained by the triggers below, so every write path that touches
+-- categories.parent_category_id keeps it in step.
+CREATE TABLE category_closure (
+    ancestor_id UUID NOT NULL,
+    descendant_id UUID NOT NULL,
+    depth INTEGER NOT NULL,
+    PRIMARY KEY (ancestor_id, descendant_id),
+    FOREIGN KEY (ancestor_id) REFERENCES categories(id) ON DELETE CASCADE,
+    FOREIGN KEY (descendant_id) REFERENCES categories(id) ON DELETE CASCADE
+);
+CREATE INDEX idx_category_closure_descendant ON category_closure(descendant_id);
+
+-- Child lookups back the ON DELETE CASCADE on parent_category_id
+CREATE INDEX idx_categories_parent ON categories(parent_category_id);
+
+INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+WITH RECURSIVE tree AS (
+    SELECT id AS ancestor_id, id AS descendant_id, 0 AS depth, ARRAY[id] AS path
+    FROM categories
+    UNION ALL
+    SELECT t.ancestor_id, c.id, t.depth + 1, t.path || c.id
+    FROM tree t
+    JOIN categories c ON c.parent_category_id = t.descendant_id
+    WHERE NOT c.id = ANY(t.path)
+)
+SELECT ancestor_id, descendant_id, depth FROM tree;
+
+CREATE FUNCTION category_closure_on_insert() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+    SELECT ancestor_id, NEW.id, depth + 1
+    FROM category_closure
+    WHERE descendant_id = NEW.parent_category_id
+    UNION ALL
+    SELECT NEW.id, NEW.id, 0;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_category_closure_insert
+    AFTER INSERT ON categories
+    FOR EACH ROW EXECUTE FUNCTION category_closure_on_insert();
+
+-- Moves the whole subtree rooted at NEW.id: unlink it from the old parent's ancestors and
+-- link it under the new parent's ancestors. Links inside the subtree are untouched.
+CREATE FUNCTION category_closure_on_move() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF NEW.parent_category_id IS NOT DISTINCT FROM OLD.parent_category_id THEN
+        RETURN NULL;
+    END IF;
+
+    IF EXISTS (SELECT 1 FROM category_closure
+               WHERE ancestor_id = NEW.id AND descendant_id = NEW.parent_category_id) THEN
+        RAISE EXCEPTION 'Category % cannot be moved under its own descendant %', NEW.id, NEW.parent_category_id
+            USING ERRCODE = 'check_violation';
+    END IF;
+
+    DELETE FROM category_closure link
+    USING category_closure sub, category_closure anc
+    WHERE sub.ancestor_id = NEW.id
+      AND anc.descendant_id = NEW.id
+      AND anc.ancestor_id <> NEW.id
+      AND link.ancestor_id = anc.ancestor_id
+      AND link.descendant_id = sub.descendant_id;
+
+    INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+    SELECT anc.ancestor_id, sub.descendant_id, anc.depth + sub.depth + 1
+    FROM category_closure anc
+    CROSS JOIN category_closure sub
+    WHERE anc.descendant_id = NEW.parent_category_id
+      AND sub.ancestor_id = NEW.id;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_category_closure_move
+    AFTER UPDATE OF parent_category_id ON categories
+    FOR EACH ROW EXECUTE FUNCTION category_closure_on_move();
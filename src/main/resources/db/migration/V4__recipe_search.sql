@@ -0,0 +1,17 @@
+-- Lets the search index lead with user_id, so a user's matches come from one GIN scan
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- array_to_string is only STABLE in general (element output can depend on settings), but for
+-- text[] it is not, and generated columns need an IMMUTABLE expression.
+CREATE FUNCTION recipe_search_text(TEXT[]) RETURNS TEXT
+LANGUAGE sql IMMUTABLE PARALLEL SAFE
+AS $$ SELECT coalesce(array_to_string($1, ' '), '') $$;
+
+-- Adding a stored generated column rewrites the table, which backfills every existing row
+ALTER TABLE recipes ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('english', recipe_search_text(ingredients)), 'B') ||
+    setweight(to_tsvector('english', recipe_search_text(steps)), 'C')
+) STORED;
+
+CREATE INDEX idx_recipes_user_search ON recipes USING GIN (user_id, search_vector);
@@ -0,0 +1,4 @@
+-- Canonical ingredient terms derived from ingredients at save time (see IngredientNormalizer).
+-- Existing rows stay NULL; the pantry index derives their terms on load and they are filled
+-- in the next time each recipe is saved.
+ALTER TABLE recipes ADD COLUMN ingredient_terms TEXT[];
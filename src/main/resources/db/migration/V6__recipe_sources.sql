@@ -0,0 +1,14 @@
+-- The source JSON-LD is only needed for export and the explicit raw endpoint, so it moves
+-- out of the recipes row that every listing reads. lz4 is cheap to decompress, and the low
+-- toast_tuple_target makes Postgres compress typical 2-8 KB scripts rather than only
+-- rows over the default 2 KB threshold.
+CREATE TABLE recipe_sources (
+    recipe_id UUID PRIMARY KEY,
+    raw TEXT COMPRESSION lz4 NOT NULL,
+    FOREIGN KEY (recipe_id) REFERENCES recipes(id) ON DELETE CASCADE
+) WITH (toast_tuple_target = 256);
+
+INSERT INTO recipe_sources (recipe_id, raw)
+SELECT id, raw FROM recipes WHERE raw IS NOT NULL;
+
+ALTER TABLE recipes DROP COLUMN raw;
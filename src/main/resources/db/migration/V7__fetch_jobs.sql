@@ -0,0 +1,21 @@
+-- Queue for asynchronous fetch-and-save. Workers on any node claim runnable rows with
+-- FOR UPDATE SKIP LOCKED and hold them under a lease; a RUNNING row whose lease has run out
+-- belonged to a worker that died and is claimed again.
+CREATE TABLE fetch_jobs (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    url VARCHAR(2048) NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'QUEUED'
+        CHECK (status IN ('QUEUED', 'RUNNING', 'SUCCEEDED', 'DEAD')),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    run_after TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_by VARCHAR(255),
+    locked_until TIMESTAMP,
+    recipe_id UUID,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX idx_fetch_jobs_queued ON fetch_jobs(run_after) WHERE status = 'QUEUED';
+CREATE INDEX idx_fetch_jobs_running ON fetch_jobs(locked_until) WHERE status = 'RUNNING';
+CREATE INDEX idx_fetch_jobs_user ON fetch_jobs(user_id, created_at);
@@ -0,0 +1,53 @@
+-- Append-only log of changes to each user's recipes and category links, read by delta sync.
+-- Rows are ordered by (txid, seq): a reader only returns rows whose transaction is older than
+-- every transaction still running (pg_snapshot_xmin), so a change can never commit behind a
+-- token a client already holds. seq alone isn't enough, since sequence values are handed out
+-- before commit and transactions can commit out of order.
+CREATE TABLE recipe_changes (
+    seq BIGSERIAL,
+    txid BIGINT NOT NULL DEFAULT pg_current_xact_id()::text::bigint,
+    user_id UUID NOT NULL,
+    recipe_id UUID NOT NULL,
+    category_id UUID,
+    kind VARCHAR(8) NOT NULL CHECK (kind IN ('UPSERT', 'DELETE', 'LINK', 'UNLINK')),
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (txid, seq)
+);
+CREATE INDEX idx_recipe_changes_user ON recipe_changes(user_id, txid, seq);
+
+CREATE FUNCTION recipe_changes_on_recipe() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND (TG_OP = 'DELETE' OR OLD.user_id <> NEW.user_id) THEN
+        INSERT INTO recipe_changes (user_id, recipe_id, kind) VALUES (OLD.user_id, OLD.id, 'DELETE');
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO recipe_changes (user_id, recipe_id, kind) VALUES (NEW.user_id, NEW.id, 'UPSERT');
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_recipe_changes_recipe
+    AFTER INSERT OR UPDATE OR DELETE ON recipes
+    FOR EACH ROW EXECUTE FUNCTION recipe_changes_on_recipe();
+
+-- Links removed by deleting their recipe find no recipe row here; the recipe's own tombstone
+-- covers them.
+CREATE FUNCTION recipe_changes_on_link() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO recipe_changes (user_id, recipe_id, category_id, kind)
+        SELECT user_id, NEW.recipe_id, NEW.category_id, 'LINK' FROM recipes WHERE id = NEW.recipe_id;
+    ELSE
+        INSERT INTO recipe_changes (user_id, recipe_id, category_id, kind)
+        SELECT user_id, OLD.recipe_id, OLD.category_id, 'UNLINK' FROM recipes WHERE id = OLD.recipe_id;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_recipe_changes_link
+    AFTER INSERT OR DELETE ON recipes_categories
+    FOR EACH ROW EXECUTE FUNCTION recipe_changes_on_link();
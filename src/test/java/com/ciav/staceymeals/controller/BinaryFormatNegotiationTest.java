@@ -0,0 +1,107 @@
+package com.ciav.staceymeals.controller;
+
+import com.ciav.staceymeals.model.Category;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The category tree in each negotiable format: the same data, JSON by default, and entity tags
+ * that differ per format and still revalidate.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.flyway.enabled=true")
+@Testcontainers
+class BinaryFormatNegotiationTest {
+
+	private static final TypeReference<List<Category>> CATEGORIES = new TypeReference<>() {
+	};
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Value("${local.server.port}")
+	private int port;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.build();
+
+	@Test
+	void negotiatesBinaryFormatsWithJsonAsDefault() throws Exception {
+		UUID userId = UUID.randomUUID();
+		String base = "http://127.0.0.1:" + port + "/api/users/" + userId + "/categories";
+		URI categories = URI.create(base + "/");
+		for (String name : List.of("Dinner", "Dessert")) {
+			HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create(base))
+							.header("Content-Type", "application/json")
+							.POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"" + name + "\"}"))
+							.build(),
+					HttpResponse.BodyHandlers.ofString());
+			assertThat(created.statusCode()).isEqualTo(200);
+		}
+
+		HttpResponse<byte[]> json = get(categories, null, null);
+		assertThat(json.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("application/json"));
+		assertThat(json.headers().allValues("Vary")).anySatisfy(vary -> assertThat(vary).contains("Accept"));
+		String jsonTag = json.headers().firstValue("ETag").orElseThrow();
+		List<Category> expected = read(JsonMapper.builder().build(), json.body());
+		assertThat(expected).extracting(Category::getName).containsExactlyInAnyOrder("Dinner", "Dessert");
+
+		HttpResponse<byte[]> cbor = get(categories, "application/cbor", null);
+		assertThat(cbor.headers().firstValue("Content-Type")).hasValue("application/cbor");
+		assertThat(read(CBORMapper.builder().build(), cbor.body())).isEqualTo(expected);
+		assertThat(cbor.body().length).isLessThan(json.body().length);
+		String cborTag = cbor.headers().firstValue("ETag").orElseThrow();
+		assertThat(cborTag).isNotEqualTo(jsonTag).endsWith("-cbor\"");
+
+		HttpResponse<byte[]> smile = get(categories, "application/x-jackson-smile", null);
+		assertThat(read(SmileMapper.builder().build(), smile.body())).isEqualTo(expected);
+
+		assertThat(get(categories, "application/cbor", cborTag).statusCode()).isEqualTo(304);
+		assertThat(get(categories, null, jsonTag).statusCode()).isEqualTo(304);
+	}
+
+	private HttpResponse<byte[]> get(URI uri, String accept, String ifNoneMatch) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri);
+		if (accept != null) {
+			request.header("Accept", accept);
+		}
+		if (ifNoneMatch != null) {
+			request.header("If-None-Match", ifNoneMatch);
+		}
+		return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private static List<Category> read(ObjectMapper mapper, byte[] body) {
+		return mapper.readValue(body, CATEGORIES);
+	}
+}
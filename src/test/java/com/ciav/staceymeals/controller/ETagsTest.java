@@ -0,0 +1,54 @@
+package com.ciav.staceymeals.controller;
+
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.Recipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETagsTest {
+
+	@Test
+	void recipeTagCarriesTheVersionBackThroughIfMatch() {
+		Recipe recipe = Recipe.builder().version(7).build();
+
+		String tag = ETags.of(recipe, false);
+
+		assertThat(ETags.recipeVersion(tag)).isEqualTo(7L);
+		// If-Match uses the strong comparison, so a weak tag never matches
+		assertThat(ETags.recipeVersion("W/" + tag)).isEqualTo(-1L);
+		assertThat(ETags.recipeVersion("*")).isNull();
+		assertThat(ETags.recipeVersion("\"garbage\"")).isEqualTo(-1L);
+	}
+
+	@Test
+	void recipeTagChangesWithEmbeddedCategoriesAndRaw() {
+		UUID categoryId = UUID.randomUUID();
+		Recipe plain = Recipe.builder().version(3).build();
+		Recipe filed = Recipe.builder().version(3)
+				.categories(List.of(Category.builder().id(categoryId).name("Soups").build()))
+				.build();
+		Recipe renamed = Recipe.builder().version(3)
+				.categories(List.of(Category.builder().id(categoryId).name("Stews").build()))
+				.build();
+
+		assertThat(ETags.of(plain, false))
+				.isNotEqualTo(ETags.of(filed, false))
+				.isNotEqualTo(ETags.of(plain, true));
+		assertThat(ETags.of(filed, false)).isNotEqualTo(ETags.of(renamed, false));
+	}
+
+	@Test
+	void treeTagChangesWhenAnyDescendantChanges() {
+		Category child = Category.builder().id(UUID.randomUUID()).version(1).build();
+		Category root = Category.builder().id(UUID.randomUUID()).version(1).subCategories(List.of(child)).build();
+		String before = ETags.of(List.of(root));
+
+		child.setVersion(2);
+
+		assertThat(ETags.of(List.of(root))).isNotEqualTo(before);
+	}
+}
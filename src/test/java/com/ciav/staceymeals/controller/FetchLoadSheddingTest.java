@@ -0,0 +1,139 @@
+package com.ciav.staceymeals.controller;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Saturates synchronous fetch-and-save against a slow recipe site and checks that the excess
+ * is shed at once while reads are still served promptly.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.flyway.enabled=true",
+		"staceymeals.fetch-admission.concurrency=2",
+		"staceymeals.fetch-admission.queue-capacity=2",
+		"staceymeals.fetch-admission.burst=100"
+})
+@Testcontainers
+class FetchLoadSheddingTest {
+
+	private static final long SLOW_PAGE_MS = 3000;
+	private static final String RECIPE_PAGE = """
+			<html><head><title>Slow Soup</title>
+			<script type="application/ld+json">{"@type":"Recipe","recipeIngredient":["water"],"recipeInstructions":"Boil."}</script>
+			</head><body></body></html>
+			""";
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	private static HttpServer recipeSite;
+
+	@Value("${local.server.port}")
+	private int port;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.build();
+
+	@BeforeAll
+	static void startRecipeSite() throws IOException {
+		recipeSite = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		recipeSite.setExecutor(Executors.newCachedThreadPool());
+		recipeSite.createContext("/recipes/", exchange -> {
+			try {
+				Thread.sleep(SLOW_PAGE_MS);
+				byte[] body = RECIPE_PAGE.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		recipeSite.start();
+	}
+
+	@AfterAll
+	static void stopRecipeSite() {
+		recipeSite.stop(0);
+	}
+
+	@Test
+	void shedsExcessFetchesWhileReadsStayFast() throws Exception {
+		UUID userId = UUID.randomUUID();
+		String site = "http://127.0.0.1:" + recipeSite.getAddress().getPort();
+
+		List<CompletableFuture<TimedResponse>> fetches = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			HttpRequest request = HttpRequest.newBuilder(api(userId, "/fetch-and-save"))
+					.header("Content-Type", "text/plain")
+					.POST(HttpRequest.BodyPublishers.ofString(site + "/recipes/" + i))
+					.build();
+			long start = System.nanoTime();
+			fetches.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+					.thenApply(response -> new TimedResponse(response, (System.nanoTime() - start) / 1_000_000)));
+		}
+
+		// Two fetches are running and two are queued, all stuck on the slow site
+		Thread.sleep(500);
+		long readStart = System.nanoTime();
+		HttpResponse<String> read = client.send(HttpRequest.newBuilder(api(userId, "/summaries")).build(),
+				HttpResponse.BodyHandlers.ofString());
+		long readMillis = (System.nanoTime() - readStart) / 1_000_000;
+		assertThat(read.statusCode()).isEqualTo(200);
+		assertThat(readMillis).isLessThan(SLOW_PAGE_MS / 3);
+
+		List<TimedResponse> responses = fetches.stream().map(CompletableFuture::join).toList();
+		assertThat(responses).filteredOn(r -> r.response().statusCode() == 200).hasSize(4);
+		assertThat(responses).filteredOn(r -> r.response().statusCode() == 429)
+				.hasSize(6)
+				.allSatisfy(r -> {
+					assertThat(r.millis()).isLessThan(SLOW_PAGE_MS / 3);
+					assertThat(r.response().headers().firstValue("Retry-After")).hasValue("2");
+				});
+	}
+
+	private URI api(UUID userId, String path) {
+		return URI.create("http://localhost:" + port + "/api/users/" + userId + "/recipes" + path);
+	}
+
+	private record TimedResponse(HttpResponse<String> response, long millis) {
+	}
+}
@@ -0,0 +1,64 @@
+package com.ciav.staceymeals.db;
+
+import com.ciav.staceymeals.db.dao.CategoryDao;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Recipe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.extension.ExtensionHandler;
+import org.jdbi.v3.core.extension.ExtensionMethod;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JdbiMetricsTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final JdbiMetrics metrics = new JdbiMetrics(registry);
+
+	@Test
+	void timesStatementsByIssuingDaoMethod() throws Exception {
+		StatementContext context = mock(StatementContext.class);
+		when(context.getExtensionMethod()).thenReturn(
+				new ExtensionMethod(CategoryDao.class, CategoryDao.class.getMethod("findByUserId", UUID.class)));
+		when(context.getElapsedTime(ChronoUnit.NANOS)).thenReturn(TimeUnit.MILLISECONDS.toNanos(7));
+
+		metrics.logAfterExecution(context);
+		metrics.logException(context, new SQLException("boom"));
+
+		assertThat(registry.get("jdbi.statements").tags("dao", "CategoryDao", "method", "findByUserId", "outcome", "success")
+				.timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(7);
+		assertThat(registry.get("jdbi.statements").tags("dao", "CategoryDao", "outcome", "error").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void countsRowsReturnedOrAffected() throws Exception {
+		ExtensionHandler list = metrics.customize((handles, target, args) -> List.of("a", "b", "c"),
+				RecipeDao.class, RecipeDao.class.getMethod("findByUserId", UUID.class));
+		ExtensionHandler optional = metrics.customize((handles, target, args) -> Optional.empty(),
+				CategoryDao.class, CategoryDao.class.getMethod("findByIdAndUserId", UUID.class, UUID.class));
+		ExtensionHandler batch = metrics.customize((handles, target, args) -> new int[]{1, 1, 0},
+				RecipeDao.class, RecipeDao.class.getMethod("saveBatch", List.class));
+		ExtensionHandler key = metrics.customize((handles, target, args) -> UUID.randomUUID(),
+				RecipeDao.class, RecipeDao.class.getMethod("save", Recipe.class));
+
+		assertThat(list.invoke(null, null)).isEqualTo(List.of("a", "b", "c"));
+		optional.invoke(null, null);
+		batch.invoke(null, null);
+		key.invoke(null, null);
+
+		assertThat(registry.get("jdbi.rows").tags("dao", "RecipeDao", "method", "findByUserId").summary().totalAmount()).isEqualTo(3);
+		assertThat(registry.get("jdbi.rows").tags("dao", "CategoryDao", "method", "findByIdAndUserId").summary().totalAmount()).isZero();
+		assertThat(registry.get("jdbi.rows").tags("dao", "RecipeDao", "method", "saveBatch").summary().totalAmount()).isEqualTo(2);
+		assertThat(registry.find("jdbi.rows").tags("method", "save").summary()).isNull();
+	}
+}
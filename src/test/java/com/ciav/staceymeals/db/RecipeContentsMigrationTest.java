@@ -0,0 +1,88 @@
+package com.ciav.staceymeals.db;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * V10 moves existing content into shared rows and merges each user's copies of a page.
+ */
+@Testcontainers
+class RecipeContentsMigrationTest {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@Test
+	void sharesContentAndMergesDuplicatePages() {
+		migrate("9");
+		Jdbi jdbi = Jdbi.create(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+		UUID alice = UUID.randomUUID();
+		UUID bob = UUID.randomUUID();
+		UUID categoryId = UUID.randomUUID();
+		UUID older = UUID.randomUUID();
+		UUID newer = UUID.randomUUID();
+		UUID bobs = UUID.randomUUID();
+		jdbi.useHandle(handle -> {
+			handle.execute("INSERT INTO categories (id, user_id, name) VALUES (?, ?, 'Soups')", categoryId, alice);
+			String insert = """
+					INSERT INTO recipes (id, user_id, source_url, title, ingredients, steps, updated_at)
+					VALUES (?, ?, ?, ?, ARRAY['water'], ARRAY['Boil.'], CURRENT_TIMESTAMP - CAST(? AS INTERVAL))
+					""";
+			handle.execute(insert, older, alice, "https://www.example.com/soup/?utm_source=feed", "Soup", "1 day");
+			handle.execute(insert, newer, alice, "https://example.com/soup", "My soup", "1 hour");
+			handle.execute(insert, bobs, bob, "https://example.com/soup", "Soup", "1 hour");
+			handle.execute("INSERT INTO recipe_sources (recipe_id, raw) SELECT id, '{\"@type\":\"Recipe\"}' FROM recipes");
+			handle.execute("INSERT INTO recipes_categories (recipe_id, category_id) VALUES (?, ?)", older, categoryId);
+			handle.execute("""
+					INSERT INTO fetch_jobs (id, user_id, url, status, recipe_id)
+					VALUES (?, ?, 'https://www.example.com/soup/', 'SUCCEEDED', ?)
+					""", UUID.randomUUID(), alice, older);
+		});
+
+		migrate(null);
+
+		jdbi.useHandle(handle -> {
+			assertThat(handle.createQuery("SELECT id FROM recipes WHERE user_id = :userId")
+					.bind("userId", alice).mapTo(UUID.class).list()).containsExactly(newer);
+			assertThat(handle.createQuery("SELECT category_id FROM recipes_categories WHERE recipe_id = :id")
+					.bind("id", newer).mapTo(UUID.class).list()).containsExactly(categoryId);
+			assertThat(handle.createQuery("SELECT recipe_id FROM fetch_jobs")
+					.mapTo(UUID.class).list()).containsExactly(newer);
+			assertThat(handle.createQuery("SELECT count(*) FROM recipe_contents")
+					.mapTo(Integer.class).one()).isEqualTo(1);
+			assertThat(handle.createQuery("SELECT count(DISTINCT content_hash) FROM recipes")
+					.mapTo(Integer.class).one()).isEqualTo(1);
+			// Moving content is not an edit; deleting a duplicate is, so sync clients hear of it
+			assertThat(handle.createQuery("SELECT max(version) FROM recipes")
+					.mapTo(Long.class).one()).isEqualTo(1);
+			assertThat(handle.createQuery("SELECT recipe_id FROM recipe_changes WHERE kind = 'DELETE'")
+					.mapTo(UUID.class).list()).containsExactly(older);
+			assertThat(handle.createQuery("""
+							SELECT r.id FROM recipes r, websearch_to_tsquery('english', 'boil') q
+							WHERE r.search_vector @@ q
+							""")
+					.mapTo(UUID.class).list()).containsExactlyInAnyOrder(newer, bobs);
+		});
+	}
+
+	private static void migrate(String target) {
+		FluentConfiguration configuration = Flyway.configure()
+				.dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+		if (target != null) {
+			configuration.target(target);
+		}
+		configuration.load().migrate();
+	}
+}
@@ -0,0 +1,168 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeStorageReport;
+import com.ciav.staceymeals.model.RecipeSummary;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Recipe content is stored once and shared; users only ever change their own copy.
+ */
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+class RecipeContentDaoTest {
+
+	private static final String RAW = "{\"@type\":\"Recipe\",\"recipeIngredient\":[\"water\"]}";
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private Jdbi jdbi;
+
+	@Autowired
+	private RecipeDao recipeDao;
+
+	@Autowired
+	private RecipeContentDao recipeContentDao;
+
+	@Test
+	void usersSavingTheSamePageShareItsContent() {
+		Recipe mine = recipe(UUID.randomUUID(), "https://www.example.com/soup/");
+		Recipe theirs = recipe(UUID.randomUUID(), "https://example.com/soup?utm_source=newsletter");
+		recipeDao.save(mine);
+		recipeDao.save(theirs);
+
+		assertThat(contentHash(theirs)).isEqualTo(contentHash(mine));
+		assertThat(recipeDao.findRawByIdAndUserId(theirs.getId(), theirs.getUserId())).contains(RAW);
+
+		RecipeStorageReport report = recipeContentDao.report();
+		assertThat(report.getSharedContents()).isPositive();
+		assertThat(report.getSavedBytes()).isPositive();
+		assertThat(report.getUnsharedContentBytes()).isGreaterThan(report.getContentBytes());
+	}
+
+	@Test
+	void jsonLdThatChangedBetweenSavesStillSharesContent() {
+		Recipe mine = recipe(UUID.randomUUID(), "https://example.com/chowder");
+		Recipe theirs = recipe(UUID.randomUUID(), "https://example.com/chowder");
+		// Fetched days apart: same recipe, the site's rating and dates have moved on
+		theirs.setRaw("{\"@type\":\"Recipe\",\"recipeIngredient\":[\"water\"],"
+				+ "\"aggregateRating\":{\"ratingValue\":4.7,\"reviewCount\":312},\"dateModified\":\"2026-10-01\"}");
+		recipeDao.save(mine);
+		recipeDao.save(theirs);
+
+		assertThat(contentHash(theirs)).isEqualTo(contentHash(mine));
+		assertThat(recipeDao.findRawByIdAndUserId(theirs.getId(), theirs.getUserId())).contains(RAW);
+	}
+
+	@Test
+	void savingAPageAgainUpdatesTheUsersExistingRecipe() {
+		UUID userId = UUID.randomUUID();
+		Recipe first = recipe(userId, "https://example.com/stew");
+		first.setRating(5);
+		UUID firstId = recipeDao.save(first);
+
+		Recipe again = recipe(userId, "http://EXAMPLE.com/stew#comments");
+		again.setTitle("Stew, again");
+		assertThat(recipeDao.save(again)).isEqualTo(firstId);
+
+		assertThat(recipeDao.findByUserId(userId)).singleElement().satisfies(stored -> {
+			assertThat(stored.getTitle()).isEqualTo("Stew, again");
+			assertThat(stored.getRating()).isEqualTo(5);
+		});
+
+		List<UUID> ids = recipeDao.saveBatch(List.of(recipe(userId, "https://example.com/pie"),
+				recipe(userId, "https://example.com/pie/")));
+		assertThat(ids.get(1)).isEqualTo(ids.get(0));
+		assertThat(recipeDao.findByUserId(userId)).hasSize(2);
+	}
+
+	@Test
+	void editingContentCopiesItAndLeavesOtherUsersAlone() {
+		Recipe mine = recipe(UUID.randomUUID(), "https://example.com/curry");
+		Recipe theirs = recipe(UUID.randomUUID(), "https://example.com/curry");
+		recipeDao.save(mine);
+		recipeDao.save(theirs);
+		byte[] shared = contentHash(mine);
+
+		mine.setIngredients(List.of("water", "salt"));
+		mine.setRaw(null);
+		assertThat(recipeDao.update(mine, null)).isPresent();
+
+		assertThat(contentHash(mine)).isNotEqualTo(shared);
+		assertThat(contentHash(theirs)).isEqualTo(shared);
+		assertThat(recipeDao.findByIdAndUserId(theirs.getId(), theirs.getUserId()))
+				.hasValueSatisfying(stored -> assertThat(stored.getIngredients()).containsExactly("water"));
+		// Saved without a source, the edit keeps the one it had
+		assertThat(recipeDao.findRawByIdAndUserId(mine.getId(), mine.getUserId())).contains(RAW);
+		assertThat(recipeDao.searchSummaries(mine.getUserId(), "salt", 10, 0))
+				.extracting(RecipeSummary::getId)
+				.containsExactly(mine.getId());
+	}
+
+	@Test
+	void sweepDeletesOnlyUnreferencedContent() {
+		Recipe recipe = recipe(UUID.randomUUID(), "https://example.com/bread");
+		recipe.setSteps(List.of("Knead.", "Prove."));
+		recipeDao.save(recipe);
+		byte[] original = contentHash(recipe);
+
+		recipe.setSteps(List.of("Knead.", "Prove.", "Bake."));
+		recipeDao.update(recipe, null);
+
+		assertThat(recipeContentDao.deleteOrphans(0, 1000)).isPositive();
+		assertThat(contentExists(original)).isFalse();
+		assertThat(contentExists(contentHash(recipe))).isTrue();
+	}
+
+	private byte[] contentHash(Recipe recipe) {
+		return jdbi.withHandle(handle -> handle.createQuery("SELECT content_hash FROM recipes WHERE id = :id")
+				.bind("id", recipe.getId())
+				.mapTo(byte[].class)
+				.one());
+	}
+
+	private boolean contentExists(byte[] contentHash) {
+		return jdbi.withHandle(handle -> handle.createQuery(
+						"SELECT EXISTS (SELECT 1 FROM recipe_contents WHERE content_hash = :hash)")
+				.bind("hash", contentHash)
+				.mapTo(Boolean.class)
+				.one());
+	}
+
+	private static Recipe recipe(UUID userId, String sourceUrl) {
+		return Recipe.builder()
+				.id(UUID.randomUUID())
+				.userId(userId)
+				.sourceUrl(sourceUrl)
+				.title("Soup")
+				.ingredients(List.of("water"))
+				.steps(List.of("Boil."))
+				.raw(RAW)
+				.build();
+	}
+}
@@ -0,0 +1,80 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.Recipe;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The join-free loading paths must return exactly what the join-and-reduce path does.
+ */
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+class RecipeDaoLoadingTest {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private Jdbi jdbi;
+
+	@Autowired
+	private RecipeDao recipeDao;
+
+	@Test
+	void everyStrategyLoadsTheSameLibrary() {
+		UUID userId = UUID.randomUUID();
+		jdbi.useHandle(handle -> {
+			handle.execute("""
+					INSERT INTO categories (user_id, name)
+					SELECT ?, 'Category ' || n FROM generate_series(1, 5) AS n
+					""", userId);
+			handle.execute("""
+					INSERT INTO recipes (user_id, title, content_hash)
+					SELECT ?, 'Recipe ' || n, intern_recipe_content(ARRAY['1 onion'], NULL, ARRAY['Cook.'], NULL)
+					FROM generate_series(1, 20) AS n
+					""", userId);
+			// Recipe n is filed under (n mod 6) categories, so some have none
+			handle.execute("""
+					INSERT INTO recipes_categories (recipe_id, category_id)
+					SELECT r.id, c.id
+					FROM (SELECT id, row_number() OVER (ORDER BY id) AS n FROM recipes WHERE user_id = ?) r
+					JOIN (SELECT id, row_number() OVER (ORDER BY id) AS n FROM categories WHERE user_id = ?) c
+					  ON c.n <= r.n % 6
+					""", userId, userId);
+		});
+
+		List<Recipe> joined = recipeDao.findByUserId(userId);
+		List<Recipe> aggregated = recipeDao.findByUserIdAggregated(userId);
+		List<Recipe> batched = recipeDao.findByUserIdBatched(userId);
+
+		assertThat(joined).hasSize(20);
+		assertThat(joined).anySatisfy(recipe -> assertThat(recipe.getCategories()).isEmpty());
+		assertThat(joined).anySatisfy(recipe -> assertThat(recipe.getCategories()).hasSize(5));
+		assertThat(aggregated).usingRecursiveFieldByFieldElementComparator().isEqualTo(joined);
+		assertThat(batched).usingRecursiveFieldByFieldElementComparator().isEqualTo(joined);
+		assertThat(aggregated.get(0).getCategories()).extracting(Category::getName).doesNotContainNull();
+	}
+}
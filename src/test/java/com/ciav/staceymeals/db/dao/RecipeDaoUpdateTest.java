@@ -0,0 +1,87 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.Recipe;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Versions are kept by the database trigger, whichever statement writes the row.
+ */
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+class RecipeDaoUpdateTest {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private RecipeDao recipeDao;
+
+	@Test
+	void everyWriteBumpsTheVersion() {
+		Recipe recipe = recipe("Soup");
+		recipeDao.save(recipe);
+		assertThat(version(recipe)).isEqualTo(1);
+
+		recipe.setTitle("Better soup");
+		recipeDao.save(recipe);
+		assertThat(version(recipe)).isEqualTo(2);
+
+		recipe.setTitle("Best soup");
+		assertThat(recipeDao.update(recipe, null)).contains(3L);
+		assertThat(version(recipe)).isEqualTo(3);
+	}
+
+	@Test
+	void conditionalUpdateOnlyAppliesToTheExpectedVersion() {
+		Recipe recipe = recipe("Soup");
+		recipeDao.save(recipe);
+
+		recipe.setTitle("Mine");
+		assertThat(recipeDao.update(recipe, 1L)).contains(2L);
+
+		recipe.setTitle("Theirs");
+		assertThat(recipeDao.update(recipe, 1L)).isEmpty();
+		assertThat(recipeDao.findByIdAndUserId(recipe.getId(), recipe.getUserId()))
+				.hasValueSatisfying(stored -> assertThat(stored.getTitle()).isEqualTo("Mine"));
+
+		Recipe elsewhere = recipe.toBuilder().userId(UUID.randomUUID()).build();
+		assertThat(recipeDao.update(elsewhere, null)).isEmpty();
+		assertThat(recipeDao.existsByIdAndUserId(recipe.getId(), elsewhere.getUserId())).isFalse();
+	}
+
+	private long version(Recipe recipe) {
+		return recipeDao.findByIdAndUserId(recipe.getId(), recipe.getUserId()).orElseThrow().getVersion();
+	}
+
+	private static Recipe recipe(String title) {
+		return Recipe.builder()
+				.id(UUID.randomUUID())
+				.userId(UUID.randomUUID())
+				.title(title)
+				.ingredients(List.of("water"))
+				.steps(List.of("Boil."))
+				.build();
+	}
+}
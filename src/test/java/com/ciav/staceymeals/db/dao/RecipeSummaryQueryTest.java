@@ -0,0 +1,212 @@
+package com.ciav.staceymeals.db.dao;
+
+import com.ciav.staceymeals.model.PagedResult;
+import com.ciav.staceymeals.model.RecipeSummary;
+import com.ciav.staceymeals.service.RecipeService;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The filtered recipe query: results and paging for each sort, and plans that walk the matching
+ * {@code (user_id, ...)} index instead of sorting the user's whole library.
+ */
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RecipeSummaryQueryTest {
+
+	private static final int RECIPES = 5_000;
+
+	// Postgres orders uuids byte by byte, unsigned, which is their text order; UUID.compareTo
+	// compares signed longs and disagrees whenever the top bit differs
+	private static final Comparator<RecipeSummary> BY_ID = Comparator.comparing(r -> r.getId().toString());
+
+	private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<![:\\w]):(\\w+)");
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private Jdbi jdbi;
+
+	@Autowired
+	private RecipeService recipeService;
+
+	private final UUID userId = UUID.randomUUID();
+	private final UUID categoryId = UUID.randomUUID();
+
+	@BeforeAll
+	void seed() {
+		jdbi.useHandle(handle -> {
+			// Every tenth recipe has no total time; a second user makes the user_id prefix matter
+			for (UUID user : List.of(userId, UUID.randomUUID())) {
+				handle.createUpdate("""
+								INSERT INTO recipes (user_id, title, content_hash, total_seconds, rating, created_at)
+								SELECT :userId, 'Recipe ' || n, intern_recipe_content(NULL, NULL, NULL, NULL),
+								       CASE WHEN n % 10 = 0 THEN NULL ELSE (n % 120) * 60 END,
+								       n % 6,
+								       TIMESTAMP '2026-01-01' + n * INTERVAL '1 minute'
+								FROM generate_series(1, :count) AS n
+								""")
+						.bind("userId", user)
+						.bind("count", RECIPES)
+						.execute();
+			}
+			handle.execute("INSERT INTO categories (id, user_id, name) VALUES (?, ?, 'Quick')", categoryId, userId);
+			handle.execute("""
+					INSERT INTO recipes_categories (recipe_id, category_id)
+					SELECT id, ? FROM recipes WHERE user_id = ? AND rating % 3 = 0
+					""", categoryId, userId);
+			handle.execute("ANALYZE recipes");
+			handle.execute("ANALYZE recipes_categories");
+		});
+	}
+
+	@Test
+	void pagesThroughEachSortWithFilters() {
+		List<RecipeSummary> quickest = all(RecipeSummary.Sort.TOTAL_TIME, null, 4, null);
+		assertThat(quickest).allSatisfy(r -> assertThat(r.getRating()).isGreaterThanOrEqualTo(4));
+		assertThat(quickest).hasSize(count("rating >= 4"));
+		// Recipes without a total time come after all the others
+		assertThat(quickest).isSortedAccordingTo(Comparator
+				.comparing((RecipeSummary r) -> r.getTotalSeconds() == null ? Integer.MAX_VALUE : r.getTotalSeconds())
+				.thenComparing(BY_ID));
+
+		List<RecipeSummary> bestUnderHalfAnHour = all(RecipeSummary.Sort.RATING, 1800, null, null);
+		assertThat(bestUnderHalfAnHour).hasSize(count("total_seconds <= 1800"));
+		assertThat(bestUnderHalfAnHour).isSortedAccordingTo(Comparator
+				.comparing(RecipeSummary::getRating)
+				.thenComparing(BY_ID)
+				.reversed());
+
+		List<RecipeSummary> newestInCategory = all(RecipeSummary.Sort.NEWEST, null, null, categoryId);
+		assertThat(newestInCategory).hasSize(count("rating % 3 = 0"));
+		assertThat(newestInCategory).allSatisfy(r -> assertThat(r.getCategoryIds()).containsExactly(categoryId));
+		assertThat(newestInCategory).isSortedAccordingTo(Comparator
+				.comparing(RecipeSummary::getCreatedAt)
+				.reversed());
+	}
+
+	@Test
+	void nextPagesBoundTheIndexScanUnderAGenericPlan() {
+		jdbi.useHandle(handle -> {
+			// What a server-prepared statement gets once Postgres stops planning per execution
+			handle.execute("SET plan_cache_mode = force_generic_plan");
+			try {
+				assertKeysetBoundsIndex(genericPlan(handle, RecipeDao.QUERY_BY_TOTAL_TIME_AFTER),
+						"Index Scan using idx_recipes_user_total_time");
+				assertKeysetBoundsIndex(genericPlan(handle, RecipeDao.QUERY_BY_RATING_AFTER),
+						"Index Scan Backward using idx_recipes_user_rating");
+				assertKeysetBoundsIndex(genericPlan(handle, RecipeDao.QUERY_NEWEST_AFTER),
+						"Index Scan Backward using idx_recipes_user_created_summary");
+			} finally {
+				handle.execute("RESET plan_cache_mode");
+			}
+		});
+	}
+
+	@Test
+	void backfillReadsDurationsFromSourceJsonLd() {
+		String raw = """
+				{"@context": "https://schema.org", "@graph": [
+				  {"@type": "WebPage", "name": "Stew"},
+				  {"@type": ["Recipe"], "name": "Stew", "prepTime": "PT20M", "totalTime": " PT1H30M "}
+				]}
+				""";
+		jdbi.useHandle(handle -> {
+			List<Integer> seconds = handle.select("""
+							SELECT iso_duration_seconds(node ->> 'prepTime') AS prep,
+							       iso_duration_seconds(node ->> 'cookTime') AS cook,
+							       iso_duration_seconds(node ->> 'totalTime') AS total
+							FROM (SELECT recipe_node(?) AS node) n
+							""", raw)
+					.map((rs, ctx) -> Arrays.asList(rs.getObject("prep", Integer.class), rs.getObject("cook", Integer.class),
+							rs.getObject("total", Integer.class)))
+					.one();
+			assertThat(seconds).containsExactly(1200, null, 5400);
+			assertThat(handle.select("SELECT iso_duration_seconds('about an hour')").mapTo(Integer.class).one()).isNull();
+			assertThat(handle.select("SELECT recipe_node('<html>')").mapTo(String.class).one()).isNull();
+		});
+	}
+
+	private List<RecipeSummary> all(RecipeSummary.Sort sort, Integer maxTotalSeconds, Integer minRating, UUID category) {
+		List<RecipeSummary> results = new ArrayList<>();
+		String cursor = null;
+		do {
+			PagedResult<RecipeSummary> page = recipeService.queryRecipeSummaries(userId, sort, maxTotalSeconds, minRating,
+					category, cursor, 500);
+			results.addAll(page.getItems());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		assertThat(new HashSet<>(results.stream().map(RecipeSummary::getId).toList())).hasSize(results.size());
+		return results;
+	}
+
+	private int count(String condition) {
+		return jdbi.withHandle(handle -> handle.select("SELECT count(*) FROM recipes WHERE user_id = ? AND " + condition, userId)
+				.mapTo(Integer.class)
+				.one());
+	}
+
+	private static void assertKeysetBoundsIndex(List<String> plan, String scan) {
+		assertThat(plan).anySatisfy(line -> assertThat(line).contains(scan));
+		assertThat(plan).noneSatisfy(line -> assertThat(line).contains("Sort"));
+		// The cursor row comparison is an index bound, not a filter over every earlier page
+		assertThat(plan).anySatisfy(line -> assertThat(line.strip())
+				.startsWith("Index Cond:")
+				.contains("user_id = $1")
+				.contains("ROW("));
+		assertThat(plan).noneSatisfy(line -> assertThat(line.strip()).startsWith("Filter:").contains("ROW("));
+	}
+
+	/**
+	 * The plan Postgres would cache for the statement, with its named parameters as {@code $n}.
+	 */
+	private static List<String> genericPlan(Handle handle, String query) {
+		Map<String, Integer> positions = new LinkedHashMap<>();
+		String sql = NAMED_PARAMETER.matcher(query)
+				.replaceAll(m -> "\\$" + positions.computeIfAbsent(m.group(1), name -> positions.size() + 1));
+		handle.execute("PREPARE recipe_query AS " + sql);
+		try {
+			String nulls = String.join(", ", Collections.nCopies(positions.size(), "NULL"));
+			return handle.createQuery("EXPLAIN (COSTS OFF) EXECUTE recipe_query(" + nulls + ")")
+					.mapTo(String.class)
+					.list();
+		} finally {
+			handle.execute("DEALLOCATE recipe_query");
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.ciav.staceymeals.db.routing;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two filters stand in for two nodes behind a load balancer.
+ */
+class ReadRoutingFilterTest {
+
+	private final UUID userId = UUID.randomUUID();
+	private final String path = "/api/users/" + userId + "/recipes";
+
+	@Test
+	void carriesTheReadYourWritesWindowToOtherNodes() throws Exception {
+		ReadRoutingFilter nodeA = new ReadRoutingFilter(Duration.ofSeconds(5));
+		ReadRoutingFilter nodeB = new ReadRoutingFilter(Duration.ofSeconds(5));
+
+		MockHttpServletResponse written = new MockHttpServletResponse();
+		nodeA.doFilter(new MockHttpServletRequest("PUT", path), written, new MockFilterChain());
+
+		Cookie window = written.getCookie(ReadRoutingFilter.COOKIE);
+		assertThat(window).isNotNull();
+		assertThat(window.getPath()).isEqualTo("/api/users/" + userId);
+		assertThat(window.getMaxAge()).isEqualTo(5);
+
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", path);
+		read.setCookies(window);
+		assertThat(nodeB.mayReadReplica(read, userId)).isFalse();
+		assertThat(nodeB.mayReadReplica(new MockHttpServletRequest("GET", path), userId)).isTrue();
+	}
+
+	@Test
+	void ignoresAnExpiredOrGarbledWindow() {
+		ReadRoutingFilter filter = new ReadRoutingFilter(Duration.ofSeconds(5));
+
+		MockHttpServletRequest expired = new MockHttpServletRequest("GET", path);
+		expired.setCookies(new Cookie(ReadRoutingFilter.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+		MockHttpServletRequest garbled = new MockHttpServletRequest("GET", path);
+		garbled.setCookies(new Cookie(ReadRoutingFilter.COOKIE, "soon"));
+
+		assertThat(filter.mayReadReplica(expired, userId)).isTrue();
+		assertThat(filter.mayReadReplica(garbled, userId)).isTrue();
+	}
+
+	@Test
+	void readsDoNotStartAWindow() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		new ReadRoutingFilter(Duration.ofSeconds(5)).doFilter(new MockHttpServletRequest("GET", path), response,
+				new MockFilterChain());
+
+		assertThat(response.getCookie(ReadRoutingFilter.COOKIE)).isNull();
+	}
+}
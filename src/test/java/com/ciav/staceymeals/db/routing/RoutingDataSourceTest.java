@@ -0,0 +1,147 @@
+package com.ciav.staceymeals.db.routing;
+
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Recipe;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.postgres.PostgresPlugin;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two independent Postgres instances stand in for a primary and its replica; rows written
+ * to only one of them show which instance served a read.
+ */
+@SpringBootTest(properties = {
+		"spring.flyway.enabled=true",
+		"staceymeals.datasource.health-check-interval=200ms"
+})
+@Testcontainers
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class RoutingDataSourceTest {
+
+	@Container
+	static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@Container
+	static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", primary::getJdbcUrl);
+		registry.add("spring.datasource.username", primary::getUsername);
+		registry.add("spring.datasource.password", primary::getPassword);
+		registry.add("staceymeals.datasource.replicas[0].url", replica::getJdbcUrl);
+		registry.add("staceymeals.datasource.replicas[0].username", replica::getUsername);
+		registry.add("staceymeals.datasource.replicas[0].password", replica::getPassword);
+	}
+
+	@Autowired
+	private RecipeDao recipeDao;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@AfterEach
+	void tearDown() {
+		ReadRouting.end();
+	}
+
+	@Test
+	@Order(1)
+	void routesReadsToTheReplicaUntilTheFirstWrite() {
+		Recipe onReplica = recipe("Replica soup");
+		replicaRecipeDao().save(onReplica);
+		Recipe onPrimary = recipe("Primary soup");
+		recipeDao.save(onPrimary);
+
+		ReadRouting.begin(true);
+		assertThat(find(onReplica)).isTrue();
+		assertThat(find(onPrimary)).isFalse();
+		assertThat(ReadRouting.replicaReads()).isEqualTo(2);
+
+		recipeDao.save(recipe("Another soup"));
+		assertThat(find(onPrimary)).isTrue();
+		assertThat(ReadRouting.end()).isTrue();
+
+		ReadRouting.begin(false);
+		assertThat(find(onPrimary)).isTrue();
+		assertThat(ReadRouting.end()).isFalse();
+
+		// Outside any request, e.g. on fetch job workers
+		assertThat(find(onPrimary)).isTrue();
+
+		assertThat(meterRegistry.get("hikaricp.connections").tag("pool", "replica-1").gauge()).isNotNull();
+	}
+
+	@Test
+	@Order(2)
+	void fallsBackToThePrimaryWhenTheReplicaIsDown() throws InterruptedException {
+		Recipe onPrimary = recipe("Primary soup");
+		recipeDao.save(onPrimary);
+		replica.stop();
+
+		long deadline = System.currentTimeMillis() + 15_000;
+		while (replicaHealthy() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+		}
+		assertThat(replicaHealthy()).isFalse();
+
+		ReadRouting.begin(true);
+		assertThat(find(onPrimary)).isTrue();
+		assertThat(meterRegistry.get("datasource.connections.routed").tag("target", "primary_fallback").counter().count())
+				.isPositive();
+	}
+
+	private boolean replicaHealthy() {
+		return meterRegistry.get("datasource.replica.healthy").tag("pool", "replica-1").gauge().value() == 1;
+	}
+
+	private boolean find(Recipe recipe) {
+		return recipeDao.findByIdAndUserId(recipe.getId(), recipe.getUserId()).isPresent();
+	}
+
+	private static RecipeDao replicaRecipeDao() {
+		Flyway.configure()
+				.dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+				.load()
+				.migrate();
+		return Jdbi.create(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+				.installPlugin(new SqlObjectPlugin())
+				.installPlugin(new PostgresPlugin())
+				.onDemand(RecipeDao.class);
+	}
+
+	private static Recipe recipe(String title) {
+		return Recipe.builder()
+				.id(UUID.randomUUID())
+				.userId(UUID.randomUUID())
+				.title(title)
+				.ingredients(List.of("water"))
+				.steps(List.of("Boil."))
+				.build();
+	}
+}
@@ -0,0 +1,88 @@
+package com.ciav.staceymeals.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HtmlRecipeScannerTest {
+
+	private static final String RECIPE_JSON = """
+			{"@type": "Recipe", "recipeIngredient": ["water"], "recipeInstructions": "Boil."}""";
+
+	@Test
+	void stopsReadingOnceTheRecipeBlockCloses() throws IOException {
+		String head = """
+				<!DOCTYPE html><html><head>
+				<title>Stub  Soup &amp; Bread</title>
+				<SCRIPT type='application/ld+json'>%s</SCRIPT>
+				""".formatted(RECIPE_JSON);
+		StringReader page = new StringReader(head + "<body>" + "<p>comment</p>".repeat(100_000) + "</body></html>");
+		CountingReader reader = new CountingReader(page);
+
+		HtmlRecipeScanner.Result result = HtmlRecipeScanner.scan(reader).orElseThrow();
+
+		assertThat(result.title()).isEqualTo("Stub Soup & Bread");
+		assertThat(result.json()).isEqualTo(RECIPE_JSON);
+		assertThat(result.recipe().getIngredients()).containsExactly("water");
+		assertThat(reader.count).isLessThan(head.length() + 8192);
+	}
+
+	@Test
+	void skipsMarkupInsideCommentsScriptsAndOtherBlocks() throws IOException {
+		String page = """
+				<html><head>
+				<!-- <title>Commented out</title> <script type="application/ld+json">{"@type":"Recipe"}</script> -->
+				<script>document.write("<title>Not the title</title>");</script>
+				<title>Real title</title>
+				<script type="application/ld+json">{"@type": "BreadcrumbList"}</script>
+				<script type="application/ld+json" data-x="a > b">%s</script>
+				</head></html>
+				""".formatted(RECIPE_JSON);
+
+		HtmlRecipeScanner.Result result = HtmlRecipeScanner.scan(new StringReader(page)).orElseThrow();
+
+		assertThat(result.title()).isEqualTo("Real title");
+		assertThat(result.json()).isEqualTo(RECIPE_JSON);
+	}
+
+	@Test
+	void findsNothingWithoutARecipe() throws IOException {
+		String page = """
+				<html><head><title>Blog</title>
+				<script type="application/ld+json">{"@type": "WebPage"}</script>
+				</head><body><p>No recipe here</p></body></html>
+				""";
+
+		Optional<HtmlRecipeScanner.Result> result = HtmlRecipeScanner.scan(new StringReader(page));
+
+		assertThat(result).isEmpty();
+	}
+
+	private static final class CountingReader extends Reader {
+		private final Reader in;
+		private long count;
+
+		CountingReader(Reader in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read(char[] buffer, int off, int len) throws IOException {
+			int n = in.read(buffer, off, len);
+			if (n > 0) {
+				count += n;
+			}
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.ciav.staceymeals.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngredientNormalizerTest {
+
+	@Test
+	void stripsQuantitiesUnitsAndPreparation() {
+		assertThat(IngredientNormalizer.normalize("2 cups finely chopped red onions (about 2 large)")).containsExactly("red onion");
+		assertThat(IngredientNormalizer.normalize("1 ½ tbsp extra-virgin olive oil, divided")).containsExactly("olive oil");
+		assertThat(IngredientNormalizer.normalize("3 cloves garlic, minced")).containsExactly("garlic");
+		assertThat(IngredientNormalizer.normalize("400g tin of chopped tomatoes")).containsExactly("tomato");
+		assertThat(IngredientNormalizer.normalize("Fresh basil leaves, torn")).containsExactly("basil leaf");
+	}
+
+	@Test
+	void splitsAlternativesAndDeduplicatesAcrossLines() {
+		assertThat(IngredientNormalizer.normalize("Salt and pepper, to taste")).containsExactly("salt", "pepper");
+		assertThat(IngredientNormalizer.terms(List.of("1 cup berries", "kosher salt", "2 tbsp blueberries or berries")))
+				.containsExactly("berry", "salt", "blueberry");
+		assertThat(IngredientNormalizer.normalize("1/2 cup")).isEmpty();
+	}
+}
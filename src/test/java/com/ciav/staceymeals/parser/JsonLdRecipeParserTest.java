@@ -0,0 +1,66 @@
+package com.ciav.staceymeals.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JsonLdRecipeParserTest {
+
+	@Test
+	void findsRecipeInsideGraph() {
+		String json = """
+				{
+				  "@context": "https://schema.org",
+				  "@graph": [
+				    {"@type": "WebPage", "name": "Not me", "recipeIngredient": ["decoy"]},
+				    {"@type": ["Recipe", "NewsArticle"], "name": "Soup",
+				     "recipeIngredient": ["1 onion", "2 cups stock"],
+				     "recipeInstructions": [{"@type": "HowToStep", "text": "Chop."}, {"@type": "HowToStep", "text": "Simmer."}],
+				     "prepTime": "PT10M", "recipeYield": ["4", "4 bowls"],
+				     "image": {"@type": "ImageObject", "url": "https://example.com/soup.jpg"}}
+				  ]
+				}
+				""";
+
+		JsonLdRecipe recipe = JsonLdRecipeParser.parse(json).orElseThrow();
+
+		assertThat(recipe.getName()).isEqualTo("Soup");
+		assertThat(recipe.getIngredients()).containsExactly("1 onion", "2 cups stock");
+		assertThat(recipe.getSteps()).containsExactly("Chop.", "Simmer.");
+		assertThat(recipe.getPrepTime()).isEqualTo("PT10M");
+		assertThat(recipe.getRecipeYield()).isEqualTo("4");
+		assertThat(recipe.getThumbnailUrl()).isEqualTo("https://example.com/soup.jpg");
+	}
+
+	@Test
+	void flattensNestedSectionsAndDecodesEscapes() {
+		String json = """
+				[{"@type": "http://schema.org/Recipe",
+				  "recipeIngredient": ["1 \\"heaping\\" cup flour", "caf\\u00e9 cr\\u00e8me"],
+				  "recipeInstructions": [
+				    {"@type": "HowToSection", "name": "Dough", "itemListElement": [
+				      {"@type": "HowToStep", "text": "Mix."},
+				      {"@type": "HowToSection", "name": "Rest", "itemListElement": [{"@type": "HowToStep", "name": "Wait an hour."}]}
+				    ]},
+				    "Bake.\\nCool."
+				  ],
+				  "recipeYield": 12}]
+				""";
+
+		JsonLdRecipe recipe = JsonLdRecipeParser.parse(json).orElseThrow();
+
+		assertThat(recipe.getIngredients()).containsExactly("1 \"heaping\" cup flour", "café crème");
+		assertThat(recipe.getSteps()).containsExactly("Mix.", "Wait an hour.", "Bake.", "Cool.");
+		assertThat(recipe.getRecipeYield()).isEqualTo("12");
+	}
+
+	@Test
+	void ignoresNonRecipeBlocks() {
+		String json = """
+				{"@type": "BreadcrumbList", "itemListElement": [{"@type": "ListItem", "name": "Recipes"}]}
+				""";
+
+		assertThat(JsonLdRecipeParser.parse(json)).isEmpty();
+		assertThat(JsonLdRecipeParser.parse("{\"@type\": \"Recipe\", \"name\": ")).isEmpty();
+	}
+}
@@ -0,0 +1,168 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.FetchAdmissionProperties;
+import com.ciav.staceymeals.db.routing.ReadRouting;
+import com.ciav.staceymeals.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FetchAdmissionTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private FetchAdmission admission;
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		admission.shutdown();
+	}
+
+	@Test
+	void rateLimitsEachUserToTheirBurst() throws Exception {
+		admission = admission(2, Duration.ofMinutes(1), 4, 4);
+		UUID greedy = UUID.randomUUID();
+
+		assertThat(admission.submit(greedy, () -> "a").get(5, TimeUnit.SECONDS)).isEqualTo("a");
+		assertThat(admission.submit(greedy, () -> "b").get(5, TimeUnit.SECONDS)).isEqualTo("b");
+		assertThatThrownBy(() -> admission.submit(greedy, () -> "c"))
+				.isInstanceOfSatisfying(TooManyRequestsException.class, e -> {
+					assertThat(e.getRetryAfter()).isBetween(Duration.ofSeconds(55), Duration.ofMinutes(1));
+					assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("60");
+				});
+
+		// Other users have budgets of their own
+		assertThat(admission.submit(UUID.randomUUID(), () -> "d").get(5, TimeUnit.SECONDS)).isEqualTo("d");
+
+		assertThat(count("admitted")).isEqualTo(3);
+		assertThat(count("rate_limited")).isEqualTo(1);
+	}
+
+	@Test
+	void shedsLoadWhenThePoolAndQueueAreFull() throws Exception {
+		admission = admission(10, Duration.ofSeconds(1), 1, 1);
+		UUID userId = UUID.randomUUID();
+
+		CompletableFuture<String> running = admission.submit(userId, this::blockUntilReleased);
+		CompletableFuture<String> queued = admission.submit(userId, this::blockUntilReleased);
+		assertThatThrownBy(() -> admission.submit(userId, this::blockUntilReleased))
+				.isInstanceOfSatisfying(TooManyRequestsException.class,
+						e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(2)));
+
+		release.countDown();
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+		assertThat(count("queue_full")).isEqualTo(1);
+	}
+
+	@Test
+	void dropsWorkThatWaitedTooLongForAThread() throws Exception {
+		admission = admission(10, Duration.ofSeconds(1), 1, 1, Duration.ofMillis(50));
+		UUID userId = UUID.randomUUID();
+
+		CompletableFuture<String> running = admission.submit(userId, this::blockUntilReleased);
+		CompletableFuture<String> queued = admission.submit(userId, () -> "too late");
+		Thread.sleep(200);
+		release.countDown();
+
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+		assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TooManyRequestsException.class);
+		assertThat(count("queue_timed_out")).isEqualTo(1);
+	}
+
+	@Test
+	void cancelledWorkThatHasNotStartedNeverRuns() throws Exception {
+		admission = admission(10, Duration.ofSeconds(1), 1, 1);
+		UUID userId = UUID.randomUUID();
+		AtomicInteger ran = new AtomicInteger();
+
+		CompletableFuture<String> running = admission.submit(userId, this::blockUntilReleased);
+		CompletableFuture<String> queued = admission.submit(userId, () -> {
+			ran.incrementAndGet();
+			return "too late";
+		});
+		queued.cancel(false);
+		release.countDown();
+
+		assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("done");
+		// The pool has one thread, so this runs after the cancelled work has been dropped
+		assertThat(admission.submit(userId, () -> "next").get(5, TimeUnit.SECONDS)).isEqualTo("next");
+		assertThat(ran.get()).isZero();
+		assertThat(count("queue_timed_out")).isEqualTo(1);
+	}
+
+	@Test
+	void writesOnTheFetchPoolCountAsTheRequests() throws Exception {
+		admission = admission(10, Duration.ofSeconds(1), 1, 1);
+		Writer writer = ReadRouting.routeReads(Writer.class, () -> {
+		});
+		AtomicInteger marked = new AtomicInteger();
+
+		ReadRouting.begin(true, marked::incrementAndGet);
+		CompletableFuture<String> saved;
+		try {
+			saved = admission.submit(UUID.randomUUID(), () -> {
+				writer.write();
+				return "saved";
+			});
+		} finally {
+			// As the routing filter does when the servlet thread returns, likely before the fetch has run
+			ReadRouting.end();
+		}
+
+		assertThat(saved.get(5, TimeUnit.SECONDS)).isEqualTo("saved");
+		// Once as the write was made, and again after it
+		assertThat(marked).hasValue(2);
+	}
+
+	@Test
+	void failedFetchesFailTheFuture() {
+		admission = admission(10, Duration.ofSeconds(1), 1, 1);
+
+		CompletableFuture<String> result = admission.submit(UUID.randomUUID(), () -> {
+			throw new IllegalStateException("boom");
+		});
+
+		assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+	}
+
+	private String blockUntilReleased() {
+		try {
+			release.await();
+			return "done";
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private FetchAdmission admission(int burst, Duration refillPeriod, int concurrency, int queueCapacity) {
+		return admission(burst, refillPeriod, concurrency, queueCapacity, Duration.ofSeconds(15));
+	}
+
+	private FetchAdmission admission(int burst, Duration refillPeriod, int concurrency, int queueCapacity,
+									 Duration maxQueueWait) {
+		return new FetchAdmission(new FetchAdmissionProperties(burst, refillPeriod, concurrency, queueCapacity,
+				Duration.ofSeconds(2), maxQueueWait, Duration.ofSeconds(40)), registry);
+	}
+
+	private double count(String outcome) {
+		return registry.get("fetch.admission").tag("outcome", outcome).counter().count();
+	}
+
+	interface Writer {
+		void write();
+	}
+}
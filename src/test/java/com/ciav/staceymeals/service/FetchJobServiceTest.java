@@ -0,0 +1,162 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.FetchJob;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+		"spring.flyway.enabled=true",
+		"staceymeals.fetch-jobs.workers-enabled=true",
+		"staceymeals.fetch-jobs.poll-interval=50ms",
+		"staceymeals.fetch-jobs.initial-backoff=10ms",
+		"staceymeals.fetch-jobs.max-attempts=3"
+})
+@Testcontainers
+class FetchJobServiceTest {
+
+	private static final String RECIPE_PAGE = """
+			<html><head><title>Stub Soup</title>
+			<script type="application/ld+json">{"@type":"Recipe","recipeIngredient":["water"],"recipeInstructions":"Boil."}</script>
+			</head><body></body></html>
+			""";
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	private static final AtomicInteger flakyRequests = new AtomicInteger();
+	private static final AtomicInteger brokenRequests = new AtomicInteger();
+	private static HttpServer server;
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@BeforeAll
+	static void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/ok", exchange -> respond(exchange, 200, RECIPE_PAGE));
+		server.createContext("/flaky", exchange -> {
+			if (flakyRequests.incrementAndGet() == 1) {
+				respond(exchange, 503, "busy");
+			} else {
+				respond(exchange, 200, RECIPE_PAGE);
+			}
+		});
+		server.createContext("/broken", exchange -> {
+			brokenRequests.incrementAndGet();
+			respond(exchange, 500, "oops");
+		});
+		server.createContext("/no-recipe", exchange -> respond(exchange, 200, "<html><body>Nothing here</body></html>"));
+		server.start();
+	}
+
+	@AfterAll
+	static void stopServer() {
+		server.stop(0);
+	}
+
+	@Autowired
+	private FetchJobService fetchJobService;
+
+	@Autowired
+	private RecipeService recipeService;
+
+	@Test
+	void savesTheRecipeUnderTheJobId() throws Exception {
+		UUID userId = UUID.randomUUID();
+		FetchJob queued = fetchJobService.enqueue(userId, url("/ok"));
+		assertThat(queued.getStatus()).isEqualTo(FetchJob.Status.QUEUED);
+
+		FetchJob job = await(userId, queued);
+
+		assertThat(job.getStatus()).isEqualTo(FetchJob.Status.SUCCEEDED);
+		assertThat(job.getAttempts()).isEqualTo(1);
+		assertThat(job.getRecipeId()).isEqualTo(queued.getId());
+		assertThat(recipeService.getRecipe(userId, job.getRecipeId()).getTitle()).isEqualTo("Stub Soup");
+	}
+
+	@Test
+	void retriesTransientFailures() throws Exception {
+		UUID userId = UUID.randomUUID();
+		FetchJob job = await(userId, fetchJobService.enqueue(userId, url("/flaky")));
+
+		assertThat(job.getStatus()).isEqualTo(FetchJob.Status.SUCCEEDED);
+		assertThat(job.getAttempts()).isEqualTo(2);
+		assertThat(job.getLastError()).isNull();
+	}
+
+	@Test
+	void deadLettersAfterMaxAttempts() throws Exception {
+		UUID userId = UUID.randomUUID();
+		FetchJob job = await(userId, fetchJobService.enqueue(userId, url("/broken")));
+
+		assertThat(job.getStatus()).isEqualTo(FetchJob.Status.DEAD);
+		assertThat(job.getAttempts()).isEqualTo(3);
+		assertThat(job.getLastError()).isNotBlank();
+		assertThat(brokenRequests.get()).isEqualTo(3);
+	}
+
+	@Test
+	void deadLettersPagesWithoutARecipeImmediately() throws Exception {
+		UUID userId = UUID.randomUUID();
+		FetchJob job = await(userId, fetchJobService.enqueue(userId, url("/no-recipe")));
+
+		assertThat(job.getStatus()).isEqualTo(FetchJob.Status.DEAD);
+		assertThat(job.getAttempts()).isEqualTo(1);
+	}
+
+	@Test
+	void jobsAreOnlyVisibleToTheirOwner() {
+		FetchJob queued = fetchJobService.enqueue(UUID.randomUUID(), url("/ok"));
+
+		assertThatThrownBy(() -> fetchJobService.awaitJob(UUID.randomUUID(), queued.getId(), Duration.ofSeconds(1)))
+				.isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("not found");
+	}
+
+	private FetchJob await(UUID userId, FetchJob job) throws Exception {
+		return fetchJobService.awaitJob(userId, job.getId(), Duration.ofSeconds(30)).get(35, TimeUnit.SECONDS);
+	}
+
+	private static String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.PantryIndexProperties;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.PantryMatch;
+import com.ciav.staceymeals.model.Recipe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class PantryIndexTest {
+
+	private static final UUID USER_ID = UUID.randomUUID();
+
+	private final RecipeDao recipeDao = mock(RecipeDao.class);
+	private final PantryIndex pantryIndex = new PantryIndex(recipeDao,
+			new PantryIndexProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), new SimpleMeterRegistry());
+
+	@Test
+	void ranksByCoverageAndReportsMissingTerms() {
+		Recipe omelette = recipe("Omelette", List.of("egg", "butter", "chive"));
+		Recipe soup = recipe("Soup", List.of("onion", "carrot", "celery", "stock"));
+		// A row saved before terms were stored
+		Recipe toast = recipe("Toast", null);
+		toast.setIngredients(List.of("2 slices bread", "1 tbsp butter"));
+		when(recipeDao.findIngredientTermsByUserId(USER_ID)).thenReturn(List.of(omelette, soup, toast));
+
+		List<PantryMatch> matches = pantryIndex.match(USER_ID, List.of("3 eggs", "Butter", "onions"), 10);
+
+		assertThat(matches).extracting(PantryMatch::getTitle).containsExactly("Omelette", "Toast", "Soup");
+		assertThat(matches.get(0).getMissing()).containsExactly("chive");
+		assertThat(matches.get(0).getCoverage()).isEqualTo(2.0 / 3);
+		assertThat(matches.get(2).getMatched()).isEqualTo(1);
+	}
+
+	@Test
+	void appliesWritesIncrementallyOnceBuilt() {
+		Recipe omelette = recipe("Omelette", List.of("egg", "butter"));
+		when(recipeDao.findIngredientTermsByUserId(USER_ID)).thenReturn(List.of(omelette));
+		assertThat(pantryIndex.match(USER_ID, List.of("egg"), 10)).hasSize(1);
+
+		Recipe frittata = recipe("Frittata", List.of("egg", "potato"));
+		pantryIndex.upsert(frittata);
+		omelette.setIngredientTerms(List.of("egg", "chive"));
+		pantryIndex.upsert(omelette);
+		pantryIndex.remove(USER_ID, frittata.getId());
+		pantryIndex.upsert(frittata);
+
+		assertThat(pantryIndex.match(USER_ID, List.of("potato", "eggs"), 10))
+				.extracting(PantryMatch::getTitle)
+				.containsExactly("Frittata", "Omelette");
+		assertThat(pantryIndex.match(USER_ID, List.of("butter"), 10)).isEmpty();
+		assertThat(pantryIndex.stats(USER_ID).getRecipes()).isEqualTo(2);
+		verify(recipeDao, times(1)).findIngredientTermsByUserId(USER_ID);
+	}
+
+	private static Recipe recipe(String title, List<String> terms) {
+		return Recipe.builder()
+				.id(UUID.randomUUID())
+				.userId(USER_ID)
+				.title(title)
+				.ingredientTerms(terms)
+				.build();
+	}
+}
@@ -0,0 +1,171 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.RecipeBulkImportResult;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+class RecipeBulkImportServiceTest {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private Jdbi jdbi;
+
+	@Autowired
+	private RecipeBulkImportService bulkImportService;
+
+	@Test
+	void mergesArchiveRemappingForeignIdsAndIsIdempotent() throws IOException {
+		UUID userId = UUID.randomUUID();
+		UUID otherUserId = UUID.randomUUID();
+		UUID dinner = UUID.randomUUID();
+		UUID soups = UUID.randomUUID();
+		UUID soupId = UUID.randomUUID();
+		UUID stewId = UUID.randomUUID();
+		UUID existingId = UUID.randomUUID();
+		jdbi.useHandle(handle -> {
+			// The archive's stew id belongs to someone else, so it must not be overwritten
+			handle.execute("""
+					INSERT INTO recipes (id, user_id, title, content_hash)
+					VALUES (?, ?, 'Not yours', intern_recipe_content(NULL, NULL, NULL, NULL))
+					""", stewId, otherUserId);
+			handle.execute("""
+					INSERT INTO recipes (id, user_id, source_url, title, content_hash)
+					VALUES (?, ?, 'https://example.com/bread', 'Bread', intern_recipe_content(NULL, NULL, NULL, NULL))
+					""", existingId, userId);
+		});
+
+		String archive = String.join("\n",
+				"{\"type\":\"category\",\"id\":\"" + soups + "\",\"name\":\"Soups\",\"parentCategoryId\":\"" + dinner + "\"}",
+				"{\"type\":\"category\",\"id\":\"" + dinner + "\",\"name\":\"Dinner\"}",
+				"{\"id\":\"" + soupId + "\",\"sourceUrl\":\"https://example.com/soup\",\"title\":\"Soup\","
+						+ "\"ingredients\":[\"1 \\\"big\\\" onion\",\"salt\\tpepper \\\\ to taste\"],\"steps\":[\"Boil.\"],"
+						+ "\"rating\":4,\"categories\":[{\"id\":\"" + soups + "\",\"name\":\"Soups\"}]}",
+				"{\"id\":\"" + stewId + "\",\"sourceUrl\":\"https://example.com/stew\",\"title\":\"Stew\",\"steps\":[\"Simmer.\"]}",
+				"{\"sourceUrl\":\"https://www.example.com/bread/?utm_source=x\",\"title\":\"Better bread\"}",
+				"{\"type\":\"link\",\"recipeId\":\"" + stewId + "\",\"categoryId\":\"" + dinner + "\"}",
+				"{\"type\":\"link\",\"recipeId\":\"" + existingId + "\",\"categoryId\":\"" + dinner + "\"}",
+				"{\"type\":\"link\",\"recipeId\":\"" + UUID.randomUUID() + "\",\"categoryId\":\"" + dinner + "\"}",
+				"");
+
+		RecipeBulkImportResult result = bulkImportService.importArchive(userId, gzip(archive));
+
+		assertThat(result.getRecipesRead()).isEqualTo(3);
+		assertThat(result.getRecipesSaved()).isEqualTo(3);
+		assertThat(result.getCategoriesSaved()).isEqualTo(2);
+		assertThat(result.getLinksSaved()).isEqualTo(3);
+		assertThat(result.getLinksSkipped()).isEqualTo(1);
+
+		jdbi.useHandle(handle -> {
+			assertThat(handle.select("SELECT title FROM recipes WHERE id = ?", stewId).mapTo(String.class).one())
+					.isEqualTo("Not yours");
+			UUID newStewId = handle.select("SELECT id FROM recipes WHERE user_id = ? AND title = 'Stew'", userId)
+					.mapTo(UUID.class).one();
+			assertThat(newStewId).isNotEqualTo(stewId);
+			assertThat(handle.select("SELECT count(*) FROM recipes_categories WHERE recipe_id = ? AND category_id = ?",
+					newStewId, dinner).mapTo(Integer.class).one()).isEqualTo(1);
+
+			// The same page under another spelling of its URL updates the recipe the user has
+			assertThat(handle.select("SELECT title FROM recipes WHERE id = ?", existingId).mapTo(String.class).one())
+					.isEqualTo("Better bread");
+			assertThat(handle.select("SELECT count(*) FROM recipes WHERE user_id = ?", userId).mapTo(Integer.class).one())
+					.isEqualTo(3);
+
+			List<String> ingredients = handle.select("""
+							SELECT unnest(c.ingredients) FROM recipes r
+							JOIN recipe_contents c ON c.content_hash = r.content_hash
+							WHERE r.id = ?
+							""", soupId)
+					.mapTo(String.class)
+					.list();
+			assertThat(ingredients).containsExactly("1 \"big\" onion", "salt\tpepper \\ to taste");
+			assertThat(handle.select("SELECT rating FROM recipes WHERE id = ?", soupId).mapTo(Integer.class).one())
+					.isEqualTo(4);
+
+			// Soups was declared before its parent
+			assertThat(handle.select("SELECT parent_category_id FROM categories WHERE id = ?", soups)
+					.mapTo(UUID.class).one()).isEqualTo(dinner);
+			assertThat(handle.select("SELECT count(*) FROM category_closure WHERE ancestor_id = ? AND descendant_id = ?",
+					dinner, soups).mapTo(Integer.class).one()).isEqualTo(1);
+		});
+
+		long versions = versionSum(userId);
+		RecipeBulkImportResult again = bulkImportService.importArchive(userId, plain(archive));
+		assertThat(again.getRecipesSaved()).isZero();
+		assertThat(again.getCategoriesSaved()).isZero();
+		assertThat(again.getLinksSaved()).isZero();
+		assertThat(versionSum(userId)).isEqualTo(versions);
+	}
+
+	@Test
+	void rejectsCategoryCycleWithoutSavingAnything() {
+		UUID userId = UUID.randomUUID();
+		UUID a = UUID.randomUUID();
+		UUID b = UUID.randomUUID();
+		String archive = String.join("\n",
+				"{\"sourceUrl\":\"https://example.com/pie\",\"title\":\"Pie\"}",
+				"{\"type\":\"category\",\"id\":\"" + a + "\",\"name\":\"A\",\"parentCategoryId\":\"" + b + "\"}",
+				"{\"type\":\"category\",\"id\":\"" + b + "\",\"name\":\"B\",\"parentCategoryId\":\"" + a + "\"}");
+
+		assertThatThrownBy(() -> bulkImportService.importArchive(userId, plain(archive)))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+		assertThat(jdbi.withHandle(handle -> handle.select("SELECT count(*) FROM recipes WHERE user_id = ?", userId)
+				.mapTo(Integer.class).one())).isZero();
+	}
+
+	private long versionSum(UUID userId) {
+		return jdbi.withHandle(handle -> handle.select("""
+						SELECT (SELECT coalesce(sum(version), 0) FROM recipes WHERE user_id = :userId)
+						     + (SELECT coalesce(sum(version), 0) FROM categories WHERE user_id = :userId)
+						""")
+				.bind("userId", userId)
+				.mapTo(Long.class)
+				.one());
+	}
+
+	private static ByteArrayInputStream plain(String archive) {
+		return new ByteArrayInputStream(archive.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static ByteArrayInputStream gzip(String archive) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+			out.write(archive.getBytes(StandardCharsets.UTF_8));
+		}
+		return new ByteArrayInputStream(compressed.toByteArray());
+	}
+}
@@ -0,0 +1,101 @@
+package com.ciav.staceymeals.service;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.OutputStream;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports a library far larger than the heap. Runs under the lowHeapTest task, which caps the
+ * heap at 128 MB: 100k recipes with 4 KB of raw JSON each is ~400 MB, so any buffering of the
+ * result set fails with OutOfMemoryError.
+ */
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+@Tag("low-heap")
+class RecipeExportServiceTest {
+
+	private static final int RECIPES = 100_000;
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private Jdbi jdbi;
+
+	@Autowired
+	private RecipeExportService exportService;
+
+	@Test
+	void exportsLargeLibraryInConstantMemory() throws Exception {
+		UUID userId = UUID.randomUUID();
+		UUID categoryId = UUID.randomUUID();
+		jdbi.useHandle(handle -> {
+			handle.execute("INSERT INTO categories (id, user_id, name) VALUES (?, ?, 'Dinner')", categoryId, userId);
+			handle.createUpdate("""
+							INSERT INTO recipes (user_id, title, content_hash)
+							SELECT :userId, 'Recipe ' || n,
+							       intern_recipe_content(ARRAY['1 onion', '2 carrots', n || ' bay leaves'], NULL, ARRAY['Chop.', 'Cook.'],
+							                             repeat('x', 4096) || n)
+							FROM generate_series(1, :count) AS n
+							""")
+					.bind("userId", userId)
+					.bind("count", RECIPES)
+					.execute();
+			handle.createUpdate("""
+							INSERT INTO recipes_categories (recipe_id, category_id)
+							SELECT id, :categoryId FROM recipes WHERE user_id = :userId
+							""")
+					.bind("userId", userId)
+					.bind("categoryId", categoryId)
+					.execute();
+		});
+
+		CountingOutputStream out = new CountingOutputStream();
+		long exported = exportService.exportRecipes(userId, out, false);
+
+		assertThat(exported).isEqualTo(RECIPES);
+		assertThat(out.lines).isEqualTo(RECIPES);
+		assertThat(out.bytes).isGreaterThan((long) RECIPES * 4096);
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		long bytes;
+		long lines;
+
+		@Override
+		public void write(int b) {
+			bytes++;
+			if (b == '\n') lines++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			bytes += len;
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n') lines++;
+			}
+		}
+	}
+}
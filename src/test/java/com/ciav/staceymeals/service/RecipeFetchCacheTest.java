@@ -0,0 +1,120 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeFetchCacheProperties;
+import com.ciav.staceymeals.model.Recipe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipeFetchCacheTest {
+
+	private static final String URL = "https://example.com/soup";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void coalescesConcurrentLoadsOfTheSameUrl() throws Exception {
+		RecipeFetchCache cache = cache(Duration.ofMinutes(1));
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Recipe>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> cache.get(URL, (url, previous) -> {
+					loads.incrementAndGet();
+					awaitQuietly(release);
+					return RecipeFetchCache.FetchResponse.fetched(recipe("Soup"), "\"v1\"", null);
+				})));
+			}
+			Thread.sleep(200);
+			release.countDown();
+
+			for (Future<Recipe> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS).getTitle()).isEqualTo("Soup");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(count("miss")).isEqualTo(1);
+		assertThat(count("coalesced") + count("hit")).isEqualTo(7);
+	}
+
+	@Test
+	void revalidatesStaleEntriesWithStoredValidators() throws Exception {
+		RecipeFetchCache cache = cache(Duration.ofMillis(1));
+		cache.get(URL, (url, previous) -> RecipeFetchCache.FetchResponse.fetched(recipe("Soup"), "\"v1\"", "Tue, 01 Oct 2024 00:00:00 GMT"));
+		Thread.sleep(5);
+
+		List<RecipeFetchCache.CachedRecipe> seen = new ArrayList<>();
+		Recipe recipe = cache.get(URL, (url, previous) -> {
+			seen.add(previous);
+			return RecipeFetchCache.FetchResponse.notModified();
+		});
+
+		assertThat(recipe.getTitle()).isEqualTo("Soup");
+		assertThat(seen).singleElement().satisfies(previous -> {
+			assertThat(previous.etag()).isEqualTo("\"v1\"");
+			assertThat(previous.lastModified()).isEqualTo("Tue, 01 Oct 2024 00:00:00 GMT");
+		});
+		assertThat(count("revalidated")).isEqualTo(1);
+		// Only the first, full fetch missed
+		assertThat(count("miss")).isEqualTo(1);
+	}
+
+	@Test
+	void handsOutIndependentCopies() {
+		RecipeFetchCache cache = cache(Duration.ofMinutes(1));
+		Recipe first = cache.get(URL, (url, previous) -> RecipeFetchCache.FetchResponse.fetched(recipe("Soup"), null, null));
+		first.setUserId(UUID.randomUUID());
+		first.getIngredients().add("extra");
+
+		Recipe second = cache.get(URL, (url, previous) -> {
+			throw new AssertionError("should be served from cache");
+		});
+
+		assertThat(second.getUserId()).isNull();
+		assertThat(second.getIngredients()).containsExactly("water");
+		assertThat(count("hit")).isEqualTo(1);
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private RecipeFetchCache cache(Duration ttl) {
+		return new RecipeFetchCache(new RecipeFetchCacheProperties(100, ttl, Duration.ofHours(1)), registry);
+	}
+
+	private double count(String result) {
+		return registry.get("recipe.fetch.cache.requests").tag("result", result).functionCounter().count();
+	}
+
+	private static Recipe recipe(String title) {
+		return Recipe.builder()
+				.title(title)
+				.ingredients(new ArrayList<>(List.of("water")))
+				.steps(new ArrayList<>(List.of("Boil.")))
+				.build();
+	}
+}
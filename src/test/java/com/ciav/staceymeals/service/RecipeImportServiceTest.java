@@ -0,0 +1,138 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.PantryIndexProperties;
+import com.ciav.staceymeals.config.RecipeFetchCacheProperties;
+import com.ciav.staceymeals.config.RecipeFetchProperties;
+import com.ciav.staceymeals.config.RecipeImportProperties;
+import com.ciav.staceymeals.config.RecipeLoadingProperties;
+import com.ciav.staceymeals.config.UserLibraryCacheProperties;
+import com.ciav.staceymeals.db.dao.RecipeCategoriesDao;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeImportResult;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RecipeImportServiceTest {
+
+	private static final String RECIPE_PAGE = """
+			<html><head><title>Stub Soup</title>
+			<script type="application/ld+json">{"@type":"Recipe","recipeIngredient":["water"],"recipeInstructions":"Boil."}</script>
+			</head><body></body></html>
+			""";
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	private HttpServer server;
+	private RecipeDao recipeDao;
+	private RecipeImportService importService;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/recipes/", exchange -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(50);
+				byte[] body = RECIPE_PAGE.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				inFlight.decrementAndGet();
+			}
+		});
+		server.createContext("/missing", exchange -> {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+		});
+		server.start();
+
+		recipeDao = mock(RecipeDao.class);
+		RecipeFetchCache fetchCache = new RecipeFetchCache(
+				new RecipeFetchCacheProperties(100, Duration.ofMinutes(1), Duration.ofMinutes(5)), registry);
+		UserLibraryCache libraryCache = new UserLibraryCache(
+				new UserLibraryCacheProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5)), registry);
+		PantryIndex pantryIndex = new PantryIndex(recipeDao,
+				new PantryIndexProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), registry);
+		RecipeService recipeService = new RecipeService(recipeDao, mock(RecipeCategoriesDao.class), fetchCache,
+				new RecipePageFetcher(new RecipeFetchProperties(RecipeFetchProperties.Mode.SCAN, DataSize.ofMegabytes(2),
+						Duration.ofSeconds(5), Duration.ofSeconds(10))),
+				libraryCache, pantryIndex,
+				new RecipeLoadingProperties(RecipeLoadingProperties.Strategy.AGGREGATE), registry);
+		importService = new RecipeImportService(recipeService, new RecipeImportProperties(50, 8, 2, 4));
+	}
+
+	@AfterEach
+	void tearDown() {
+		importService.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	void importsConcurrentlyWithinHostCapAndBatchesInserts() throws Exception {
+		String base = "http://127.0.0.1:" + server.getAddress().getPort();
+		List<String> urls = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			urls.add(base + "/recipes/" + i);
+		}
+		urls.add(base + "/missing");
+		urls.add("not a url");
+
+		UUID userId = UUID.randomUUID();
+		List<RecipeImportResult> results = Collections.synchronizedList(new ArrayList<>());
+		importService.importRecipes(userId, urls, results::add).get(30, TimeUnit.SECONDS);
+
+		assertThat(results).hasSize(12);
+		assertThat(results).filteredOn(r -> r.getStatus() == RecipeImportResult.Status.SAVED)
+				.hasSize(10)
+				.allSatisfy(r -> assertThat(r.getRecipeId()).isNotNull());
+		assertThat(results).filteredOn(r -> r.getStatus() == RecipeImportResult.Status.FAILED)
+				.extracting(RecipeImportResult::getUrl)
+				.containsExactlyInAnyOrder(base + "/missing", "not a url");
+
+		// Every stub URL shares one host, so the per-host cap is the binding limit
+		assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<Recipe>> batches = ArgumentCaptor.forClass(List.class);
+		verify(recipeDao, atLeastOnce()).saveBatch(batches.capture());
+		verify(recipeDao, never()).save(any());
+		assertThat(batches.getAllValues()).allSatisfy(batch -> assertThat(batch.size()).isLessThanOrEqualTo(4));
+		assertThat(batches.getAllValues().stream().mapToInt(List::size).sum()).isEqualTo(10);
+		assertThat(batches.getAllValues().get(0)).allSatisfy(r -> assertThat(r.getUserId()).isEqualTo(userId));
+
+		assertThat(registry.get("recipe.fetch").tag("outcome", "success").timer().count()).isEqualTo(10);
+		assertThat(registry.get("recipe.fetch").tag("outcome", "failure").timer().count()).isEqualTo(1);
+		assertThat(registry.get("recipe.fetch.failures").tag("reason", "http_4xx").counter().count()).isEqualTo(1);
+		assertThat(registry.get("recipe.fetch.bytes").summary().totalAmount())
+				.isEqualTo(10.0 * RECIPE_PAGE.getBytes(StandardCharsets.UTF_8).length);
+	}
+}
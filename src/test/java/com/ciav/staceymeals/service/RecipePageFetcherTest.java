@@ -0,0 +1,138 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.RecipeFetchProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecipePageFetcherTest {
+
+	private static final String HEAD = """
+			<html><head><title>Stub Soup</title>
+			<script type="application/ld+json">{"@type":"Recipe","recipeIngredient":["water"],"recipeInstructions":"Boil."}</script>
+			</head>
+			""";
+	private static final String FILLER = "<div class=\"comment\">Looks great, will try this weekend!</div>\n".repeat(20_000);
+
+	private final AtomicReference<String> ifNoneMatch = new AtomicReference<>();
+	private HttpServer server;
+	private String base;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/long", exchange -> send(exchange, HEAD + "<body>" + FILLER + "</body></html>", true));
+		server.createContext("/no-recipe", exchange -> send(exchange, "<html><head><title>Blog</title></head><body>" + FILLER + "</body></html>", false));
+		server.createContext("/latin1", exchange -> {
+			byte[] body = ("<html><head><meta charset=\"iso-8859-1\"><title>Crème brûlée</title>"
+					+ "<script type=\"application/ld+json\">{\"@type\":\"Recipe\",\"recipeIngredient\":[\"crème fraîche\"],\"recipeInstructions\":\"Chill.\"}</script>"
+					+ "</head></html>").getBytes(StandardCharsets.ISO_8859_1);
+			exchange.getResponseHeaders().add("Content-Type", "text/html");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.createContext("/cached", exchange -> {
+			ifNoneMatch.set(exchange.getRequestHeaders().getFirst("If-None-Match"));
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+		});
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void stopsReadingAtTheRecipeBlock() throws IOException {
+		RecipePageFetcher.Page page = fetcher(DataSize.ofMegabytes(2)).fetch(base + "/long", null, null);
+
+		assertThat(page.status()).isEqualTo(200);
+		assertThat(page.etag()).isEqualTo("\"v1\"");
+		assertThat(page.scanned().title()).isEqualTo("Stub Soup");
+		assertThat(page.scanned().recipe().getIngredients()).containsExactly("water");
+		assertThat(page.document()).isNull();
+		// The gzip'd body decodes to well over a megabyte; only the first chunks are read
+		assertThat(page.bytesRead()).isLessThan(64 * 1024);
+	}
+
+	@Test
+	void parsesTheWholePageWhenTheScanFindsNothing() throws IOException {
+		RecipePageFetcher.Page page = fetcher(DataSize.ofMegabytes(2)).fetch(base + "/no-recipe", null, null);
+
+		assertThat(page.scanned()).isNull();
+		assertThat(page.document().title()).isEqualTo("Blog");
+		assertThat(page.bytesRead()).isGreaterThan(FILLER.length());
+	}
+
+	@Test
+	void neverReadsPastTheCap() throws IOException {
+		RecipePageFetcher.Page page = fetcher(DataSize.ofKilobytes(100)).fetch(base + "/no-recipe", null, null);
+
+		assertThat(page.scanned()).isNull();
+		assertThat(page.bytesRead()).isEqualTo(100 * 1024);
+	}
+
+	@Test
+	void decodesWithTheMetaCharsetWhenTheHeaderHasNone() throws IOException {
+		RecipePageFetcher.Page page = fetcher(DataSize.ofMegabytes(2)).fetch(base + "/latin1", null, null);
+
+		assertThat(page.scanned().title()).isEqualTo("Crème brûlée");
+		assertThat(page.scanned().recipe().getIngredients()).containsExactly("crème fraîche");
+	}
+
+	@Test
+	void sendsValidatorsAndReportsNotModified() throws IOException {
+		RecipePageFetcher.Page page = fetcher(DataSize.ofMegabytes(2)).fetch(base + "/cached", "\"v1\"", null);
+
+		assertThat(page.status()).isEqualTo(304);
+		assertThat(page.scanned()).isNull();
+		assertThat(page.document()).isNull();
+		assertThat(ifNoneMatch.get()).isEqualTo("\"v1\"");
+	}
+
+	private static RecipePageFetcher fetcher(DataSize maxBodySize) {
+		return new RecipePageFetcher(new RecipeFetchProperties(
+				RecipeFetchProperties.Mode.SCAN, maxBodySize, Duration.ofSeconds(5), Duration.ofSeconds(10)));
+	}
+
+	private static void send(HttpExchange exchange, String html, boolean gzip) throws IOException {
+		byte[] body = html.getBytes(StandardCharsets.UTF_8);
+		if (gzip && exchange.getRequestHeaders().getFirst("Accept-Encoding").contains("gzip")) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+				out.write(body);
+			}
+			body = compressed.toByteArray();
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+		}
+		exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+		exchange.getResponseHeaders().add("ETag", "\"v1\"");
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		} catch (IOException e) {
+			// The fetcher hangs up once it has what it needs
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.model.Category;
+import com.ciav.staceymeals.model.Recipe;
+import com.ciav.staceymeals.model.RecipeChanges;
+import com.ciav.staceymeals.model.RecipesCategories;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.flyway.enabled=true")
+@Testcontainers
+class RecipeSyncServiceTest {
+
+	@Container
+	static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine")
+			.withDatabaseName("meals_test")
+			.withUsername("test")
+			.withPassword("test");
+
+	@DynamicPropertySource
+	static void configureProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", postgres::getJdbcUrl);
+		registry.add("spring.datasource.username", postgres::getUsername);
+		registry.add("spring.datasource.password", postgres::getPassword);
+	}
+
+	@Autowired
+	private RecipeService recipeService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private RecipeSyncService syncService;
+
+	@Autowired
+	private Jdbi jdbi;
+
+	@Test
+	void returnsOnlyWhatChangedSinceTheToken() {
+		UUID userId = UUID.randomUUID();
+		Recipe soup = recipeService.saveRecipe(recipe(userId, "Soup"));
+		Recipe stew = recipeService.saveRecipe(recipe(userId, "Stew"));
+		Category dinners = categoryService.upsertCategory(Category.builder().id(UUID.randomUUID()).userId(userId).name("Dinners").build());
+		recipeService.categorizeRecipe(userId, soup.getId(), dinners.getId());
+
+		RecipeChanges initial = syncService.getChanges(userId, null, null);
+		assertThat(initial.getUpserted()).extracting(Recipe::getTitle).containsExactlyInAnyOrder("Soup", "Stew");
+		assertThat(initial.getLinked()).containsExactly(new RecipesCategories(soup.getId(), dinners.getId()));
+		assertThat(initial.isHasMore()).isFalse();
+
+		assertThat(syncService.getChanges(userId, initial.getToken(), null).getUpserted()).isEmpty();
+
+		stew.setTitle("Better stew");
+		recipeService.updateRecipe(userId, stew.getId(), stew);
+		recipeService.uncategorizeRecipe(userId, soup.getId(), dinners.getId());
+		recipeService.deleteRecipe(userId, soup.getId());
+
+		RecipeChanges delta = syncService.getChanges(userId, initial.getToken(), null);
+		assertThat(delta.getUpserted()).extracting(Recipe::getTitle).containsExactly("Better stew");
+		assertThat(delta.getDeleted()).containsExactly(soup.getId());
+		assertThat(delta.getUnlinked()).containsExactly(new RecipesCategories(soup.getId(), dinners.getId()));
+		assertThat(syncService.getChanges(UUID.randomUUID(), null, null).getUpserted()).isEmpty();
+	}
+
+	@Test
+	void pagesThroughLargeDeltas() {
+		UUID userId = UUID.randomUUID();
+		for (int i = 0; i < 5; i++) {
+			recipeService.saveRecipe(recipe(userId, "Recipe " + i));
+		}
+
+		List<Recipe> seen = new ArrayList<>();
+		String token = null;
+		RecipeChanges page;
+		do {
+			page = syncService.getChanges(userId, token, 2);
+			seen.addAll(page.getUpserted());
+			token = page.getToken();
+		} while (page.isHasMore());
+
+		assertThat(seen).hasSize(5);
+	}
+
+	@Test
+	void firstSyncReadsTheLibraryRatherThanTheLog() {
+		UUID userId = UUID.randomUUID();
+		Recipe gone = recipeService.saveRecipe(recipe(userId, "Gone"));
+		recipeService.deleteRecipe(userId, gone.getId());
+		Recipe kept = recipeService.saveRecipe(recipe(userId, "Kept"));
+		kept.setTitle("Kept, renamed");
+		recipeService.updateRecipe(userId, kept.getId(), kept);
+
+		RecipeChanges initial = syncService.getChanges(userId, null, null);
+		assertThat(initial.getUpserted()).extracting(Recipe::getTitle).containsExactly("Kept, renamed");
+		assertThat(initial.getDeleted()).isEmpty();
+
+		// Picks the log up where the library was read
+		recipeService.saveRecipe(recipe(userId, "Later"));
+		assertThat(syncService.getChanges(userId, initial.getToken(), null).getUpserted())
+				.extracting(Recipe::getTitle).containsExactly("Later");
+	}
+
+	@Test
+	void refusesTokensOlderThanTheRetention() {
+		UUID userId = UUID.randomUUID();
+		Recipe soup = recipeService.saveRecipe(recipe(userId, "Soup"));
+		String stale = syncService.getChanges(userId, null, null).getToken();
+		soup.setTitle("Old soup");
+		recipeService.updateRecipe(userId, soup.getId(), soup);
+		String current = syncService.getChanges(userId, stale, null).getToken();
+
+		jdbi.useHandle(handle -> handle.createUpdate(
+						"UPDATE recipe_changes SET changed_at = changed_at - interval '365 days' WHERE user_id = :userId")
+				.bind("userId", userId)
+				.execute());
+		assertThat(syncService.pruneChanges()).isPositive();
+
+		assertThatThrownBy(() -> syncService.getChanges(userId, stale, null))
+				.isInstanceOf(ResponseStatusException.class)
+				.satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.GONE));
+		assertThat(syncService.getChanges(userId, current, null).getUpserted()).isEmpty();
+		assertThat(syncService.getChanges(userId, null, null).getUpserted())
+				.extracting(Recipe::getTitle).containsExactly("Old soup");
+	}
+
+	private static Recipe recipe(UUID userId, String title) {
+		return Recipe.builder()
+				.userId(userId)
+				.title(title)
+				.ingredients(List.of("water"))
+				.steps(List.of("Boil."))
+				.build();
+	}
+}
@@ -0,0 +1,162 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.ThumbnailProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThumbnailCacheTest {
+
+	@TempDir
+	Path directory;
+
+	private final AtomicInteger imageRequests = new AtomicInteger();
+	private HttpServer server;
+	private byte[] png;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		png = png(1200, 800);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/images/", exchange -> {
+			imageRequests.incrementAndGet();
+			exchange.getResponseHeaders().add("Content-Type", "image/png");
+			exchange.sendResponseHeaders(200, png.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(png);
+			}
+		});
+		server.createContext("/not-an-image", exchange -> {
+			byte[] body = "<html></html>".getBytes();
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		server.stop(0);
+	}
+
+	@Test
+	void fetchesOnceAndServesEveryWidthFromDisk() throws IOException {
+		ThumbnailCache cache = cache(DataSize.ofMegabytes(10));
+
+		Path small = cache.get(url("/images/a.png"), 160);
+		Path large = cache.get(url("/images/a.png"), 640);
+		Path again = cache.get(url("/images/a.png"), 160);
+
+		assertThat(imageRequests.get()).isEqualTo(1);
+		assertThat(again).isEqualTo(small);
+		assertThat(ImageIO.read(small.toFile()).getWidth()).isEqualTo(160);
+		assertThat(ImageIO.read(large.toFile()).getHeight()).isEqualTo(427);
+	}
+
+	@Test
+	void storesTheSameImageOnceWhateverItsUrl() {
+		ThumbnailCache cache = cache(DataSize.ofMegabytes(10));
+
+		assertThat(cache.get(url("/images/a.png"), 160)).isEqualTo(cache.get(url("/images/b.png"), 160));
+	}
+
+	@Test
+	void evictsToFitAndRebuildsOnDemand() {
+		Path thumbnail = cache(DataSize.ofMegabytes(10)).get(url("/images/a.png"), 640);
+
+		// Reopened too small to hold anything: what's on disk goes at startup
+		ThumbnailCache cramped = cache(DataSize.ofBytes(1));
+		assertThat(Files.exists(thumbnail)).isFalse();
+		assertThat(cramped.totalBytes()).isZero();
+
+		// A rebuilt thumbnail outlives the eviction its own write triggers
+		assertThat(Files.exists(cramped.get(url("/images/a.png"), 640))).isTrue();
+		assertThat(imageRequests.get()).isEqualTo(2);
+	}
+
+	@Test
+	void rebuildsAThumbnailDeletedFromUnderIt() throws IOException {
+		ThumbnailCache cache = cache(DataSize.ofMegabytes(10));
+		Path thumbnail = cache.get(url("/images/a.png"), 320);
+
+		Files.delete(thumbnail);
+
+		assertThat(cache.get(url("/images/a.png"), 320)).isEqualTo(thumbnail).exists();
+		assertThat(imageRequests.get()).isEqualTo(2);
+	}
+
+	@Test
+	void defaultsToTheMiddleConfiguredWidth() {
+		ThumbnailProperties properties = new ThumbnailProperties(directory, DataSize.ofMegabytes(10), List.of(200, 400, 800),
+				null, DataSize.ofMegabytes(5), 50_000_000, Duration.ofSeconds(5), Duration.ofDays(30));
+
+		assertThat(properties.defaultWidth()).isEqualTo(400);
+		assertThatThrownBy(() -> new ThumbnailProperties(directory, DataSize.ofMegabytes(10), List.of(200, 400, 800),
+				320, DataSize.ofMegabytes(5), 50_000_000, Duration.ofSeconds(5), Duration.ofDays(30)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void refusesSourcesOverThePixelLimitBeforeDecodingThem() {
+		// The 1200x800 source is 960,000 pixels
+		assertThatThrownBy(() -> cache(DataSize.ofMegabytes(10), 500_000).get(url("/images/a.png"), 160))
+				.isInstanceOf(ResponseStatusException.class)
+				.hasMessageContaining("1200x800");
+		assertThat(directory.resolve("variants")).isEmptyDirectory();
+	}
+
+	@Test
+	void rejectsUnsupportedWidthsAndNonImages() {
+		ThumbnailCache cache = cache(DataSize.ofMegabytes(10));
+
+		assertThatThrownBy(() -> cache.get(url("/images/a.png"), 333)).isInstanceOf(ResponseStatusException.class);
+		assertThatThrownBy(() -> cache.get(url("/not-an-image"), 160)).isInstanceOf(ResponseStatusException.class);
+	}
+
+	private ThumbnailCache cache(DataSize maxSize) {
+		return cache(maxSize, 50_000_000);
+	}
+
+	private ThumbnailCache cache(DataSize maxSize, long maxSourcePixels) {
+		return new ThumbnailCache(new ThumbnailProperties(directory, maxSize, List.of(160, 320, 640), null,
+				DataSize.ofMegabytes(5), maxSourcePixels, Duration.ofSeconds(5), Duration.ofDays(30)), new SimpleMeterRegistry());
+	}
+
+	private String url(String path) {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+	}
+
+	private static byte[] png(int width, int height) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, 0xff000000 | (x % 256) << 16 | (y % 256) << 8);
+			}
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
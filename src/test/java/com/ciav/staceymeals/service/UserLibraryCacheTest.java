@@ -0,0 +1,137 @@
+package com.ciav.staceymeals.service;
+
+import com.ciav.staceymeals.config.PantryIndexProperties;
+import com.ciav.staceymeals.config.RecipeFetchCacheProperties;
+import com.ciav.staceymeals.config.RecipeLoadingProperties;
+import com.ciav.staceymeals.config.UserLibraryCacheProperties;
+import com.ciav.staceymeals.db.dao.RecipeCategoriesDao;
+import com.ciav.staceymeals.db.dao.RecipeDao;
+import com.ciav.staceymeals.model.Recipe;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserLibraryCacheTest {
+
+	private static final UUID USER_ID = UUID.randomUUID();
+	private static final UUID RECIPE_ID = UUID.randomUUID();
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	/**
+	 * Readers race a writer through RecipeService against a fake DAO whose reads are slow enough
+	 * to straddle writes. Once updateRecipe has returned version N, no read that starts
+	 * afterwards may observe anything older.
+	 */
+	@Test
+	void noStaleReadSurvivesAWrite() throws Exception {
+		AtomicReference<Recipe> row = new AtomicReference<>(recipe(0));
+		RecipeDao recipeDao = mock(RecipeDao.class);
+		when(recipeDao.findByIdAndUserId(any(), any())).thenAnswer(invocation -> {
+			Recipe snapshot = row.get();
+			Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+			return Optional.of(snapshot.toBuilder().build());
+		});
+		when(recipeDao.update(any(), any())).thenAnswer(invocation -> {
+			Recipe saved = invocation.getArgument(0);
+			row.set(saved.toBuilder().build());
+			return Optional.of((long) version(saved));
+		});
+
+		UserLibraryCache cache = new UserLibraryCache(
+				new UserLibraryCacheProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1), Duration.ofSeconds(5)), registry);
+		RecipeService recipeService = new RecipeService(recipeDao, mock(RecipeCategoriesDao.class),
+				new RecipeFetchCache(new RecipeFetchCacheProperties(10, Duration.ofMinutes(1), Duration.ofMinutes(1)), registry),
+				mock(RecipePageFetcher.class),
+				cache,
+				new PantryIndex(recipeDao, new PantryIndexProperties(DataSize.ofMegabytes(1), Duration.ofMinutes(1), Duration.ofMinutes(1)), registry),
+				new RecipeLoadingProperties(RecipeLoadingProperties.Strategy.AGGREGATE), registry);
+
+		AtomicInteger committed = new AtomicInteger();
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		try {
+			List<Future<Integer>> readers = new ArrayList<>();
+			for (int r = 0; r < 4; r++) {
+				readers.add(executor.submit(() -> {
+					int reads = 0;
+					while (writing.get()) {
+						int floor = committed.get();
+						int seen = version(recipeService.getRecipe(USER_ID, RECIPE_ID));
+						assertThat(seen).as("read started after version %d was committed", floor).isGreaterThanOrEqualTo(floor);
+						reads++;
+					}
+					return reads;
+				}));
+			}
+
+			for (int v = 1; v <= 200; v++) {
+				recipeService.updateRecipe(USER_ID, RECIPE_ID, recipe(v));
+				committed.set(v);
+				Thread.sleep(1);
+			}
+			writing.set(false);
+
+			for (Future<Integer> reader : readers) {
+				assertThat(reader.get(10, TimeUnit.SECONDS)).isPositive();
+			}
+		} finally {
+			writing.set(false);
+			executor.shutdownNow();
+		}
+
+		assertThat(version(recipeService.getRecipe(USER_ID, RECIPE_ID))).isEqualTo(200);
+		assertThat(registry.get("cache.gets").tag("cache", "user-library").tag("result", "hit").functionCounter().count())
+				.isPositive();
+	}
+
+	/**
+	 * A write on another node never reaches this node's cache, so even an entry read constantly
+	 * has to be reloaded eventually.
+	 */
+	@Test
+	void readsDoNotKeepAnEntryPastExpireAfterWrite() throws Exception {
+		UserLibraryCache cache = new UserLibraryCache(new UserLibraryCacheProperties(DataSize.ofMegabytes(1),
+				Duration.ofMinutes(1), Duration.ofMillis(200), Duration.ofSeconds(5)), registry);
+		AtomicInteger loads = new AtomicInteger();
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+		while (System.nanoTime() < deadline) {
+			cache.get(USER_ID, UserLibraryCache.Kind.RECIPE, RECIPE_ID, () -> recipe(loads.incrementAndGet()));
+			Thread.sleep(10);
+		}
+
+		assertThat(loads.get()).isBetween(2, 4);
+	}
+
+	private static Recipe recipe(int version) {
+		return Recipe.builder()
+				.id(RECIPE_ID)
+				.userId(USER_ID)
+				.title("v" + version)
+				.build();
+	}
+
+	private static int version(Recipe recipe) {
+		return Integer.parseInt(recipe.getTitle().substring(1));
+	}
+}